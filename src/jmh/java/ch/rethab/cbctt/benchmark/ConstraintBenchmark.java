@@ -0,0 +1,53 @@
+package ch.rethab.cbctt.benchmark;
+
+import ch.rethab.cbctt.formulation.Formulation;
+import ch.rethab.cbctt.formulation.constraint.Constraint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the violations of a single constraint or objective of the UD1
+ * formulation on the timetables of the population.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstraintBenchmark {
+
+    @Param({"LecturesConstraint", "ConflictsConstraint", "RoomOccupancyConstraint",
+            "TeacherAvailabilityConstraint", "RoomCapacityConstraint",
+            "MinWorkingDaysConstraint", "IsolatedLecturesConstraint"})
+    public String constraint;
+
+    private Constraint c;
+
+    private int next;
+
+    @Setup
+    public void setup(InstanceState state) {
+        List<Constraint> all = new ArrayList<>();
+        for (Constraint constraint : state.formulation.getConstraints()) {
+            all.add(constraint);
+        }
+        for (Formulation.Objective objective : state.formulation.getObjectives()) {
+            all.add(objective.constraint);
+        }
+        c = all.stream()
+                .filter(constraint -> constraint.getClass().getSimpleName().equals(this.constraint))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No such constraint: " + constraint));
+    }
+
+    @Benchmark
+    public int violations(InstanceState state) {
+        return c.violations(state.get(next++));
+    }
+}
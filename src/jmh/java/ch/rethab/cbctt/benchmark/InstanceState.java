@@ -0,0 +1,76 @@
+package ch.rethab.cbctt.benchmark;
+
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.TeacherGreedyInitializer;
+import ch.rethab.cbctt.ea.op.Evaluator;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.formulation.Formulation;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+import ch.rethab.cbctt.moea.SolutionConverter;
+import ch.rethab.cbctt.parser.ECTTParser;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * One of the bundled instances together with everything the solver
+ * builds on top of it, including a small initial population. comp00 is
+ * left out since the initializer does not reliably find a feasible
+ * timetable for it.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+@State(Scope.Benchmark)
+public class InstanceState {
+
+    static final int POPULATION_SIZE = 8;
+
+    @Param({"comp01", "comp02", "comp03", "comp04", "comp05", "comp06", "comp07",
+            "comp08", "comp09", "comp10", "comp11", "comp12", "comp13", "comp14",
+            "comp15", "comp16", "comp17", "comp18", "comp19", "comp20", "comp21"})
+    public String instance;
+
+    /** the raw instance file */
+    String content;
+
+    Specification spec;
+    Formulation formulation;
+    SolutionConverter solutionConverter;
+    GreedyRoomAssigner roomAssigner;
+    Evaluator evaluator;
+
+    List<TimetableWithRooms> population;
+
+    @Setup
+    public void setup() throws IOException {
+        InputStream is = getClass().getClassLoader().getResourceAsStream(instance + ".ectt");
+        if (is == null) {
+            throw new FileNotFoundException(instance + ".ectt is not on the classpath");
+        }
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            content = br.lines().collect(Collectors.joining("\n", "", "\n"));
+        }
+
+        spec = parse();
+        formulation = new UD1Formulation(spec);
+        solutionConverter = new SolutionConverter(formulation);
+        roomAssigner = new GreedyRoomAssigner(spec);
+        evaluator = new Evaluator(formulation, solutionConverter);
+        population = new TeacherGreedyInitializer(spec, roomAssigner).initialize(POPULATION_SIZE);
+    }
+
+    Specification parse() throws IOException {
+        return new ECTTParser(new BufferedReader(new StringReader(content))).parse();
+    }
+
+    TimetableWithRooms get(int i) {
+        return population.get(Math.floorMod(i, population.size()));
+    }
+}
@@ -0,0 +1,146 @@
+package ch.rethab.cbctt.benchmark;
+
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.TeacherGreedyInitializer;
+import ch.rethab.cbctt.ea.op.EvaluationCache;
+import ch.rethab.cbctt.ea.op.Evaluator;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.Meeting;
+import ch.rethab.cbctt.ea.phenotype.MeetingWithRoom;
+import ch.rethab.cbctt.ea.phenotype.Move;
+import ch.rethab.cbctt.ea.phenotype.Timetable;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.formulation.CostBreakdown;
+import org.moeaframework.core.Solution;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, initialization, room assignment and evaluation of a timetable.
+ * The timetables are taken round robin from the population of the
+ * instance.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SolverBenchmark {
+
+    private int next;
+
+    /* the cache only holds the previous timetable, which is never evaluated next */
+    private Evaluator uncachedEvaluator;
+
+    /* the population without rooms, built from scratch so no parent rooms are reused */
+    private List<Timetable> withoutRooms;
+
+    /* offspring of the population that differ in one lecture from their parent */
+    private List<CompactTimetable> parents;
+    private List<CostBreakdown> parentCosts;
+    private List<CompactTimetable> children;
+    private List<List<Move>> moves;
+
+    @Setup
+    public void setup(InstanceState state) {
+        Specification spec = state.spec;
+        withoutRooms = new ArrayList<>();
+        parents = new ArrayList<>();
+        parentCosts = new ArrayList<>();
+        children = new ArrayList<>();
+        moves = new ArrayList<>();
+        uncachedEvaluator = new Evaluator(state.formulation, state.solutionConverter, new EvaluationCache(1));
+
+        for (TimetableWithRooms t : state.population) {
+            Timetable tt = new Timetable(spec);
+            t.getMeetings().forEach(m -> tt.addMeeting(m.withoutRoom()));
+            withoutRooms.add(tt);
+
+            CompactTimetable parent = CompactTimetable.fromWithRooms(spec, t);
+            CompactTimetable child = CompactTimetable.fromWithRooms(spec, state.roomAssigner.assignRooms(moveOneLecture(t)));
+            parents.add(parent);
+            parentCosts.add(state.formulation.evaluate(parent));
+            children.add(child);
+            moves.add(parent.diff(child));
+        }
+    }
+
+    /* moves the first meeting that fits into the next slot */
+    private Timetable moveOneLecture(TimetableWithRooms t) {
+        int nSlots = t.getSpecification().getNumberOfDaysPerWeek() * t.getSpecification().getPeriodsPerDay();
+        int periodsPerDay = t.getSpecification().getPeriodsPerDay();
+        for (MeetingWithRoom mwr : t.getMeetings()) {
+            Meeting m = mwr.withoutRoom();
+            int slot = (m.getDay() * periodsPerDay + m.getPeriod() + 1) % nSlots;
+            Meeting moved = new Meeting(m.getCourse(), slot / periodsPerDay, slot % periodsPerDay);
+            Timetable child = t.newChild();
+            child.removeMeeting(m);
+            try {
+                if (child.addMeeting(moved)) {
+                    return child;
+                }
+            } catch (Timetable.InfeasibilityException ignored) {
+                // next one
+            }
+        }
+        return t.newChild();
+    }
+
+    private int nextIndex(InstanceState state) {
+        return next++ % state.population.size();
+    }
+
+    @Benchmark
+    public Specification parse(InstanceState state) throws IOException {
+        return state.parse();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<TimetableWithRooms> initialize(InstanceState state) {
+        return new TeacherGreedyInitializer(state.spec, state.roomAssigner).initialize(1);
+    }
+
+    /** all slots are solved, but the cache is shared with the rest of the run */
+    @Benchmark
+    public TimetableWithRooms assignRooms(InstanceState state) {
+        return state.roomAssigner.assignRooms(withoutRooms.get(nextIndex(state)));
+    }
+
+    /** all slots are solved from scratch, the new cache is too small to help */
+    @Benchmark
+    public TimetableWithRooms assignRoomsUncached(InstanceState state) {
+        return new GreedyRoomAssigner(state.spec, 1).assignRooms(withoutRooms.get(nextIndex(state)));
+    }
+
+    /** a new solution has no cost and the cache always misses, so this is always a full evaluation */
+    @Benchmark
+    public Solution evaluate(InstanceState state) {
+        Solution s = state.solutionConverter.toSolution(state.get(nextIndex(state)));
+        uncachedEvaluator.evaluate(s);
+        return s;
+    }
+
+    /** the population fits into the cache, so after warm-up this is a cache hit */
+    @Benchmark
+    public Solution evaluateCached(InstanceState state) {
+        Solution s = state.solutionConverter.toSolution(state.get(nextIndex(state)));
+        state.evaluator.evaluate(s);
+        return s;
+    }
+
+    @Benchmark
+    public CostBreakdown evaluateDelta(InstanceState state) {
+        int i = nextIndex(state);
+        return state.formulation.evaluateDelta(parentCosts.get(i), parents.get(i), children.get(i), moves.get(i));
+    }
+}
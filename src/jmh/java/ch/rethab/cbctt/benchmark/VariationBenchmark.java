@@ -0,0 +1,76 @@
+package ch.rethab.cbctt.benchmark;
+
+import ch.rethab.cbctt.ea.op.*;
+import org.moeaframework.core.Solution;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates offspring with one of the variation operators. The parents are
+ * evaluated and taken round robin from the population, like they would
+ * be selected from the archive during a run.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VariationBenchmark {
+
+    private static final int SECTOR_SIZE = 3;
+
+    @Param({"CourseBasedCrossover", "CurriculumBasedCrossover", "SectorBasedCrossover", "CourseBasedMutation",
+            "KempeChainMutation"})
+    public String operator;
+
+    private CbcttVariation variation;
+
+    private List<Solution> parents;
+
+    private int next;
+
+    @Setup
+    public void setup(InstanceState state) {
+        switch (operator) {
+            case "CourseBasedCrossover":
+                variation = new CourseBasedCrossover(state.spec, state.solutionConverter, state.roomAssigner);
+                break;
+            case "CurriculumBasedCrossover":
+                variation = new CurriculumBasedCrossover(state.spec, state.solutionConverter, state.roomAssigner);
+                break;
+            case "SectorBasedCrossover":
+                variation = new SectorBasedCrossover(state.spec, state.solutionConverter, state.roomAssigner, SECTOR_SIZE);
+                break;
+            case "CourseBasedMutation":
+                variation = new CourseBasedMutation(state.spec, state.solutionConverter, state.roomAssigner, 1);
+                break;
+            case "KempeChainMutation":
+                variation = new KempeChainMutation(state.spec, state.solutionConverter, 1);
+                break;
+            default:
+                throw new IllegalArgumentException("No such operator: " + operator);
+        }
+
+        parents = new ArrayList<>();
+        state.population.forEach(t -> {
+            Solution s = state.solutionConverter.toSolution(t);
+            state.evaluator.evaluate(s);
+            parents.add(s);
+        });
+    }
+
+    @Benchmark
+    public Solution[] evolve() {
+        Solution[] solutions = new Solution[variation.getArity()];
+        for (int i = 0; i < solutions.length; i++) {
+            solutions[i] = parents.get(next++ % parents.size());
+        }
+        return variation.evolve(solutions);
+    }
+}
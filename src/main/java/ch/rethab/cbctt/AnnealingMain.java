@@ -0,0 +1,60 @@
+package ch.rethab.cbctt;
+
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.SaturationInitializer;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.ea.printer.UdinePrinter;
+import ch.rethab.cbctt.formulation.CostBreakdown;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+import ch.rethab.cbctt.parser.ECTTParser;
+import ch.rethab.cbctt.sa.SimulatedAnnealing;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves an instance with simulated annealing and writes the timetable in
+ * the format of the Udine validator to the specified file. The log stays
+ * on the console, so it doesn't end up in the solution.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class AnnealingMain {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            throw new FileNotFoundException("First parameter must be file that exists! Second is the file for the solution, " +
+                    "third the budget in seconds, fourth the seed");
+        }
+        String filename = args[0];
+        String solutionFilename = args[1];
+        long budgetSeconds = args.length >= 3 ? Long.parseLong(args[2]) : 60;
+        long seed = args.length == 4 ? Long.parseLong(args[3]) : System.currentTimeMillis();
+
+        Specification spec = new ECTTParser(new BufferedReader(new FileReader(filename))).parse();
+        UD1Formulation formulation = new UD1Formulation(spec);
+        RandomStreams random = new RandomStreams(seed);
+        Logger.info("Seed=" + seed);
+
+        SimulatedAnnealing annealing = new SimulatedAnnealing(spec, formulation,
+                new SaturationInitializer(spec, new GreedyRoomAssigner(spec), random), random);
+        TimetableWithRooms t = annealing.solve(TimeUnit.SECONDS.toMillis(budgetSeconds));
+
+        CostBreakdown cost = formulation.evaluate(t);
+        int total = 0;
+        for (int i = 0; i < formulation.getNumberOfObjectives(); i++) {
+            total += cost.getObjectiveViolations(i) * formulation.getObjectives()[i].penalty;
+        }
+        Logger.info(String.format("Cost=%d, %s, Moves=%d, Reheats=%d", total, cost, annealing.getMoves(), annealing.getReheats()));
+
+        try (Writer writer = new FileWriter(solutionFilename)) {
+            writer.write(new UdinePrinter().print(t));
+        }
+    }
+}
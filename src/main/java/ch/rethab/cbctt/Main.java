@@ -4,10 +4,13 @@ import ch.rethab.cbctt.domain.Specification;
 import ch.rethab.cbctt.ea.CbcttRunner;
 import ch.rethab.cbctt.ea.CbcttStaticParameters;
 import ch.rethab.cbctt.ea.CurriculumBasedTimetabling;
+import ch.rethab.cbctt.ea.IslandRunner;
+import ch.rethab.cbctt.ea.initializer.InitialPopulationCache;
 import ch.rethab.cbctt.ea.op.CbcttVariation;
+import ch.rethab.cbctt.ea.op.EvaluationCache;
 import ch.rethab.cbctt.ea.op.Evaluator;
 import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
-import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.RoomAssignmentCache;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 import ch.rethab.cbctt.ea.printer.PrettyTextPrinter;
 import ch.rethab.cbctt.formulation.Formulation;
@@ -22,6 +25,7 @@ import org.moeaframework.analysis.collector.Accumulator;
 import org.moeaframework.core.NondominatedPopulation;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -32,14 +36,23 @@ import java.util.concurrent.Executors;
  */
 public class Main {
 
+    /*
+     * directory to keep feasible initial timetables of earlier runs in. only
+     * used if set (-Dcbctt.initCache=<dir>), since with the cache the start
+     * population doesn't only depend on the seed anymore
+     */
+    private static final String INIT_CACHE_PROPERTY = "cbctt.initCache";
+
     public static void main(String args[]) throws IOException, InterruptedException {
-        if (args.length != 1) {
-            throw new FileNotFoundException("First parameter must be file that exists!");
+        if (args.length < 1 || args.length > 3) {
+            throw new FileNotFoundException("First parameter must be file that exists! Second is the number of islands, third the seed");
         }
         String filename = args[0];
+        int islands = args.length >= 2 ? Integer.parseInt(args[1]) : 1;
+        long seed = args.length == 3 ? Long.parseLong(args[2]) : System.currentTimeMillis();
 
         double mutationProbability = 0.95;
-        // int sectorSize = 3;
+        int sectorSize = 3;
         int populationSize = 30;
         int archiveSize = 30; // if archive size is too small, we spend a lot of time truncating
         int k = 3;
@@ -56,11 +69,13 @@ public class Main {
 
 
         Specification spec = new ECTTParser(new BufferedReader(new FileReader(filename))).parse();
-        RoomAssigner roomAssigner = new GreedyRoomAssigner(spec);
+        GreedyRoomAssigner roomAssigner = new GreedyRoomAssigner(spec);
         Formulation formulation = new UD1Formulation(spec);
         SolutionConverter solutionConverter = new SolutionConverter(formulation);
         Evaluator evaluator = new Evaluator(formulation, solutionConverter);
-        VariationFactory variationFactory = new VariationFactory(spec, solutionConverter, roomAssigner);
+        RandomStreams random = new RandomStreams(seed);
+        Logger.info("Seed=" + seed);
+        VariationFactory variationFactory = new VariationFactory(spec, solutionConverter, roomAssigner, random);
 
         CbcttVariation courseX = variationFactory.getCrossoverOperator(0, -1);
         // CbcttVariation currX = variationFactory.getCrossoverOperator(1, -1);
@@ -71,7 +86,10 @@ public class Main {
         );
 
         ParametrizationPhenotype params = new ParametrizationPhenotype(variators, populationSize, archiveSize, k);
-        TimetableInitializationFactory timetableInitializationFactory = new TimetableInitializationFactory(spec, formulation, roomAssigner);
+        String initCacheDir = System.getProperty(INIT_CACHE_PROPERTY);
+        InitialPopulationCache initCache = initCacheDir == null ? null : new InitialPopulationCache(new File(initCacheDir));
+        TimetableInitializationFactory timetableInitializationFactory = new TimetableInitializationFactory(spec, formulation, roomAssigner, random,
+                Runtime.getRuntime().availableProcessors(), 0, initCache);
         CbcttStaticParameters cbcttStaticParameters = new CbcttStaticParameters(generations, progressListenerLevel,
                 formulation, evaluator, timetableInitializationFactory, variationFactory);
 
@@ -85,11 +103,31 @@ public class Main {
         CbcttRunner cbcttRunner = new CbcttRunner(cbcttStaticParameters, params);
         NondominatedPopulation run = null;
         try {
-            run = cbcttRunner.run(instrumenter);
+            if (islands > 1) {
+                // every island uses another crossover operator
+                List<ParametrizationPhenotype> islandParams = new ArrayList<>();
+                for (int i = 0; i < islands; i++) {
+                    List<CbcttVariation> islandVariators = Arrays.asList(
+                            variationFactory.getCrossoverOperator(i % 3, sectorSize),
+                            variationFactory.getMutationOperator(0, mutationProbability));
+                    islandParams.add(new ParametrizationPhenotype(islandVariators, populationSize, archiveSize, k));
+                }
+                IslandRunner islandRunner = new IslandRunner(cbcttStaticParameters, islandParams,
+                        IslandRunner.Topology.RING, 5, 3, seed);
+                run = islandRunner.run();
+            } else {
+                run = cbcttRunner.run(instrumenter);
+            }
         } finally {
             executorService.shutdown();
         }
 
+        RoomAssignmentCache cache = roomAssigner.getCache();
+        Logger.info(String.format("Room assignment cache: %d hits, %d misses", cache.getHits(), cache.getMisses()));
+        EvaluationCache evaluationCache = evaluator.getCache();
+        Logger.info(String.format("Evaluation cache: %d hits, %d misses (%.1f%%)", evaluationCache.getHits(),
+                evaluationCache.getMisses(), evaluationCache.getHitRate() * 100));
+
         PrettyTextPrinter printer = new PrettyTextPrinter(spec);
         run.forEach(sol -> printer.print(solutionConverter.fromSolution(sol)));
 
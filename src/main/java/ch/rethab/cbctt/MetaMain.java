@@ -73,13 +73,14 @@ public class MetaMain {
 
         int cbcttGenerations = 10;
 
-        TimetableInitializationFactory cbcttInitializationFactory = new TimetableInitializationFactory(spec, formulation, roomAssigner);
-        VariationFactory variationFactory = new VariationFactory(spec, solutionConverter, roomAssigner);
+        RandomStreams random = new RandomStreams();
+        TimetableInitializationFactory cbcttInitializationFactory = new TimetableInitializationFactory(spec, formulation, roomAssigner, random);
+        VariationFactory variationFactory = new VariationFactory(spec, solutionConverter, roomAssigner, random);
         CbcttStaticParameters cbcttStaticParameters = new CbcttStaticParameters(cbcttGenerations, Logger.Level.GIBBER, formulation, evaluator, cbcttInitializationFactory, variationFactory);
         MetaStaticParameters metaStaticParameters = new MetaStaticParameters(cbcttStaticParameters);
 
-        HuxSbx crossover = new HuxSbx(huxProbability, sbxProbability, sbxDistributionIndex);
-        PmBf mutation = new PmBf(pmProbability, pmDistributionIndex, bfProbability);
+        HuxSbx crossover = new HuxSbx(huxProbability, sbxProbability, sbxDistributionIndex, random);
+        PmBf mutation = new PmBf(pmProbability, pmDistributionIndex, bfProbability, random);
         Variation metaVariation = new CompoundVariation(crossover, mutation);
 
         AlgorithmFactory algorithmFactory = new InitializingAlgorithmFactory(metaStaticParameters, metaVariation);
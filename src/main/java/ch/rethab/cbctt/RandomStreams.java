@@ -0,0 +1,96 @@
+package ch.rethab.cbctt;
+
+import java.io.Serializable;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * Random numbers for the operators and initializers. Each thread gets its
+ * own stream, split off a root stream on first use, so drawing a number
+ * never contends with other threads (as SecureRandom or a shared Random do).
+ *
+ * Which thread runs which task usually isn't deterministic, hence per-thread
+ * streams alone don't make a parallel run reproducible. For that, the
+ * algorithm draws a seed per task on its own thread and runs the task with
+ * withSeed. While a task runs, every RandomStreams returns the stream of the
+ * task, so the numbers of the task only depend on the seed it was given.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class RandomStreams implements Serializable {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /* stream of the task that runs on this thread, if any */
+    private static final ThreadLocal<SplittableRandom> BOUND = new ThreadLocal<>();
+
+    private final long seed;
+
+    private transient SplittableRandom root;
+
+    private transient volatile ThreadLocal<SplittableRandom> streams;
+
+    /** Streams seeded from the clock, i.e. runs are not reproducible */
+    public RandomStreams() {
+        this(mix(System.nanoTime() ^ Thread.currentThread().getId() * GOLDEN_GAMMA));
+    }
+
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /** The stream of the current task or, outside of tasks, of the current thread */
+    public SplittableRandom current() {
+        SplittableRandom bound = BOUND.get();
+        if (bound != null) {
+            return bound;
+        }
+        ThreadLocal<SplittableRandom> streams = this.streams;
+        if (streams == null) {
+            streams = initStreams();
+        }
+        return streams.get();
+    }
+
+    /* lazily, as the streams aren't serialized */
+    private synchronized ThreadLocal<SplittableRandom> initStreams() {
+        if (streams == null) {
+            root = new SplittableRandom(seed);
+            streams = ThreadLocal.withInitial(this::split);
+        }
+        return streams;
+    }
+
+    private synchronized SplittableRandom split() {
+        return root.split();
+    }
+
+    /**
+     * Runs the task with a stream derived from the seed. Calls may be
+     * nested, the stream of the outer task is restored afterwards.
+     */
+    public static <T> T withSeed(long seed, Supplier<T> task) {
+        SplittableRandom outer = BOUND.get();
+        BOUND.set(new SplittableRandom(mix(seed)));
+        try {
+            return task.get();
+        } finally {
+            if (outer == null) {
+                BOUND.remove();
+            } else {
+                BOUND.set(outer);
+            }
+        }
+    }
+
+    /* finalizer of splitmix64, so nearby seeds yield unrelated streams */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
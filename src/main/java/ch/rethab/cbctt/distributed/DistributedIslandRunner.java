@@ -0,0 +1,268 @@
+package ch.rethab.cbctt.distributed;
+
+import ch.rethab.cbctt.Logger;
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.CbcttStaticParameters;
+import ch.rethab.cbctt.ea.CurriculumBasedTimetabling;
+import ch.rethab.cbctt.ea.op.CbcttVariation;
+import ch.rethab.cbctt.ea.op.Evaluator;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.ea.printer.PrettyTextPrinter;
+import ch.rethab.cbctt.formulation.Formulation;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+import ch.rethab.cbctt.meta.ParametrizationPhenotype;
+import ch.rethab.cbctt.moea.SolutionConverter;
+import ch.rethab.cbctt.moea.TimetableInitializationFactory;
+import ch.rethab.cbctt.moea.VariationFactory;
+import ch.rethab.cbctt.parser.ECTTParser;
+import org.moeaframework.core.Initialization;
+import org.moeaframework.core.NondominatedPopulation;
+import org.moeaframework.core.Problem;
+import org.moeaframework.core.Solution;
+import org.moeaframework.util.distributed.ParallelSPEA2;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One island of a run that is distributed over several processes (nodes).
+ * Like the islands of the IslandRunner, every node evolves its own SPEA2
+ * population and every few generations sends its best non-dominated
+ * timetables to the next node in the ring. Timetables are sent as their
+ * genes (see MessageCodec) and evaluated again by the receiver, so the
+ * nodes only need the same instance file, not a serialized Specification.
+ *
+ * At the end, every node sends its non-dominated timetables to node 0,
+ * which merges them into the result. Nodes that don't report within the
+ * result timeout are left out.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class DistributedIslandRunner {
+
+    private final Specification spec;
+
+    private final CbcttStaticParameters cbcttStaticParameters;
+
+    private final ParametrizationPhenotype params;
+
+    private final SolutionConverter solutionConverter;
+
+    private final Transport transport;
+
+    private final MessageCodec codec;
+
+    /* number of generations between two migrations */
+    private final int migrationInterval;
+
+    /* number of timetables sent per migration */
+    private final int migrants;
+
+    private final long seed;
+
+    private final long resultTimeoutMillis;
+
+    /* results of nodes that finished while this one was still running */
+    private final List<MessageCodec.Message> results = new ArrayList<>();
+
+    public DistributedIslandRunner(Specification spec, CbcttStaticParameters cbcttStaticParameters,
+                                   ParametrizationPhenotype params, SolutionConverter solutionConverter,
+                                   Transport transport, int migrationInterval, int migrants, long seed,
+                                   long resultTimeoutMillis) {
+        if (migrationInterval < 1) {
+            throw new IllegalArgumentException("Migration interval must be positive: " + migrationInterval);
+        }
+        this.spec = spec;
+        this.cbcttStaticParameters = cbcttStaticParameters;
+        this.params = params;
+        this.solutionConverter = solutionConverter;
+        this.transport = transport;
+        this.codec = new MessageCodec(spec);
+        this.migrationInterval = migrationInterval;
+        this.migrants = migrants;
+        this.seed = seed;
+        this.resultTimeoutMillis = resultTimeoutMillis;
+    }
+
+    /**
+     * Runs the island of this node. Node 0 returns the merged result of all
+     * nodes, the others their own non-dominated timetables.
+     */
+    public NondominatedPopulation run() throws IOException, InterruptedException {
+        int node = transport.getNodeId();
+        int nNodes = transport.getNumberOfNodes();
+        Problem problem = new CurriculumBasedTimetabling(cbcttStaticParameters.formulation, cbcttStaticParameters.evaluator);
+        Initialization initialization = cbcttStaticParameters.getInitializationFactory(problem)
+                .create(params.getPopulationSize());
+        ParallelSPEA2 algorithm = new ParallelSPEA2(problem, initialization, params.getVariation(),
+                params.getOffspringSize(), params.getK(), Runtime.getRuntime().availableProcessors(),
+                new Random(seed + node));
+        algorithm.setTaskScope(RandomStreams::withSeed);
+
+        Logger.info(String.format("Before distributed run. Node %d of %d, MigrationInterval=%d, Migrants=%d",
+                node, nNodes, migrationInterval, migrants));
+
+        NondominatedPopulation own;
+        try {
+            int maxEvaluations = params.getMaxEvaluations(cbcttStaticParameters);
+            int generation = 0;
+            while (algorithm.getNumberOfEvaluations() < maxEvaluations) {
+                algorithm.step();
+                receiveMigrants(algorithm, problem);
+                if (nNodes > 1 && ++generation % migrationInterval == 0) {
+                    emigrate(algorithm, (node + 1) % nNodes);
+                }
+            }
+            own = new NondominatedPopulation(algorithm.getPopulation());
+        } finally {
+            algorithm.terminate();
+        }
+
+        if (node != 0) {
+            transport.send(0, codec.encode(MessageCodec.Type.RESULT, node, toCompact(own, own.size())));
+            Logger.info("After distributed run. Sent result to node 0");
+            return own;
+        }
+        NondominatedPopulation result = collectResults(own, problem);
+        Logger.info("After distributed run");
+        return result;
+    }
+
+    private void receiveMigrants(ParallelSPEA2 algorithm, Problem problem) throws InterruptedException {
+        byte[] bytes;
+        while ((bytes = transport.receive(0, TimeUnit.MILLISECONDS)) != null) {
+            MessageCodec.Message message = codec.decode(bytes);
+            if (message.type == MessageCodec.Type.RESULT) {
+                results.add(message);
+                continue;
+            }
+            for (CompactTimetable t : message.timetables) {
+                algorithm.immigrate(evaluate(t, problem));
+            }
+        }
+    }
+
+    private void emigrate(ParallelSPEA2 algorithm, int target) {
+        List<CompactTimetable> best = toCompact(new NondominatedPopulation(algorithm.getPopulation()), migrants);
+        try {
+            transport.send(target, codec.encode(MessageCodec.Type.MIGRANTS, transport.getNodeId(), best));
+        } catch (IOException e) {
+            // the run goes on without the migration, the target may already be done
+            Logger.info(String.format("Failed to send migrants to node %d: %s", target, e.getMessage()));
+        }
+    }
+
+    private NondominatedPopulation collectResults(NondominatedPopulation own, Problem problem) throws InterruptedException {
+        NondominatedPopulation result = new NondominatedPopulation(own);
+        Set<Integer> missing = new TreeSet<>();
+        for (int i = 1; i < transport.getNumberOfNodes(); i++) {
+            missing.add(i);
+        }
+
+        long deadline = System.currentTimeMillis() + resultTimeoutMillis;
+        while (!missing.isEmpty()) {
+            MessageCodec.Message message;
+            if (!results.isEmpty()) {
+                message = results.remove(0);
+            } else {
+                long remaining = deadline - System.currentTimeMillis();
+                byte[] bytes = remaining > 0 ? transport.receive(remaining, TimeUnit.MILLISECONDS) : null;
+                if (bytes == null) {
+                    Logger.info("No result from nodes " + missing);
+                    break;
+                }
+                message = codec.decode(bytes);
+            }
+            // late migrants are of no use anymore
+            if (message.type == MessageCodec.Type.RESULT && missing.remove(message.sender)) {
+                message.timetables.forEach(t -> result.add(evaluate(t, problem)));
+            }
+        }
+        return result;
+    }
+
+    private Solution evaluate(CompactTimetable t, Problem problem) {
+        Solution solution = solutionConverter.toSolution(t);
+        problem.evaluate(solution);
+        return solution;
+    }
+
+    /* at most max timetables, skipping the ones that can't be encoded */
+    private List<CompactTimetable> toCompact(Iterable<Solution> solutions, int max) {
+        List<CompactTimetable> timetables = new ArrayList<>();
+        for (Solution solution : solutions) {
+            if (timetables.size() == max) {
+                break;
+            }
+            CompactTimetable compact = solutionConverter.compactFromSolution(solution);
+            if (compact == null) {
+                TimetableWithRooms t = solutionConverter.fromSolution(solution);
+                if (!CompactTimetable.isRepresentable(spec, t)) {
+                    continue;
+                }
+                compact = CompactTimetable.fromWithRooms(spec, t);
+            }
+            timetables.add(compact);
+        }
+        return timetables;
+    }
+
+    /**
+     * Runs one node in this process. Every node is started with the same
+     * instance and list of addresses, which determines the order of the nodes.
+     *
+     * Arguments: instance file, id of this node, host:port of all nodes separated by commas
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 3) {
+            throw new IllegalArgumentException("Expected arguments: <instance file> <node id> <host:port,host:port,...>");
+        }
+        String filename = args[0];
+        int node = Integer.parseInt(args[1]);
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String address : args[2].split(",")) {
+            int colon = address.lastIndexOf(':');
+            addresses.add(new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1))));
+        }
+
+        double mutationProbability = 0.95;
+        int sectorSize = 3;
+        int populationSize = 30;
+        int archiveSize = 30;
+        int k = 3;
+        int generations = 10;
+
+        Specification spec = new ECTTParser(new BufferedReader(new FileReader(filename))).parse();
+        GreedyRoomAssigner roomAssigner = new GreedyRoomAssigner(spec);
+        Formulation formulation = new UD1Formulation(spec);
+        SolutionConverter solutionConverter = new SolutionConverter(formulation);
+        Evaluator evaluator = new Evaluator(formulation, solutionConverter);
+        VariationFactory variationFactory = new VariationFactory(spec, solutionConverter, roomAssigner);
+        CbcttStaticParameters cbcttStaticParameters = new CbcttStaticParameters(generations, Logger.Level.TRACE,
+                formulation, evaluator, new TimetableInitializationFactory(spec, formulation, roomAssigner), variationFactory);
+
+        // like the islands in one process, every node uses another crossover operator
+        List<CbcttVariation> variators = Arrays.asList(
+                variationFactory.getCrossoverOperator(node % 3, sectorSize),
+                variationFactory.getMutationOperator(0, mutationProbability));
+        ParametrizationPhenotype params = new ParametrizationPhenotype(variators, populationSize, archiveSize, k);
+
+        NondominatedPopulation result;
+        try (Transport transport = new SocketTransport(node, addresses)) {
+            result = new DistributedIslandRunner(spec, cbcttStaticParameters, params, solutionConverter, transport,
+                    5, 3, System.currentTimeMillis(), TimeUnit.MINUTES.toMillis(10)).run();
+        }
+
+        if (node == 0) {
+            PrettyTextPrinter printer = new PrettyTextPrinter(spec);
+            result.forEach(sol -> System.out.println(printer.print(solutionConverter.fromSolution(sol))));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ch.rethab.cbctt.distributed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport between nodes within the same JVM, e.g. to test a distributed
+ * run on a single machine.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class LocalTransport implements Transport {
+
+    private final int node;
+
+    private final List<BlockingQueue<byte[]>> inboxes;
+
+    private LocalTransport(int node, List<BlockingQueue<byte[]>> inboxes) {
+        this.node = node;
+        this.inboxes = inboxes;
+    }
+
+    /** One connected transport per node */
+    public static List<Transport> create(int nodes) {
+        List<BlockingQueue<byte[]>> inboxes = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            inboxes.add(new LinkedBlockingQueue<>());
+        }
+        List<Transport> transports = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            transports.add(new LocalTransport(i, inboxes));
+        }
+        return transports;
+    }
+
+    @Override
+    public int getNodeId() {
+        return node;
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+        return inboxes.size();
+    }
+
+    @Override
+    public void send(int node, byte[] message) {
+        // the sender may reuse its buffer
+        inboxes.get(node).add(message.clone());
+    }
+
+    @Override
+    public byte[] receive(long timeout, TimeUnit unit) throws InterruptedException {
+        return inboxes.get(node).poll(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+    }
+}
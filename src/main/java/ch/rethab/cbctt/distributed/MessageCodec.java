@@ -0,0 +1,98 @@
+package ch.rethab.cbctt.distributed;
+
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary format of the messages between the nodes. A message carries
+ * timetables as their genes (see CompactTimetable), so the nodes only need
+ * to agree on the instance, which is checked by its name and size:
+ *
+ *   type (byte), sender (int), instance name (utf), number of lectures (int),
+ *   number of timetables (int), genes of every timetable (int each)
+ *
+ * @author Reto Habluetzel, 2015
+ */
+final class MessageCodec {
+
+    enum Type {
+        /* timetables for the population of the receiver */
+        MIGRANTS,
+        /* final non-dominated timetables of a node */
+        RESULT
+    }
+
+    static final class Message {
+        final Type type;
+        final int sender;
+        final List<CompactTimetable> timetables;
+
+        Message(Type type, int sender, List<CompactTimetable> timetables) {
+            this.type = type;
+            this.sender = sender;
+            this.timetables = timetables;
+        }
+    }
+
+    private final Specification spec;
+
+    MessageCodec(Specification spec) {
+        this.spec = spec;
+    }
+
+    byte[] encode(Type type, int sender, List<CompactTimetable> timetables) {
+        int nLectures = spec.getCompiled().getNumberOfLectures();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + 4 * nLectures * timetables.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type.ordinal());
+            out.writeInt(sender);
+            out.writeUTF(spec.getName());
+            out.writeInt(nLectures);
+            out.writeInt(timetables.size());
+            for (CompactTimetable t : timetables) {
+                for (int gene : t.getGenes()) {
+                    out.writeInt(gene);
+                }
+            }
+        } catch (IOException e) {
+            // not thrown by a byte array
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Fails if the message is malformed or from a node that solves another instance */
+    Message decode(byte[] message) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            int type = in.readByte();
+            if (type < 0 || type >= Type.values().length) {
+                throw new IllegalArgumentException("Unknown message type: " + type);
+            }
+            int sender = in.readInt();
+            String name = in.readUTF();
+            int nLectures = in.readInt();
+            if (!name.equals(spec.getName()) || nLectures != spec.getCompiled().getNumberOfLectures()) {
+                throw new IllegalArgumentException(String.format("Message from node %d is for instance %s with %d lectures",
+                        sender, name, nLectures));
+            }
+            int count = in.readInt();
+            List<CompactTimetable> timetables = new ArrayList<>(count);
+            int[] genes = new int[nLectures];
+            for (int i = 0; i < count; i++) {
+                for (int l = 0; l < nLectures; l++) {
+                    genes[l] = in.readInt();
+                }
+                timetables.add(CompactTimetable.fromGenes(spec, genes));
+            }
+            return new Message(Type.values()[type], sender, timetables);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Truncated message", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
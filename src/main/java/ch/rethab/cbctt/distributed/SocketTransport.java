@@ -0,0 +1,177 @@
+package ch.rethab.cbctt.distributed;
+
+import ch.rethab.cbctt.Logger;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport over TCP. Every node listens on its own address and opens one
+ * connection per peer on the first message to it. Messages are framed by
+ * their length. Since the other processes may still be starting, a node
+ * keeps trying to connect for a while.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class SocketTransport implements Transport {
+
+    private static final long CONNECT_TIMEOUT_MILLIS = 30000;
+
+    private static final long CONNECT_RETRY_MILLIS = 100;
+
+    private final int node;
+
+    private final List<InetSocketAddress> addresses;
+
+    private final ServerSocket server;
+
+    private final BlockingQueue<byte[]> inbox = new LinkedBlockingQueue<>();
+
+    /* per peer, opened on the first message. access synchronized on the socket array */
+    private final Socket[] sockets;
+    private final DataOutputStream[] outputs;
+
+    private final List<Socket> accepted = new ArrayList<>();
+
+    private volatile boolean closed;
+
+    /** Listens on the address of the node, which is one of the addresses of all nodes */
+    public SocketTransport(int node, List<InetSocketAddress> addresses) throws IOException {
+        this(node, addresses, new ServerSocket(addresses.get(node).getPort(), 50, addresses.get(node).getAddress()));
+    }
+
+    private SocketTransport(int node, List<InetSocketAddress> addresses, ServerSocket server) {
+        this.node = node;
+        this.addresses = addresses;
+        this.server = server;
+        this.sockets = new Socket[addresses.size()];
+        this.outputs = new DataOutputStream[addresses.size()];
+
+        Thread acceptor = new Thread(this::accept, "SocketTransport-" + node);
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /** Connected transports on free ports of the loopback interface, one per node */
+    public static List<Transport> loopback(int nodes) throws IOException {
+        List<ServerSocket> servers = new ArrayList<>(nodes);
+        List<InetSocketAddress> addresses = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            servers.add(server);
+            addresses.add(new InetSocketAddress(server.getInetAddress(), server.getLocalPort()));
+        }
+        List<Transport> transports = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            transports.add(new SocketTransport(i, addresses, servers.get(i)));
+        }
+        return transports;
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                synchronized (accepted) {
+                    accepted.add(socket);
+                }
+                Thread reader = new Thread(() -> read(socket), "SocketTransport-" + node + "-reader");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    Logger.info("Failed to accept connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void read(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (!closed) {
+                byte[] message = new byte[in.readInt()];
+                in.readFully(message);
+                inbox.add(message);
+            }
+        } catch (EOFException e) {
+            // peer is done
+        } catch (IOException e) {
+            if (!closed) {
+                Logger.info("Connection to node " + node + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public int getNodeId() {
+        return node;
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+        return addresses.size();
+    }
+
+    @Override
+    public void send(int node, byte[] message) throws IOException {
+        synchronized (sockets) {
+            if (outputs[node] == null) {
+                sockets[node] = connect(addresses.get(node));
+                outputs[node] = new DataOutputStream(new BufferedOutputStream(sockets[node].getOutputStream()));
+            }
+            outputs[node].writeInt(message.length);
+            outputs[node].write(message);
+            outputs[node].flush();
+        }
+    }
+
+    private static Socket connect(InetSocketAddress address) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                return new Socket(address.getAddress(), address.getPort());
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(CONNECT_RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while connecting to " + address);
+                }
+            }
+        }
+    }
+
+    @Override
+    public byte[] receive(long timeout, TimeUnit unit) throws InterruptedException {
+        return inbox.poll(timeout, unit);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        synchronized (sockets) {
+            for (Socket socket : sockets) {
+                if (socket != null) {
+                    socket.close();
+                }
+            }
+        }
+        synchronized (accepted) {
+            for (Socket socket : accepted) {
+                socket.close();
+            }
+        }
+    }
+}
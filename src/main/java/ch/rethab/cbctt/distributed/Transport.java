@@ -0,0 +1,24 @@
+package ch.rethab.cbctt.distributed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends messages between the nodes (usually processes) of a distributed
+ * run. The nodes are numbered from 0 to getNumberOfNodes() - 1. Messages
+ * from one node to another arrive in the order they were sent.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public interface Transport extends Closeable {
+
+    int getNodeId();
+
+    int getNumberOfNodes();
+
+    void send(int node, byte[] message) throws IOException;
+
+    /** Next message for this node or null if none arrived within the timeout. Zero doesn't wait */
+    byte[] receive(long timeout, TimeUnit unit) throws InterruptedException;
+}
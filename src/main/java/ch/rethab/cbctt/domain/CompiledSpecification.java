@@ -0,0 +1,423 @@
+package ch.rethab.cbctt.domain;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled, integer-indexed view of a {@link Specification}.
+ *
+ * Courses, rooms, curricula and teachers are given dense ids (0..n-1) and
+ * everything the constraints and operators repeatedly ask the specification
+ * is precomputed into primitive tables. This way the hot paths don't have
+ * to go through string comparisons or hash lookups anymore.
+ *
+ * Slots are flattened the same way as in the timetables:
+ *   slot(day, period) = day * periods_per_day + period
+ *
+ * The view is immutable. Since the room and unavailability constraints of
+ * a specification may still be modified after it has been built (the tests
+ * do that a lot), the specification hands out a new view whenever it is
+ * stale (see {@link Specification#getCompiled()}). Callers should therefore
+ * not hold on to it longer than one operation.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class CompiledSpecification implements Serializable {
+
+    private final int days;
+    private final int periodsPerDay;
+    private final int nSlots;
+
+    private final Course[] courses;
+    private final Room[] rooms;
+    private final Curriculum[] curricula;
+    private final String[] teachers;
+
+    private final Map<String, Integer> courseIdxById;
+    private final Map<String, Integer> curriculumIdxById;
+    private final Map<String, Integer> roomIdxById;
+    private final Map<String, Integer> teacherIdxByName;
+
+    /* course -> teacher id */
+    private final int[] courseTeacher;
+
+    /* course -> curriculum ids (from Course#getCurricula, which is what the timetables are built from) */
+    private final int[][] courseCurricula;
+
+    /* course -> bitmask over the curriculum ids, curriculumWords longs each */
+    private final int curriculumWords;
+    private final long[][] courseCurriculaMask;
+
+    /* curriculum -> course ids (inverse of the above) */
+    private final int[][] curriculumCourses;
+
+    /* teacher -> course ids */
+    private final int[][] teacherCourses;
+
+    private final int[] courseLectures;
+    private final int[] courseMinWorkingDays;
+    private final int[] courseStudents;
+
+    /* lectures are numbered consecutively per course: lecture(c, i) = lectureOffset[c] + i */
+    private final int[] lectureOffset;
+    private final int[] lectureCourse;
+
+    /* [course][slot] true if the teacher of the course is available */
+    private final boolean[][] available;
+
+    /* number of unavailable slots per teacher (summed over all of his courses) */
+    private final int[] teacherUnavailabilities;
+
+    /* [course][room] true if room constraints forbid the room */
+    private final boolean[][] unsuitable;
+
+    /* [course][room] number of students that don't fit into the room (0 if they all do) */
+    private final int[][] capacityDeficit;
+
+    private final ConflictGraph conflictGraph;
+
+    /* modification counters of the constraints when this view was compiled */
+    private final int unavailabilityModCount;
+    private final int roomConstraintsModCount;
+
+    CompiledSpecification(Specification spec) {
+        this.days = spec.getNumberOfDaysPerWeek();
+        this.periodsPerDay = spec.getPeriodsPerDay();
+        this.nSlots = days * periodsPerDay;
+
+        List<Course> courseList = spec.getCourses();
+        List<Room> roomList = spec.getRooms();
+        List<Curriculum> curriculumList = spec.getCurricula();
+
+        this.courses = courseList.toArray(new Course[courseList.size()]);
+        this.rooms = roomList.toArray(new Room[roomList.size()]);
+        this.curricula = curriculumList.toArray(new Curriculum[curriculumList.size()]);
+
+        courseIdxById = new HashMap<>(courses.length * 2);
+        for (int c = 0; c < courses.length; c++) {
+            courseIdxById.put(courses[c].getId(), c);
+            courses[c].setIndex(c);
+        }
+        roomIdxById = new HashMap<>(rooms.length * 2);
+        for (int r = 0; r < rooms.length; r++) {
+            roomIdxById.put(rooms[r].getId(), r);
+            rooms[r].setIndex(r);
+        }
+        curriculumIdxById = new HashMap<>(curricula.length * 2);
+        for (int cu = 0; cu < curricula.length; cu++) {
+            curriculumIdxById.put(curricula[cu].getId(), cu);
+        }
+
+        // teachers, in order of first appearance
+        teacherIdxByName = new HashMap<>();
+        courseTeacher = new int[courses.length];
+        for (int c = 0; c < courses.length; c++) {
+            String teacher = courses[c].getTeacher();
+            Integer t = teacherIdxByName.get(teacher);
+            if (t == null) {
+                t = teacherIdxByName.size();
+                teacherIdxByName.put(teacher, t);
+            }
+            courseTeacher[c] = t;
+        }
+        teachers = new String[teacherIdxByName.size()];
+        teacherIdxByName.forEach((name, t) -> teachers[t] = name);
+
+        // curricula
+        courseCurricula = new int[courses.length][];
+        int[] coursesPerCurriculum = new int[curricula.length];
+        for (int c = 0; c < courses.length; c++) {
+            List<String> currIds = courses[c].getCurricula();
+            int[] currs = new int[currIds.size()];
+            int n = 0;
+            for (String currId : currIds) {
+                Integer cu = curriculumIdxById.get(currId);
+                if (cu != null) {
+                    currs[n++] = cu;
+                    coursesPerCurriculum[cu]++;
+                }
+            }
+            courseCurricula[c] = n == currs.length ? currs : Arrays.copyOf(currs, n);
+        }
+        curriculumWords = (curricula.length + 63) >>> 6;
+        courseCurriculaMask = new long[courses.length][curriculumWords];
+        for (int c = 0; c < courses.length; c++) {
+            for (int cu : courseCurricula[c]) {
+                courseCurriculaMask[c][cu >>> 6] |= 1L << cu;
+            }
+        }
+        curriculumCourses = new int[curricula.length][];
+        for (int cu = 0; cu < curricula.length; cu++) {
+            curriculumCourses[cu] = new int[coursesPerCurriculum[cu]];
+            coursesPerCurriculum[cu] = 0;
+        }
+        for (int c = 0; c < courses.length; c++) {
+            for (int cu : courseCurricula[c]) {
+                curriculumCourses[cu][coursesPerCurriculum[cu]++] = c;
+            }
+        }
+
+        // teachers -> courses
+        int[] coursesPerTeacher = new int[teachers.length];
+        for (int c = 0; c < courses.length; c++) {
+            coursesPerTeacher[courseTeacher[c]]++;
+        }
+        teacherCourses = new int[teachers.length][];
+        for (int t = 0; t < teachers.length; t++) {
+            teacherCourses[t] = new int[coursesPerTeacher[t]];
+            coursesPerTeacher[t] = 0;
+        }
+        for (int c = 0; c < courses.length; c++) {
+            int t = courseTeacher[c];
+            teacherCourses[t][coursesPerTeacher[t]++] = c;
+        }
+
+        // course attributes and lectures
+        courseLectures = new int[courses.length];
+        courseMinWorkingDays = new int[courses.length];
+        courseStudents = new int[courses.length];
+        lectureOffset = new int[courses.length + 1];
+        for (int c = 0; c < courses.length; c++) {
+            courseLectures[c] = courses[c].getNumberOfLectures();
+            courseMinWorkingDays[c] = courses[c].getMinWorkingDays();
+            courseStudents[c] = courses[c].getNumberOfStudents();
+            lectureOffset[c + 1] = lectureOffset[c] + courseLectures[c];
+        }
+        lectureCourse = new int[lectureOffset[courses.length]];
+        for (int c = 0; c < courses.length; c++) {
+            for (int l = lectureOffset[c]; l < lectureOffset[c + 1]; l++) {
+                lectureCourse[l] = c;
+            }
+        }
+
+        // availabilities
+        UnavailabilityConstraints unav = spec.getUnavailabilityConstraints();
+        unavailabilityModCount = unav.getModCount();
+        available = new boolean[courses.length][nSlots];
+        teacherUnavailabilities = new int[teachers.length];
+        for (int c = 0; c < courses.length; c++) {
+            for (int slot = 0; slot < nSlots; slot++) {
+                available[c][slot] = unav.checkAvailability(courses[c], slot / periodsPerDay, slot % periodsPerDay);
+                if (!available[c][slot]) {
+                    teacherUnavailabilities[courseTeacher[c]]++;
+                }
+            }
+        }
+
+        // rooms
+        RoomConstraints roomConstraints = spec.getRoomConstraints();
+        roomConstraintsModCount = roomConstraints.getModCount();
+        unsuitable = new boolean[courses.length][rooms.length];
+        capacityDeficit = new int[courses.length][rooms.length];
+        for (int c = 0; c < courses.length; c++) {
+            for (int r = 0; r < rooms.length; r++) {
+                unsuitable[c][r] = roomConstraints.isUnsuitable(courses[c], rooms[r]);
+                capacityDeficit[c][r] = Math.max(0, courseStudents[c] - rooms[r].getCapacity());
+            }
+        }
+
+        conflictGraph = new ConflictGraph(this);
+    }
+
+    /** True if the constraints of the specification were modified after this view was compiled */
+    boolean isStale(Specification spec) {
+        return spec.getUnavailabilityConstraints().getModCount() != unavailabilityModCount
+            || spec.getRoomConstraints().getModCount() != roomConstraintsModCount;
+    }
+
+    public int getNumberOfDays() {
+        return days;
+    }
+
+    public int getPeriodsPerDay() {
+        return periodsPerDay;
+    }
+
+    public int getNumberOfSlots() {
+        return nSlots;
+    }
+
+    public int getNumberOfCourses() {
+        return courses.length;
+    }
+
+    public int getNumberOfRooms() {
+        return rooms.length;
+    }
+
+    public int getNumberOfCurricula() {
+        return curricula.length;
+    }
+
+    public int getNumberOfTeachers() {
+        return teachers.length;
+    }
+
+    public int getNumberOfLectures() {
+        return lectureCourse.length;
+    }
+
+    public int toSlot(int day, int period) {
+        return day * periodsPerDay + period;
+    }
+
+    public int toDay(int slot) {
+        return slot / periodsPerDay;
+    }
+
+    public int toPeriod(int slot) {
+        return slot % periodsPerDay;
+    }
+
+    /**
+     * Returns the id of the course or -1 if it is not part of the specification.
+     * The index cached in the course is only used if it is actually pointing
+     * to this very course, since a course object could in theory be shared
+     * amongst several specifications.
+     */
+    public int indexOf(Course c) {
+        int idx = c.getIndex();
+        if (idx >= 0 && idx < courses.length && courses[idx] == c) {
+            return idx;
+        }
+        Integer byId = courseIdxById.get(c.getId());
+        return byId == null ? -1 : byId;
+    }
+
+    /** Returns the id of the room or -1 if it is not part of the specification */
+    public int indexOf(Room r) {
+        int idx = r.getIndex();
+        if (idx >= 0 && idx < rooms.length && rooms[idx] == r) {
+            return idx;
+        }
+        Integer byId = roomIdxById.get(r.getId());
+        return byId == null ? -1 : byId;
+    }
+
+    /** Returns the id of the curriculum or -1 if it is not part of the specification */
+    public int curriculumIndexOf(String curriculumId) {
+        Integer idx = curriculumIdxById.get(curriculumId);
+        return idx == null ? -1 : idx;
+    }
+
+    /** Returns the id of the teacher or -1 if he does not teach any course of the specification */
+    public int teacherIndexOf(String teacher) {
+        Integer idx = teacherIdxByName.get(teacher);
+        return idx == null ? -1 : idx;
+    }
+
+    public Course getCourse(int c) {
+        return courses[c];
+    }
+
+    public Room getRoom(int r) {
+        return rooms[r];
+    }
+
+    public Curriculum getCurriculum(int cu) {
+        return curricula[cu];
+    }
+
+    public String getTeacher(int t) {
+        return teachers[t];
+    }
+
+    public int getTeacherOf(int c) {
+        return courseTeacher[c];
+    }
+
+    public int[] getCurriculaOf(int c) {
+        return courseCurricula[c];
+    }
+
+    /** Number of longs needed for a bitmask over all curricula */
+    public int getCurriculumWords() {
+        return curriculumWords;
+    }
+
+    /** Curricula of the course as bitmask. Must not be modified. */
+    public long[] getCurriculaMask(int c) {
+        return courseCurriculaMask[c];
+    }
+
+    public boolean isInCurriculum(int c, int cu) {
+        return (courseCurriculaMask[c][cu >>> 6] & (1L << cu)) != 0;
+    }
+
+    public int[] getCoursesOfCurriculum(int cu) {
+        return curriculumCourses[cu];
+    }
+
+    public int[] getCoursesOfTeacher(int t) {
+        return teacherCourses[t];
+    }
+
+    public int getNumberOfLectures(int c) {
+        return courseLectures[c];
+    }
+
+    public int getMinWorkingDays(int c) {
+        return courseMinWorkingDays[c];
+    }
+
+    public int getNumberOfStudents(int c) {
+        return courseStudents[c];
+    }
+
+    /** Id of the first lecture of the course. The lectures of a course are consecutive */
+    public int getFirstLecture(int c) {
+        return lectureOffset[c];
+    }
+
+    public int getCourseOfLecture(int lecture) {
+        return lectureCourse[lecture];
+    }
+
+    public boolean isAvailable(int c, int slot) {
+        return available[c][slot];
+    }
+
+    public boolean isAvailable(int c, int day, int period) {
+        return available[c][day * periodsPerDay + period];
+    }
+
+    public int getNumberOfUnavailabilities(int t) {
+        return teacherUnavailabilities[t];
+    }
+
+    public boolean isUnsuitable(int c, int r) {
+        return unsuitable[c][r];
+    }
+
+    public int getCapacityDeficit(int c, int r) {
+        return capacityDeficit[c][r];
+    }
+
+    /** Number of lectures the teacher has to give in total */
+    public int getNumberOfLecturesOfTeacher(int t) {
+        int n = 0;
+        for (int c : teacherCourses[t]) {
+            n += courseLectures[c];
+        }
+        return n;
+    }
+
+    public ConflictGraph getConflictGraph() {
+        return conflictGraph;
+    }
+
+    /** True if the two courses share at least one curriculum */
+    public boolean shareCurriculum(int c1, int c2) {
+        for (int cu1 : courseCurricula[c1]) {
+            for (int cu2 : courseCurricula[c2]) {
+                if (cu1 == cu2) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,131 @@
+package ch.rethab.cbctt.domain;
+
+import java.io.Serializable;
+
+/**
+ * Which courses must never be in the same slot and in which slots a course
+ * may be at all, as bitsets. Two courses conflict if they share a
+ * curriculum or a teacher. A course conflicts with itself, since it can't
+ * have two lectures at the same time.
+ *
+ * Together with a bitset of the courses that are scheduled in a slot
+ * (see Timetable), checking whether a course can go into the slot boils
+ * down to a few ANDs of longs.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class ConflictGraph implements Serializable {
+
+    private final int courseWords;
+
+    private final int slotWords;
+
+    /* [course][courseWords] */
+    private final long[][] conflicts;
+
+    /* [course][slotWords] */
+    private final long[][] available;
+
+    ConflictGraph(CompiledSpecification compiled) {
+        int nCourses = compiled.getNumberOfCourses();
+        int nSlots = compiled.getNumberOfSlots();
+        courseWords = (nCourses + 63) >>> 6;
+        slotWords = (nSlots + 63) >>> 6;
+
+        conflicts = new long[nCourses][courseWords];
+        for (int c = 0; c < nCourses; c++) {
+            for (int cu : compiled.getCurriculaOf(c)) {
+                for (int other : compiled.getCoursesOfCurriculum(cu)) {
+                    set(conflicts[c], other);
+                }
+            }
+            for (int other : compiled.getCoursesOfTeacher(compiled.getTeacherOf(c))) {
+                set(conflicts[c], other);
+            }
+        }
+
+        available = new long[nCourses][slotWords];
+        for (int c = 0; c < nCourses; c++) {
+            for (int slot = 0; slot < nSlots; slot++) {
+                if (compiled.isAvailable(c, slot)) {
+                    set(available[c], slot);
+                }
+            }
+        }
+    }
+
+    /** Number of longs needed for a bitset over all courses */
+    public int getCourseWords() {
+        return courseWords;
+    }
+
+    /** Number of longs needed for a bitset over all slots */
+    public int getSlotWords() {
+        return slotWords;
+    }
+
+    /** Courses that conflict with the course, including itself. Must not be modified */
+    public long[] getConflicts(int c) {
+        return conflicts[c];
+    }
+
+    public boolean conflict(int c1, int c2) {
+        return isSet(conflicts[c1], c2);
+    }
+
+    /** Slots in which the teacher of the course is available. Must not be modified */
+    public long[] getAvailableSlots(int c) {
+        return available[c];
+    }
+
+    public boolean isAvailable(int c, int slot) {
+        return isSet(available[c], slot);
+    }
+
+    /** True if any of the conflicts of the course is set in the bitset of courses starting at offset */
+    public boolean conflictsWith(int c, long[] courses, int offset) {
+        long[] mask = conflicts[c];
+        for (int w = 0; w < courseWords; w++) {
+            if ((courses[offset + w] & mask[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void set(long[] bits, int idx) {
+        bits[idx >>> 6] |= 1L << idx;
+    }
+
+    public static void clear(long[] bits, int idx) {
+        bits[idx >>> 6] &= ~(1L << idx);
+    }
+
+    public static boolean isSet(long[] bits, int idx) {
+        return (bits[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    public static int cardinality(long[] bits) {
+        int n = 0;
+        for (long word : bits) {
+            n += Long.bitCount(word);
+        }
+        return n;
+    }
+
+    /** Index of the n-th (0-based) set bit or -1 if fewer are set */
+    public static int nthSetBit(long[] bits, int n) {
+        for (int w = 0; w < bits.length; w++) {
+            int count = Long.bitCount(bits[w]);
+            if (n < count) {
+                long word = bits[w];
+                for (int i = 0; i < n; i++) {
+                    word &= word - 1;
+                }
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            n -= count;
+        }
+        return -1;
+    }
+}
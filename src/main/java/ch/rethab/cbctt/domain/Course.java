@@ -33,6 +33,12 @@ public class Course implements Serializable {
       */
     private final int hashCache;
 
+    /*
+     * dense id of this course within its specification. This is only a hint
+     * for the CompiledSpecification, which verifies it before using it. See
+     * there why a course could end up with a wrong index.
+     */
+    private int index = -1;
 
     public Course(String id, String teacher, int nLectures, int nWorkingDays, int nStudents, boolean doubleLectures) {
         this(id, null, teacher, nLectures, nWorkingDays, nStudents, doubleLectures);
@@ -107,6 +113,14 @@ public class Course implements Serializable {
         return nWorkingDays;
     }
 
+    int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     public static class Builder {
         private String id;
         private List<String> curricula = new LinkedList<>();
@@ -14,6 +14,9 @@ public class Room implements Serializable {
 
     private final int site;
 
+    /* dense id within the specification. see Course#index */
+    private int index = -1;
+
     public Room(String id, int capacity, int site) {
         this.id = id;
         this.capacity = capacity;
@@ -52,4 +55,12 @@ public class Room implements Serializable {
     public int getCapacity() {
         return capacity;
     }
+
+    int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
 }
@@ -18,6 +18,9 @@ public class RoomConstraints implements Serializable {
 
     private final Map<Course, Set<String>> constraints = new HashMap<>();
 
+    /* incremented on every modification, so compiled views can tell they are stale */
+    private int modCount = 0;
+
     public void addRoomConstraint(Course c, Room r) {
         Set<String> roomIds = constraints.get(c);
         if (roomIds == null) {
@@ -25,6 +28,7 @@ public class RoomConstraints implements Serializable {
             constraints.put(c, roomIds);
         }
         roomIds.add(r.getId());
+        modCount++;
     }
 
     public boolean isUnsuitable(Course c, Room r) {
@@ -35,4 +39,8 @@ public class RoomConstraints implements Serializable {
             return roomIds.contains(r.getId());
         }
     }
+
+    int getModCount() {
+        return modCount;
+    }
 }
@@ -31,6 +31,11 @@ public class Specification implements Serializable {
 
     private final Map<String, Set<Curriculum>> curriculaByCourseCache;
 
+    private final Set<String> teachersCache;
+
+    /* built lazily and rebuilt whenever the constraints are modified, see getCompiled() */
+    private transient volatile CompiledSpecification compiled;
+
     private Specification(String name, int numberOfDaysPerWeek, int periodsPerDay, int minLectures, int maxLectures,
                          List<Course> courses, List<Room> rooms, List<Curriculum> curricula,
                          UnavailabilityConstraints unavailabilityConstraints, RoomConstraints roomConstraints) {
@@ -50,6 +55,8 @@ public class Specification implements Serializable {
         courses.forEach(c ->
             curriculaByCourseCache.put(c.getId(), curricula.stream().filter(eachCourse -> eachCourse.getCourses().contains(c)).collect(Collectors.toSet()))
         );
+        Set<String> teachers = courses.stream().map(Course::getTeacher).collect(Collectors.toCollection(LinkedHashSet::new));
+        teachersCache = Collections.unmodifiableSet(teachers);
     }
 
     public UnavailabilityConstraints getUnavailabilityConstraints() {
@@ -93,13 +100,28 @@ public class Specification implements Serializable {
     }
 
     public Set<String> getTeachers() {
-        return courses.stream().map(Course::getTeacher).collect(Collectors.toSet());
+        return teachersCache;
     }
 
     public Set<Curriculum> getByCourse(Course course) {
         return curriculaByCourseCache.get(course.getId());
     }
 
+    /**
+     * Returns the integer-indexed view of this specification. The view is
+     * compiled on first access and again whenever the room or unavailability
+     * constraints have been modified since. Concurrent callers may compile it
+     * twice, which is harmless since the view is immutable.
+     */
+    public CompiledSpecification getCompiled() {
+        CompiledSpecification c = compiled;
+        if (c == null || c.isStale(this)) {
+            c = new CompiledSpecification(this);
+            compiled = c;
+        }
+        return c;
+    }
+
     public static class Builder {
 
         private String name;
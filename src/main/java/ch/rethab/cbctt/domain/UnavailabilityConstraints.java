@@ -14,6 +14,9 @@ public class UnavailabilityConstraints implements Serializable {
     private final int daysPerWeek;
     private final int periodsPerDay;
 
+    /* incremented on every modification, so compiled views can tell they are stale */
+    private int modCount = 0;
+
     public UnavailabilityConstraints(int daysPerWeeks, int periodsPerDay) {
         this.daysPerWeek = daysPerWeeks;
         this.periodsPerDay = periodsPerDay;
@@ -25,6 +28,7 @@ public class UnavailabilityConstraints implements Serializable {
         }
         boolean[][] unavailability = unavailabilities.get(c);
         unavailability[day][period] = true;
+        modCount++;
     }
 
     public boolean checkAvailability(Course c, int day, int period) {
@@ -53,4 +57,8 @@ public class UnavailabilityConstraints implements Serializable {
         }
         return counter;
     }
+
+    int getModCount() {
+        return modCount;
+    }
 }
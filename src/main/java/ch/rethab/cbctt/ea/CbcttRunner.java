@@ -22,7 +22,8 @@ public class CbcttRunner {
     private final ParametrizationPhenotype params;
 
     public CbcttRunner(CbcttStaticParameters cbcttStaticParameters, ParametrizationPhenotype params) {
-        this.algorithmFactory = new InitializingAlgorithmFactory(cbcttStaticParameters, params.getVariation());
+        this.algorithmFactory = new InitializingAlgorithmFactory(cbcttStaticParameters, params.getVariation(),
+                cbcttStaticParameters.getVariationFactory().getRandomStreams());
         this.cbcttStaticParameters = cbcttStaticParameters;
         this.params = params;
     }
@@ -35,8 +36,8 @@ public class CbcttRunner {
         exec.withProperty("populationSize", params.getPopulationSize());
         exec.withProperty("numberOfOffspring", params.getOffspringSize());
         exec.withProperty("k", params.getK());
+        exec.withProperty("removeDuplicates", true);
         exec.withMaxEvaluations(params.getMaxEvaluations(cbcttStaticParameters));
-        exec.distributeOnAllCores();
         exec.withProgressListener(cbcttStaticParameters.getProgressListener());
 
         if (instrumenter != null) {
@@ -15,7 +15,8 @@ import org.moeaframework.util.progress.ProgressListener;
  */
 public class CbcttStaticParameters implements StaticParameters {
 
-    private static final String ALGO_NAME = "SPEA2";
+    /* variation and evaluation run on all cores */
+    private static final String ALGO_NAME = "ParallelSPEA2";
 
     private final int numberOfGenerations;
 
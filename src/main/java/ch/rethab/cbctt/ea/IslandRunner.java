@@ -0,0 +1,152 @@
+package ch.rethab.cbctt.ea;
+
+import ch.rethab.cbctt.Logger;
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.meta.ParametrizationPhenotype;
+import ch.rethab.cbctt.moea.VariableAdapter;
+import org.moeaframework.core.Initialization;
+import org.moeaframework.core.NondominatedPopulation;
+import org.moeaframework.core.Problem;
+import org.moeaframework.core.Solution;
+import org.moeaframework.util.distributed.ParallelSPEA2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs several independent SPEA2 populations (islands), each with its own
+ * parameters (e.g. operator mix) and random. Every few generations, an
+ * island sends copies of its best non-dominated timetables to another
+ * island, which considers them in its next environmental selection. The
+ * result merges the populations of all islands.
+ *
+ * The islands share one pool with one thread per island, which they also
+ * use for their variation. Islands don't wait for each other, they only
+ * exchange solutions through the lock-free queues of the algorithms.
+ * Each task of an island draws from a stream seeded by the island, so the
+ * timetables an island creates don't depend on the scheduling.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class IslandRunner {
+
+    public enum Topology {
+        /* island i sends to island i+1 */
+        RING,
+        /* every migration goes to a randomly chosen other island */
+        RANDOM
+    }
+
+    private final CbcttStaticParameters cbcttStaticParameters;
+
+    private final List<ParametrizationPhenotype> islandParams;
+
+    private final Topology topology;
+
+    /* number of generations between two migrations of an island */
+    private final int migrationInterval;
+
+    /* number of timetables sent per migration */
+    private final int migrants;
+
+    private final long seed;
+
+    public IslandRunner(CbcttStaticParameters cbcttStaticParameters, List<ParametrizationPhenotype> islandParams,
+                        Topology topology, int migrationInterval, int migrants, long seed) {
+        if (islandParams.isEmpty()) {
+            throw new IllegalArgumentException("At least one island is required");
+        }
+        if (migrationInterval < 1) {
+            throw new IllegalArgumentException("Migration interval must be positive: " + migrationInterval);
+        }
+        this.cbcttStaticParameters = cbcttStaticParameters;
+        this.islandParams = islandParams;
+        this.topology = topology;
+        this.migrationInterval = migrationInterval;
+        this.migrants = migrants;
+        this.seed = seed;
+    }
+
+    public NondominatedPopulation run() {
+        ForkJoinPool pool = new ForkJoinPool(islandParams.size());
+        Problem problem = new CurriculumBasedTimetabling(cbcttStaticParameters.formulation, cbcttStaticParameters.evaluator);
+
+        List<Island> islands = new ArrayList<>(islandParams.size());
+        for (int i = 0; i < islandParams.size(); i++) {
+            islands.add(new Island(i, islandParams.get(i), problem, pool, new Random(seed + i)));
+        }
+
+        Logger.info(String.format("Before island run. Islands: %d, Topology: %s, MigrationInterval=%d, Migrants=%d",
+                islands.size(), topology, migrationInterval, migrants));
+
+        NondominatedPopulation result = new NondominatedPopulation();
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(islands.size());
+            for (Island island : islands) {
+                tasks.add(pool.submit(() -> island.run(islands)));
+            }
+            tasks.forEach(ForkJoinTask::join);
+            islands.forEach(island -> result.addAll(island.algorithm.getPopulation()));
+        } finally {
+            pool.shutdown();
+        }
+
+        Logger.info("After island run");
+        return result;
+    }
+
+    private final class Island {
+
+        private final int idx;
+
+        private final ParametrizationPhenotype params;
+
+        private final ParallelSPEA2 algorithm;
+
+        private final Random random;
+
+        Island(int idx, ParametrizationPhenotype params, Problem problem, ForkJoinPool pool, Random random) {
+            this.idx = idx;
+            this.params = params;
+            this.random = random;
+            Initialization initialization = cbcttStaticParameters.getInitializationFactory(problem)
+                    .create(params.getPopulationSize());
+            this.algorithm = new ParallelSPEA2(problem, initialization, params.getVariation(),
+                    params.getOffspringSize(), params.getK(), pool, random);
+            this.algorithm.setDuplicateFilter(s -> ((VariableAdapter) s.getVariable(0)).getZobristHash());
+            this.algorithm.setTaskScope(RandomStreams::withSeed);
+        }
+
+        void run(List<Island> islands) {
+            int maxEvaluations = params.getMaxEvaluations(cbcttStaticParameters);
+            int generation = 0;
+            while (algorithm.getNumberOfEvaluations() < maxEvaluations) {
+                algorithm.step();
+                if (islands.size() > 1 && ++generation % migrationInterval == 0) {
+                    emigrate(islands.get(target(islands.size())));
+                }
+            }
+            Logger.trace(String.format("Island %d done after %d generations", idx, generation));
+        }
+
+        private int target(int nIslands) {
+            if (topology == Topology.RING) {
+                return (idx + 1) % nIslands;
+            }
+            // any but this one
+            int target = random.nextInt(nIslands - 1);
+            return target >= idx ? target + 1 : target;
+        }
+
+        private void emigrate(Island target) {
+            Iterator<Solution> best = new NondominatedPopulation(algorithm.getPopulation()).iterator();
+            for (int i = 0; i < migrants && best.hasNext(); i++) {
+                target.algorithm.immigrate(best.next().copy());
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package ch.rethab.cbctt.ea.initializer;
+
+import ch.rethab.cbctt.Logger;
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.ConflictGraph;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Keeps feasible initial timetables on disk, so repeated runs on the same
+ * instance don't have to create them again. There is one file per
+ * specification, named by a hash over its content (see fingerprint).
+ *
+ * File format (big endian):
+ *   int magic, byte version, UTF fingerprint, int lectures, byte gene width,
+ *   int count, then count * lectures genes of 2 or 4 bytes. Genes of width
+ *   2 are stored plus one, so an unscheduled lecture is 0.
+ *
+ * Loaded timetables are checked against the specification, invalid ones
+ * are skipped. Failing to read or write the cache is logged, but never
+ * fails the run.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class InitialPopulationCache implements Serializable {
+
+    private static final int MAGIC = 0x43545449; // CTTI
+
+    private static final byte VERSION = 1;
+
+    private final File directory;
+
+    /* per specification */
+    private final int maxEntries;
+
+    public InitialPopulationCache(File directory) {
+        this(directory, 1000);
+    }
+
+    public InitialPopulationCache(File directory, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be positive: " + maxEntries);
+        }
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+    }
+
+    /** Valid cached timetables of the specification, in the order they were stored */
+    public synchronized List<CompactTimetable> load(Specification spec) {
+        File file = fileOf(spec);
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return read(spec, in);
+        } catch (IOException e) {
+            Logger.info("Failed to read initial population cache " + file + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /** Adds the timetables to the cached ones. Beyond maxEntries, the oldest are dropped */
+    public synchronized void store(Specification spec, List<CompactTimetable> timetables) {
+        Set<CompactTimetable> all = new LinkedHashSet<>(load(spec));
+        all.addAll(timetables);
+        List<CompactTimetable> kept = new ArrayList<>(all);
+        if (kept.size() > maxEntries) {
+            kept = kept.subList(kept.size() - maxEntries, kept.size());
+        }
+
+        File file = fileOf(spec);
+        try {
+            Files.createDirectories(directory.toPath());
+            // written next to it and moved, so concurrent readers never see half a file
+            File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                write(spec, kept, out);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Logger.info("Failed to write initial population cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    File fileOf(Specification spec) {
+        return new File(directory, fingerprint(spec) + ".init");
+    }
+
+    private static void write(Specification spec, List<CompactTimetable> timetables, DataOutputStream out) throws IOException {
+        CompiledSpecification compiled = spec.getCompiled();
+        boolean narrow = maxGene(compiled) < 0xffff;
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(fingerprint(spec));
+        out.writeInt(compiled.getNumberOfLectures());
+        out.writeByte(narrow ? 2 : 4);
+        out.writeInt(timetables.size());
+        for (CompactTimetable t : timetables) {
+            for (int gene : t.getGenes()) {
+                if (narrow) {
+                    out.writeShort(gene + 1);
+                } else {
+                    out.writeInt(gene);
+                }
+            }
+        }
+    }
+
+    private static List<CompactTimetable> read(Specification spec, DataInputStream in) throws IOException {
+        CompiledSpecification compiled = spec.getCompiled();
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not an initial population cache of this version");
+        } else if (!fingerprint(spec).equals(in.readUTF())) {
+            throw new IOException("Cache is for another specification");
+        }
+        int nLectures = in.readInt();
+        int width = in.readByte();
+        if (nLectures != compiled.getNumberOfLectures() || (width != 2 && width != 4)) {
+            throw new IOException("Cache doesn't match the specification");
+        }
+
+        int count = in.readInt();
+        List<CompactTimetable> timetables = new ArrayList<>(Math.max(0, count));
+        int invalid = 0;
+        for (int i = 0; i < count; i++) {
+            int[] genes = new int[nLectures];
+            for (int l = 0; l < nLectures; l++) {
+                genes[l] = width == 2 ? in.readUnsignedShort() - 1 : in.readInt();
+            }
+            if (isFeasible(compiled, genes)) {
+                timetables.add(CompactTimetable.fromGenes(spec, genes));
+            } else {
+                invalid++;
+            }
+        }
+        if (invalid > 0) {
+            Logger.info(String.format("Skipped %d invalid timetables of the initial population cache", invalid));
+        }
+        return timetables;
+    }
+
+    /* all lectures scheduled in suitable rooms, rooms used once per slot, no conflicts and teachers available */
+    static boolean isFeasible(CompiledSpecification compiled, int[] genes) {
+        ConflictGraph conflicts = compiled.getConflictGraph();
+        int nRooms = compiled.getNumberOfRooms();
+        int words = conflicts.getCourseWords();
+        boolean[] roomUsed = new boolean[maxGene(compiled)];
+        long[] courses = new long[compiled.getNumberOfSlots() * words];
+        for (int l = 0; l < genes.length; l++) {
+            int gene = genes[l];
+            if (gene < 0 || gene >= roomUsed.length || roomUsed[gene]) {
+                return false;
+            }
+            roomUsed[gene] = true;
+            int c = compiled.getCourseOfLecture(l);
+            int slot = gene / nRooms;
+            if (compiled.isUnsuitable(c, gene % nRooms) || !conflicts.isAvailable(c, slot)
+                    || ConflictGraph.isSet(courses, slot * words * 64 + c)
+                    || conflicts.conflictsWith(c, courses, slot * words)) {
+                return false;
+            }
+            ConflictGraph.set(courses, slot * words * 64 + c);
+        }
+        return true;
+    }
+
+    private static int maxGene(CompiledSpecification compiled) {
+        return compiled.getNumberOfSlots() * compiled.getNumberOfRooms();
+    }
+
+    /**
+     * Hash over everything the initializer depends on. Specifications parsed
+     * from the same file have the same fingerprint.
+     */
+    public static String fingerprint(Specification spec) {
+        CompiledSpecification compiled = spec.getCompiled();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(new OutputStream() {
+            @Override public void write(int b) { }
+        }, digest))) {
+            out.writeUTF(spec.getName());
+            out.writeInt(compiled.getNumberOfDays());
+            out.writeInt(compiled.getPeriodsPerDay());
+            out.writeInt(spec.getMinLectures());
+            out.writeInt(spec.getMaxLectures());
+            for (int r = 0; r < compiled.getNumberOfRooms(); r++) {
+                out.writeUTF(compiled.getRoom(r).getId());
+                out.writeInt(compiled.getRoom(r).getCapacity());
+            }
+            for (int c = 0; c < compiled.getNumberOfCourses(); c++) {
+                out.writeUTF(compiled.getCourse(c).getId());
+                out.writeUTF(compiled.getTeacher(compiled.getTeacherOf(c)));
+                out.writeInt(compiled.getNumberOfLectures(c));
+                out.writeInt(compiled.getMinWorkingDays(c));
+                out.writeInt(compiled.getNumberOfStudents(c));
+                out.writeInt(compiled.getCurriculaOf(c).length);
+                for (int cu : compiled.getCurriculaOf(c)) {
+                    out.writeUTF(compiled.getCurriculum(cu).getId());
+                }
+                for (int slot = 0; slot < compiled.getNumberOfSlots(); slot++) {
+                    out.writeBoolean(compiled.isAvailable(c, slot));
+                }
+                for (int r = 0; r < compiled.getNumberOfRooms(); r++) {
+                    out.writeBoolean(compiled.isUnsuitable(c, r));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        StringBuilder hex = new StringBuilder();
+        // half of the digest is plenty for a file name
+        for (byte b : Arrays.copyOf(digest.digest(), 16)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -3,6 +3,7 @@ package ch.rethab.cbctt.ea.initializer;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 
 import java.util.List;
+import java.util.function.ObjIntConsumer;
 
 /**
  * @author Reto Habluetzel, 2015
@@ -14,4 +15,16 @@ public interface Initializer {
      */
     List<TimetableWithRooms> initialize(int size);
 
+    /**
+     * Like initialize, but hands every timetable with its index over to the
+     * listener as soon as it is created, e.g. to convert it right away.
+     */
+    default List<TimetableWithRooms> initialize(int size, ObjIntConsumer<TimetableWithRooms> listener) {
+        List<TimetableWithRooms> timetables = initialize(size);
+        for (int i = 0; i < timetables.size(); i++) {
+            listener.accept(timetables.get(i), i);
+        }
+        return timetables;
+    }
+
 }
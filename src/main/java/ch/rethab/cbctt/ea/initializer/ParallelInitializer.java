@@ -0,0 +1,187 @@
+package ch.rethab.cbctt.ea.initializer;
+
+import ch.rethab.cbctt.Logger;
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.Timetable;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.LongSupplier;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Base of the initializers that create each timetable independently of the
+ * others. The timetables are created in parallel, each with its own random
+ * stream, which is derived from a seed drawn on the calling thread. Hence,
+ * the result doesn't depend on the parallelism. If the time budget runs
+ * out, the missing timetables are filled up with copies of the finished
+ * ones.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public abstract class ParallelInitializer implements Initializer {
+
+    protected final Specification spec;
+
+    protected final RandomStreams random;
+
+    private final RoomAssigner roomAssigner;
+
+    /* number of timetables created at the same time */
+    private final int parallelism;
+
+    /* overall time for one call to initialize, 0 for no limit */
+    private final long timeBudgetMillis;
+
+    /* nanoseconds the time budget is measured with */
+    private LongSupplier clock = System::nanoTime;
+
+    protected ParallelInitializer(Specification spec, RoomAssigner roomAssigner, RandomStreams random) {
+        this(spec, roomAssigner, random, Runtime.getRuntime().availableProcessors(), 0);
+    }
+
+    protected ParallelInitializer(Specification spec, RoomAssigner roomAssigner, RandomStreams random,
+                                  int parallelism, long timeBudgetMillis) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        if (timeBudgetMillis < 0) {
+            throw new IllegalArgumentException("Time budget must not be negative: " + timeBudgetMillis);
+        }
+        this.random = random;
+        this.spec = spec;
+        this.roomAssigner = roomAssigner;
+        this.parallelism = parallelism;
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /** Replaces System.nanoTime, so tests can let the time budget run out when they want */
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Creates one timetable without rooms, drawing from random.current().
+     * Returns null if the deadline is over before it is finished.
+     */
+    protected abstract Timetable createTimetable(Deadline deadline);
+
+    @Override
+    public List<TimetableWithRooms> initialize(int size) {
+        return initialize(size, (t, i) -> { });
+    }
+
+    @Override
+    public List<TimetableWithRooms> initialize(int size, ObjIntConsumer<TimetableWithRooms> listener) {
+        Logger.trace("Size="+size);
+
+        Deadline deadline = new Deadline(timeBudgetMillis, clock);
+        long seed = random.current().nextLong();
+        TimetableWithRooms[] result = new TimetableWithRooms[size];
+
+        if (parallelism == 1 || size < 2) {
+            for (int i = 0; i < size && !deadline.isOver(); i++) {
+                result[i] = createTimetable(seed, i, deadline);
+                if (result[i] != null) {
+                    listener.accept(result[i], i);
+                }
+            }
+        } else {
+            createInParallel(seed, result, deadline, listener);
+        }
+
+        fillUp(result, listener);
+        Logger.trace("Exit");
+        return Arrays.asList(result);
+    }
+
+    /* the listener is called on this thread, in the order the timetables are finished */
+    private void createInParallel(long seed, TimetableWithRooms[] result, Deadline deadline,
+                                  ObjIntConsumer<TimetableWithRooms> listener) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, result.length));
+        CompletionService<TimetableWithRooms> completion = new ExecutorCompletionService<>(executor);
+        // only this thread writes the result, so late tasks can't change it after the deadline
+        Map<Future<TimetableWithRooms>, Integer> indices = new IdentityHashMap<>();
+        try {
+            for (int i = 0; i < result.length; i++) {
+                int idx = i;
+                indices.put(completion.submit(() -> createTimetable(seed, idx, deadline)), idx);
+            }
+            for (int n = 0; n < result.length; n++) {
+                Future<TimetableWithRooms> done = completion.poll(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    Logger.info(String.format("Initialization exceeded time budget of %dms", timeBudgetMillis));
+                    break;
+                }
+                int idx = indices.get(done);
+                result[idx] = done.get();
+                if (result[idx] != null) {
+                    listener.accept(result[idx], idx);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during initialization", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /* replaces the timetables that weren't finished in time with copies of the others */
+    private void fillUp(TimetableWithRooms[] result, ObjIntConsumer<TimetableWithRooms> listener) {
+        List<TimetableWithRooms> finished = new ArrayList<>(result.length);
+        for (TimetableWithRooms t : result) {
+            if (t != null) {
+                finished.add(t);
+            }
+        }
+        if (finished.size() == result.length) {
+            return;
+        } else if (finished.isEmpty()) {
+            throw new RuntimeException("Failed to find feasible solution within time budget");
+        }
+        Logger.info(String.format("Only %d of %d timetables created in time", finished.size(), result.length));
+        for (int i = 0, next = 0; i < result.length; i++) {
+            if (result[i] == null) {
+                result[i] = finished.get(next++ % finished.size());
+                listener.accept(result[i], i);
+            }
+        }
+    }
+
+    /* null if the deadline passed before a timetable was found */
+    private TimetableWithRooms createTimetable(long seed, int idx, Deadline deadline) {
+        Timetable t = RandomStreams.withSeed(seed + idx, () -> createTimetable(deadline));
+        return t == null ? null : roomAssigner.assignRooms(t);
+    }
+
+    /** End of the time budget of a call to initialize */
+    protected static final class Deadline {
+        private final LongSupplier clock;
+        private final long end;
+        private final boolean limited;
+
+        Deadline(long budgetMillis, LongSupplier clock) {
+            this.clock = clock;
+            this.limited = budgetMillis > 0;
+            this.end = clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        }
+
+        /** Also true if initialize gave up on the timetable */
+        public boolean isOver() {
+            return (limited && clock.getAsLong() - end >= 0) || Thread.currentThread().isInterrupted();
+        }
+
+        long remainingMillis() {
+            return limited ? Math.max(0, TimeUnit.NANOSECONDS.toMillis(end - clock.getAsLong())) : Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package ch.rethab.cbctt.ea.initializer;
+
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.ConflictGraph;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.Meeting;
+import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.Timetable;
+
+import java.util.SplittableRandom;
+
+/**
+ * Creates timetables like DSatur colours graphs: the next lecture is always
+ * one of the course with the least feasible slots left compared to the
+ * number of its lectures that are still unscheduled. Ties go to the course
+ * with more conflicts, then to chance. The lecture is put into the feasible
+ * slot that takes away the fewest options of the other unscheduled courses.
+ *
+ * A slot is feasible for a course if the teacher is available, there is a
+ * free room and no conflicting course (same curriculum or teacher, see
+ * ConflictGraph) is there. The feasible slots are kept as a bitset per
+ * course, which is updated incrementally whenever a lecture is placed or
+ * removed.
+ *
+ * If a course has no feasible slot left, it takes the available slot with
+ * the fewest conflicting lectures and those are unscheduled again (light
+ * backtracking). A course doesn't return to a slot it was pushed out of for
+ * a few steps, which avoids two courses pushing each other around. Only if
+ * that doesn't converge either, the timetable is started over.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class SaturationInitializer extends ParallelInitializer {
+
+    /* steps (placements) per lecture before a timetable is started over */
+    private static final int STEPS_PER_LECTURE = 20;
+
+    private static final int MAX_RESTARTS = 20;
+
+    /* number of steps a pushed out course must not return to the slot */
+    private static final int TABU_TENURE = 10;
+
+    public SaturationInitializer(Specification spec, RoomAssigner roomAssigner) {
+        this(spec, roomAssigner, new RandomStreams());
+    }
+
+    public SaturationInitializer(Specification spec, RoomAssigner roomAssigner, RandomStreams random) {
+        super(spec, roomAssigner, random);
+    }
+
+    public SaturationInitializer(Specification spec, RoomAssigner roomAssigner, RandomStreams random,
+                                 int parallelism, long timeBudgetMillis) {
+        super(spec, roomAssigner, random, parallelism, timeBudgetMillis);
+    }
+
+    @Override
+    protected Timetable createTimetable(Deadline deadline) {
+        CompiledSpecification compiled = spec.getCompiled();
+        SplittableRandom rand = random.current();
+        for (int restart = 0; restart < MAX_RESTARTS; restart++) {
+            Build build = new Build(compiled, rand);
+            int maxSteps = STEPS_PER_LECTURE * compiled.getNumberOfLectures();
+            while (build.unscheduled > 0 && build.step < maxSteps) {
+                if (deadline.isOver()) {
+                    return null;
+                }
+                build.scheduleNext();
+            }
+            if (build.unscheduled == 0) {
+                return build.toTimetable();
+            }
+        }
+        throw new RuntimeException("Failed to find feasible solution");
+    }
+
+    /* state of one attempt */
+    private final class Build {
+
+        private final CompiledSpecification compiled;
+        private final ConflictGraph conflicts;
+        private final SplittableRandom rand;
+
+        private final int nCourses;
+        private final int nSlots;
+        private final int nRooms;
+        private final int courseWords;
+
+        /* courses per slot as bitset, [slot * courseWords + word] */
+        private final long[] occupied;
+        private final int[] lecturesInSlot;
+
+        /* unscheduled lectures per course */
+        private final int[] remaining;
+
+        /* feasible slots per course as bitset and their number */
+        private final long[][] feasible;
+        private final int[] nFeasible;
+
+        /* number of other courses a course conflicts with */
+        private final int[] degree;
+
+        /* [course * nSlots + slot] step until which the course must not be put back into the slot */
+        private final int[] tabu;
+
+        private int unscheduled;
+        private int step;
+
+        Build(CompiledSpecification compiled, SplittableRandom rand) {
+            this.compiled = compiled;
+            this.conflicts = compiled.getConflictGraph();
+            this.rand = rand;
+            nCourses = compiled.getNumberOfCourses();
+            nSlots = compiled.getNumberOfSlots();
+            nRooms = compiled.getNumberOfRooms();
+            courseWords = conflicts.getCourseWords();
+
+            occupied = new long[nSlots * courseWords];
+            lecturesInSlot = new int[nSlots];
+            remaining = new int[nCourses];
+            feasible = new long[nCourses][];
+            nFeasible = new int[nCourses];
+            degree = new int[nCourses];
+            tabu = new int[nCourses * nSlots];
+            for (int c = 0; c < nCourses; c++) {
+                remaining[c] = compiled.getNumberOfLectures(c);
+                unscheduled += remaining[c];
+                feasible[c] = conflicts.getAvailableSlots(c).clone();
+                nFeasible[c] = ConflictGraph.cardinality(feasible[c]);
+                degree[c] = ConflictGraph.cardinality(conflicts.getConflicts(c)) - 1;
+            }
+        }
+
+        void scheduleNext() {
+            step++;
+            int c = mostSaturated();
+            int slot = nFeasible[c] > 0 ? leastConstrainingSlot(c) : makeRoom(c);
+            place(c, slot);
+        }
+
+        private int mostSaturated() {
+            int best = -1;
+            int ties = 0;
+            for (int c = 0; c < nCourses; c++) {
+                if (remaining[c] == 0) {
+                    continue;
+                }
+                int cmp = best == -1 ? -1 : compareSaturation(c, best);
+                if (cmp < 0) {
+                    best = c;
+                    ties = 1;
+                } else if (cmp == 0 && rand.nextInt(++ties) == 0) {
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        /* negative if c1 is more saturated than c2 */
+        private int compareSaturation(int c1, int c2) {
+            int cmp = Integer.compare(nFeasible[c1] - remaining[c1], nFeasible[c2] - remaining[c2]);
+            return cmp != 0 ? cmp : Integer.compare(degree[c2], degree[c1]);
+        }
+
+        /* feasible slot that reduces the options of the other unscheduled courses the least */
+        private int leastConstrainingSlot(int c) {
+            long[] mask = conflicts.getConflicts(c);
+            int best = -1;
+            int bestLoss = Integer.MAX_VALUE;
+            int ties = 0;
+            for (int slot = 0; slot < nSlots; slot++) {
+                if (!ConflictGraph.isSet(feasible[c], slot)) {
+                    continue;
+                }
+                // if the slot becomes full, every course loses it, otherwise only the conflicting ones
+                boolean full = lecturesInSlot[slot] + 1 == nRooms;
+                int loss = 0;
+                for (int d = 0; d < nCourses; d++) {
+                    if (d != c && remaining[d] > 0 && (full || ConflictGraph.isSet(mask, d))
+                            && ConflictGraph.isSet(feasible[d], slot)) {
+                        loss++;
+                    }
+                }
+                if (loss < bestLoss) {
+                    best = slot;
+                    bestLoss = loss;
+                    ties = 1;
+                } else if (loss == bestLoss && rand.nextInt(++ties) == 0) {
+                    best = slot;
+                }
+            }
+            return best;
+        }
+
+        /* available slot with the fewest lectures in the way, which are unscheduled again */
+        private int makeRoom(int c) {
+            long[] mask = conflicts.getConflicts(c);
+            int best = -1;
+            int bestCost = Integer.MAX_VALUE;
+            int ties = 0;
+            for (int slot = 0; slot < nSlots; slot++) {
+                if (!conflicts.isAvailable(c, slot) || ConflictGraph.isSet(occupied, slot * courseWords * 64 + c)) {
+                    continue;
+                }
+                int cost = 0;
+                for (int w = 0; w < courseWords; w++) {
+                    cost += Long.bitCount(occupied[slot * courseWords + w] & mask[w]);
+                }
+                if (lecturesInSlot[slot] - cost >= nRooms) {
+                    cost++;
+                }
+                if (tabu[c * nSlots + slot] > step) {
+                    cost += nRooms;
+                }
+                if (cost < bestCost) {
+                    best = slot;
+                    bestCost = cost;
+                    ties = 1;
+                } else if (cost == bestCost && rand.nextInt(++ties) == 0) {
+                    best = slot;
+                }
+            }
+            if (best == -1) {
+                throw new IllegalStateException("Course " + compiled.getCourse(c).getId() + " is never available");
+            }
+
+            for (int d = 0; d < nCourses; d++) {
+                if (ConflictGraph.isSet(mask, d) && ConflictGraph.isSet(occupied, best * courseWords * 64 + d)) {
+                    pushOut(d, best);
+                }
+            }
+            if (lecturesInSlot[best] == nRooms) {
+                pushOut(randomCourseIn(best), best);
+            }
+            return best;
+        }
+
+        private int randomCourseIn(int slot) {
+            int n = 0;
+            for (int w = 0; w < courseWords; w++) {
+                n += Long.bitCount(occupied[slot * courseWords + w]);
+            }
+            long[] courses = new long[courseWords];
+            System.arraycopy(occupied, slot * courseWords, courses, 0, courseWords);
+            return ConflictGraph.nthSetBit(courses, rand.nextInt(n));
+        }
+
+        private void pushOut(int c, int slot) {
+            remove(c, slot);
+            tabu[c * nSlots + slot] = step + TABU_TENURE;
+        }
+
+        private void place(int c, int slot) {
+            ConflictGraph.set(occupied, slot * courseWords * 64 + c);
+            lecturesInSlot[slot]++;
+            remaining[c]--;
+            unscheduled--;
+
+            if (lecturesInSlot[slot] == nRooms) {
+                for (int d = 0; d < nCourses; d++) {
+                    clearFeasible(d, slot);
+                }
+            } else {
+                long[] mask = conflicts.getConflicts(c);
+                for (int d = 0; d < nCourses; d++) {
+                    if (ConflictGraph.isSet(mask, d)) {
+                        clearFeasible(d, slot);
+                    }
+                }
+            }
+        }
+
+        private void remove(int c, int slot) {
+            ConflictGraph.clear(occupied, slot * courseWords * 64 + c);
+            lecturesInSlot[slot]--;
+            remaining[c]++;
+            unscheduled++;
+
+            // only this slot changed, but possibly for every course if it was full
+            for (int d = 0; d < nCourses; d++) {
+                if (!ConflictGraph.isSet(feasible[d], slot) && isFeasible(d, slot)) {
+                    ConflictGraph.set(feasible[d], slot);
+                    nFeasible[d]++;
+                }
+            }
+        }
+
+        private void clearFeasible(int c, int slot) {
+            if (ConflictGraph.isSet(feasible[c], slot)) {
+                ConflictGraph.clear(feasible[c], slot);
+                nFeasible[c]--;
+            }
+        }
+
+        private boolean isFeasible(int c, int slot) {
+            return lecturesInSlot[slot] < nRooms
+                    && conflicts.isAvailable(c, slot)
+                    && !conflicts.conflictsWith(c, occupied, slot * courseWords);
+        }
+
+        Timetable toTimetable() {
+            Timetable t = new Timetable(spec);
+            for (int slot = 0; slot < nSlots; slot++) {
+                for (int c = 0; c < nCourses; c++) {
+                    if (ConflictGraph.isSet(occupied, slot * courseWords * 64 + c)
+                            && !t.addMeeting(new Meeting(compiled.getCourse(c), compiled.toDay(slot), compiled.toPeriod(slot)))) {
+                        String msg = String.format("Failed to add meeting %s @ %d", compiled.getCourse(c).getId(), slot);
+                        throw new IllegalStateException(msg);
+                    }
+                }
+            }
+            return t;
+        }
+    }
+}
@@ -1,17 +1,16 @@
 package ch.rethab.cbctt.ea.initializer;
 
 import ch.rethab.cbctt.Logger;
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.ConflictGraph;
 import ch.rethab.cbctt.domain.Course;
-import ch.rethab.cbctt.domain.Curriculum;
 import ch.rethab.cbctt.domain.Specification;
 import ch.rethab.cbctt.ea.phenotype.Meeting;
 import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
 import ch.rethab.cbctt.ea.phenotype.Timetable;
-import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  *
@@ -47,33 +46,24 @@ import java.util.stream.IntStream;
  *                                 (Lehmer, 1951). Every time a new timetable is to be constructed,
  *                                 a new seed is used.
  *
+ * Parallelism: Each timetable has its own hardness, so they can be created in
+ *              parallel (see ParallelInitializer).
+ *
  * @author Reto Habluetzel, 2015
  */
-public class TeacherGreedyInitializer implements Initializer {
-
-    private final RoomAssigner roomAssigner;
-
-    private final Specification spec;
-
-    private Map<String, Integer> hardness;
+public class TeacherGreedyInitializer extends ParallelInitializer {
 
     public TeacherGreedyInitializer(Specification spec, RoomAssigner roomAssigner) {
-        this.spec = spec;
-        this.roomAssigner = roomAssigner;
+        this(spec, roomAssigner, new RandomStreams());
     }
 
-    @Override
-    public List<TimetableWithRooms> initialize(int size) {
-        Logger.trace("Size="+size);
-
-        this.hardness = new HashMap<>();
-        List<TimetableWithRooms> result = IntStream.range(0, size)
-                .mapToObj(i -> createTimetable())
-                .map(roomAssigner::assignRooms)
-                .collect(Collectors.toList());
+    public TeacherGreedyInitializer(Specification spec, RoomAssigner roomAssigner, RandomStreams random) {
+        super(spec, roomAssigner, random);
+    }
 
-        Logger.trace("Exit");
-        return result;
+    public TeacherGreedyInitializer(Specification spec, RoomAssigner roomAssigner, RandomStreams random,
+                                    int parallelism, long timeBudgetMillis) {
+        super(spec, roomAssigner, random, parallelism, timeBudgetMillis);
     }
 
     private class LectureIterator {
@@ -103,18 +93,22 @@ public class TeacherGreedyInitializer implements Initializer {
         }
     }
 
-    private Timetable createTimetable() {
+    @Override
+    protected Timetable createTimetable(Deadline deadline) {
         Logger.trace("Entry");
 
-        List<Lecture> lectures = initLectures();
+        /* hardness by compiled teacher id */
+        Map<Integer, Integer> hardness = new HashMap<>();
+        List<Lecture> lectures = initLectures(hardness);
 
         for (int i = 0; i < 300; i++) {
+            if (deadline.isOver()) {
+                return null;
+            }
             LectureIterator it = new LectureIterator(lectures);
             Timetable t = getTimetable0(it, lectures);
             if (t != null) {
                 return t;
-            } else {
-                this.hardness = new HashMap<>();
             }
         }
 
@@ -122,7 +116,7 @@ public class TeacherGreedyInitializer implements Initializer {
     }
 
     private Timetable getTimetable0(LectureIterator it, List<Lecture> originalLectures) {
-        FlatTimetable timetable = new FlatTimetable(spec);
+        FlatTimetable timetable = new FlatTimetable(spec, random.current());
         Lecture l;
         while (it.hasMore()) {
             l = it.peek();
@@ -202,43 +196,41 @@ public class TeacherGreedyInitializer implements Initializer {
         return false;
     }
 
-    private List<Lecture> initLectures() {
+    private List<Lecture> initLectures(Map<Integer, Integer> hardness) {
+        CompiledSpecification compiled = spec.getCompiled();
         List<Lecture> lectures = new LinkedList<>();
-        for (Course c : spec.getCourses()) {
-            int hardness = lookupHardness(c.getTeacher());
-            IntStream.range(0, c.getNumberOfLectures()).forEach(i ->
-                lectures.add(new Lecture(c, hardness))
-            );
+        for (int c = 0; c < compiled.getNumberOfCourses(); c++) {
+            int teacher = compiled.getTeacherOf(c);
+            int h = lookupHardness(hardness, compiled, teacher);
+            for (int i = 0; i < compiled.getNumberOfLectures(c); i++) {
+                lectures.add(new Lecture(compiled.getCourse(c), c, teacher, h));
+            }
         }
         return Collections.unmodifiableList(lectures);
     }
 
-    private int lookupHardness(String teacher) {
-        Integer hardness = this.hardness.get(teacher);
-        if (hardness == null) {
-            hardness = getHardness(teacher);
-            this.hardness.put(teacher, hardness);
-        }
-        return hardness;
+    private int lookupHardness(Map<Integer, Integer> hardness, CompiledSpecification compiled, int teacher) {
+        return hardness.computeIfAbsent(teacher, t -> getHardness(compiled, t));
     }
 
-    private int getHardness(String teacher) {
-        final int[] hardness = {0};
-        spec.getCourses().stream().filter(c -> teacher.equals(c.getTeacher())).forEach(c ->
-            hardness[0] += c.getNumberOfLectures()
-        );
-        hardness[0] += spec.getUnavailabilityConstraints().countByTeacher(teacher);
-        return hardness[0];
+    private int getHardness(CompiledSpecification compiled, int teacher) {
+        return compiled.getNumberOfLecturesOfTeacher(teacher) + compiled.getNumberOfUnavailabilities(teacher);
     }
 
     // convenience class for notion of hardness
     private static class Lecture implements Comparable {
         public final Course c;
 
+        /* compiled ids of course and teacher */
+        public final int course;
+        public final int teacher;
+
         private int hardness;
 
-        public Lecture(Course c, int hardness) {
+        public Lecture(Course c, int course, int teacher, int hardness) {
             this.c = c;
+            this.course = course;
+            this.teacher = teacher;
             this.hardness = hardness;
         }
 
@@ -254,18 +246,28 @@ public class TeacherGreedyInitializer implements Initializer {
 
         private final Specification spec;
 
+        private final ConflictGraph conflicts;
+
         private List<Lecture>[] lectures;
 
+        /* courses per slot as bitset, [slot * courseWords + word] */
+        private final long[] occupied;
+
+        private final SplittableRandom random;
+
         private int x;
 
-        public FlatTimetable(Specification spec) {
+        public FlatTimetable(Specification spec, SplittableRandom random) {
             this.spec = spec;
+            this.random = random;
+            this.conflicts = spec.getCompiled().getConflictGraph();
             int nslots = spec.getNumberOfDaysPerWeek() * spec.getPeriodsPerDay();
 
             this.lectures = initLectures(nslots);
+            this.occupied = new long[nslots * conflicts.getCourseWords()];
 
             // initialize with random
-            this.x = getNextX(new Random().nextInt(lectures.length));
+            this.x = getNextX(random.nextInt(lectures.length));
         }
 
         private List<Lecture>[] initLectures(int nslots) {
@@ -282,6 +284,7 @@ public class TeacherGreedyInitializer implements Initializer {
 
         public void add(Lecture l, int x) {
             lectures[x].add(l);
+            occupied[x * conflicts.getCourseWords() + (l.course >>> 6)] |= 1L << l.course;
         }
 
         public int lecturesInPeriod(int x) {
@@ -305,7 +308,7 @@ public class TeacherGreedyInitializer implements Initializer {
         }
 
         public int getNextX(int x) {
-            x += new Random().nextInt(lectures.length);
+            x += random.nextInt(lectures.length);
             x %= lectures.length;
             return x;
         }
@@ -315,47 +318,14 @@ public class TeacherGreedyInitializer implements Initializer {
         }
 
         public boolean feasiblePeriod(Lecture l, int x) {
-            int day = Math.floorDiv(x, spec.getPeriodsPerDay());
-            int period = x % spec.getPeriodsPerDay();
             if (lecturesInPeriod(x) == spec.getRooms().size()) {
                 return false;
-            } else if (!spec.getUnavailabilityConstraints().checkAvailability(l.c, day, period)) {
-                return false;
-            } else if (hasLectureOfSameCurriculum(l, x)) {
-                return false;
-            } else if (hasLectureWithSameTeacher(l, x)) {
+            } else if (!conflicts.isAvailable(l.course, x)) {
                 return false;
             } else {
-                return true;
-            }
-        }
-
-        /**
-         * Returns true if at the same time a lecture of the same curriculum is already scheduled
-         */
-        private boolean hasLectureOfSameCurriculum(Lecture l, int slotIdx) {
-            Set<Curriculum> cs = spec.getByCourse(l.c);
-            for (Lecture lecture : lectures[slotIdx]) {
-                Set<Curriculum> curCurricula = spec.getByCourse(lecture.c);
-                for (Curriculum curCurriculum : curCurricula) {
-                    if (cs.contains(curCurriculum)) {
-                        return true;
-                    }
-                }
-            }
-            return false;
-        }
-
-        /**
-         * Returns true if at slotIdx the same teacher is already teaching a class
-         */
-        private boolean hasLectureWithSameTeacher(Lecture l, int slotIdx) {
-            for (Lecture lecture : lectures[slotIdx]) {
-                if (lecture.c.getTeacher().equals(l.c.getTeacher())) {
-                    return true;
-                }
+                // same curriculum or teacher
+                return !conflicts.conflictsWith(l.course, occupied, x * conflicts.getCourseWords());
             }
-            return false;
         }
 
         public List<Lecture> getLectures(int day, int period) {
@@ -1,17 +1,34 @@
 package ch.rethab.cbctt.ea.op;
 
 import ch.rethab.cbctt.Logger;
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.ConflictGraph;
 import ch.rethab.cbctt.domain.Course;
 import ch.rethab.cbctt.domain.Specification;
 import ch.rethab.cbctt.ea.phenotype.*;
 import ch.rethab.cbctt.moea.SolutionConverter;
 import org.moeaframework.core.Solution;
 
-import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
+ * Base of the crossovers that copy a set of meetings from one parent into
+ * a copy of the other. The meetings of the copy that are displaced and the
+ * ones that can't be placed at their period are scheduled wherever they fit
+ * afterwards. If that fails, there are two modes:
+ *
+ * Without repair, the child is thrown away and the crossover restarted,
+ * which may take many attempts for tight instances.
+ *
+ * With repair, the partial child is kept and a lecture that doesn't fit
+ * anywhere is inserted by an ejection chain: it is put in the slot where
+ * the fewest conflicting meetings have to be removed and those are
+ * scheduled in turn. The crossover is only restarted if the chain gets
+ * too long.
+ *
  * @author Reto Habluetzel, 2015
  */
 public abstract class AbstractLessonBasedCrossover implements CbcttVariation {
@@ -19,16 +36,33 @@ public abstract class AbstractLessonBasedCrossover implements CbcttVariation {
     // if a crossover fails, it is restarted this many times
     private static final int ATTEMPTS_AFTER_FAIL = 100;
 
-    protected final SecureRandom rand = new SecureRandom();
+    // meetings that may be ejected while repairing one child
+    private static final int MAX_EJECTIONS = 100;
+
+    protected final RandomStreams random;
 
     protected final SolutionConverter solutionConverter;
     protected final Specification spec;
     protected final RoomAssigner roomAssigner;
 
-    public AbstractLessonBasedCrossover(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner) {
+    private final boolean repair;
+
+    /* lectures that didn't fit anywhere and were inserted by an ejection chain */
+    private final AtomicLong repairedLectures = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+
+    public AbstractLessonBasedCrossover(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner,
+                                        RandomStreams random) {
+        this(spec, solutionConverter, roomAssigner, random, false);
+    }
+
+    public AbstractLessonBasedCrossover(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner,
+                                        RandomStreams random, boolean repair) {
+        this.random = random;
         this.spec = spec;
         this.solutionConverter = solutionConverter;
         this.roomAssigner = roomAssigner;
+        this.repair = repair;
     }
 
     protected abstract Set<MeetingWithRoom> getMeetingsFromParent(TimetableWithRooms parent);
@@ -38,6 +72,16 @@ public abstract class AbstractLessonBasedCrossover implements CbcttVariation {
         return 2;
     }
 
+    /** Lectures that needed repair since this operator was created */
+    public long getRepairedLectures() {
+        return repairedLectures.get();
+    }
+
+    /** Children that were thrown away and built again since this operator was created */
+    public long getRestarts() {
+        return restarts.get();
+    }
+
     @Override
     public final Solution[] evolve(Solution[] solutions) {
         Logger.trace("Entry");
@@ -45,71 +89,44 @@ public abstract class AbstractLessonBasedCrossover implements CbcttVariation {
         TimetableWithRooms parent1 = solutionConverter.fromSolution(solutions[0]);
         TimetableWithRooms parent2 = solutionConverter.fromSolution(solutions[1]);
 
-        TimetableWithRooms[] kids = crossover(parent1, parent2);
+        // child1 is derived from parent1 and child2 from parent2
+        TimetableWithRooms child1 = crossover(parent1, parent2);
+        TimetableWithRooms child2 = crossover(parent2, parent1);
 
-        Solution[] offspring = new Solution[]{solutionConverter.toSolution(kids[0]), solutionConverter.toSolution(kids[1])};
+        Solution[] offspring = new Solution[]{solutionConverter.toSolution(child1, solutions[0]), solutionConverter.toSolution(child2, solutions[1])};
 
         Logger.trace("Exit");
         return offspring;
     }
 
-    private TimetableWithRooms[] crossover(TimetableWithRooms parent1, TimetableWithRooms parent2) {
-        TimetableWithRooms child2 = null;
-        TimetableWithRooms child1 = null;
-
+    /** Copy of the first parent with meetings of the second one */
+    private TimetableWithRooms crossover(TimetableWithRooms parent, TimetableWithRooms donor) {
         for (int i = 0; i < ATTEMPTS_AFTER_FAIL; i++) {
             try {
-                Timetable tmpChild1 = parent1.newChild();
-
-                Set<MeetingWithRoom> p2Meetings = getMeetingsFromParent(parent2);
-                // assignRooms course from p2 in p1's offspring
-                scheduleMeetings(p2Meetings, tmpChild1);
-
-                child1 = roomAssigner.assignRooms(tmpChild1);
-                break;
-            } catch (CrossoverFailedException cfe) {
-                if (i > 10) {
-                    Logger.info("Crossover failed (" + i + "). Restarting..");
-                } else {
-                    Logger.trace("Crossover failed (" + i + "). Restarting..");
+                Timetable child = parent.newChild();
+
+                // assign meetings from the donor in the parent's offspring
+                Set<MeetingWithRoom> meetings = getMeetingsFromParent(donor);
+                int repaired = scheduleMeetings(meetings, child);
+                if (repaired > 0) {
+                    repairedLectures.addAndGet(repaired);
+                    Logger.trace("Crossover repaired " + repaired + " lectures");
                 }
-            }
-        }
-
-        // permanently failed
-        if (child1 == null) {
-            // copy is not required, since timetable is unmodifiable
-            child1 = parent1;
-        }
 
-        for (int i = 0; i < ATTEMPTS_AFTER_FAIL; i++) {
-            try {
-                Timetable tmpChild2 = parent2.newChild();
-                // assignRooms course from p1 in p2's offspring
-                Set<MeetingWithRoom> p1Meetings = getMeetingsFromParent(parent1);
-                scheduleMeetings(p1Meetings, tmpChild2);
-
-                child2 = roomAssigner.assignRooms(tmpChild2);
-                break;
+                return roomAssigner.assignRooms(child);
             } catch (CrossoverFailedException cfe) {
-                if (i > 10) {
-                    Logger.info("Crossover failed (" + i + "). Restarting..");
-                } else {
-                    Logger.trace("Crossover failed (" + i + "). Restarting..");
-                }
+                restarts.incrementAndGet();
+                Logger.trace("Crossover failed (" + i + "). Restarting..");
             }
         }
 
-        // permanently failed
-        if (child2 == null) {
-            // copy is not required, since timetable is unmodifiable
-            child2 = parent2;
-        }
-
-        return new TimetableWithRooms[]{child1, child2};
+        // permanently failed. copy is not required, since timetable is unmodifiable
+        Logger.info("Crossover failed " + ATTEMPTS_AFTER_FAIL + " times. Returning parent");
+        return parent;
     }
 
-    private void scheduleMeetings(Set<MeetingWithRoom> meetings, Timetable t) throws CrossoverFailedException {
+    /** Returns the number of lectures that had to be repaired */
+    private int scheduleMeetings(Set<MeetingWithRoom> meetings, Timetable t) throws CrossoverFailedException {
         /* Procedure:
          * 1. For each meeting m1 in meetings:
          *   a) try to set m at m1.day/m1.period.
@@ -121,6 +138,7 @@ public abstract class AbstractLessonBasedCrossover implements CbcttVariation {
          *   d) otherwise:
          *     I) add m1 to to_be_scheduled
          * 2. Greedy insert all from to_be_scheduled
+         * 3. With repair, insert the ones that don't fit by ejection chains
          */
 
         Logger.trace("Meetings: " + meetings.size());
@@ -128,7 +146,7 @@ public abstract class AbstractLessonBasedCrossover implements CbcttVariation {
         List<Course> leftovers = scheduleAtSpecifiedPeriods(t, meetings);
 
         Logger.trace("Leftovers: " + meetings.size());
-        scheduleGreedy(t, preferredPeriods, leftovers);
+        return scheduleGreedy(t, preferredPeriods, leftovers);
     }
 
     private Set<Period> unscheduleLessons(Timetable t, Set<MeetingWithRoom> meetings) {
@@ -163,7 +181,7 @@ public abstract class AbstractLessonBasedCrossover implements CbcttVariation {
             }
 
             // if there is only one left. need no randomness
-            int removeIdx = nMeetings == 1 ? 0 : rand.nextInt(nMeetings);
+            int removeIdx = nMeetings == 1 ? 0 : random.current().nextInt(nMeetings);
 
             Meeting m = meetingsByCourse.toArray(new Meeting[nMeetings])[removeIdx];
             t.removeMeeting(m);
@@ -212,31 +230,131 @@ public abstract class AbstractLessonBasedCrossover implements CbcttVariation {
         return leftovers;
     }
 
-    /** Places the specified courses wherever they fit */
-    private void scheduleGreedy(Timetable t, Set<Period> preferredPeriods, List<Course> toBeScheduled) throws CrossoverFailedException {
+    /**
+     * Places the specified courses wherever they fit. Returns the number of
+     * lectures that had to be inserted by an ejection chain.
+     */
+    private int scheduleGreedy(Timetable t, Set<Period> preferredPeriods, List<Course> toBeScheduled) throws CrossoverFailedException {
+        Deque<Course> queue = new ArrayDeque<>(toBeScheduled);
 
-        nextCourse: for (Course c : toBeScheduled) {
-            // try to schedule in preferred periods
-            for (Period p : preferredPeriods) {
-                if (isFeasible(t, c, p.day, p.period) && t.addMeeting(new Meeting(c, p.day, p.period))) {
-                    preferredPeriods.remove(p);
-                    continue nextCourse;
-                }
+        // meetings inserted by ejection are not ejected again
+        Set<Meeting> inserted = new HashSet<>();
+        int ejections = 0;
+        int repaired = 0;
+
+        while (!queue.isEmpty()) {
+            Course c = queue.poll();
+            if (scheduleAnywhere(t, preferredPeriods, c)) {
+                continue;
             }
 
-            // try to schedule at a random period
-            int attempts = ATTEMPTS_AFTER_FAIL;
-            while (attempts-- >= 0) {
-                int day = rand.nextInt(spec.getNumberOfDaysPerWeek());
-                int period = rand.nextInt(spec.getPeriodsPerDay());
-                if (isFeasible(t, c, day, period) && t.addMeeting(new Meeting(c, day, period))) {
-                    continue nextCourse;
-                }
+            List<Meeting> ejected = null;
+            if (repair && ejections < MAX_EJECTIONS) {
+                ejected = insertByEjection(t, c, inserted);
+            }
+            if (ejected == null) {
+                String msg = String.format("Failed to schedule meeting of %s: no feasible period left\n", c.getId());
+                throw new CrossoverFailedException(msg);
+            }
+
+            repaired++;
+            ejections += ejected.size();
+            // the ejected ones are scheduled next, which continues the chain
+            for (Meeting m : ejected) {
+                queue.push(m.getCourse());
+            }
+        }
+
+        return repaired;
+    }
+
+    /** Schedules the course in a preferred period or a random one where it fits */
+    private boolean scheduleAnywhere(Timetable t, Set<Period> preferredPeriods, Course c) {
+        // try to schedule in preferred periods
+        for (Period p : preferredPeriods) {
+            if (isFeasible(t, c, p.day, p.period) && t.addMeeting(new Meeting(c, p.day, p.period))) {
+                preferredPeriods.remove(p);
+                return true;
+            }
+        }
+
+        // try to schedule at a random period without conflicts that still has a free room
+        long[] slots = t.getConflictFreeSlots(c);
+        int nSlots = ConflictGraph.cardinality(slots);
+        while (nSlots > 0) {
+            int slot = ConflictGraph.nthSetBit(slots, random.current().nextInt(nSlots));
+            int day = slot / spec.getPeriodsPerDay();
+            int period = slot % spec.getPeriodsPerDay();
+            if (t.addMeeting(new Meeting(c, day, period))) {
+                return true;
+            }
+            ConflictGraph.clear(slots, slot);
+            nSlots--;
+        }
+        return false;
+    }
+
+    /**
+     * Schedules the course in the slot where the fewest meetings have to be
+     * removed and returns the removed ones. These are the meetings that
+     * conflict with the course or, if there are none but all rooms are
+     * taken, any one meeting. Slots in which the teacher is unavailable, the
+     * course is already scheduled or a meeting would have to be ejected that
+     * was inserted the same way are skipped. Returns null if there is no such slot.
+     */
+    private List<Meeting> insertByEjection(Timetable t, Course c, Set<Meeting> inserted) {
+        SplittableRandom rand = random.current();
+        CompiledSpecification compiled = spec.getCompiled();
+        ConflictGraph conflictGraph = compiled.getConflictGraph();
+        int course = compiled.indexOf(c);
+
+        // slots ordered by the number of conflicts, ties in random order
+        int nSlots = compiled.getNumberOfSlots();
+        List<List<Meeting>> conflicts = new ArrayList<>(nSlots);
+        Integer[] slots = new Integer[nSlots];
+        for (int slot = 0; slot < nSlots; slot++) {
+            conflicts.add(t.getConflictingMeetings(c, compiled.toDay(slot), compiled.toPeriod(slot)));
+            int swap = rand.nextInt(slot + 1);
+            slots[slot] = slots[swap];
+            slots[swap] = slot;
+        }
+        Arrays.sort(slots, Comparator.comparing(slot -> conflicts.get(slot).size()));
+
+        for (int slot : slots) {
+            List<Meeting> ejected = conflicts.get(slot);
+            if (!conflictGraph.isAvailable(course, slot) || ejected.stream().anyMatch(inserted::contains)
+                    || ejected.stream().anyMatch(m -> m.getCourse().getId().equals(c.getId()))) {
+                continue;
+            }
+            int day = compiled.toDay(slot);
+            int period = compiled.toPeriod(slot);
+            Meeting meeting = new Meeting(c, day, period);
+
+            List<List<Meeting>> options;
+            if (ejected.isEmpty()) {
+                // no conflicts, so there's no room left. try to take one
+                options = t.getMeetingsByPeriod(day, period).stream()
+                        .filter(m -> !inserted.contains(m))
+                        .map(Collections::singletonList)
+                        .collect(Collectors.toList());
+            } else {
+                options = Collections.singletonList(ejected);
             }
 
-            String msg = String.format("Failed to schedule meeting after %d attempts\n", ATTEMPTS_AFTER_FAIL);
-            throw new CrossoverFailedException(msg);
+            for (List<Meeting> option : options) {
+                option.forEach(t::removeMeeting);
+                if (t.addMeeting(meeting)) {
+                    inserted.add(meeting);
+                    return option;
+                }
+                for (Meeting m : option) {
+                    if (!t.addMeeting(m)) {
+                        throw new IllegalStateException("Should be able to re-add meeting");
+                    }
+                }
+            }
         }
+        return null;
     }
 
     /**
@@ -244,15 +362,7 @@ public abstract class AbstractLessonBasedCrossover implements CbcttVariation {
      * There may be meetings scheduled already.
      */
     private boolean isFeasible(Timetable t, Course course, int day, int period) {
-        if (!spec.getUnavailabilityConstraints().checkAvailability(course, day, period)) {
-            return false;
-        } else if (t.hasLectureOfSameCurriculum(course.getCurricula(), day, period)) {
-            return false;
-        } else if (t.hasLectureWithSameTeacher(course.getTeacher(), day, period)) {
-            return false;
-        } else {
-            return true;
-        }
+        return t.isConflictFree(course, day, period);
     }
 
     private static class CrossoverFailedException extends Exception {
@@ -1,5 +1,6 @@
 package ch.rethab.cbctt.ea.op;
 
+import ch.rethab.cbctt.RandomStreams;
 import ch.rethab.cbctt.domain.Course;
 import ch.rethab.cbctt.domain.Specification;
 import ch.rethab.cbctt.ea.phenotype.MeetingWithRoom;
@@ -22,7 +23,17 @@ import java.util.Set;
 public final class CourseBasedCrossover extends AbstractLessonBasedCrossover {
 
     public CourseBasedCrossover( Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner) {
-        super(spec, solutionConverter, roomAssigner);
+        this(spec, solutionConverter, roomAssigner, new RandomStreams());
+    }
+
+    public CourseBasedCrossover(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner,
+                                RandomStreams random) {
+        super(spec, solutionConverter, roomAssigner, random);
+    }
+
+    public CourseBasedCrossover(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner,
+                                RandomStreams random, boolean repair) {
+        super(spec, solutionConverter, roomAssigner, random, repair);
     }
 
     @Override
@@ -38,7 +49,7 @@ public final class CourseBasedCrossover extends AbstractLessonBasedCrossover {
 
     private Course getRandomCourse(TimetableWithRooms t) {
         MeetingWithRoom[] meetings = t.getMeetings().toArray(new MeetingWithRoom[t.getMeetings().size()]);
-        int idx = rand.nextInt(meetings.length);
+        int idx = random.current().nextInt(meetings.length);
         return meetings[idx].getCourse();
     }
 
@@ -1,6 +1,7 @@
 package ch.rethab.cbctt.ea.op;
 
 import ch.rethab.cbctt.Logger;
+import ch.rethab.cbctt.RandomStreams;
 import ch.rethab.cbctt.domain.Specification;
 import ch.rethab.cbctt.ea.phenotype.Meeting;
 import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
@@ -9,7 +10,6 @@ import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 import ch.rethab.cbctt.moea.SolutionConverter;
 import org.moeaframework.core.Solution;
 
-import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -27,7 +27,7 @@ public class CourseBasedMutation implements CbcttVariation {
     // if a mutation fails, it is restarted this many times
     private static final int ATTEMPTS_AFTER_FAIL = 100;
 
-    private final SecureRandom rand = new SecureRandom();
+    private final RandomStreams random;
 
     private final Specification spec;
 
@@ -39,6 +39,12 @@ public class CourseBasedMutation implements CbcttVariation {
 
     public CourseBasedMutation(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner,
                                double mutationProbability) {
+        this(spec, solutionConverter, roomAssigner, mutationProbability, new RandomStreams());
+    }
+
+    public CourseBasedMutation(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner,
+                               double mutationProbability, RandomStreams random) {
+        this.random = random;
         this.solutionConverter = solutionConverter;
         this.roomAssigner = roomAssigner;
         this.spec = spec;
@@ -62,7 +68,7 @@ public class CourseBasedMutation implements CbcttVariation {
     @Override
     public Solution[] evolve(Solution[] solutions) {
 
-        if (rand.nextDouble() > mutationProbability) {
+        if (random.current().nextDouble() > mutationProbability) {
             return solutions;
         }
 
@@ -73,7 +79,7 @@ public class CourseBasedMutation implements CbcttVariation {
         while (attempts-- >= 0) {
             mutated = mutation(original);
             if (mutated != null) {
-                return new Solution[]{solutionConverter.toSolution(mutated)};
+                return new Solution[]{solutionConverter.toSolution(mutated, solutions[0])};
             }
         }
 
@@ -135,25 +141,19 @@ public class CourseBasedMutation implements CbcttVariation {
      * Reduced means: There are other checks necessary to make sure adding this
      *                meeting actually results in a feasible timetable.
      *
-     * This checks: Unavailability Constraint, Same Teacher in Period Constraint
+     * This checks: Unavailability Constraint, Same Teacher or Curriculum in Period Constraint
      */
     private boolean isReduceFeasible(Timetable timetable, Meeting m) {
-        if (!spec.getUnavailabilityConstraints().checkAvailability(m.getCourse(), m.getDay(), m.getPeriod())) {
-            return false;
-        } else if (timetable.hasLectureWithSameTeacher(m.getCourse().getTeacher(), m.getDay(), m.getPeriod())) {
-            return false;
-        } else {
-            return true;
-        }
+        return timetable.isConflictFree(m.getCourse(), m.getDay(), m.getPeriod());
     }
 
     private ExchangeMeetings getIdx(Set<Meeting> meetings) {
-        int idxA = rand.nextInt(meetings.size());
+        int idxA = random.current().nextInt(meetings.size());
         int idxB;
 
         int attempts = ATTEMPTS_AFTER_FAIL;
         while (attempts-- >= 0) {
-            idxB = rand.nextInt(meetings.size());
+            idxB = random.current().nextInt(meetings.size());
             if (idxB != idxA) {
                 // convert for index-access
                 List<Meeting> list = new ArrayList<>(meetings);
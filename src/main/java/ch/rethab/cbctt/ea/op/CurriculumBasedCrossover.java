@@ -1,5 +1,6 @@
 package ch.rethab.cbctt.ea.op;
 
+import ch.rethab.cbctt.RandomStreams;
 import ch.rethab.cbctt.domain.Specification;
 import ch.rethab.cbctt.ea.phenotype.MeetingWithRoom;
 import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
@@ -23,7 +24,17 @@ import java.util.stream.Collectors;
 public final class CurriculumBasedCrossover extends AbstractLessonBasedCrossover {
 
     public CurriculumBasedCrossover(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner) {
-        super(spec, solutionConverter, roomAssigner);
+        this(spec, solutionConverter, roomAssigner, new RandomStreams());
+    }
+
+    public CurriculumBasedCrossover(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner,
+                                    RandomStreams random) {
+        super(spec, solutionConverter, roomAssigner, random);
+    }
+
+    public CurriculumBasedCrossover(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner,
+                                    RandomStreams random, boolean repair) {
+        super(spec, solutionConverter, roomAssigner, random, repair);
     }
 
     @Override
@@ -39,7 +50,7 @@ public final class CurriculumBasedCrossover extends AbstractLessonBasedCrossover
 
     private String getRandomCurriculum() {
         int nCurricula = spec.getCurricula().size();
-        int idx = rand.nextInt(nCurricula);
+        int idx = random.current().nextInt(nCurricula);
         return spec.getCurricula().get(idx).getId();
     }
 
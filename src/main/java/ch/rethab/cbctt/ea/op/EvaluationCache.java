@@ -0,0 +1,131 @@
+package ch.rethab.cbctt.ea.op;
+
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.formulation.CostBreakdown;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the cost of timetables, so duplicates (e.g. a parent
+ * returned by a failed crossover or a mutation that didn't happen) are
+ * not evaluated again. The key is the Zobrist hash of the timetable. The
+ * timetable is stored with every entry, so a collision is just a miss.
+ * The least recently used entries are evicted once the cache is full.
+ *
+ * The entries are spread over several independently locked stripes by
+ * their hash, so parallel evaluators rarely wait for each other. Every
+ * stripe holds its share of the entries and evicts on its own, hence the
+ * eviction is only approximately least recently used overall. Small
+ * caches have a single stripe.
+ *
+ * Costs are only valid for the formulation they were computed with, so
+ * every Evaluator has its own cache.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class EvaluationCache implements Serializable {
+
+    private static final int MAX_STRIPES = 16;
+
+    /* a stripe is not made smaller than that, so eviction stays close to LRU */
+    private static final int MIN_STRIPE_SIZE = 64;
+
+    private final LruMap[] stripes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public EvaluationCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        int nStripes = Math.min(MAX_STRIPES, Math.max(1, Integer.highestOneBit(maxSize / MIN_STRIPE_SIZE)));
+        this.stripes = new LruMap[nStripes];
+        for (int i = 0; i < nStripes; i++) {
+            // the remainder goes to the first stripes, so the sizes add up to maxSize
+            stripes[i] = new LruMap(maxSize / nStripes + (i < maxSize % nStripes ? 1 : 0));
+        }
+    }
+
+    private LruMap stripe(long hash) {
+        return stripes[(int) (hash ^ (hash >>> 32)) & (stripes.length - 1)];
+    }
+
+    /** The cost of the timetable or null if it isn't cached */
+    CostBreakdown get(CompactTimetable t) {
+        LruMap stripe = stripe(t.getZobristHash());
+        Entry entry;
+        synchronized (stripe) {
+            entry = stripe.get(t.getZobristHash());
+        }
+        if (entry != null && entry.timetable.equals(t)) {
+            hits.incrementAndGet();
+            return entry.cost;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    void put(CompactTimetable t, CostBreakdown cost) {
+        LruMap stripe = stripe(t.getZobristHash());
+        synchronized (stripe) {
+            stripe.put(t.getZobristHash(), new Entry(t, cost));
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** Fraction of the lookups that were hits, 0 if there were none */
+    public double getHitRate() {
+        long hits = this.hits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public int size() {
+        int size = 0;
+        for (LruMap stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    int getNumberOfStripes() {
+        return stripes.length;
+    }
+
+    private static final class Entry implements Serializable {
+        final CompactTimetable timetable;
+        final CostBreakdown cost;
+
+        Entry(CompactTimetable timetable, CostBreakdown cost) {
+            this.timetable = timetable;
+            this.cost = cost;
+        }
+    }
+
+    private static final class LruMap extends LinkedHashMap<Long, Entry> {
+        private final int maxSize;
+
+        LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -1,43 +1,90 @@
 package ch.rethab.cbctt.ea.op;
 
 import ch.rethab.cbctt.Logger;
-import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.Move;
+import ch.rethab.cbctt.formulation.CostBreakdown;
 import ch.rethab.cbctt.formulation.Formulation;
-import ch.rethab.cbctt.formulation.constraint.Constraint;
 import ch.rethab.cbctt.moea.SolutionConverter;
+import ch.rethab.cbctt.moea.VariableAdapter;
 import org.moeaframework.core.Solution;
 
 import java.io.Serializable;
+import java.util.List;
 
 public class Evaluator implements Serializable {
 
+    /* if more lectures than this have been moved, evaluating from scratch is cheaper */
+    private static final double MAX_DELTA_FRACTION = 0.25;
+
+    private static final int DEFAULT_CACHE_SIZE = 4096;
+
     private final Formulation formulation;
 
     private final SolutionConverter solutionConverter;
 
+    private final EvaluationCache cache;
+
     public Evaluator(Formulation formulation, SolutionConverter solutionConverter) {
+        this(formulation, solutionConverter, new EvaluationCache(DEFAULT_CACHE_SIZE));
+    }
+
+    public Evaluator(Formulation formulation, SolutionConverter solutionConverter, EvaluationCache cache) {
         this.formulation = formulation;
         this.solutionConverter = solutionConverter;
+        this.cache = cache;
+    }
+
+    public EvaluationCache getCache() {
+        return cache;
     }
 
     public void evaluate(Solution s) {
         Logger.trace("Entry");
 
-        TimetableWithRooms t = solutionConverter.fromSolution(s);
+        VariableAdapter variable = solutionConverter.variableFromSolution(s);
+        CostBreakdown cost = variable.getCost();
+
+        if (cost == null) {
+            // timetables are unmodifiable, so a cost once computed stays valid
+            cost = evaluate(variable);
+            variable.setCost(cost);
+        }
 
         for (int i = 0; i < this.formulation.getConstraints().length; i++) {
-            double constraint = - this.formulation.getConstraints()[i].violations(t);
-            s.setConstraint(i, constraint);
+            s.setConstraint(i, - cost.getConstraintViolations(i));
         }
 
         for (int i = 0; i < this.formulation.getObjectives().length; i++) {
-            Constraint c = this.formulation.getObjectives()[i].constraint;
             int penalty  = this.formulation.getObjectives()[i].penalty;
-
-            int objective = c.violations(t) * penalty;
-            s.setObjective(i, objective);
+            s.setObjective(i, cost.getObjectiveViolations(i) * penalty);
         }
 
         Logger.trace("Exit");
     }
+
+    private CostBreakdown evaluate(VariableAdapter variable) {
+        // only keep the genome while the solution waits in the population
+        if (!variable.compact()) {
+            return formulation.evaluate(variable.getTimetable());
+        }
+
+        CompactTimetable child = variable.getCompact();
+        CostBreakdown cost = cache.get(child);
+        if (cost == null) {
+            cost = evaluate(child, variable.getParent(), variable.getParentCost());
+            cache.put(child, cost);
+        }
+        return cost;
+    }
+
+    private CostBreakdown evaluate(CompactTimetable child, CompactTimetable parent, CostBreakdown parentCost) {
+        if (parent != null) {
+            List<Move> moves = parent.diff(child);
+            if (moves.size() <= child.getNumberOfLectures() * MAX_DELTA_FRACTION) {
+                return formulation.evaluateDelta(parentCost, parent, child, moves);
+            }
+        }
+        return formulation.evaluate(child);
+    }
 }
@@ -0,0 +1,188 @@
+package ch.rethab.cbctt.ea.op;
+
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.formulation.CostBreakdown;
+import ch.rethab.cbctt.formulation.IncrementalUD1Evaluation;
+import ch.rethab.cbctt.moea.SolutionConverter;
+import ch.rethab.cbctt.moea.VariableAdapter;
+import org.moeaframework.core.Solution;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local search that is applied to the offspring after crossover and
+ * mutation, which turns the EA into a memetic algorithm.
+ *
+ * First improvement hill climbing: the lectures are visited in random
+ * order, and each is moved to another free room and slot or swapped with a
+ * lecture in another slot. The first move that improves one UD1 objective
+ * (RoomCapacity, MinWorkingDays, IsolatedLectures) without worsening
+ * another one is kept. Only moves that don't add hard constraint
+ * violations are tried, so feasible timetables stay feasible.
+ *
+ * Moves are scored by delta evaluation (see IncrementalUD1Evaluation).
+ * The search ends in a local optimum or once the move or time budget is
+ * used up. Every call has its own state, so the operator can be used from
+ * several threads.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class HillClimbing implements CbcttVariation {
+
+    /* the clock is only looked at every so many moves */
+    private static final int MOVES_PER_TIME_CHECK = 256;
+
+    private final RandomStreams random;
+
+    private final Specification spec;
+
+    private final SolutionConverter solutionConverter;
+
+    /* moves that are evaluated at most per timetable */
+    private final int moveBudget;
+
+    /* per timetable, zero for none */
+    private final long timeBudgetMillis;
+
+    public HillClimbing(Specification spec, SolutionConverter solutionConverter, int moveBudget, long timeBudgetMillis) {
+        this(spec, solutionConverter, moveBudget, timeBudgetMillis, new RandomStreams());
+    }
+
+    public HillClimbing(Specification spec, SolutionConverter solutionConverter, int moveBudget, long timeBudgetMillis,
+                        RandomStreams random) {
+        if (moveBudget < 1) {
+            throw new IllegalArgumentException("Move budget must be positive: " + moveBudget);
+        } else if (timeBudgetMillis < 0) {
+            throw new IllegalArgumentException("Time budget must not be negative: " + timeBudgetMillis);
+        }
+        this.random = random;
+        this.spec = spec;
+        this.solutionConverter = solutionConverter;
+        this.moveBudget = moveBudget;
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    @Override
+    public String name() {
+        return String.format("HillClimbing(moves=%d, millis=%d)", moveBudget, timeBudgetMillis);
+    }
+
+    @Override
+    public int getArity() {
+        return 1;
+    }
+
+    @Override
+    public Solution[] evolve(Solution[] solutions) {
+        CompiledSpecification compiled = spec.getCompiled();
+        if (!IncrementalUD1Evaluation.supports(compiled)) {
+            return solutions;
+        }
+
+        VariableAdapter variable = solutionConverter.variableFromSolution(solutions[0]);
+        CompactTimetable start = variable.getCompact();
+        if (start == null) {
+            TimetableWithRooms t = variable.getTimetable();
+            if (!CompactTimetable.isRepresentable(spec, t)) {
+                return solutions;
+            }
+            start = CompactTimetable.fromWithRooms(spec, t);
+        }
+
+        IncrementalUD1Evaluation state = new IncrementalUD1Evaluation(compiled, start.getGenes());
+        if (!climb(state, random.current())) {
+            return solutions;
+        }
+
+        // the evaluator computes the cost of the result incrementally from the one of the start
+        CostBreakdown startCost = variable.getCost();
+        if (startCost == null) {
+            startCost = solutionConverter.getFormulation().evaluate(start);
+        }
+        int[] genes = new int[state.getNumberOfLectures()];
+        state.copyGenes(genes);
+        Solution result = solutionConverter.toSolution(CompactTimetable.fromGenes(spec, genes));
+        solutionConverter.variableFromSolution(result).setParent(start, startCost);
+        return new Solution[]{result};
+    }
+
+    /* returns whether the timetable was improved */
+    private boolean climb(IncrementalUD1Evaluation state, SplittableRandom rand) {
+        int nLectures = state.getNumberOfLectures();
+        int[] order = new int[nLectures];
+        for (int i = 0; i < nLectures; i++) {
+            int j = rand.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        int moves = 0;
+        int[] delta = new int[IncrementalUD1Evaluation.NUMBER_OF_OBJECTIVES];
+        boolean improved = false;
+        // a local optimum is reached once every lecture has been tried without improvement
+        int sinceImprovement = 0;
+        for (int i = 0; sinceImprovement < nLectures; i = (i + 1) % nLectures) {
+            sinceImprovement++;
+            int lecture = order[i];
+            if (state.getGene(lecture) == CompactTimetable.UNSCHEDULED) {
+                continue;
+            }
+            int nGenes = state.getNumberOfGenes();
+            int offset = rand.nextInt(nGenes);
+            for (int g = 0; g < nGenes; g++, moves++) {
+                if (moves == moveBudget || (timeBudgetMillis > 0 && moves % MOVES_PER_TIME_CHECK == 0
+                        && System.nanoTime() - end >= 0)) {
+                    return improved;
+                }
+                if (tryMove(state, lecture, (offset + g) % nGenes, delta)) {
+                    improved = true;
+                    sinceImprovement = 0;
+                    break;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /* moves the lecture to the gene or swaps it with the lecture there, if that improves the timetable */
+    private boolean tryMove(IncrementalUD1Evaluation state, int lecture, int gene, int[] delta) {
+        int from = state.getGene(lecture);
+        int other = state.getLectureAt(gene);
+        if (gene == from || other == IncrementalUD1Evaluation.CLASH) {
+            return false;
+        } else if (other == IncrementalUD1Evaluation.FREE) {
+            if (!state.fits(lecture, gene, other)) {
+                return false;
+            }
+            state.move(lecture, gene, delta);
+        } else {
+            if (state.sameCourse(lecture, other) || !state.fits(lecture, gene, other) || !state.fits(other, from, lecture)) {
+                return false;
+            }
+            state.swap(lecture, other, delta);
+        }
+        if (improves(delta)) {
+            return true;
+        }
+        state.undo(delta);
+        return false;
+    }
+
+    /* better in one objective and worse in none */
+    private static boolean improves(int[] delta) {
+        boolean better = false;
+        for (int d : delta) {
+            if (d > 0) {
+                return false;
+            }
+            better |= d < 0;
+        }
+        return better;
+    }
+}
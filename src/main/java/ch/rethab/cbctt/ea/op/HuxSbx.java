@@ -1,10 +1,13 @@
 package ch.rethab.cbctt.ea.op;
 
+import ch.rethab.cbctt.RandomStreams;
 import ch.rethab.cbctt.meta.ParametrizationPhenotype;
 import org.moeaframework.core.*;
 import org.moeaframework.core.variable.BinaryVariable;
 import org.moeaframework.core.variable.RealVariable;
 
+import java.util.SplittableRandom;
+
 /**
  *
  * Combination of hux and sbx for mixed type variation.
@@ -31,7 +34,14 @@ public class HuxSbx implements Variation {
      */
     private final double sbxDistributionIndex;
 
+    private final RandomStreams random;
+
     public HuxSbx(double huxProbability, double sbxProbability, double sbxDistributionIndex) {
+        this(huxProbability, sbxProbability, sbxDistributionIndex, new RandomStreams());
+    }
+
+    public HuxSbx(double huxProbability, double sbxProbability, double sbxDistributionIndex, RandomStreams random) {
+        this.random = random;
         this.huxProbability = huxProbability;
         this.sbxProbability = sbxProbability;
         this.sbxDistributionIndex = sbxDistributionIndex;
@@ -46,9 +56,10 @@ public class HuxSbx implements Variation {
     public Solution[] evolve(Solution[] parents) {
         Solution result1 = parents[0].copy();
         Solution result2 = parents[1].copy();
+        SplittableRandom rand = random.current();
 
         // sbx probability is outside the loop
-        boolean doSbx = PRNG.nextDouble() <= sbxProbability;
+        boolean doSbx = rand.nextDouble() <= sbxProbability;
 
         /* The population size is stored, so we can dynamically adjust
          * the upper bounds of the offspring and the sector size. this
@@ -71,15 +82,15 @@ public class HuxSbx implements Variation {
             Variable variable2 = result2.getVariable(i);
 
             if (variable1 instanceof BinaryVariable && variable2 instanceof BinaryVariable) {
-                if (PRNG.nextDouble() <= huxProbability) {
-                    evolveHux(i, (BinaryVariable) variable1, (BinaryVariable) variable2);
+                if (rand.nextDouble() <= huxProbability) {
+                    evolveHux(rand, i, (BinaryVariable) variable1, (BinaryVariable) variable2);
                 }
             } else if (variable1 instanceof RealVariable && variable2 instanceof RealVariable) {
                 RealVariable rv1 = (RealVariable) variable1;
                 RealVariable rv2 = (RealVariable) variable2;
 
-                if (doSbx && PRNG.nextBoolean()) {
-                    Variable[] vars = evolveSbx(i, popSize, rv1, rv2, sbxDistributionIndex);
+                if (doSbx && rand.nextBoolean()) {
+                    Variable[] vars = evolveSbx(rand, i, popSize, rv1, rv2, sbxDistributionIndex);
                     result1.setVariable(i, vars[0]);
                     result2.setVariable(i, vars[1]);
                 }
@@ -101,7 +112,7 @@ public class HuxSbx implements Variation {
      * @param v1 the first variable
      * @param v2 the second variable
      */
-    public static void evolveHux(int idx, BinaryVariable v1, BinaryVariable v2) {
+    public static void evolveHux(SplittableRandom rand, int idx, BinaryVariable v1, BinaryVariable v2) {
         if (v1.getNumberOfBits() != v2.getNumberOfBits()) {
             throw new FrameworkException("binary variables not same length");
         }
@@ -109,7 +120,7 @@ public class HuxSbx implements Variation {
         for (int i = 0; i < v1.getNumberOfBits(); i++) {
             boolean value = v1.get(i);
 
-            if ((value != v2.get(i)) && PRNG.nextBoolean()) {
+            if ((value != v2.get(i)) && rand.nextBoolean()) {
                 v1.set(i, !value);
                 v2.set(i, value);
 
@@ -168,7 +179,7 @@ public class HuxSbx implements Variation {
      * @param v2 the second variable
      * @param distributionIndex the distribution index of this SBX operator
      */
-    public static Variable[] evolveSbx(int idx, int popSize, RealVariable v1, RealVariable v2,
+    public static Variable[] evolveSbx(SplittableRandom rand, int idx, int popSize, RealVariable v1, RealVariable v2,
                               double distributionIndex) {
 
         if (idx == ParametrizationPhenotype.ARCHIVE_SIZE_IDX || idx == ParametrizationPhenotype.SECTOR_SIZE_IDX) {
@@ -208,7 +219,7 @@ public class HuxSbx implements Variation {
 
             double p_bl = 1 - 1 / (2 * Math.pow(bl, distributionIndex + 1));
             double p_bu = 1 - 1 / (2 * Math.pow(bu, distributionIndex + 1));
-            double u = PRNG.nextDouble();
+            double u = rand.nextDouble();
 
             //prevent out-of-bounds values if PRNG draws the value 1.0
             if (u == 1.0) {
@@ -242,7 +253,7 @@ public class HuxSbx implements Variation {
 
             //this makes PISA's SBX compatible with other implementations
             //which swap the values
-            if (PRNG.nextBoolean()) {
+            if (rand.nextBoolean()) {
                 double temp = v1.getValue();
                 v1.setValue(v2.getValue());
                 v2.setValue(temp);
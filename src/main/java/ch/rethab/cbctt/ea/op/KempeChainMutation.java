@@ -0,0 +1,105 @@
+package ch.rethab.cbctt.ea.op;
+
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.formulation.IncrementalUD1Evaluation;
+import ch.rethab.cbctt.moea.SolutionConverter;
+import ch.rethab.cbctt.moea.VariableAdapter;
+import org.moeaframework.core.Solution;
+
+import java.util.SplittableRandom;
+
+/**
+ * Swaps a kempe chain between two slots: a random lecture is moved to
+ * another slot, the lectures there that conflict with it are moved to its
+ * slot, the ones conflicting with those back and so on (see
+ * IncrementalUD1Evaluation#kempeSwap). The chain is found on the conflict
+ * bitsets and swapping it keeps a feasible timetable feasible, so unlike
+ * CourseBasedMutation nothing has to be tried and thrown away. Only if a
+ * teacher of the chain is unavailable or no free suitable room is left for
+ * a lecture of the chain, another pair of slots is picked. If no mutation
+ * happens, a copy of the parent is returned.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class KempeChainMutation implements CbcttVariation {
+
+    /* pairs of slots that are tried before giving up */
+    private static final int ATTEMPTS = 20;
+
+    private final RandomStreams random;
+
+    private final Specification spec;
+
+    private final SolutionConverter solutionConverter;
+
+    private final double mutationProbability;
+
+    public KempeChainMutation(Specification spec, SolutionConverter solutionConverter, double mutationProbability) {
+        this(spec, solutionConverter, mutationProbability, new RandomStreams());
+    }
+
+    public KempeChainMutation(Specification spec, SolutionConverter solutionConverter, double mutationProbability,
+                              RandomStreams random) {
+        this.random = random;
+        this.spec = spec;
+        this.solutionConverter = solutionConverter;
+        this.mutationProbability = mutationProbability;
+    }
+
+    public double getProbability() {
+        return mutationProbability;
+    }
+
+    @Override
+    public String name() {
+        return String.format("KempeChainMutation(prob=%2.3f)", mutationProbability);
+    }
+
+    @Override
+    public int getArity() {
+        return 1;
+    }
+
+    @Override
+    public Solution[] evolve(Solution[] solutions) {
+        SplittableRandom rand = random.current();
+        CompiledSpecification compiled = spec.getCompiled();
+        if (rand.nextDouble() > mutationProbability || !IncrementalUD1Evaluation.supports(compiled)) {
+            return unchanged(solutions[0]);
+        }
+
+        VariableAdapter variable = solutionConverter.variableFromSolution(solutions[0]);
+        CompactTimetable original = variable.getCompact();
+        if (original == null) {
+            TimetableWithRooms t = variable.getTimetable();
+            if (!CompactTimetable.isRepresentable(spec, t)) {
+                return unchanged(solutions[0]);
+            }
+            original = CompactTimetable.fromWithRooms(spec, t);
+        }
+        if (original.getNumberOfLectures() == 0) {
+            return unchanged(solutions[0]);
+        }
+
+        IncrementalUD1Evaluation state = new IncrementalUD1Evaluation(compiled, original.getGenes());
+        int[] delta = new int[IncrementalUD1Evaluation.NUMBER_OF_OBJECTIVES];
+        for (int i = 0; i < ATTEMPTS; i++) {
+            int lecture = rand.nextInt(original.getNumberOfLectures());
+            if (state.kempeSwap(lecture, rand.nextInt(compiled.getNumberOfSlots()), delta)) {
+                int[] genes = new int[original.getNumberOfLectures()];
+                state.copyGenes(genes);
+                return new Solution[]{solutionConverter.toSolution(CompactTimetable.fromGenes(spec, genes), solutions[0])};
+            }
+        }
+        return unchanged(solutions[0]);
+    }
+
+    /* a copy, so the parent itself doesn't end up among the offspring */
+    private static Solution[] unchanged(Solution parent) {
+        return new Solution[]{parent.copy()};
+    }
+}
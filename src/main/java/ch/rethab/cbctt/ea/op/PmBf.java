@@ -1,13 +1,15 @@
 package ch.rethab.cbctt.ea.op;
 
+import ch.rethab.cbctt.RandomStreams;
 import ch.rethab.cbctt.meta.ParametrizationPhenotype;
-import org.moeaframework.core.PRNG;
 import org.moeaframework.core.Solution;
 import org.moeaframework.core.Variable;
 import org.moeaframework.core.Variation;
 import org.moeaframework.core.variable.BinaryVariable;
 import org.moeaframework.core.variable.RealVariable;
 
+import java.util.SplittableRandom;
+
 /**
  *
  * Combination of pm and bit flip for mixed type mutation.
@@ -34,7 +36,14 @@ public class PmBf implements Variation {
      */
     private final double bfProbability;
 
+    private final RandomStreams random;
+
     public PmBf(double pmProbability, double pmDistributionIndex, double bfProbability) {
+        this(pmProbability, pmDistributionIndex, bfProbability, new RandomStreams());
+    }
+
+    public PmBf(double pmProbability, double pmDistributionIndex, double bfProbability, RandomStreams random) {
+        this.random = random;
         this.pmProbability = pmProbability;
         this.pmDistributionIndex = pmDistributionIndex;
         this.bfProbability = bfProbability;
@@ -48,6 +57,7 @@ public class PmBf implements Variation {
     @Override
     public Solution[] evolve(Solution[] parents) {
         Solution result = parents[0].copy();
+        SplittableRandom rand = random.current();
 
         // if the population size changes, we reset the upper bound for the offspring size
         int popSize = -1;
@@ -64,8 +74,8 @@ public class PmBf implements Variation {
                     result.setVariable(i, rv);
                 }
 
-                if (PRNG.nextDouble() <= pmProbability) {
-                    evolveReal(rv, pmDistributionIndex);
+                if (rand.nextDouble() <= pmProbability) {
+                    evolveReal(rand, rv, pmDistributionIndex);
                 }
 
                 if (i == ParametrizationPhenotype.POPULATION_SIZE_IDX) {
@@ -74,7 +84,7 @@ public class PmBf implements Variation {
 
             } else if (variable instanceof BinaryVariable) {
 
-                evolve(i, (BinaryVariable)variable, bfProbability);
+                evolve(rand, i, (BinaryVariable)variable, bfProbability);
             }
         }
 
@@ -86,9 +96,9 @@ public class PmBf implements Variation {
      *
      * @param variable the variable to be mutated
      */
-    public static void evolve(int idx, BinaryVariable variable, double probability) {
+    public static void evolve(SplittableRandom rand, int idx, BinaryVariable variable, double probability) {
         for (int i = 0; i < variable.getNumberOfBits(); i++) {
-            if (PRNG.nextDouble() <= probability) {
+            if (rand.nextDouble() <= probability) {
                 variable.set(i, !variable.get(i));
 
                 // make sure there is always one variator by resetting
@@ -147,8 +157,8 @@ public class PmBf implements Variation {
      * @param distributionIndex the distribution index controlling the shape of
      *        the polynomial mutation
      */
-    public static void evolveReal(RealVariable v, double distributionIndex) {
-        double u = PRNG.nextDouble();
+    public static void evolveReal(SplittableRandom rand, RealVariable v, double distributionIndex) {
+        double u = rand.nextDouble();
         double x = v.getValue();
         double lb = v.getLowerBound();
         double ub = v.getUpperBound();
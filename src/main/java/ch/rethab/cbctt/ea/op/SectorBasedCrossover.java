@@ -1,5 +1,6 @@
 package ch.rethab.cbctt.ea.op;
 
+import ch.rethab.cbctt.RandomStreams;
 import ch.rethab.cbctt.domain.Specification;
 import ch.rethab.cbctt.ea.phenotype.MeetingWithRoom;
 import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
@@ -33,7 +34,17 @@ public final class SectorBasedCrossover extends AbstractLessonBasedCrossover {
     private final int sectorSize;
 
     public SectorBasedCrossover(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner, int sectorSize) {
-        super(spec, solutionConverter, roomAssigner);
+        this(spec, solutionConverter, roomAssigner, sectorSize, new RandomStreams());
+    }
+
+    public SectorBasedCrossover(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner, int sectorSize,
+                                RandomStreams random) {
+        this(spec, solutionConverter, roomAssigner, sectorSize, random, false);
+    }
+
+    public SectorBasedCrossover(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner, int sectorSize,
+                                RandomStreams random, boolean repair) {
+        super(spec, solutionConverter, roomAssigner, random, repair);
         this.sectorSize = sectorSize;
     }
 
@@ -50,7 +61,7 @@ public final class SectorBasedCrossover extends AbstractLessonBasedCrossover {
     protected Set<MeetingWithRoom> getMeetingsFromParent(TimetableWithRooms parent) {
         List<MeetingWithRoom> meetings = getSortedMeetings(parent);
         int maxStartIdx = meetings.size() - sectorSize;
-        int startIdx = maxStartIdx <= 0 ? 0 : rand.nextInt(maxStartIdx);
+        int startIdx = maxStartIdx <= 0 ? 0 : random.current().nextInt(maxStartIdx);
         int endIdx = startIdx + sectorSize;
         if (endIdx > meetings.size()) {
             endIdx = meetings.size();
@@ -62,7 +73,7 @@ public final class SectorBasedCrossover extends AbstractLessonBasedCrossover {
     private List<MeetingWithRoom> getSortedMeetings(TimetableWithRooms parent) {
         // need to sort so we can create proper sectors
         int nCurricula = spec.getCurricula().size();
-        int idx = rand.nextInt(nCurricula);
+        int idx = random.current().nextInt(nCurricula);
         String currId = spec.getCurricula().get(idx).getId();
         return parent.getCurriculumTimetables().get(currId).getAll()
                 .sorted(Comparator.comparing(mwr -> toSlotIdx(mwr.getDay(), mwr.getPeriod())))
@@ -0,0 +1,83 @@
+package ch.rethab.cbctt.ea.phenotype;
+
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.Specification;
+
+import java.io.Serializable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Everything a child timetable needs from its parent, derived once per
+ * parent. Children share the arrays and only copy the curricula and
+ * periods they actually modify (see {@link Timetable#fromWithRooms}).
+ * Nothing in here must ever be modified.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+final class ChildTemplate implements Serializable {
+
+    /* meetings without rooms, [curriculum][slot]. one instance per meeting */
+    final Meeting[][] curriculumMeetings;
+
+    /* distinct meetings per slot */
+    final MeetingWithRoom[][] slotMeetings;
+
+    final SlotOccupancy curriculumOccupancy;
+    final SlotOccupancy teacherOccupancy;
+    final SlotOccupancy courseOccupancy;
+
+    /* Zobrist hash of the meetings without rooms */
+    final long hash;
+
+    ChildTemplate(Specification spec, TimetableWithRooms tt) {
+        CompiledSpecification compiled = spec.getCompiled();
+        int nSlots = compiled.getNumberOfSlots();
+
+        curriculumMeetings = new Meeting[compiled.getNumberOfCurricula()][nSlots];
+        curriculumOccupancy = new SlotOccupancy(nSlots, compiled.getNumberOfCurricula());
+        teacherOccupancy = new SlotOccupancy(nSlots, compiled.getNumberOfTeachers());
+        courseOccupancy = new SlotOccupancy(nSlots, compiled.getNumberOfCourses());
+
+        @SuppressWarnings("unchecked")
+        Set<MeetingWithRoom>[] bySlot = new Set[nSlots];
+        Map<MeetingWithRoom, Meeting> withoutRooms = new IdentityHashMap<>();
+
+        for (int cu = 0; cu < curriculumMeetings.length; cu++) {
+            CurriculumTimetableWithRooms ctt = tt.getCurriculumTimetable(cu);
+            for (int slot = 0; slot < nSlots; slot++) {
+                MeetingWithRoom mwr = ctt.get(compiled.toDay(slot), compiled.toPeriod(slot));
+                if (mwr == null) {
+                    continue;
+                }
+                curriculumMeetings[cu][slot] = withoutRooms.computeIfAbsent(mwr, MeetingWithRoom::withoutRoom);
+                if (bySlot[slot] == null) {
+                    bySlot[slot] = new LinkedHashSet<>();
+                }
+                bySlot[slot].add(mwr);
+
+                curriculumOccupancy.add(slot, cu);
+                // a meeting is in all curricula of its course, but the teacher is only counted once
+                int course = compiled.indexOf(mwr.getCourse());
+                if (compiled.getCurriculaOf(course)[0] == cu) {
+                    teacherOccupancy.add(slot, compiled.getTeacherOf(course));
+                    courseOccupancy.add(slot, course);
+                }
+            }
+        }
+
+        slotMeetings = new MeetingWithRoom[nSlots][];
+        long hash = 0;
+        for (int slot = 0; slot < nSlots; slot++) {
+            slotMeetings[slot] = bySlot[slot] == null
+                    ? new MeetingWithRoom[0]
+                    : bySlot[slot].toArray(new MeetingWithRoom[bySlot[slot].size()]);
+            for (MeetingWithRoom m : slotMeetings[slot]) {
+                hash ^= Zobrist.key(compiled, compiled.indexOf(m.getCourse()), slot, Zobrist.NO_ROOM);
+            }
+        }
+        this.hash = hash;
+    }
+}
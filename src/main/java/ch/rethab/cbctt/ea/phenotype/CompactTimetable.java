@@ -0,0 +1,271 @@
+package ch.rethab.cbctt.ea.phenotype;
+
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.Course;
+import ch.rethab.cbctt.domain.Specification;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Flat encoding of a timetable with rooms. There is one gene per lecture,
+ * indexed by the compiled lecture id (see CompiledSpecification#getFirstLecture).
+ * A gene is slot * numberOfRooms + room, or UNSCHEDULED. The lectures of a
+ * course are kept sorted by gene so equal timetables have equal genomes.
+ *
+ * In contrast to TimetableWithRooms, a course that belongs to multiple
+ * curricula is stored only once. The object view can be obtained with
+ * toTimetableWithRooms().
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class CompactTimetable implements Serializable {
+
+    public static final int UNSCHEDULED = -1;
+
+    private final Specification spec;
+
+    private final int[] genes;
+
+    /* derived: lectures per slot, slotLectures[slotOffset[slot] .. slotOffset[slot+1]) */
+    private final int[] slotOffset;
+    private final int[] slotLectures;
+
+    /* Zobrist hash over (course, slot, room) of the scheduled lectures */
+    private final long hash;
+
+    CompactTimetable(Specification spec, int[] genes) {
+        this(spec, genes, hash(spec.getCompiled(), genes));
+    }
+
+    private CompactTimetable(Specification spec, int[] genes, long hash) {
+        this.spec = spec;
+        this.genes = genes;
+        this.hash = hash;
+
+        CompiledSpecification compiled = spec.getCompiled();
+        int nSlots = compiled.getNumberOfSlots();
+        int nRooms = compiled.getNumberOfRooms();
+        slotOffset = new int[nSlots + 1];
+        for (int gene : genes) {
+            if (gene != UNSCHEDULED) {
+                slotOffset[gene / nRooms + 1]++;
+            }
+        }
+        for (int slot = 0; slot < nSlots; slot++) {
+            slotOffset[slot + 1] += slotOffset[slot];
+        }
+        slotLectures = new int[slotOffset[nSlots]];
+        int[] next = Arrays.copyOf(slotOffset, nSlots);
+        for (int l = 0; l < genes.length; l++) {
+            if (genes[l] != UNSCHEDULED) {
+                slotLectures[next[genes[l] / nRooms]++] = l;
+            }
+        }
+    }
+
+    /**
+     * Encodes the timetable. Fails if a course has more meetings than
+     * lectures or isn't part of the specification, since such a timetable
+     * cannot be represented (see isRepresentable).
+     */
+    public static CompactTimetable fromWithRooms(Specification spec, TimetableWithRooms t) {
+        CompiledSpecification compiled = spec.getCompiled();
+        int nRooms = compiled.getNumberOfRooms();
+        int[] genes = new int[compiled.getNumberOfLectures()];
+        Arrays.fill(genes, UNSCHEDULED);
+        int[] scheduled = new int[compiled.getNumberOfCourses()];
+
+        for (MeetingWithRoom m : t.getMeetings()) {
+            int c = compiled.indexOf(m.getCourse());
+            if (c == -1) {
+                throw new IllegalArgumentException("Course " + m.getCourse().getId() + " is not part of the specification");
+            } else if (scheduled[c] == compiled.getNumberOfLectures(c)) {
+                throw new IllegalArgumentException("Course " + m.getCourse().getId() + " has more meetings than lectures");
+            }
+            int room = compiled.indexOf(m.getRoom());
+            if (room == -1) {
+                throw new IllegalArgumentException("Room " + m.getRoom().getId() + " is not part of the specification");
+            }
+            int slot = compiled.toSlot(m.getDay(), m.getPeriod());
+            genes[compiled.getFirstLecture(c) + scheduled[c]++] = slot * nRooms + room;
+        }
+
+        for (int c = 0; c < compiled.getNumberOfCourses(); c++) {
+            sortLectures(compiled, genes, c);
+        }
+
+        return new CompactTimetable(spec, genes);
+    }
+
+    /**
+     * Restores a timetable from its genes (see getGenes), e.g. after it
+     * was sent to another process. Fails if the genes don't fit the
+     * specification.
+     */
+    public static CompactTimetable fromGenes(Specification spec, int[] genes) {
+        CompiledSpecification compiled = spec.getCompiled();
+        if (genes.length != compiled.getNumberOfLectures()) {
+            throw new IllegalArgumentException(String.format("Expected %d lectures, got %d",
+                    compiled.getNumberOfLectures(), genes.length));
+        }
+        int maxGene = compiled.getNumberOfSlots() * compiled.getNumberOfRooms();
+        for (int gene : genes) {
+            if (gene != UNSCHEDULED && (gene < 0 || gene >= maxGene)) {
+                throw new IllegalArgumentException("Invalid gene: " + gene);
+            }
+        }
+        int[] copy = genes.clone();
+        for (int c = 0; c < compiled.getNumberOfCourses(); c++) {
+            sortLectures(compiled, copy, c);
+        }
+        return new CompactTimetable(spec, copy);
+    }
+
+    private static long hash(CompiledSpecification compiled, int[] genes) {
+        long hash = 0;
+        for (int l = 0; l < genes.length; l++) {
+            hash ^= key(compiled, l, genes[l]);
+        }
+        return hash;
+    }
+
+    /* zero for unscheduled lectures, so they don't change the hash */
+    private static long key(CompiledSpecification compiled, int lecture, int gene) {
+        if (gene == UNSCHEDULED) {
+            return 0;
+        }
+        int nRooms = compiled.getNumberOfRooms();
+        return Zobrist.key(compiled, compiled.getCourseOfLecture(lecture), gene / nRooms, gene % nRooms);
+    }
+
+    // unscheduled (-1) sort first, which is fine as long as it's consistent
+    private static void sortLectures(CompiledSpecification compiled, int[] genes, int course) {
+        int first = compiled.getFirstLecture(course);
+        Arrays.sort(genes, first, first + compiled.getNumberOfLectures(course));
+    }
+
+    private int toGene(int slot, int room) {
+        return slot == UNSCHEDULED ? UNSCHEDULED : slot * spec.getCompiled().getNumberOfRooms() + room;
+    }
+
+    /**
+     * Returns the timetable that results from applying the moves in order.
+     * Fails if a move doesn't start where the lecture currently is.
+     */
+    public CompactTimetable apply(List<Move> moves) {
+        CompiledSpecification compiled = spec.getCompiled();
+        int[] genes = Arrays.copyOf(this.genes, this.genes.length);
+        long hash = this.hash;
+        for (Move m : moves) {
+            if (genes[m.lecture] != toGene(m.fromSlot, m.fromRoom)) {
+                throw new IllegalArgumentException("Lecture " + m.lecture + " is not where " + m + " starts");
+            }
+            genes[m.lecture] = toGene(m.toSlot, m.toRoom);
+            // the key only depends on the course, so sorting the lectures doesn't change the hash
+            hash ^= key(compiled, m.lecture, toGene(m.fromSlot, m.fromRoom)) ^ key(compiled, m.lecture, genes[m.lecture]);
+        }
+        for (Move m : moves) {
+            sortLectures(compiled, genes, compiled.getCourseOfLecture(m.lecture));
+        }
+        return new CompactTimetable(spec, genes, hash);
+    }
+
+    /** Returns the moves that turn this timetable into the other one */
+    public List<Move> diff(CompactTimetable other) {
+        List<Move> moves = new ArrayList<>();
+        for (int l = 0; l < genes.length; l++) {
+            if (genes[l] != other.genes[l]) {
+                moves.add(new Move(l, getSlot(l), getRoom(l), other.getSlot(l), other.getRoom(l)));
+            }
+        }
+        return moves;
+    }
+
+    /** True if fromWithRooms can encode the timetable */
+    public static boolean isRepresentable(Specification spec, TimetableWithRooms t) {
+        CompiledSpecification compiled = spec.getCompiled();
+        int[] scheduled = new int[compiled.getNumberOfCourses()];
+        for (MeetingWithRoom m : t.getMeetings()) {
+            int c = compiled.indexOf(m.getCourse());
+            if (c == -1 || compiled.indexOf(m.getRoom()) == -1 || ++scheduled[c] > compiled.getNumberOfLectures(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public TimetableWithRooms toTimetableWithRooms() {
+        CompiledSpecification compiled = spec.getCompiled();
+        TimetableWithRooms.Builder builder = TimetableWithRooms.Builder.newBuilder(spec);
+        for (int l = 0; l < genes.length; l++) {
+            if (genes[l] != UNSCHEDULED) {
+                int slot = getSlot(l);
+                Course course = compiled.getCourse(compiled.getCourseOfLecture(l));
+                builder.addMeeting(course, compiled.getRoom(getRoom(l)), compiled.toDay(slot), compiled.toPeriod(slot));
+            }
+        }
+        return builder.build();
+    }
+
+    public Specification getSpecification() {
+        return spec;
+    }
+
+    public int getNumberOfLectures() {
+        return genes.length;
+    }
+
+    public boolean isScheduled(int lecture) {
+        return genes[lecture] != UNSCHEDULED;
+    }
+
+    /** slot of the lecture or UNSCHEDULED */
+    public int getSlot(int lecture) {
+        int gene = genes[lecture];
+        return gene == UNSCHEDULED ? UNSCHEDULED : gene / spec.getCompiled().getNumberOfRooms();
+    }
+
+    /** room of the lecture or UNSCHEDULED */
+    public int getRoom(int lecture) {
+        int gene = genes[lecture];
+        return gene == UNSCHEDULED ? UNSCHEDULED : gene % spec.getCompiled().getNumberOfRooms();
+    }
+
+    public int getNumberOfLecturesInSlot(int slot) {
+        return slotOffset[slot + 1] - slotOffset[slot];
+    }
+
+    /** i-th lecture in the slot, 0 <= i < getNumberOfLecturesInSlot(slot) */
+    public int getLectureInSlot(int slot, int i) {
+        return slotLectures[slotOffset[slot] + i];
+    }
+
+    /**
+     * Zobrist hash of the scheduled lectures with their rooms. The same as
+     * the one of the object view (see TimetableWithRooms#getZobristHash).
+     */
+    public long getZobristHash() {
+        return hash;
+    }
+
+    /** Copy of the genes */
+    public int[] getGenes() {
+        return Arrays.copyOf(genes, genes.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactTimetable that = (CompactTimetable) o;
+        return hash == that.hash && Arrays.equals(genes, that.genes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+}
@@ -12,7 +12,10 @@ import java.util.stream.Stream;
 public final class CurriculumTimetable implements Serializable {
 
     // Array of Meeting (array elements are timeslots)
-    private final Meeting[] meetings;
+    private Meeting[] meetings;
+
+    /* the meetings belong to the parent and must be copied before they are modified */
+    private boolean shared;
 
     private final Specification spec;
 
@@ -26,10 +29,11 @@ public final class CurriculumTimetable implements Serializable {
         this.meetings = meetings;
     }
 
-    public static CurriculumTimetable fromWithRooms(Specification spec, CurriculumTimetableWithRooms cttwr) {
-        Meeting[] meetings = new Meeting[spec.getPeriodsPerDay() * spec.getNumberOfDaysPerWeek()];
-        cttwr.getAll().forEach(mwr -> meetings[toSlotIdx(spec, mwr.getDay(), mwr.getPeriod())] = mwr.withoutRoom());
-        return new CurriculumTimetable(spec, meetings);
+    /** Shares the meetings (one per slot) until this timetable is modified for the first time */
+    static CurriculumTimetable sharing(Specification spec, Meeting[] meetings) {
+        CurriculumTimetable ctt = new CurriculumTimetable(spec, meetings);
+        ctt.shared = true;
+        return ctt;
     }
 
     public void setMeeting(Meeting m) {
@@ -44,14 +48,18 @@ public final class CurriculumTimetable implements Serializable {
             throw new Timetable.InfeasibilityException(msg);
         }
 
-        meetings[slotIdx] = m;
+        ownMeetings()[slotIdx] = m;
     }
 
-    private int toSlotIdx(int day, int period) {
-        return toSlotIdx(spec, day, period);
+    private Meeting[] ownMeetings() {
+        if (shared) {
+            meetings = meetings.clone();
+            shared = false;
+        }
+        return meetings;
     }
 
-    private static int toSlotIdx(Specification spec, int day, int period) {
+    private int toSlotIdx(int day, int period) {
         return day * spec.getPeriodsPerDay() + period;
     }
 
@@ -69,7 +77,7 @@ public final class CurriculumTimetable implements Serializable {
     }
 
     public void unsetMeeting(int day, int period) {
-        meetings[toSlotIdx(day, period)] = null;
+        ownMeetings()[toSlotIdx(day, period)] = null;
     }
 
 }
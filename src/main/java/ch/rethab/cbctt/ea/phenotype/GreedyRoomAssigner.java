@@ -6,26 +6,49 @@ import java.util.List;
 
 public class GreedyRoomAssigner implements RoomAssigner {
 
+    /* enough for a few generations of a large population on the bigger instances */
+    private static final int DEFAULT_CACHE_SIZE = 1 << 16;
+
     private final Specification spec;
 
+    /* shared by all threads using this assigner */
+    private final RoomAssignmentCache cache;
+
     public GreedyRoomAssigner(Specification spec) {
+        this(spec, DEFAULT_CACHE_SIZE);
+    }
+
+    public GreedyRoomAssigner(Specification spec, int cacheSize) {
         this.spec = spec;
+        this.cache = new RoomAssignmentCache(cacheSize);
     }
 
     @Override
     public TimetableWithRooms assignRooms(Timetable t) {
         TimetableWithRooms.Builder builder = TimetableWithRooms.Builder.newBuilder(spec);
-        PeriodRoomAssignments[] periodRoomAssignments = t.getPeriodRoomAssignmentses();
-
-        for (int slotIdx = 0; slotIdx < periodRoomAssignments.length; slotIdx++) {
+        int nSlots = spec.getNumberOfDaysPerWeek() * spec.getPeriodsPerDay();
+
+        for (int slotIdx = 0; slotIdx < nSlots; slotIdx++) {
+            MeetingWithRoom[] unchanged = t.getUnchangedMeetings(slotIdx);
+            if (unchanged != null) {
+                // same courses as in the parent, so the parent's rooms are kept as they are
+                for (MeetingWithRoom m : unchanged) {
+                    builder.addMeeting(m);
+                }
+                continue;
+            }
             int day = Math.floorDiv(slotIdx, spec.getPeriodsPerDay());
             int period = slotIdx % spec.getPeriodsPerDay();
-            PeriodRoomAssignments periodRoomAssignment = periodRoomAssignments[slotIdx];
-            List<PeriodRoomAssignments.CourseWithRoom> courses = periodRoomAssignment.assignRooms();
+            PeriodRoomAssignments periodRoomAssignment = t.periodRoomAssignments(slotIdx);
+            List<PeriodRoomAssignments.CourseWithRoom> courses = periodRoomAssignment.assignRooms(cache);
             courses.forEach(cwr -> builder.addMeeting(cwr.course, cwr.room, day, period));
         }
 
         return builder.build();
     }
 
+    public RoomAssignmentCache getCache() {
+        return cache;
+    }
+
 }
@@ -0,0 +1,124 @@
+package ch.rethab.cbctt.ea.phenotype;
+
+import java.util.Arrays;
+
+/**
+ * Hungarian method on integer costs for rectangular problems with at most
+ * as many rows (courses) as columns (rooms). It is the shortest augmenting
+ * path variant with row and column potentials, which runs in O(n^2 * m).
+ *
+ * All arrays, including the cost matrix, are allocated once and reused for
+ * every solve. An instance is therefore not thread safe, use
+ * {@link #forThread(int)} to get one per thread.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+final class HungarianSolver {
+
+    private static final ThreadLocal<HungarianSolver> SOLVERS = new ThreadLocal<>();
+
+    private final int capacity;
+
+    /* row major, [row * capacity + col] */
+    private final int[] cost;
+
+    /* the following are 1-based, index 0 is the virtual start column */
+    private final int[] rowPotential;
+    private final int[] colPotential;
+    private final int[] rowOfCol;
+    private final int[] way;
+    private final int[] minSlack;
+    private final boolean[] used;
+
+    private HungarianSolver(int capacity) {
+        this.capacity = capacity;
+        this.cost = new int[capacity * capacity];
+        this.rowPotential = new int[capacity + 1];
+        this.colPotential = new int[capacity + 1];
+        this.rowOfCol = new int[capacity + 1];
+        this.way = new int[capacity + 1];
+        this.minSlack = new int[capacity + 1];
+        this.used = new boolean[capacity + 1];
+    }
+
+    /** Solver of the current thread that can handle at least size rows and columns */
+    static HungarianSolver forThread(int size) {
+        HungarianSolver solver = SOLVERS.get();
+        if (solver == null || solver.capacity < size) {
+            solver = new HungarianSolver(size);
+            SOLVERS.set(solver);
+        }
+        return solver;
+    }
+
+    void setCost(int row, int col, int value) {
+        cost[row * capacity + col] = value;
+    }
+
+    /**
+     * Computes the minimum cost assignment of the cost matrix
+     * previously filled with {@link #setCost(int, int, int)}.
+     *
+     * @param result receives the column of each row, must have at least rows entries
+     */
+    void solve(int rows, int cols, int[] result) {
+        if (rows > cols) {
+            throw new IllegalArgumentException("More rows (" + rows + ") than columns (" + cols + ")");
+        }
+
+        Arrays.fill(rowPotential, 0, rows + 1, 0);
+        Arrays.fill(colPotential, 0, cols + 1, 0);
+        Arrays.fill(rowOfCol, 0, cols + 1, 0);
+
+        for (int i = 1; i <= rows; i++) {
+            rowOfCol[0] = i;
+            int col = 0;
+            Arrays.fill(minSlack, 0, cols + 1, Integer.MAX_VALUE);
+            Arrays.fill(used, 0, cols + 1, false);
+
+            // grow the alternating tree until a free column is reached
+            do {
+                used[col] = true;
+                int row = rowOfCol[col];
+                int delta = Integer.MAX_VALUE;
+                int nextCol = 0;
+                int rowOffset = (row - 1) * capacity - 1;
+                for (int j = 1; j <= cols; j++) {
+                    if (!used[j]) {
+                        int slack = cost[rowOffset + j] - rowPotential[row] - colPotential[j];
+                        if (slack < minSlack[j]) {
+                            minSlack[j] = slack;
+                            way[j] = col;
+                        }
+                        if (minSlack[j] < delta) {
+                            delta = minSlack[j];
+                            nextCol = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= cols; j++) {
+                    if (used[j]) {
+                        rowPotential[rowOfCol[j]] += delta;
+                        colPotential[j] -= delta;
+                    } else {
+                        minSlack[j] -= delta;
+                    }
+                }
+                col = nextCol;
+            } while (rowOfCol[col] != 0);
+
+            // flip the augmenting path
+            do {
+                int prevCol = way[col];
+                rowOfCol[col] = rowOfCol[prevCol];
+                col = prevCol;
+            } while (col != 0);
+        }
+
+        for (int j = 1; j <= cols; j++) {
+            if (rowOfCol[j] != 0) {
+                result[rowOfCol[j] - 1] = j - 1;
+            }
+        }
+    }
+}
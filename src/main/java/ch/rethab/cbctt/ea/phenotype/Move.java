@@ -0,0 +1,34 @@
+package ch.rethab.cbctt.ea.phenotype;
+
+import java.io.Serializable;
+
+/**
+ * A single lecture that is moved to another slot and/or room. Slots and
+ * rooms are compiled ids, either of them may be CompactTimetable.UNSCHEDULED
+ * if the lecture is (un)scheduled by the move.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class Move implements Serializable {
+
+    public final int lecture;
+
+    public final int fromSlot;
+    public final int fromRoom;
+
+    public final int toSlot;
+    public final int toRoom;
+
+    public Move(int lecture, int fromSlot, int fromRoom, int toSlot, int toRoom) {
+        this.lecture = lecture;
+        this.fromSlot = fromSlot;
+        this.fromRoom = fromRoom;
+        this.toSlot = toSlot;
+        this.toRoom = toRoom;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Move{lecture=%d, %d/%d -> %d/%d}", lecture, fromSlot, fromRoom, toSlot, toRoom);
+    }
+}
@@ -1,26 +1,30 @@
 package ch.rethab.cbctt.ea.phenotype;
 
-import blogspot.software_and_algorithms.stern_library.optimization.HungarianAlgorithm;
+import ch.rethab.cbctt.domain.CompiledSpecification;
 import ch.rethab.cbctt.domain.Course;
 import ch.rethab.cbctt.domain.Room;
 import ch.rethab.cbctt.domain.Specification;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * Represents the room assignments during timetable construction. This is
  * used to efficiently checking whether a room can be scheduled at a particular
  * period without violating any of the constraints taking into account the other
  * courses that are to be scheduled on the same period.
+ *
+ * Feasibility is decided exactly by maintaining a maximum matching between
+ * the courses of this period and their suitable rooms. Adding a course
+ * searches for a single augmenting path, removing one just frees its room.
+ * The actual (capacity aware) assignment is still left to the hungarian
+ * method in {@link #assignRooms()}. If the courses of the period are the
+ * same as in the timetable this one was constructed from, the rooms of
+ * that timetable are reused instead.
  */
 public class PeriodRoomAssignments {
 
     private final Specification spec;
 
-    private final RoomViolations[][] roomAssignments;
-
     /* everything is an array, so we need to know at which index each room is stored */
     private final Map<String, Integer> courseIdxMap;
 
@@ -32,33 +36,32 @@ public class PeriodRoomAssignments {
      */
     private int nextCourseIdx = 0;
 
-    /**
-     * Actual entries of the room assignments. This 'tuple' is required, since
-     * we need access to the room and we loos the index in the procedure.
-     */
-    private class RoomViolations {
-        /* number of violations a certain courses would have in a certain room.
-         * the smaller the better. 0 means perfect fit */
-        final int violations;
-        final Room room;
-        final Course course;
-        public RoomViolations(Room room, Course c, int violations) {
-            this.room = room;
-            this.course = c;
-            this.violations = violations;
-        }
+    /* compiled course id per index in the course array */
+    private final int[] courses;
 
-        public RoomViolations fixedViolations(int newViolations) {
-            return new RoomViolations(room, course, newViolations);
-        }
+    /* current matching: room per course index and course index per room, -1 if unmatched */
+    private final int[] matchedRoom;
+    private final int[] roomOwner;
 
-    }
+    /* rooms visited in the current augmenting path search have the current stamp */
+    private final int[] visited;
+    private int stamp = 0;
+
+    /* courses and their rooms in the timetable this one was constructed
+     * from, if any. used to skip the assignment for unchanged periods */
+    private int[] parentCourses;
+    private int[] parentRooms;
 
     public PeriodRoomAssignments(Specification spec) {
         this.spec = spec;
         this.courseIdxMap = new HashMap<>();
-        Set<String> roomIds = spec.getRooms().stream().map(Room::getId).collect(Collectors.toSet());
-        roomAssignments = new RoomViolations[roomIds.size()][roomIds.size()];
+        int nRooms = spec.getRooms().size();
+        courses = new int[nRooms];
+        matchedRoom = new int[nRooms];
+        roomOwner = new int[nRooms];
+        visited = new int[nRooms];
+        Arrays.fill(matchedRoom, -1);
+        Arrays.fill(roomOwner, -1);
     }
 
     /**
@@ -68,33 +71,85 @@ public class PeriodRoomAssignments {
      *            specified meetings.
      *            --> Use at own risk / don't try at home
      */
-    static PeriodRoomAssignments unsafePerformConstruction(Specification spec, Set<MeetingWithRoom> meetings) {
+    static PeriodRoomAssignments unsafePerformConstruction(Specification spec, MeetingWithRoom[] meetings) {
 
         PeriodRoomAssignments pra = new PeriodRoomAssignments(spec);
 
         pra.nextCourseIdx = 0;
 
-        meetings.forEach(m -> {
-            pra.roomAssignments[pra.nextCourseIdx] = pra.fillRooms(m.getCourse());
+        CompiledSpecification compiled = spec.getCompiled();
+        pra.parentCourses = new int[meetings.length];
+        pra.parentRooms = new int[meetings.length];
+        for (MeetingWithRoom m : meetings) {
+            pra.courses[pra.nextCourseIdx] = compiled.indexOf(m.getCourse());
+            pra.parentCourses[pra.nextCourseIdx] = pra.courses[pra.nextCourseIdx];
+            pra.parentRooms[pra.nextCourseIdx] = compiled.indexOf(m.getRoom());
             pra.courseIdxMap.put(m.getCourse().getId(), pra.nextCourseIdx);
+            // a course that cannot be matched simply stays unmatched
+            pra.stamp++;
+            pra.augment(compiled, pra.nextCourseIdx);
             pra.nextCourseIdx++;
-        });
+        }
 
         return pra;
     }
 
     public List<CourseWithRoom> assignRooms() {
+        return assignRooms(null);
+    }
+
+    /**
+     * Same as {@link #assignRooms()}, but looks up the assignment in the
+     * cache before solving it. The cache may be null.
+     */
+    List<CourseWithRoom> assignRooms(RoomAssignmentCache cache) {
 
         if (nextCourseIdx == 0) {
-            // no courses in this period. check required due to -1 below
+            // no courses in this period
             return Collections.emptyList();
         }
 
-        try {
-            return assignAll(roomAssignments, nextCourseIdx-1, true);
-        } catch (InfeasibilityException e) {
-            throw new IllegalStateException("Iuuoohhhhhh", e);
+        CompiledSpecification compiled = spec.getCompiled();
+        int[] rooms = reuseParentRooms();
+        if (rooms == null) {
+            // solved for the sorted courses, so equal rooms are chosen the same way whatever the order of adding
+            int[] sorted = Arrays.copyOf(courses, nextCourseIdx);
+            Arrays.sort(sorted);
+            int[] sortedRooms = cache == null ? assignAll(sorted) : cache.get(compiled, sorted, this::assignAll);
+            rooms = new int[nextCourseIdx];
+            for (int courseIdx = 0; courseIdx < nextCourseIdx; courseIdx++) {
+                rooms[courseIdx] = sortedRooms[Arrays.binarySearch(sorted, courses[courseIdx])];
+            }
         }
+
+        List<CourseWithRoom> assignments = new ArrayList<>(nextCourseIdx);
+        for (int courseIdx = 0; courseIdx < nextCourseIdx; courseIdx++) {
+            assignments.add(new CourseWithRoom(compiled.getCourse(courses[courseIdx]), compiled.getRoom(rooms[courseIdx])));
+        }
+        return assignments;
+    }
+
+    /**
+     * Returns the rooms of the parent timetable per course index if
+     * this period still holds exactly the courses of the parent.
+     * Otherwise, null is returned.
+     */
+    private int[] reuseParentRooms() {
+        if (parentCourses == null || parentCourses.length != nextCourseIdx) {
+            return null;
+        }
+        int[] rooms = new int[nextCourseIdx];
+        for (int courseIdx = 0; courseIdx < nextCourseIdx; courseIdx++) {
+            int p = 0;
+            while (p < parentCourses.length && parentCourses[p] != courses[courseIdx]) {
+                p++;
+            }
+            if (p == parentCourses.length) {
+                return null;
+            }
+            rooms[courseIdx] = parentRooms[p];
+        }
+        return rooms;
     }
 
     public boolean add(Course c) {
@@ -112,7 +167,8 @@ public class PeriodRoomAssignments {
          * lastIdx is inclusive.
          */
         int courseIdx = nextCourseIdx;
-        roomAssignments[courseIdx] = fillRooms(c);
+        CompiledSpecification compiled = spec.getCompiled();
+        courses[courseIdx] = compiled.indexOf(c);
 
         // the idx is required during assignment
         Integer previousValue = courseIdxMap.put(c.getId(), courseIdx);
@@ -122,7 +178,8 @@ public class PeriodRoomAssignments {
             throw new Timetable.InfeasibilityException("Same course = "+c.getId()+" in same period. Makes no sense");
         }
 
-        if (checkFeasibility(roomAssignments, courseIdx)) {
+        stamp++;
+        if (augment(compiled, courseIdx)) {
             nextCourseIdx++;
             return true;
         } else {
@@ -131,286 +188,100 @@ public class PeriodRoomAssignments {
         }
     }
 
-    private boolean checkFeasibility(RoomViolations[][] roomAssignments, int inclusiveLastIndex) {
-        /*
-         * Check if we can construct a feasible timetable with the
-         * specified room assignments. feasible means we can assign
-         * all without violation any room constraints.
-         *
-         * Give the most constrained course a room first (ie. the
-         * course with the most room constraints is first assigned
-         * a room.
-         *
-         *     r1  r2  r3  r4
-         * c1  c   f   c   c
-         * c2  f   c   f   f
-         * c3  f   c   c   f
-         * c4  c   f   c   f
-         */
-
-        // the number of available rooms per course is saved in each last column
-        int availableRoomIdx = spec.getRooms().size();
-
-        // save occupied and constrained rooms as -1 in the matrix. the last
-        // column contains the number of constraints per course.
-        int[][] assignments = new int[inclusiveLastIndex+1][availableRoomIdx+1];
-        for (int c = 0; c < inclusiveLastIndex+1; c++) {
-            int availableRooms = 0;
-            for (int r = 0; r < roomAssignments[c].length; r++) {
-                RoomViolations rv = roomAssignments[c][r];
-                if (spec.getRoomConstraints().isUnsuitable(rv.course, rv.room)) {
-                    assignments[c][r] = -1;
-                } else {
-                    assignments[c][r] = 0;
-                    availableRooms++;
-                }
-            }
-
-            // early exit
-            if (availableRooms == 0) {
-                return false;
-            }
-            assignments[c][availableRoomIdx] = availableRooms;
-        }
-
-        return assignGreedy(assignments);
-    }
-
-    private boolean assignGreedy(int assignments[][]) {
-        // the number of available rooms per course is saved in each last column
-        int availableRoomIdx = spec.getRooms().size();
-
-        // sorts ascending - ie. least available rooms first
-        // those that are already assigned (-1) are set to a bigger
-        // number that the available rooms, which means they certainly
-        // come last
-        Arrays.sort(assignments, Comparator.comparingInt(rs ->
-            rs[availableRoomIdx] == -1 ? availableRoomIdx + 2 : rs[availableRoomIdx])
-        );
-
-        // we don't have to iterate further, once we've found one that has already
-        // been assigned (-1) since the courses are ordered and after that one only
-        // assigned courses would follow
-        for (int c = 0; c < assignments.length && assignments[c][availableRoomIdx] != -1; c++) {
-
-            // search through available rooms
-            Integer[] roomIndices = getSortedRoomIndices(assignments, c);
-            for (int i = 0; i < roomIndices.length; i++) {
-                int rid = roomIndices[i];
-
-                // room occupied free
-                if (assignments[c][rid] == -1) {
-                    continue;
-                }
-
-                // set room to occupied for this course
-                assignments[c][rid] = -1;
-                // set course to assigned
-                assignments[c][availableRoomIdx] = -1;
-
-                // set course to occupied for other rooms
-                for (int c2 = 0; c2 < assignments.length; c2++) {
-                    // if room is not a constraint for other course and course is not assigned a room
-                    // yet, update the available rooms
-                    if (assignments[c2][rid] != -1 && assignments[c2][availableRoomIdx] != -1) {
-                        assignments[c2][rid] = -1;
-                        assignments[c2][availableRoomIdx]--;
-
-                        // this course cannot be assigned anymore
-                        if (assignments[c2][availableRoomIdx] < 1) {
-                            return false;
-                        }
-                    }
-                }
-
-                // after assignment, sort again and assign
-                return assignGreedy(assignments);
-            }
-
-            // this means we have no assignable rooms for a course, although it has not
-            // previously been set to a number less than 1 (see exit condition above).
-            throw new IllegalArgumentException("This should not happen");
-        }
-
-        return true;
-    }
-
     /**
-     * Gets the room indices for this course such that the
-     * room is first returned that could be assigned to the
-     * least courses.
+     * Searches an augmenting path starting at the course with the specified
+     * index (Kuhn's algorithm). The matching is only modified along the path
+     * if one is found, so a failed search leaves it untouched.
+     *
+     * The caller needs to increment the stamp before starting a new search.
      */
-    private Integer[] getSortedRoomIndices(int[][] assignments, int c) {
-        Integer[] indices = new Integer[assignments[c].length-1];
-        // the values are the indices we need later
-        for (int i = 0; i < indices.length; i++) {
-            indices[i] = i;
+    private boolean augment(CompiledSpecification compiled, int courseIdx) {
+        int c = courses[courseIdx];
+        for (int r = 0; r < roomOwner.length; r++) {
+            if (visited[r] == stamp || compiled.isUnsuitable(c, r)) {
+                continue;
+            }
+            visited[r] = stamp;
+            int owner = roomOwner[r];
+            if (owner == -1 || augment(compiled, owner)) {
+                roomOwner[r] = courseIdx;
+                matchedRoom[courseIdx] = r;
+                return true;
+            }
         }
-        // in the comparator, we get an index / ie. a room index.
-        // we then search vertically for the number of 0 occurances
-        // because the sort will be ascending the the less 0 a room
-        // has, the sooner it should be assigned (less 0 --> more -1 --> more constrained)
-        Arrays.sort(indices, Comparator.comparingInt(rid ->
-            IntStream.range(0, assignments.length)
-                     .map(cid -> assignments[cid][rid] == 0 ? 1 : 0)
-                     .sum()
-        ));
-        return indices;
+        return false;
     }
 
     /**
-     * Tries to assign all courses to room and returns true if that is
-     * possible without violating any of the constraints.
+     * Assigns a room to every course such that the room constraints are
+     * respected and the capacity violations are as small as possible.
+     * Since the matching guarantees that all courses fit, the hungarian
+     * method will only pick unsuitable rooms if there is no other way.
+     *
+     * The costs are calibrated as follows:
      *
-     * It does this by first searching the last column of the
-     * roomAssignments, which is the number of suitable rooms
-     * for a course. This way, the course with the most restricted
-     * constraints is picket and scheduled first.
+     * 1. all values are require to be positive. preference is as follows:
+     *    0, -1, -2, .., 1, 2, ..
+     *    whereas in the hungarian method, lower numbers are preferable.
+     *    therefore the following formula is used to convert the numbers
+     *    (i is the number of students minus the room capacity):
      *
-     * Then that course is removed from the list and the room
-     * where it is scheduled is marked as constraint for all other
-     * courses. As long as a room can be found for a course, the
-     * procedure is repeated until all courses are assigned a room.
+     *    i <= 0 = |i|              the absolute value will make numbers
+     *                              closer to zero smaller
      *
-     * If one course cannot be assigned to a room, the method returns
-     * false.
+     *    i >  0 = 2 * i            this makes exceeding the capacity more
+     *                              expensive than the same amount of
+     *                              empty seats.
      *
-     * @param inclusiveLastIdx the last index of the array that is still to be
-     *                         considered for feasibility
-     * @param real true if we are assigning for real. false if we're just
-     *             checking if the course would fit. purely for optimization
+     * 2. set all room constraints to a very high number that will make
+     *    it impossible for the hungarian method to select them. We
+     *    set them to the following value:
+     *
+     *    i = (|min_i| + max_i + 1) * 10   the plus one is to make sure
+     *                                     it can never be null even if
+     *                                     all others are zero. the
+     *                                     multiplication is just some
+     *                                     constant threshold factor.
+     *
+     * @return the room per course, in the order of the specified courses
      */
-    private List<CourseWithRoom> assignAll(RoomViolations[][] roomAssignments, int inclusiveLastIdx, boolean real) throws InfeasibilityException{
-        // todo this algorithm muss not be used for checking if the assignment
-        //      is feasible, since it always will be. the constraints would
-        //      also be selected!
-
-        // make sure nothing is negative, set constraints to high numbers
-        calibrate(roomAssignments, inclusiveLastIdx);
-
-        // hungarian algorithm
-        // source: slide 13 of http://www.math.harvard.edu/archive/20_spring_05/handouts/assignment_overheads.pdf
-        int[] courseIndices = hungarian(roomAssignments, inclusiveLastIdx);
-
-        List<CourseWithRoom> assignments = new LinkedList<>();
-        for (int courseIdx = 0; courseIdx < courseIndices.length; courseIdx++) {
-            RoomViolations rv = roomAssignments[courseIdx][courseIndices[courseIdx]];
-            assignments.add(new CourseWithRoom(rv.course, rv.room));
-        }
-        return assignments;
-    }
-
-    private int[] hungarian(RoomViolations[][] roomAssignments, int inclusiveLastIdx) {
-        // todo do we need a square? wikihow says we can fill it with dummy-highest numbers
-        double[][] weights = toDouble(roomAssignments, inclusiveLastIdx);
-        HungarianAlgorithm hungarian = new HungarianAlgorithm(weights);
-        return hungarian.execute();
-    }
-
-    private double[][] toDouble(RoomViolations[][] roomAssignments, int inclusiveLastIdx) {
-        double[][] weights = new double[inclusiveLastIdx+1][roomAssignments[0].length];
-        for (int i = 0; i < weights.length; i++) {
-            for (int j = 0; j < weights[i].length; j++) {
-                weights[i][j] = roomAssignments[i][j].violations;
-            }
-        }
-        return weights;
-    }
-
-
-    private void calibrate(RoomViolations[][] roomAssignments, int inclusiveLastIdx) {
-        /*
-         * conversion:
-         * 1. all values are require to be positive. preference is as follows:
-         *    0, -1, -2, .., 1, 2, ..
-         *    whereas in the hungarian method, lower numbers are preferable.
-         *    therefore the following formula is used to convert the numbers:
-         *
-         *    i <= 0 = |i|              the absolute value will make numbers
-         *                              closer to zero smaller
-         *
-         *    i >  0 = |min_i| + i      adding the absolute value of the
-         *                              smallest number to the number, makes
-         *                              sure the positive numbers are coming
-         *                              right after the (originally) negative
-         *                              numbers.
-         *
-         * 2. set all room constraints to a very high number that will make
-         *    it impossible for the hungarian method to select them. We
-         *    set them to the following value:
-         *
-         *    i = (|min_i| + max_i + 1) * 10   the plus one is to make sure
-         *                                     it can never be null even if
-         *                                     all others are zero. the
-         *                                     multiplication is just some
-         *                                     constant threshold factor.
-         *                                     the only thing we need to make
-         *                                     sure is that it does not over-
-         *                                     flow, but that should be a
-         *                                     problem in the current setting
-         *                                     where room violations are
-         *                                     usually below 500.
-         */
+    private int[] assignAll(int[] periodCourses) {
+        CompiledSpecification compiled = spec.getCompiled();
+        int nRooms = compiled.getNumberOfRooms();
 
         // first round, collect min and max values
         int min_i = 0;
         int max_i = 0;
-        for (int r = 0; r <= inclusiveLastIdx; r++) {
-            for (int c = 0; c < roomAssignments[r].length-1; c++) {
-
-                int violations = roomAssignments[r][c].violations;
-
+        for (int courseIdx = 0; courseIdx < periodCourses.length; courseIdx++) {
+            int students = compiled.getNumberOfStudents(periodCourses[courseIdx]);
+            for (int r = 0; r < nRooms; r++) {
+                int violations = students - compiled.getRoom(r).getCapacity();
                 if (violations < min_i) { min_i = violations; }
                 if (violations > max_i) { max_i = violations; }
             }
         }
 
         // second round, convert our scheme to a hungarian method compatible scheme
+        HungarianSolver hungarian = HungarianSolver.forThread(nRooms);
         int constraint_i = (Math.abs(min_i) + max_i + 1) * 10;
-        for (int r = 0; r <= inclusiveLastIdx; r++) {
-            for (int c = 0; c < roomAssignments[r].length - 1; c++) {
-                RoomViolations rv = roomAssignments[r][c];
-
-                if (spec.getRoomConstraints().isUnsuitable(rv.course, rv.room)) {
-                    roomAssignments[r][c] = rv.fixedViolations(constraint_i);
-                } else if (rv.violations <= 0) {
-                    roomAssignments[r][c] = rv.fixedViolations(Math.abs(rv.violations));
+        for (int courseIdx = 0; courseIdx < periodCourses.length; courseIdx++) {
+            int c = periodCourses[courseIdx];
+            int students = compiled.getNumberOfStudents(c);
+            for (int r = 0; r < nRooms; r++) {
+                int violations = students - compiled.getRoom(r).getCapacity();
+                if (compiled.isUnsuitable(c, r)) {
+                    hungarian.setCost(courseIdx, r, constraint_i);
+                } else if (violations <= 0) {
+                    hungarian.setCost(courseIdx, r, -violations);
                 } else {
-                    roomAssignments[r][c] = rv.fixedViolations(Math.abs(rv.violations) + rv.violations);
+                    hungarian.setCost(courseIdx, r, 2 * violations);
                 }
             }
         }
-    }
 
-    /**
-     * Creates one row for a course with indices per room.
-     * Each cell holds the number of violations, i.e. the
-     * amount of students, by which the room capacity is
-     * exceeded.
-     *
-     * The last column hold the number of suitable
-     * rooms per course, ie. the number of rooms that are
-     * not constrained by room constraints from the spec.
-     * This number will also be used during the actual
-     * assignment, where it is decreased every time some
-     * other course is scheduled in a room that would also
-     * have been suitable for a particular course. Therefore,
-     * this number may be used as an indicator for the 'most
-     * constrained' course, ie. which course will be hardest
-     * to a assign to a room.
-     */
-    private RoomViolations[] fillRooms(Course c) {
-        RoomViolations[] roomViolations = new RoomViolations[spec.getRooms().size()];
-
-        int i = 0;
-        for (Room r : spec.getRooms()) {
-
-            int violations = c.getNumberOfStudents() - r.getCapacity();
-            roomViolations[i] = new RoomViolations(r, c, violations);
-
-            i++;
-        }
-        return roomViolations;
+        int[] rooms = new int[periodCourses.length];
+        hungarian.solve(periodCourses.length, nRooms, rooms);
+        return rooms;
     }
 
     public void remove(Course course) {
@@ -419,10 +290,20 @@ public class PeriodRoomAssignments {
             throw new IllegalStateException("Tried to remove course " + course.getId() + " but wasn't there");
         }
 
+        // free the room. the remaining matching stays maximum
+        if (matchedRoom[courseIdx] != -1) {
+            roomOwner[matchedRoom[courseIdx]] = -1;
+        }
+
         // move all following one back
         for (int i = courseIdx + 1; i < nextCourseIdx; i++) {
-            roomAssignments[i-1] = roomAssignments[i];
+            courses[i-1] = courses[i];
+            matchedRoom[i-1] = matchedRoom[i];
+            if (matchedRoom[i-1] != -1) {
+                roomOwner[matchedRoom[i-1]] = i-1;
+            }
         }
+        matchedRoom[nextCourseIdx-1] = -1;
 
         // cleanup
         courseIdxMap.remove(course.getId());
@@ -441,8 +322,6 @@ public class PeriodRoomAssignments {
 
     }
 
-    private static class InfeasibilityException extends Exception { }
-
     public class CourseWithRoom {
         final Course course;
         final Room room;
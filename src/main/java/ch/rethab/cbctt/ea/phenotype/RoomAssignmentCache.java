@@ -0,0 +1,125 @@
+package ch.rethab.cbctt.ea.phenotype;
+
+import ch.rethab.cbctt.domain.CompiledSpecification;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded cache of the optimal room assignment per set of courses in a
+ * period. Most periods of an offspring hold the same courses as a period
+ * of some other timetable in the population, so solving the assignment
+ * problem again can mostly be avoided.
+ *
+ * The key is a 64-bit fingerprint of the sorted compiled course ids. The
+ * course ids are stored with every entry, so a collision is just a miss.
+ * The least recently used entries are evicted once the cache is full.
+ *
+ * Entries are only valid for the compiled specification they were computed
+ * with. The cache is cleared when it is used with another one, i.e. after
+ * the room constraints have changed.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class RoomAssignmentCache implements Serializable {
+
+    private final LruMap entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private transient CompiledSpecification compiled;
+
+    public RoomAssignmentCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.entries = new LruMap(maxSize);
+    }
+
+    /**
+     * Returns the rooms for the sorted courses, in the same order. On a miss,
+     * the solver is asked for them and the result is stored. The solver is
+     * given the sorted courses as well, so what is stored doesn't depend on
+     * the order in which the courses were added to a period, and hence not
+     * on which thread got to solve it first.
+     */
+    int[] get(CompiledSpecification compiled, int[] sorted, UnaryOperator<int[]> solver) {
+        long key = fingerprint(sorted);
+
+        Entry entry;
+        synchronized (entries) {
+            if (this.compiled != compiled) {
+                entries.clear();
+                this.compiled = compiled;
+            }
+            entry = entries.get(key);
+        }
+
+        if (entry != null && Arrays.equals(entry.courses, sorted)) {
+            hits.incrementAndGet();
+            return entry.rooms;
+        }
+        misses.incrementAndGet();
+        int[] rooms = solver.apply(sorted);
+        synchronized (entries) {
+            if (this.compiled == compiled) {
+                entries.put(key, new Entry(sorted, rooms));
+            }
+        }
+        return rooms;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static long fingerprint(int[] sortedCourses) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int c : sortedCourses) {
+            // splitmix64 finalizer over the running hash
+            h = (h ^ c) * 0xBF58476D1CE4E5B9L;
+            h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+            h ^= h >>> 31;
+        }
+        return h;
+    }
+
+    private static final class Entry implements Serializable {
+        final int[] courses;
+        final int[] rooms;
+
+        Entry(int[] courses, int[] rooms) {
+            this.courses = courses;
+            this.rooms = rooms;
+        }
+    }
+
+    private static final class LruMap extends LinkedHashMap<Long, Entry> {
+        private final int maxSize;
+
+        LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ch.rethab.cbctt.ea.phenotype;
+
+import java.io.Serializable;
+
+/**
+ * Per-slot occupancy bitsets. For every slot there is a row of longs with
+ * one bit per key (e.g. teacher or curriculum id). Since a key may be
+ * occupied more than once in the same slot (a teacher with two courses at
+ * the same time is a soft conflict, not an error), a counter is kept per
+ * slot and key and the bit is only cleared once the counter drops to zero.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+final class SlotOccupancy implements Serializable {
+
+    private final int nKeys;
+
+    private final int words;
+
+    /* [slot * words + word] */
+    private final long[] bits;
+
+    /* [slot * nKeys + key] */
+    private final int[] counts;
+
+    SlotOccupancy(int nSlots, int nKeys) {
+        this.nKeys = nKeys;
+        this.words = (nKeys + 63) >>> 6;
+        this.bits = new long[nSlots * words];
+        this.counts = new int[nSlots * nKeys];
+    }
+
+    /** Independent copy of the other occupancy */
+    SlotOccupancy(SlotOccupancy other) {
+        this.nKeys = other.nKeys;
+        this.words = other.words;
+        this.bits = other.bits.clone();
+        this.counts = other.counts.clone();
+    }
+
+    void add(int slot, int key) {
+        if (counts[slot * nKeys + key]++ == 0) {
+            bits[slot * words + (key >>> 6)] |= 1L << key;
+        }
+    }
+
+    void remove(int slot, int key) {
+        int idx = slot * nKeys + key;
+        if (counts[idx] == 0) {
+            throw new IllegalStateException("Key " + key + " is not occupied in slot " + slot);
+        }
+        if (--counts[idx] == 0) {
+            bits[slot * words + (key >>> 6)] &= ~(1L << key);
+        }
+    }
+
+    boolean contains(int slot, int key) {
+        return (bits[slot * words + (key >>> 6)] & (1L << key)) != 0;
+    }
+
+    /** the bits of the keys w*64 to w*64+63 in the slot */
+    long word(int slot, int w) {
+        return bits[slot * words + w];
+    }
+
+    /** true if any of the keys in the mask is occupied in the slot */
+    boolean intersects(int slot, long[] mask) {
+        int offset = slot * words;
+        for (int w = 0; w < mask.length; w++) {
+            if ((bits[offset + w] & mask[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
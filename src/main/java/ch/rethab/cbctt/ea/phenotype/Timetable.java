@@ -1,13 +1,12 @@
 package ch.rethab.cbctt.ea.phenotype;
 
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.ConflictGraph;
 import ch.rethab.cbctt.domain.Course;
 import ch.rethab.cbctt.domain.Specification;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -15,100 +14,158 @@ import java.util.stream.Collectors;
  */
 public class Timetable implements Serializable {
 
-    /** the curriculum timetables */
-    private final Map<String, CurriculumTimetable> curriculumTimetables;
+    /** the curriculum timetables, indexed by the compiled curriculum id */
+    private final CurriculumTimetable[] curriculumTimetables;
 
+    /** per slot. null if the slot is still the same as in the parent (see template) */
     private final PeriodRoomAssignments[] periodRoomAssignmentses;
 
+    /** the parent this timetable was derived from, null if there is none */
+    private final ChildTemplate template;
+
+    /** which curricula, teachers and courses are busy in which slot. kept in sync with the meetings */
+    private final SlotOccupancy curriculumOccupancy;
+    private final SlotOccupancy teacherOccupancy;
+    private final SlotOccupancy courseOccupancy;
+
+    /** Zobrist hash over the meetings (without rooms). kept in sync with the meetings */
+    private long hash;
+
     private final Specification spec;
 
     public Timetable(Specification spec) {
         this.spec = spec;
-        this.curriculumTimetables = new HashMap<>();
-        spec.getCurricula().forEach(c -> curriculumTimetables.put(c.getId(), new CurriculumTimetable(spec)));
+        CompiledSpecification compiled = spec.getCompiled();
+        this.curriculumTimetables = new CurriculumTimetable[compiled.getNumberOfCurricula()];
+        for (int cu = 0; cu < curriculumTimetables.length; cu++) {
+            curriculumTimetables[cu] = new CurriculumTimetable(spec);
+        }
         periodRoomAssignmentses = new PeriodRoomAssignments[spec.getNumberOfDaysPerWeek() * spec.getPeriodsPerDay()];
         for (int period = 0; period < periodRoomAssignmentses.length; period++) {
             periodRoomAssignmentses[period] = new PeriodRoomAssignments(spec);
         }
+        this.curriculumOccupancy = new SlotOccupancy(compiled.getNumberOfSlots(), compiled.getNumberOfCurricula());
+        this.teacherOccupancy = new SlotOccupancy(compiled.getNumberOfSlots(), compiled.getNumberOfTeachers());
+        this.courseOccupancy = new SlotOccupancy(compiled.getNumberOfSlots(), compiled.getNumberOfCourses());
+        this.template = null;
     }
 
-    private Timetable(Specification spec, Map<String, CurriculumTimetable> curriculumTimetables, PeriodRoomAssignments[] periodRoomAssignmentses) {
+    private Timetable(Specification spec, ChildTemplate template) {
         this.spec = spec;
-        this.curriculumTimetables = curriculumTimetables;
-        this.periodRoomAssignmentses = periodRoomAssignmentses;
+        this.template = template;
+        this.curriculumTimetables = new CurriculumTimetable[template.curriculumMeetings.length];
+        for (int cu = 0; cu < curriculumTimetables.length; cu++) {
+            curriculumTimetables[cu] = CurriculumTimetable.sharing(spec, template.curriculumMeetings[cu]);
+        }
+        this.periodRoomAssignmentses = new PeriodRoomAssignments[template.slotMeetings.length];
+        this.curriculumOccupancy = new SlotOccupancy(template.curriculumOccupancy);
+        this.teacherOccupancy = new SlotOccupancy(template.teacherOccupancy);
+        this.courseOccupancy = new SlotOccupancy(template.courseOccupancy);
+        this.hash = template.hash;
     }
 
-    /** Allows fast construction, since it can avoid feasibility checks */
+    /**
+     * Allows fast construction, since it can avoid feasibility checks. The
+     * child shares the meetings of the parent and only copies the curricula
+     * and slots that are modified later on.
+     */
     public static Timetable fromWithRooms(Specification spec, TimetableWithRooms tt) {
-        int totalSlots = spec.getPeriodsPerDay()*spec.getNumberOfDaysPerWeek();
-        Map<String, CurriculumTimetable> curriculumTimetables = new HashMap<>(spec.getCurricula().size());
-        PeriodRoomAssignments[] periodRoomAssignmentses = new PeriodRoomAssignments[totalSlots];
-
-        tt.getCurriculumTimetables().entrySet().stream().forEach(kv ->
-            curriculumTimetables.put(kv.getKey(), CurriculumTimetable.fromWithRooms(spec, kv.getValue()))
-        );
-
-        for (int slotIdx = 0; slotIdx < periodRoomAssignmentses.length; slotIdx++) {
-            int day = Math.floorDiv(slotIdx, spec.getPeriodsPerDay());
-            int period = slotIdx % spec.getPeriodsPerDay();
-            Set<MeetingWithRoom> slotMeetings = tt.getMeetingsByPeriod(day, period);
-            periodRoomAssignmentses[slotIdx] = PeriodRoomAssignments.unsafePerformConstruction(spec, slotMeetings);
-        }
-
-        return new Timetable(spec, curriculumTimetables, periodRoomAssignmentses);
+        return new Timetable(spec, tt.getChildTemplate());
     }
 
     public boolean addMeeting(Meeting m) {
-        PeriodRoomAssignments assignments = periodRoomAssignmentses[toSlotIdx(m.getDay(), m.getPeriod())];
+        PeriodRoomAssignments assignments = periodRoomAssignments(toSlotIdx(m.getDay(), m.getPeriod()));
         boolean success = assignments.add(m.getCourse());
         if (!success) {
             return false;
         }
 
+        int[] curricula = curriculaOf(m.getCourse());
         try {
-            m.getCourse().getCurricula().stream().forEach(currID -> curriculumTimetables.get(currID).setMeeting(m) );
+            for (int cu : curricula) {
+                curriculumTimetables[cu].setMeeting(m);
+            }
+            int slot = toSlotIdx(m.getDay(), m.getPeriod());
+            for (int cu : curricula) {
+                curriculumOccupancy.add(slot, cu);
+            }
+            teacherOccupancy.add(slot, teacherOf(m.getCourse()));
+            courseOccupancy.add(slot, spec.getCompiled().indexOf(m.getCourse()));
+            hash ^= Zobrist.key(spec.getCompiled(), m);
             return true;
         } catch (InfeasibilityException ife) {
             assignments.remove(m.getCourse());
-            m.getCourse().getCurricula().stream().forEach(currID ->
+            for (int cu : curricula) {
                 // unset meeting again. could be that meeting was already set in some
-                // curricula and only then the exception was thrown
-                curriculumTimetables.get(currID).unsetMeeting(m.getDay(), m.getPeriod())
-            );
+                // curricula and only then the exception was thrown. only unset our
+                // own meeting though, not the one that caused the exception
+                Meeting existing = curriculumTimetables[cu].get(m.getDay(), m.getPeriod());
+                if (existing == m) {
+                    curriculumTimetables[cu].unsetMeeting(m.getDay(), m.getPeriod());
+                }
+            }
             throw ife;
         }
     }
 
     public Set<Meeting> getMeetingsByCourse(Course c) {
         // get first, because meetings by course exist in all curricula timetables
-        String currID = c.getCurricula().get(0);
-        return curriculumTimetables.get(currID).getMeetingsByCourse(c);
+        int cu = curriculaOf(c)[0];
+        return curriculumTimetables[cu].getMeetingsByCourse(c);
     }
 
     public Set<Meeting> getMeetings() {
-        return curriculumTimetables.values().stream().flatMap(CurriculumTimetable::getAll).collect(Collectors.toSet());
+        return Arrays.stream(curriculumTimetables).flatMap(CurriculumTimetable::getAll).collect(Collectors.toSet());
     }
 
     public Set<Meeting> getMeetingsByPeriod(int day, int period) {
-        return curriculumTimetables.values().stream()
+        return Arrays.stream(curriculumTimetables)
                 .map(ctt -> ctt.get(day, period))
                 .filter(ctt -> ctt != null)
                 .collect(Collectors.toSet());
     }
 
     public PeriodRoomAssignments[] getPeriodRoomAssignmentses() {
+        for (int slot = 0; slot < periodRoomAssignmentses.length; slot++) {
+            periodRoomAssignments(slot);
+        }
         return periodRoomAssignmentses;
     }
 
+    /**
+     * The meetings of the parent in the specified slot if nothing was
+     * changed there, null otherwise. The rooms can be kept in that case.
+     */
+    MeetingWithRoom[] getUnchangedMeetings(int slot) {
+        return periodRoomAssignmentses[slot] == null ? template.slotMeetings[slot] : null;
+    }
+
+    PeriodRoomAssignments periodRoomAssignments(int slot) {
+        PeriodRoomAssignments assignments = periodRoomAssignmentses[slot];
+        if (assignments == null) {
+            assignments = PeriodRoomAssignments.unsafePerformConstruction(spec, template.slotMeetings[slot]);
+            periodRoomAssignmentses[slot] = assignments;
+        }
+        return assignments;
+    }
+
     public Map<String, CurriculumTimetable> getCurriculumTimetables() {
-        return curriculumTimetables;
+        CompiledSpecification compiled = spec.getCompiled();
+        Map<String, CurriculumTimetable> byId = new LinkedHashMap<>(curriculumTimetables.length * 2);
+        for (int cu = 0; cu < curriculumTimetables.length; cu++) {
+            byId.put(compiled.getCurriculum(cu).getId(), curriculumTimetables[cu]);
+        }
+        return byId;
     }
 
     public Meeting getMeeting(Course course, int day, int period) {
-        return course.getCurricula().stream()
-                .map(currID -> curriculumTimetables.get(currID).get(day, period))
-                .filter(m -> m != null && m.getCourse().getId().equals(course.getId()))
-                .findFirst().orElse(null);
+        for (int cu : curriculaOf(course)) {
+            Meeting m = curriculumTimetables[cu].get(day, period);
+            if (m != null && m.getCourse().getId().equals(course.getId())) {
+                return m;
+            }
+        }
+        return null;
     }
 
     /**
@@ -149,24 +206,113 @@ public class Timetable implements Serializable {
         return null;
     }
 
+    /** Does nothing if the course of the meeting is not scheduled at its day and period */
     public void removeMeeting(Meeting m) {
-        m.getCourse().getCurricula().stream().forEach(currID ->
-            curriculumTimetables.get(currID).unsetMeeting(m.getDay(), m.getPeriod())
-        );
-        periodRoomAssignmentses[toSlotIdx(m.getDay(), m.getPeriod())].remove(m.getCourse());
+        int slot = toSlotIdx(m.getDay(), m.getPeriod());
+        boolean removed = false;
+        for (int cu : curriculaOf(m.getCourse())) {
+            Meeting existing = curriculumTimetables[cu].get(m.getDay(), m.getPeriod());
+            if (existing != null && existing.getCourse().getId().equals(m.getCourse().getId())) {
+                curriculumTimetables[cu].unsetMeeting(m.getDay(), m.getPeriod());
+                curriculumOccupancy.remove(slot, cu);
+                removed = true;
+            }
+        }
+        if (!removed) {
+            return;
+        }
+        periodRoomAssignments(slot).remove(m.getCourse());
+        teacherOccupancy.remove(slot, teacherOf(m.getCourse()));
+        courseOccupancy.remove(slot, spec.getCompiled().indexOf(m.getCourse()));
+        hash ^= Zobrist.key(spec.getCompiled(), m);
+    }
+
+    /** Zobrist hash of the meetings. Equal for timetables with the same meetings (see Zobrist) */
+    public long getZobristHash() {
+        return hash;
     }
 
     public boolean hasLectureOfSameCurriculum(List<String> curricula, int day, int period) {
-        return curricula.stream()
-                .map(currID -> curriculumTimetables.get(currID).get(day, period))
-                .anyMatch(m -> m != null);
+        CompiledSpecification compiled = spec.getCompiled();
+        int slot = toSlotIdx(day, period);
+        for (String currID : curricula) {
+            if (curriculumOccupancy.contains(slot, compiled.curriculumIndexOf(currID))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasLectureOfSameCurriculum(Course course, int day, int period) {
+        CompiledSpecification compiled = spec.getCompiled();
+        return curriculumOccupancy.intersects(toSlotIdx(day, period), compiled.getCurriculaMask(compiled.indexOf(course)));
     }
 
     public boolean hasLectureWithSameTeacher(String teacher, int day, int period) {
-        return curriculumTimetables.values().stream().anyMatch(ctt -> {
-            Meeting m = ctt.get(day, period);
-            return m != null && m.getCourse().getTeacher().equals(teacher);
-        });
+        int t = spec.getCompiled().teacherIndexOf(teacher);
+        return t != -1 && teacherOccupancy.contains(toSlotIdx(day, period), t);
+    }
+
+    public boolean hasLectureWithSameTeacher(Course course, int day, int period) {
+        return teacherOccupancy.contains(toSlotIdx(day, period), teacherOf(course));
+    }
+
+    /**
+     * True if the teacher of the course is available and no course of the
+     * same curriculum or teacher is scheduled in the period. Doesn't check
+     * whether there is a free room.
+     */
+    public boolean isConflictFree(Course course, int day, int period) {
+        CompiledSpecification compiled = spec.getCompiled();
+        ConflictGraph conflicts = compiled.getConflictGraph();
+        int c = compiled.indexOf(course);
+        int slot = toSlotIdx(day, period);
+        return conflicts.isAvailable(c, slot) && !courseOccupancy.intersects(slot, conflicts.getConflicts(c));
+    }
+
+    /**
+     * The meetings in the period that conflict with the course (same course,
+     * curriculum or teacher, see ConflictGraph). They have to be removed
+     * before the course can be scheduled there.
+     */
+    public List<Meeting> getConflictingMeetings(Course course, int day, int period) {
+        CompiledSpecification compiled = spec.getCompiled();
+        long[] mask = compiled.getConflictGraph().getConflicts(compiled.indexOf(course));
+        int slot = toSlotIdx(day, period);
+        List<Meeting> meetings = new ArrayList<>();
+        for (int w = 0; w < mask.length; w++) {
+            long conflicting = courseOccupancy.word(slot, w) & mask[w];
+            while (conflicting != 0) {
+                Course other = compiled.getCourse((w << 6) + Long.numberOfTrailingZeros(conflicting));
+                meetings.add(getMeeting(other, day, period));
+                conflicting &= conflicting - 1;
+            }
+        }
+        return meetings;
+    }
+
+    /** The slots for which isConflictFree holds, as bitset over the slots */
+    public long[] getConflictFreeSlots(Course course) {
+        CompiledSpecification compiled = spec.getCompiled();
+        ConflictGraph conflicts = compiled.getConflictGraph();
+        int c = compiled.indexOf(course);
+        long[] slots = conflicts.getAvailableSlots(c).clone();
+        for (int slot = 0; slot < compiled.getNumberOfSlots(); slot++) {
+            if (courseOccupancy.intersects(slot, conflicts.getConflicts(c))) {
+                ConflictGraph.clear(slots, slot);
+            }
+        }
+        return slots;
+    }
+
+    private int[] curriculaOf(Course c) {
+        CompiledSpecification compiled = spec.getCompiled();
+        return compiled.getCurriculaOf(compiled.indexOf(c));
+    }
+
+    private int teacherOf(Course c) {
+        CompiledSpecification compiled = spec.getCompiled();
+        return compiled.getTeacherOf(compiled.indexOf(c));
     }
 
     private int toSlotIdx(int day, int period) {
@@ -1,5 +1,6 @@
 package ch.rethab.cbctt.ea.phenotype;
 
+import ch.rethab.cbctt.domain.CompiledSpecification;
 import ch.rethab.cbctt.domain.Course;
 import ch.rethab.cbctt.domain.Room;
 import ch.rethab.cbctt.domain.Specification;
@@ -15,19 +16,47 @@ public class TimetableWithRooms implements Serializable {
 
     private final Map<String, CurriculumTimetableWithRooms> curriculumTimetables;
 
-    private TimetableWithRooms(Specification spec, Map<String, CurriculumTimetableWithRooms> curriculumTimetables) {
+    /* same as the map, but indexed by the compiled curriculum id */
+    private final CurriculumTimetableWithRooms[] curriculumTimetablesByIdx;
+
+    /* the timetable is immutable, so the distinct meetings only need to be collected once */
+    private transient volatile Set<MeetingWithRoom> meetings;
+
+    /* what the children share with this timetable. only built if there are children */
+    private transient volatile ChildTemplate childTemplate;
+
+    /* Zobrist hash over the meetings with their rooms */
+    private final long hash;
+
+    private TimetableWithRooms(Specification spec, Map<String, CurriculumTimetableWithRooms> curriculumTimetables, long hash) {
         this.spec = spec;
         this.curriculumTimetables = curriculumTimetables;
+        this.hash = hash;
+
+        CompiledSpecification compiled = spec.getCompiled();
+        this.curriculumTimetablesByIdx = new CurriculumTimetableWithRooms[compiled.getNumberOfCurricula()];
+        for (int cu = 0; cu < curriculumTimetablesByIdx.length; cu++) {
+            curriculumTimetablesByIdx[cu] = curriculumTimetables.get(compiled.getCurriculum(cu).getId());
+        }
+    }
+
+    public Specification getSpecification() {
+        return spec;
     }
 
     public Map<String, CurriculumTimetableWithRooms> getCurriculumTimetables() {
         return Collections.unmodifiableMap(curriculumTimetables);
     }
 
+    public CurriculumTimetableWithRooms getCurriculumTimetable(int curriculumIdx) {
+        return curriculumTimetablesByIdx[curriculumIdx];
+    }
+
     public Set<MeetingWithRoom> getMeetingsByCourse(Course c) {
         // get first, because meetings by course exist in all curricula timetables
-        String currID = c.getCurricula().get(0);
-        return curriculumTimetables.get(currID).getMeetingsByCourse(c);
+        CompiledSpecification compiled = spec.getCompiled();
+        int cu = compiled.getCurriculaOf(compiled.indexOf(c))[0];
+        return curriculumTimetablesByIdx[cu].getMeetingsByCourse(c);
     }
 
     public Set<MeetingWithRoom> getMeetingsByTeacher(String teacher) {
@@ -35,23 +64,49 @@ public class TimetableWithRooms implements Serializable {
     }
 
     public Set<MeetingWithRoom> getMeetings() {
-        return curriculumTimetables.values().stream()
-                .flatMap(CurriculumTimetableWithRooms::getAll)
-                .collect(Collectors.toSet());
+        Set<MeetingWithRoom> meetings = this.meetings;
+        if (meetings == null) {
+            meetings = Collections.unmodifiableSet(curriculumTimetables.values().stream()
+                    .flatMap(CurriculumTimetableWithRooms::getAll)
+                    .collect(Collectors.toSet()));
+            this.meetings = meetings;
+        }
+        return meetings;
     }
 
     public MeetingWithRoom getMeeting(Course course, int day, int period) {
-        return course.getCurricula().stream()
-                .map(currId -> curriculumTimetables.get(currId).get(day, period))
-                .filter(m -> m != null && m.getCourse().getId().equals(course.getId()))
-                .findFirst()
-                .orElse(null);
+        CompiledSpecification compiled = spec.getCompiled();
+        for (int cu : compiled.getCurriculaOf(compiled.indexOf(course))) {
+            MeetingWithRoom m = curriculumTimetablesByIdx[cu].get(day, period);
+            if (m != null && m.getCourse().getId().equals(course.getId())) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Zobrist hash of the meetings and their rooms. Equal timetables have
+     * the same hash, which is also the same as the one of their compact
+     * encoding (see CompactTimetable#getZobristHash).
+     */
+    public long getZobristHash() {
+        return hash;
     }
 
     public Timetable newChild() {
         return Timetable.fromWithRooms(spec, this);
     }
 
+    ChildTemplate getChildTemplate() {
+        ChildTemplate template = this.childTemplate;
+        if (template == null) {
+            template = new ChildTemplate(spec, this);
+            this.childTemplate = template;
+        }
+        return template;
+    }
+
     public Set<MeetingWithRoom> getMeetingsByPeriod(int day, int period) {
         return curriculumTimetables.values().stream()
                 .map(ctt -> ctt.get(day, period))
@@ -65,12 +120,26 @@ public class TimetableWithRooms implements Serializable {
 
         private final Specification spec;
 
+        private long hash;
+
         private Builder(Specification spec) {
             this.spec = spec;
         }
 
         public Builder addMeeting(Course course, Room room, int day, int period) {
-            course.getCurricula().forEach(currId -> meetings.get(currId).add(new MeetingWithRoom(course, room, day, period)));
+            // the same instance is shared by all curricula of the course
+            MeetingWithRoom meeting = new MeetingWithRoom(course, room, day, period);
+            return addMeeting(meeting);
+        }
+
+        public Builder addMeeting(MeetingWithRoom meeting) {
+            boolean added = false;
+            for (String currId : meeting.getCourse().getCurricula()) {
+                added |= meetings.get(currId).add(meeting);
+            }
+            if (added) {
+                hash ^= Zobrist.key(spec.getCompiled(), meeting);
+            }
             return this;
         }
 
@@ -81,7 +150,7 @@ public class TimetableWithRooms implements Serializable {
                 entry.getValue().forEach(mwr -> meetings[toSlotIdx(mwr.getDay(), mwr.getPeriod())] = mwr);
                 ctt.put(entry.getKey(), new CurriculumTimetableWithRooms(spec, meetings));
             });
-            return new TimetableWithRooms(spec, ctt);
+            return new TimetableWithRooms(spec, ctt, hash);
         }
 
         private int toSlotIdx(int day, int period) {
@@ -0,0 +1,40 @@
+package ch.rethab.cbctt.ea.phenotype;
+
+import ch.rethab.cbctt.domain.CompiledSpecification;
+
+/**
+ * Zobrist hashing of timetables. Every (course, slot, room) has a pseudo
+ * random 64-bit key and the hash of a timetable is the XOR of the keys of
+ * its meetings. Adding or removing a meeting is therefore a single XOR and
+ * equal timetables have equal hashes, no matter how they were built.
+ *
+ * The keys are derived from the compiled ids with the splitmix64 finalizer
+ * rather than stored in a table. Timetables without rooms use NO_ROOM.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class Zobrist {
+
+    public static final int NO_ROOM = -1;
+
+    private Zobrist() {
+    }
+
+    public static long key(CompiledSpecification compiled, int course, int slot, int room) {
+        long idx = ((long) course * compiled.getNumberOfSlots() + slot) * (compiled.getNumberOfRooms() + 1) + room + 1;
+        // +1 so that no key is zero
+        long h = (idx + 1) * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    static long key(CompiledSpecification compiled, Meeting m) {
+        return key(compiled, compiled.indexOf(m.getCourse()), compiled.toSlot(m.getDay(), m.getPeriod()), NO_ROOM);
+    }
+
+    static long key(CompiledSpecification compiled, MeetingWithRoom m) {
+        return key(compiled, compiled.indexOf(m.getCourse()), compiled.toSlot(m.getDay(), m.getPeriod()),
+                compiled.indexOf(m.getRoom()));
+    }
+}
@@ -0,0 +1,50 @@
+package ch.rethab.cbctt.formulation;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Number of violations of each constraint and objective of a formulation.
+ * The objective violations are not yet multiplied by their penalty.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class CostBreakdown implements Serializable {
+
+    private final int[] constraintViolations;
+
+    private final int[] objectiveViolations;
+
+    public CostBreakdown(int[] constraintViolations, int[] objectiveViolations) {
+        this.constraintViolations = constraintViolations;
+        this.objectiveViolations = objectiveViolations;
+    }
+
+    public int getConstraintViolations(int i) {
+        return constraintViolations[i];
+    }
+
+    public int getObjectiveViolations(int i) {
+        return objectiveViolations[i];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CostBreakdown that = (CostBreakdown) o;
+        return Arrays.equals(constraintViolations, that.constraintViolations) &&
+                Arrays.equals(objectiveViolations, that.objectiveViolations);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(constraintViolations) + Arrays.hashCode(objectiveViolations);
+    }
+
+    @Override
+    public String toString() {
+        return "CostBreakdown{constraints=" + Arrays.toString(constraintViolations) +
+                ", objectives=" + Arrays.toString(objectiveViolations) + '}';
+    }
+}
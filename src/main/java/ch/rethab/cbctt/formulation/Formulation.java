@@ -1,9 +1,13 @@
 package ch.rethab.cbctt.formulation;
 
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.Move;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 import ch.rethab.cbctt.formulation.constraint.Constraint;
 import org.moeaframework.core.Solution;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  *
@@ -52,6 +56,48 @@ public abstract class Formulation implements Serializable {
         return objectives;
     }
 
+    /** Evaluates all constraints and objectives from scratch */
+    public CostBreakdown evaluate(TimetableWithRooms t) {
+        return evaluateEach(t);
+    }
+
+    /** Same as above for the flat encoding */
+    public CostBreakdown evaluate(CompactTimetable t) {
+        return evaluateEach(t.toTimetableWithRooms());
+    }
+
+    /**
+     * Evaluates each constraint and objective on its own. Formulations
+     * may evaluate faster, but must always count the same as this.
+     */
+    public final CostBreakdown evaluateEach(TimetableWithRooms t) {
+        int[] constraintViolations = new int[constraints.length];
+        for (int i = 0; i < constraints.length; i++) {
+            constraintViolations[i] = constraints[i].violations(t);
+        }
+        int[] objectiveViolations = new int[objectives.length];
+        for (int i = 0; i < objectives.length; i++) {
+            objectiveViolations[i] = objectives[i].constraint.violations(t);
+        }
+        return new CostBreakdown(constraintViolations, objectiveViolations);
+    }
+
+    /**
+     * Evaluates the child based on the cost of its parent. The moves turn
+     * the parent into the child, see Constraint#delta.
+     */
+    public CostBreakdown evaluateDelta(CostBreakdown parentCost, CompactTimetable parent, CompactTimetable child, List<Move> moves) {
+        int[] constraintViolations = new int[constraints.length];
+        for (int i = 0; i < constraints.length; i++) {
+            constraintViolations[i] = parentCost.getConstraintViolations(i) + constraints[i].delta(parent, child, moves);
+        }
+        int[] objectiveViolations = new int[objectives.length];
+        for (int i = 0; i < objectives.length; i++) {
+            objectiveViolations[i] = parentCost.getObjectiveViolations(i) + objectives[i].constraint.delta(parent, child, moves);
+        }
+        return new CostBreakdown(constraintViolations, objectiveViolations);
+    }
+
     public String showObjectives(Solution s) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < objectives.length; i++) {
@@ -0,0 +1,174 @@
+package ch.rethab.cbctt.formulation;
+
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates all UD1 constraints and objectives in a single pass over the
+ * slots of a compact timetable. It counts the same as the individual
+ * constraints (see their delta methods for the per unit definitions):
+ *
+ * - Lectures: lectures of a course that are missing or share a slot
+ * - Conflicts: per teacher and per curriculum, lectures in a slot except for the first
+ * - RoomOccupancy: per room, lectures in a slot except for the first
+ * - TeacherAvailability: lectures in unavailable slots
+ * - RoomCapacity: capacity deficit, counted once per curriculum of the course
+ * - MinWorkingDays: working days below the minimum per course
+ * - IsolatedLectures: lectures of a curriculum without an adjacent one on the same day
+ *
+ * The scratch buffers are allocated once per thread and reused. Days and
+ * periods are kept as bits of a long, so instances with more than 64 days
+ * or periods per day can't be handled (see {@link #supports}).
+ *
+ * @author Reto Habluetzel, 2015
+ */
+final class FusedUD1Evaluation {
+
+    private static final ThreadLocal<FusedUD1Evaluation> EVALUATIONS = new ThreadLocal<>();
+
+    private final CompiledSpecification compiled;
+
+    /* per teacher, curriculum and room: the slot (stamp) in which it was last seen */
+    private final int[] teacherStamp;
+    private final int[] curriculumStamp;
+    private final int[] roomStamp;
+    private int stamp = 0;
+
+    /* per course: distinct slots and the last slot seen, days as bits */
+    private final int[] courseSlots;
+    private final int[] courseLastSlot;
+    private final long[] courseDays;
+
+    /* per curriculum: periods of the current day as bits, and which curricula have any */
+    private final long[] curriculumPeriods;
+    private final int[] touchedCurricula;
+    private int nTouched;
+
+    private FusedUD1Evaluation(CompiledSpecification compiled) {
+        this.compiled = compiled;
+        this.teacherStamp = new int[compiled.getNumberOfTeachers()];
+        this.curriculumStamp = new int[compiled.getNumberOfCurricula()];
+        this.roomStamp = new int[compiled.getNumberOfRooms()];
+        this.courseSlots = new int[compiled.getNumberOfCourses()];
+        this.courseLastSlot = new int[compiled.getNumberOfCourses()];
+        this.courseDays = new long[compiled.getNumberOfCourses()];
+        this.curriculumPeriods = new long[compiled.getNumberOfCurricula()];
+        this.touchedCurricula = new int[compiled.getNumberOfCurricula()];
+    }
+
+    static boolean supports(CompiledSpecification compiled) {
+        return compiled.getNumberOfDays() <= 64 && compiled.getPeriodsPerDay() <= 64;
+    }
+
+    /** Evaluation of the current thread for the compiled specification */
+    static FusedUD1Evaluation forThread(CompiledSpecification compiled) {
+        FusedUD1Evaluation evaluation = EVALUATIONS.get();
+        if (evaluation == null || evaluation.compiled != compiled) {
+            evaluation = new FusedUD1Evaluation(compiled);
+            EVALUATIONS.set(evaluation);
+        }
+        return evaluation;
+    }
+
+    /** Returns the violations in the order of UD1Formulation */
+    CostBreakdown evaluate(CompactTimetable t) {
+        Arrays.fill(courseSlots, 0);
+        Arrays.fill(courseLastSlot, CompactTimetable.UNSCHEDULED);
+        Arrays.fill(courseDays, 0L);
+
+        int conflicts = 0;
+        int roomOccupancy = 0;
+        int teacherAvailability = 0;
+        int roomCapacity = 0;
+        int isolatedLectures = 0;
+
+        int periodsPerDay = compiled.getPeriodsPerDay();
+        for (int day = 0; day < compiled.getNumberOfDays(); day++) {
+            nTouched = 0;
+            for (int period = 0; period < periodsPerDay; period++) {
+                int slot = day * periodsPerDay + period;
+                nextStamp();
+                for (int i = 0; i < t.getNumberOfLecturesInSlot(slot); i++) {
+                    int lecture = t.getLectureInSlot(slot, i);
+                    int course = compiled.getCourseOfLecture(lecture);
+                    int room = t.getRoom(lecture);
+                    int[] curricula = compiled.getCurriculaOf(course);
+
+                    if (courseLastSlot[course] != slot) {
+                        courseLastSlot[course] = slot;
+                        courseSlots[course]++;
+                    }
+                    courseDays[course] |= 1L << day;
+
+                    int teacher = compiled.getTeacherOf(course);
+                    if (teacherStamp[teacher] == stamp) {
+                        conflicts++;
+                    } else {
+                        teacherStamp[teacher] = stamp;
+                    }
+
+                    for (int cu : curricula) {
+                        if (curriculumStamp[cu] == stamp) {
+                            conflicts++;
+                        } else {
+                            curriculumStamp[cu] = stamp;
+                            if (curriculumPeriods[cu] == 0) {
+                                touchedCurricula[nTouched++] = cu;
+                            }
+                            curriculumPeriods[cu] |= 1L << period;
+                        }
+                    }
+
+                    if (roomStamp[room] == stamp) {
+                        roomOccupancy++;
+                    } else {
+                        roomStamp[room] = stamp;
+                    }
+
+                    if (!compiled.isAvailable(course, slot)) {
+                        teacherAvailability++;
+                    }
+
+                    roomCapacity += compiled.getCapacityDeficit(course, room) * curricula.length;
+                }
+            }
+
+            // the day is complete, so the isolated lectures of the touched curricula are known
+            for (int i = 0; i < nTouched; i++) {
+                int cu = touchedCurricula[i];
+                isolatedLectures += isolated(curriculumPeriods[cu]);
+                curriculumPeriods[cu] = 0;
+            }
+        }
+
+        int lectures = 0;
+        int minWorkingDays = 0;
+        for (int c = 0; c < courseSlots.length; c++) {
+            lectures += compiled.getNumberOfLectures(c) - courseSlots[c];
+            minWorkingDays += Math.max(0, compiled.getMinWorkingDays(c) - Long.bitCount(courseDays[c]));
+        }
+
+        return new CostBreakdown(
+                new int[]{lectures, conflicts, roomOccupancy, teacherAvailability},
+                new int[]{roomCapacity, minWorkingDays, isolatedLectures});
+    }
+
+    /* periods without a neighbour, unless it is the only lecture of the day */
+    private static int isolated(long periods) {
+        if (Long.bitCount(periods) == 1) {
+            return 0;
+        }
+        return Long.bitCount(periods & ~(periods << 1) & ~(periods >>> 1));
+    }
+
+    private void nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(teacherStamp, 0);
+            Arrays.fill(curriculumStamp, 0);
+            Arrays.fill(roomStamp, 0);
+            stamp = 1;
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package ch.rethab.cbctt.formulation;
+
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.ConflictGraph;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+
+import java.util.Arrays;
+
+/**
+ * Mutable flat timetable (genes as in CompactTimetable) that evaluates the
+ * UD1 objectives incrementally. It keeps the lectures per slot, day and
+ * curriculum, so a move only looks at the course and curricula it touches.
+ * Counts rather than flags are kept, so timetables with hard constraint
+ * violations can be handled as well.
+ *
+ * Moves write the change of the objectives (in the order of UD1Formulation,
+ * not yet multiplied by their penalty) into the delta array and can be
+ * taken back with undo. The hard constraints are not evaluated, use fits
+ * to only make moves that don't violate them. Nothing is allocated per
+ * move, so this is meant for local search. Not thread safe.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class IncrementalUD1Evaluation {
+
+    public static final int ROOM_CAPACITY = 0;
+    public static final int MIN_WORKING_DAYS = 1;
+    public static final int ISOLATED_LECTURES = 2;
+
+    public static final int NUMBER_OF_OBJECTIVES = 3;
+
+    /* lecture of a room in which there is none */
+    public static final int FREE = -1;
+    /* lecture of a room in which there is more than one */
+    public static final int CLASH = -2;
+
+    private final CompiledSpecification compiled;
+    private final ConflictGraph conflicts;
+    private final int nSlots;
+    private final int nRooms;
+    private final int nDays;
+    private final int courseWords;
+
+    private final int[] genes;
+
+    /* per gene: the lecture in the room, FREE or CLASH */
+    private final int[] roomLectures;
+    private final int[] lecturesInSlot;
+
+    /* per [course * nSlots + slot], and the courses that have any as bitset per slot */
+    private final int[] courseSlotCount;
+    private final long[] occupied;
+
+    /* per [course * nDays + day], and the number of days with any per course */
+    private final int[] courseDayCount;
+    private final int[] workingDays;
+
+    /* per [curriculum * nSlots + slot], and the periods with any per [curriculum * nDays + day] as bits */
+    private final int[] curriculumSlotCount;
+    private final long[] curriculumPeriods;
+
+    /* lectures of the last move and where they were before */
+    private final int[] undoLectures;
+    private final int[] undoGenes;
+    private int nUndo;
+
+    /* scratch for the kempe chains, one bitset of courses per slot */
+    private final long[] chain1;
+    private final long[] chain2;
+    private final long[] found;
+    private final long[] frontier;
+
+    /* scratch for the kempe swap: the lectures of the chain, their genes before and after */
+    private final int[] chainLectures;
+    private final int[] chainFrom;
+    private final int[] chainTo;
+    /* genes taken by the current kempe swap have the current stamp */
+    private final int[] taken;
+    private int stamp;
+
+    /** The timetable starts with a copy of the genes */
+    public IncrementalUD1Evaluation(CompiledSpecification compiled, int[] genes) {
+        if (!supports(compiled)) {
+            throw new IllegalArgumentException("More than 64 periods per day are not supported");
+        }
+        this.compiled = compiled;
+        this.conflicts = compiled.getConflictGraph();
+        this.genes = new int[genes.length];
+        nSlots = compiled.getNumberOfSlots();
+        nRooms = compiled.getNumberOfRooms();
+        nDays = compiled.getNumberOfDays();
+        courseWords = conflicts.getCourseWords();
+
+        roomLectures = new int[nSlots * nRooms];
+        Arrays.fill(roomLectures, FREE);
+        lecturesInSlot = new int[nSlots];
+        courseSlotCount = new int[compiled.getNumberOfCourses() * nSlots];
+        occupied = new long[nSlots * courseWords];
+        courseDayCount = new int[compiled.getNumberOfCourses() * nDays];
+        workingDays = new int[compiled.getNumberOfCourses()];
+        curriculumSlotCount = new int[compiled.getNumberOfCurricula() * nSlots];
+        curriculumPeriods = new long[compiled.getNumberOfCurricula() * nDays];
+
+        // a move takes every lecture at most once
+        int maxMoved = Math.max(2, genes.length);
+        undoLectures = new int[maxMoved];
+        undoGenes = new int[maxMoved];
+        chain1 = new long[courseWords];
+        chain2 = new long[courseWords];
+        found = new long[courseWords];
+        frontier = new long[courseWords];
+        chainLectures = new int[maxMoved];
+        chainFrom = new int[maxMoved];
+        chainTo = new int[maxMoved];
+        taken = new int[nSlots * nRooms];
+
+        Arrays.fill(this.genes, CompactTimetable.UNSCHEDULED);
+        int[] scratch = new int[NUMBER_OF_OBJECTIVES];
+        for (int l = 0; l < genes.length; l++) {
+            if (genes[l] != CompactTimetable.UNSCHEDULED) {
+                add(l, genes[l], scratch);
+            }
+        }
+    }
+
+    public static boolean supports(CompiledSpecification compiled) {
+        return compiled.getPeriodsPerDay() <= 64;
+    }
+
+    public int getNumberOfLectures() {
+        return genes.length;
+    }
+
+    /** number of rooms times slots */
+    public int getNumberOfGenes() {
+        return roomLectures.length;
+    }
+
+    public int getGene(int lecture) {
+        return genes[lecture];
+    }
+
+    /** the lecture in the room of the gene, FREE or CLASH */
+    public int getLectureAt(int gene) {
+        return roomLectures[gene];
+    }
+
+    public void copyGenes(int[] into) {
+        System.arraycopy(genes, 0, into, 0, genes.length);
+    }
+
+    public boolean sameCourse(int l1, int l2) {
+        return compiled.getCourseOfLecture(l1) == compiled.getCourseOfLecture(l2);
+    }
+
+    /**
+     * True if the lecture adds no hard constraint violation at the gene,
+     * with the other lecture (or FREE) gone from there. Whether the room is
+     * free isn't checked, only that it is suitable for the course.
+     */
+    public boolean fits(int lecture, int gene, int without) {
+        int course = compiled.getCourseOfLecture(lecture);
+        int slot = gene / nRooms;
+        if (compiled.isUnsuitable(course, gene % nRooms) || !conflicts.isAvailable(course, slot)) {
+            return false;
+        } else if (slot == genes[lecture] / nRooms) {
+            // only the room changes
+            return true;
+        } else if (without == FREE) {
+            return !conflicts.conflictsWith(course, occupied, slot * courseWords);
+        }
+        int otherCourse = compiled.getCourseOfLecture(without);
+        boolean alone = courseSlotCount[otherCourse * nSlots + slot] == 1;
+        if (alone) {
+            ConflictGraph.clear(occupied, slot * courseWords * 64 + otherCourse);
+        }
+        boolean fits = !conflicts.conflictsWith(course, occupied, slot * courseWords);
+        if (alone) {
+            ConflictGraph.set(occupied, slot * courseWords * 64 + otherCourse);
+        }
+        return fits;
+    }
+
+    /** Moves the lecture to the gene */
+    public void move(int lecture, int gene, int[] delta) {
+        Arrays.fill(delta, 0);
+        nUndo = 0;
+        journal(lecture);
+        remove(lecture, delta);
+        add(lecture, gene, delta);
+    }
+
+    /** Exchanges the rooms and slots of the two lectures */
+    public void swap(int l1, int l2, int[] delta) {
+        Arrays.fill(delta, 0);
+        int g1 = genes[l1];
+        int g2 = genes[l2];
+        nUndo = 0;
+        journal(l1);
+        journal(l2);
+        remove(l1, delta);
+        remove(l2, delta);
+        add(l1, g2, delta);
+        add(l2, g1, delta);
+    }
+
+    /**
+     * Swaps the kempe chain of the lecture between its slot and the other
+     * one: the lecture's course, the courses of the other slot that conflict
+     * with it, the ones of its slot that conflict with those and so on. Rooms
+     * are chosen by capacity among the free suitable ones. Returns false and
+     * changes nothing if the result would violate a hard constraint (a
+     * teacher is unavailable or there is no suitable room left for a
+     * lecture). Assumes that courses have at most one lecture per slot.
+     */
+    public boolean kempeSwap(int lecture, int toSlot, int[] delta) {
+        int fromSlot = genes[lecture] / nRooms;
+        if (genes[lecture] == CompactTimetable.UNSCHEDULED || fromSlot == toSlot) {
+            return false;
+        }
+        findChain(compiled.getCourseOfLecture(lecture), fromSlot, toSlot);
+        int n1 = ConflictGraph.cardinality(chain1);
+        int n2 = ConflictGraph.cardinality(chain2);
+        if (lecturesInSlot[toSlot] - n2 + n1 > nRooms || lecturesInSlot[fromSlot] - n1 + n2 > nRooms
+                || !allAvailable(chain1, toSlot) || !allAvailable(chain2, fromSlot)) {
+            return false;
+        }
+
+        // choose the rooms before changing anything
+        int nMoved = collectChain(chain1, fromSlot, 0);
+        nMoved = collectChain(chain2, toSlot, nMoved);
+        stamp++;
+        for (int i = 0; i < nMoved; i++) {
+            boolean toTarget = chainFrom[i] / nRooms == fromSlot;
+            int gene = bestFreeRoom(compiled.getCourseOfLecture(chainLectures[i]), toTarget ? toSlot : fromSlot,
+                    chainFrom[i] % nRooms, toTarget ? chain2 : chain1);
+            if (gene == -1) {
+                return false;
+            }
+            taken[gene] = stamp;
+            chainTo[i] = gene;
+        }
+
+        Arrays.fill(delta, 0);
+        nUndo = 0;
+        for (int i = 0; i < nMoved; i++) {
+            journal(chainLectures[i]);
+            remove(chainLectures[i], delta);
+        }
+        for (int i = 0; i < nMoved; i++) {
+            add(chainLectures[i], chainTo[i], delta);
+        }
+        return true;
+    }
+
+    /** Takes back the last move, swap or kempe swap. The delta is the one of taking it back */
+    public void undo(int[] delta) {
+        Arrays.fill(delta, 0);
+        for (int i = 0; i < nUndo; i++) {
+            remove(undoLectures[i], delta);
+        }
+        for (int i = 0; i < nUndo; i++) {
+            add(undoLectures[i], undoGenes[i], delta);
+        }
+        nUndo = 0;
+    }
+
+    /** Current violations of the objectives, computed from the counts */
+    public int[] objectiveViolations() {
+        int[] violations = new int[NUMBER_OF_OBJECTIVES];
+        for (int l = 0; l < genes.length; l++) {
+            if (genes[l] != CompactTimetable.UNSCHEDULED) {
+                int course = compiled.getCourseOfLecture(l);
+                violations[ROOM_CAPACITY] += compiled.getCapacityDeficit(course, genes[l] % nRooms)
+                        * compiled.getCurriculaOf(course).length;
+            }
+        }
+        for (int c = 0; c < workingDays.length; c++) {
+            violations[MIN_WORKING_DAYS] += missingDays(c);
+        }
+        for (long periods : curriculumPeriods) {
+            violations[ISOLATED_LECTURES] += isolated(periods);
+        }
+        return violations;
+    }
+
+    /* closure of conflicting courses alternating between the two slots, into chain1 and chain2 */
+    private void findChain(int course, int slot1, int slot2) {
+        Arrays.fill(chain1, 0);
+        Arrays.fill(chain2, 0);
+        Arrays.fill(frontier, 0);
+        ConflictGraph.set(chain1, course);
+        ConflictGraph.set(frontier, course);
+        boolean toSecond = true;
+        while (true) {
+            long[] chain = toSecond ? chain2 : chain1;
+            int offset = (toSecond ? slot2 : slot1) * courseWords;
+            Arrays.fill(found, 0);
+            for (int w = 0; w < courseWords; w++) {
+                for (long bits = frontier[w]; bits != 0; bits &= bits - 1) {
+                    long[] mask = conflicts.getConflicts(w * 64 + Long.numberOfTrailingZeros(bits));
+                    for (int v = 0; v < courseWords; v++) {
+                        found[v] |= mask[v] & occupied[offset + v];
+                    }
+                }
+            }
+            boolean any = false;
+            for (int w = 0; w < courseWords; w++) {
+                frontier[w] = found[w] & ~chain[w];
+                chain[w] |= frontier[w];
+                any |= frontier[w] != 0;
+            }
+            if (!any) {
+                return;
+            }
+            toSecond = !toSecond;
+        }
+    }
+
+    private boolean allAvailable(long[] courses, int slot) {
+        for (int w = 0; w < courseWords; w++) {
+            for (long bits = courses[w]; bits != 0; bits &= bits - 1) {
+                if (!conflicts.isAvailable(w * 64 + Long.numberOfTrailingZeros(bits), slot)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /* puts the lectures of the courses in the slot into chainLectures and chainFrom, starting at n */
+    private int collectChain(long[] courses, int slot, int n) {
+        for (int w = 0; w < courseWords; w++) {
+            for (long bits = courses[w]; bits != 0; bits &= bits - 1) {
+                int course = w * 64 + Long.numberOfTrailingZeros(bits);
+                int first = compiled.getFirstLecture(course);
+                for (int l = first; l < first + compiled.getNumberOfLectures(course); l++) {
+                    if (genes[l] != CompactTimetable.UNSCHEDULED && genes[l] / nRooms == slot) {
+                        chainLectures[n] = l;
+                        chainFrom[n++] = genes[l];
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    private void journal(int lecture) {
+        undoLectures[nUndo] = lecture;
+        undoGenes[nUndo++] = genes[lecture];
+    }
+
+    /*
+     * gene of the suitable room of the slot with the lowest capacity deficit, preferring the
+     * given room, or -1 if there is none. a room is free if it is empty or the course in it is
+     * leaving, and it isn't taken by this kempe swap yet
+     */
+    private int bestFreeRoom(int course, int slot, int preferred, long[] leaving) {
+        int best = -1;
+        int bestDeficit = Integer.MAX_VALUE;
+        for (int r = 0; r < nRooms; r++) {
+            int gene = slot * nRooms + r;
+            int lecture = roomLectures[gene];
+            boolean free = lecture == FREE
+                    || (lecture >= 0 && ConflictGraph.isSet(leaving, compiled.getCourseOfLecture(lecture)));
+            if (!free || taken[gene] == stamp || compiled.isUnsuitable(course, r)) {
+                continue;
+            }
+            int deficit = compiled.getCapacityDeficit(course, r);
+            if (deficit < bestDeficit || (deficit == bestDeficit && r == preferred)) {
+                best = gene;
+                bestDeficit = deficit;
+            }
+        }
+        return best;
+    }
+
+    private void remove(int lecture, int[] delta) {
+        int gene = genes[lecture];
+        int course = compiled.getCourseOfLecture(lecture);
+        int slot = gene / nRooms;
+        int day = compiled.toDay(slot);
+        int period = compiled.toPeriod(slot);
+        int[] curricula = compiled.getCurriculaOf(course);
+
+        genes[lecture] = CompactTimetable.UNSCHEDULED;
+        roomLectures[gene] = roomLectures[gene] == lecture ? FREE : lectureIn(gene);
+        lecturesInSlot[slot]--;
+        if (--courseSlotCount[course * nSlots + slot] == 0) {
+            ConflictGraph.clear(occupied, slot * courseWords * 64 + course);
+        }
+
+        delta[ROOM_CAPACITY] -= compiled.getCapacityDeficit(course, gene % nRooms) * curricula.length;
+
+        int missingBefore = missingDays(course);
+        if (--courseDayCount[course * nDays + day] == 0) {
+            workingDays[course]--;
+        }
+        delta[MIN_WORKING_DAYS] += missingDays(course) - missingBefore;
+
+        for (int cu : curricula) {
+            if (--curriculumSlotCount[cu * nSlots + slot] == 0) {
+                long before = curriculumPeriods[cu * nDays + day];
+                curriculumPeriods[cu * nDays + day] = before & ~(1L << period);
+                delta[ISOLATED_LECTURES] += isolated(curriculumPeriods[cu * nDays + day]) - isolated(before);
+            }
+        }
+    }
+
+    private void add(int lecture, int gene, int[] delta) {
+        int course = compiled.getCourseOfLecture(lecture);
+        int slot = gene / nRooms;
+        int day = compiled.toDay(slot);
+        int period = compiled.toPeriod(slot);
+        int[] curricula = compiled.getCurriculaOf(course);
+
+        genes[lecture] = gene;
+        roomLectures[gene] = roomLectures[gene] == FREE ? lecture : CLASH;
+        lecturesInSlot[slot]++;
+        if (courseSlotCount[course * nSlots + slot]++ == 0) {
+            ConflictGraph.set(occupied, slot * courseWords * 64 + course);
+        }
+
+        delta[ROOM_CAPACITY] += compiled.getCapacityDeficit(course, gene % nRooms) * curricula.length;
+
+        int missingBefore = missingDays(course);
+        if (courseDayCount[course * nDays + day]++ == 0) {
+            workingDays[course]++;
+        }
+        delta[MIN_WORKING_DAYS] += missingDays(course) - missingBefore;
+
+        for (int cu : curricula) {
+            if (curriculumSlotCount[cu * nSlots + slot]++ == 0) {
+                long before = curriculumPeriods[cu * nDays + day];
+                curriculumPeriods[cu * nDays + day] = before | (1L << period);
+                delta[ISOLATED_LECTURES] += isolated(curriculumPeriods[cu * nDays + day]) - isolated(before);
+            }
+        }
+    }
+
+    /* the lecture left in a room that held several, or FREE. only happens with room clashes */
+    private int lectureIn(int gene) {
+        int found = FREE;
+        for (int l = 0; l < genes.length; l++) {
+            if (genes[l] == gene) {
+                if (found != FREE) {
+                    return CLASH;
+                }
+                found = l;
+            }
+        }
+        return found;
+    }
+
+    private int missingDays(int course) {
+        return Math.max(0, compiled.getMinWorkingDays(course) - workingDays[course]);
+    }
+
+    /* periods without a neighbour, unless it is the only lecture of the day (see FusedUD1Evaluation) */
+    private static int isolated(long periods) {
+        if (Long.bitCount(periods) == 1) {
+            return 0;
+        }
+        return Long.bitCount(periods & ~(periods << 1) & ~(periods >>> 1));
+    }
+}
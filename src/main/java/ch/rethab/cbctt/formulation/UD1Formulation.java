@@ -1,6 +1,9 @@
 package ch.rethab.cbctt.formulation;
 
+import ch.rethab.cbctt.domain.CompiledSpecification;
 import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 import ch.rethab.cbctt.formulation.constraint.*;
 
 /**
@@ -8,6 +11,8 @@ import ch.rethab.cbctt.formulation.constraint.*;
  */
 public class UD1Formulation extends Formulation {
 
+    private final Specification spec;
+
     public UD1Formulation(Specification spec) {
         super(
             new Constraint[] {
@@ -22,5 +27,24 @@ public class UD1Formulation extends Formulation {
                 new Objective(new IsolatedLecturesConstraint(spec), 1)
             }
         );
+        this.spec = spec;
+    }
+
+    /** Evaluates all constraints at once on the flat encoding if possible */
+    @Override
+    public CostBreakdown evaluate(TimetableWithRooms t) {
+        if (!FusedUD1Evaluation.supports(spec.getCompiled()) || !CompactTimetable.isRepresentable(spec, t)) {
+            return evaluateEach(t);
+        }
+        return evaluate(CompactTimetable.fromWithRooms(spec, t));
+    }
+
+    @Override
+    public CostBreakdown evaluate(CompactTimetable t) {
+        CompiledSpecification compiled = spec.getCompiled();
+        if (!FusedUD1Evaluation.supports(compiled)) {
+            return evaluateEach(t.toTimetableWithRooms());
+        }
+        return FusedUD1Evaluation.forThread(compiled).evaluate(t);
     }
 }
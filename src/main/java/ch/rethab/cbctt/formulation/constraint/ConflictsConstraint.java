@@ -1,11 +1,13 @@
 package ch.rethab.cbctt.formulation.constraint;
 
-import ch.rethab.cbctt.domain.Course;
-import ch.rethab.cbctt.domain.Curriculum;
+import ch.rethab.cbctt.domain.CompiledSpecification;
 import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
 import ch.rethab.cbctt.ea.phenotype.MeetingWithRoom;
+import ch.rethab.cbctt.ea.phenotype.Move;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -41,37 +43,39 @@ public class ConflictsConstraint implements Constraint {
     }
 
     private int teacherViolations(TimetableWithRooms t) {
+        CompiledSpecification compiled = spec.getCompiled();
+        int nSlots = compiled.getNumberOfSlots();
         int count = 0;
-        for (String teacher : spec.getTeachers()) {
-            // occupied day/periods by teacher
-            boolean occupieds[][] = new boolean[spec.getNumberOfDaysPerWeek()][spec.getPeriodsPerDay()];
-
-            Set<MeetingWithRoom> meetings = t.getMeetingsByTeacher(teacher);
-            for (MeetingWithRoom meeting : meetings) {
-                boolean occupied = occupieds[meeting.getDay()][meeting.getPeriod()];
-                if (occupied) {
-                    count++;
-                } else {
-                    occupieds[meeting.getDay()][meeting.getPeriod()] = true;
-                }
+
+        // occupied slots by teacher: [teacher * nSlots + slot]
+        boolean occupieds[] = new boolean[compiled.getNumberOfTeachers() * nSlots];
+
+        for (MeetingWithRoom meeting : t.getMeetings()) {
+            int teacher = compiled.getTeacherOf(compiled.indexOf(meeting.getCourse()));
+            int idx = teacher * nSlots + compiled.toSlot(meeting.getDay(), meeting.getPeriod());
+            if (occupieds[idx]) {
+                count++;
+            } else {
+                occupieds[idx] = true;
             }
         }
         return count;
     }
 
     private int lecturesByCurriculaViolations(TimetableWithRooms t) {
+        CompiledSpecification compiled = spec.getCompiled();
         int count = 0;
-        for (Curriculum curriculum : spec.getCurricula()) {
+        for (int cu = 0; cu < compiled.getNumberOfCurricula(); cu++) {
             // no two lectures within curriculum on same day
-            boolean occupieds[][] = new boolean[spec.getNumberOfDaysPerWeek()][spec.getPeriodsPerDay()];
-            for (Course course : curriculum.getCourses()) {
-                Set<MeetingWithRoom> meetings = t.getMeetingsByCourse(course);
+            boolean occupieds[] = new boolean[compiled.getNumberOfSlots()];
+            for (int course : compiled.getCoursesOfCurriculum(cu)) {
+                Set<MeetingWithRoom> meetings = t.getMeetingsByCourse(compiled.getCourse(course));
                 for (MeetingWithRoom meeting : meetings) {
-                    boolean occupied = occupieds[meeting.getDay()][meeting.getPeriod()];
-                    if (occupied) {
+                    int slot = compiled.toSlot(meeting.getDay(), meeting.getPeriod());
+                    if (occupieds[slot]) {
                         count++;
                     } else {
-                        occupieds[meeting.getDay()][meeting.getPeriod()] = true;
+                        occupieds[slot] = true;
                     }
                 }
 
@@ -79,4 +83,63 @@ public class ConflictsConstraint implements Constraint {
         }
         return count;
     }
+
+    @Override
+    public int delta(CompactTimetable parent, CompactTimetable child, List<Move> moves) {
+        CompiledSpecification compiled = spec.getCompiled();
+        int nSlots = compiled.getNumberOfSlots();
+        Scope teacherSlots = new Scope();
+        Scope curriculumSlots = new Scope();
+        for (Move m : moves) {
+            int course = compiled.getCourseOfLecture(m.lecture);
+            touch(compiled, course, m.fromSlot, teacherSlots, curriculumSlots);
+            touch(compiled, course, m.toSlot, teacherSlots, curriculumSlots);
+        }
+
+        int delta = 0;
+        for (int i = 0; i < teacherSlots.size(); i++) {
+            int teacher = teacherSlots.get(i) / nSlots;
+            int slot = teacherSlots.get(i) % nSlots;
+            delta += teacherExcess(compiled, child, teacher, slot) - teacherExcess(compiled, parent, teacher, slot);
+        }
+        for (int i = 0; i < curriculumSlots.size(); i++) {
+            int curriculum = curriculumSlots.get(i) / nSlots;
+            int slot = curriculumSlots.get(i) % nSlots;
+            delta += curriculumExcess(compiled, child, curriculum, slot) - curriculumExcess(compiled, parent, curriculum, slot);
+        }
+        return delta;
+    }
+
+    private void touch(CompiledSpecification compiled, int course, int slot, Scope teacherSlots, Scope curriculumSlots) {
+        if (slot == CompactTimetable.UNSCHEDULED) {
+            return;
+        }
+        int nSlots = compiled.getNumberOfSlots();
+        teacherSlots.add(compiled.getTeacherOf(course) * nSlots + slot);
+        for (int curriculum : compiled.getCurriculaOf(course)) {
+            curriculumSlots.add(curriculum * nSlots + slot);
+        }
+    }
+
+    /* number of lectures of the teacher in the slot, except for the first one */
+    private int teacherExcess(CompiledSpecification compiled, CompactTimetable t, int teacher, int slot) {
+        int count = 0;
+        for (int i = 0; i < t.getNumberOfLecturesInSlot(slot); i++) {
+            if (compiled.getTeacherOf(compiled.getCourseOfLecture(t.getLectureInSlot(slot, i))) == teacher) {
+                count++;
+            }
+        }
+        return Math.max(0, count - 1);
+    }
+
+    /* number of lectures of the curriculum in the slot, except for the first one */
+    private int curriculumExcess(CompiledSpecification compiled, CompactTimetable t, int curriculum, int slot) {
+        int count = 0;
+        for (int i = 0; i < t.getNumberOfLecturesInSlot(slot); i++) {
+            if (compiled.isInCurriculum(compiled.getCourseOfLecture(t.getLectureInSlot(slot, i)), curriculum)) {
+                count++;
+            }
+        }
+        return Math.max(0, count - 1);
+    }
 }
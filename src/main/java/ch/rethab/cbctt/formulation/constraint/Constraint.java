@@ -1,8 +1,11 @@
 package ch.rethab.cbctt.formulation.constraint;
 
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.Move;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * Constraints (or 'cost components') are used to evaluate a timetable.
@@ -26,4 +29,14 @@ public interface Constraint extends Serializable {
      * Count the number of constraint violations the specified timetable has
      */
     int violations(TimetableWithRooms t);
+
+    /**
+     * Returns by how much the number of violations changes if the moves are
+     * applied to the parent, which results in the child. Implementations
+     * only look at the curricula, teachers, rooms, days etc. touched by the
+     * moves. This default evaluates both timetables from scratch.
+     */
+    default int delta(CompactTimetable parent, CompactTimetable child, List<Move> moves) {
+        return violations(child.toTimetableWithRooms()) - violations(parent.toTimetableWithRooms());
+    }
 }
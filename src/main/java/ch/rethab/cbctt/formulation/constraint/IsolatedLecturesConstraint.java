@@ -1,10 +1,13 @@
 package ch.rethab.cbctt.formulation.constraint;
 
+import ch.rethab.cbctt.domain.CompiledSpecification;
 import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
 import ch.rethab.cbctt.ea.phenotype.CurriculumTimetableWithRooms;
+import ch.rethab.cbctt.ea.phenotype.Move;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 
-import java.util.stream.Collectors;
+import java.util.List;
 
 /**
  * From 'Benchmarking Curriculum-Based Course Timetabling:
@@ -34,46 +37,79 @@ public class IsolatedLecturesConstraint implements Constraint {
 
     @Override
     public int violations(TimetableWithRooms t) {
-        return t.getCurriculumTimetables()
-                .values()
-                .stream()
-                .map(this::countCurriculumViolations)
-                .collect(Collectors.summingInt(Integer::valueOf));
-    }
-
-    private int countCurriculumViolations (CurriculumTimetableWithRooms ctt) {
+        boolean[] occupied = new boolean[spec.getPeriodsPerDay()];
         int violations = 0;
-        for (int day = 0; day < spec.getNumberOfDaysPerWeek(); day++) {
-            int lecturesPerDay = 0;
-            for (int period = 0; period < spec.getPeriodsPerDay(); period++) {
-
-                if (ctt.get(day, period) != null) {
-                    lecturesPerDay++;
+        for (CurriculumTimetableWithRooms ctt : t.getCurriculumTimetables().values()) {
+            for (int day = 0; day < spec.getNumberOfDaysPerWeek(); day++) {
+                for (int period = 0; period < spec.getPeriodsPerDay(); period++) {
+                    occupied[period] = ctt.get(day, period) != null;
                 }
+                violations += countDayViolations(occupied);
+            }
+        }
+        return violations;
+    }
 
-                if (period == 0) {
-                    // first period in day
-                    if (ctt.get(day, period) != null && ctt.get(day, period+1) == null) {
-                        violations++;
-                    }
-                } else if (period == spec.getPeriodsPerDay()-1) {
-                    // last period of day
-                    if (ctt.get(day, period) != null && ctt.get(day, period-1) == null) {
-                        violations++;
-                    }
-                } else {
-                    // period in the middle of the day: check both sides
-                    if (ctt.get(day, period) != null && ctt.get(day, period-1) == null && ctt.get(day, period+1) == null) {
-                        violations++;
-                    }
+    @Override
+    public int delta(CompactTimetable parent, CompactTimetable child, List<Move> moves) {
+        CompiledSpecification compiled = spec.getCompiled();
+        int days = compiled.getNumberOfDays();
+        Scope curriculumDays = new Scope();
+        for (Move m : moves) {
+            int course = compiled.getCourseOfLecture(m.lecture);
+            for (int curriculum : compiled.getCurriculaOf(course)) {
+                if (m.fromSlot != CompactTimetable.UNSCHEDULED) {
+                    curriculumDays.add(curriculum * days + compiled.toDay(m.fromSlot));
+                }
+                if (m.toSlot != CompactTimetable.UNSCHEDULED) {
+                    curriculumDays.add(curriculum * days + compiled.toDay(m.toSlot));
                 }
             }
+        }
 
-            if (lecturesPerDay == 1) {
-                // there was one lecture which was isolated, so remove it again
-                violations--;
+        boolean[] occupied = new boolean[compiled.getPeriodsPerDay()];
+        int delta = 0;
+        for (int i = 0; i < curriculumDays.size(); i++) {
+            int curriculum = curriculumDays.get(i) / days;
+            int day = curriculumDays.get(i) % days;
+            fillDay(compiled, child, curriculum, day, occupied);
+            delta += countDayViolations(occupied);
+            fillDay(compiled, parent, curriculum, day, occupied);
+            delta -= countDayViolations(occupied);
+        }
+        return delta;
+    }
+
+    private void fillDay(CompiledSpecification compiled, CompactTimetable t, int curriculum, int day, boolean[] occupied) {
+        for (int period = 0; period < occupied.length; period++) {
+            int slot = compiled.toSlot(day, period);
+            occupied[period] = false;
+            for (int i = 0; i < t.getNumberOfLecturesInSlot(slot) && !occupied[period]; i++) {
+                occupied[period] = compiled.isInCurriculum(compiled.getCourseOfLecture(t.getLectureInSlot(slot, i)), curriculum);
+            }
+        }
+    }
+
+    /* violations of one curriculum on one day, occupied is indexed by period */
+    private int countDayViolations(boolean[] occupied) {
+        int violations = 0;
+        int lecturesPerDay = 0;
+        for (int period = 0; period < occupied.length; period++) {
+            if (!occupied[period]) {
+                continue;
+            }
+            lecturesPerDay++;
+            boolean previous = period > 0 && occupied[period - 1];
+            boolean next = period < occupied.length - 1 && occupied[period + 1];
+            if (!previous && !next) {
+                violations++;
             }
         }
+
+        if (lecturesPerDay == 1) {
+            // there was one lecture which was isolated, so remove it again
+            violations--;
+        }
         return violations;
     }
 }
@@ -1,10 +1,13 @@
 package ch.rethab.cbctt.formulation.constraint;
 
 
+import ch.rethab.cbctt.domain.CompiledSpecification;
 import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.Move;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 
-import java.util.stream.Collectors;
+import java.util.List;
 
 /**
  * From 'Benchmarking Curriculum-Based Course Timetabling:
@@ -36,9 +39,41 @@ public class LecturesConstraint implements Constraint {
          * the construction of the timetable makes sure no
          * two lectures may be scheduled at the same period
          */
-        return spec.getCourses()
-                .stream()
-                .map(c -> c.getNumberOfLectures() - t.getMeetingsByCourse(c).size())
-                .collect(Collectors.summingInt(Integer::valueOf));
+        CompiledSpecification compiled = spec.getCompiled();
+        int count = 0;
+        for (int c = 0; c < compiled.getNumberOfCourses(); c++) {
+            count += compiled.getNumberOfLectures(c) - t.getMeetingsByCourse(compiled.getCourse(c)).size();
+        }
+        return count;
+    }
+
+    @Override
+    public int delta(CompactTimetable parent, CompactTimetable child, List<Move> moves) {
+        CompiledSpecification compiled = spec.getCompiled();
+        Scope courses = new Scope();
+        for (Move m : moves) {
+            courses.add(compiled.getCourseOfLecture(m.lecture));
+        }
+        int delta = 0;
+        for (int i = 0; i < courses.size(); i++) {
+            delta += courseViolations(compiled, child, courses.get(i)) - courseViolations(compiled, parent, courses.get(i));
+        }
+        return delta;
+    }
+
+    /* lectures of the course that are missing or share a period with another one */
+    private int courseViolations(CompiledSpecification compiled, CompactTimetable t, int course) {
+        int first = compiled.getFirstLecture(course);
+        int periods = 0;
+        int previous = CompactTimetable.UNSCHEDULED;
+        for (int l = first; l < first + compiled.getNumberOfLectures(course); l++) {
+            // lectures of a course are sorted, so lectures in the same period are adjacent
+            int slot = t.getSlot(l);
+            if (slot != CompactTimetable.UNSCHEDULED && slot != previous) {
+                periods++;
+            }
+            previous = slot;
+        }
+        return compiled.getNumberOfLectures(course) - periods;
     }
 }
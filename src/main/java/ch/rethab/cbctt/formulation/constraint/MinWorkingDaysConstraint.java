@@ -1,11 +1,15 @@
 package ch.rethab.cbctt.formulation.constraint;
 
+import ch.rethab.cbctt.domain.CompiledSpecification;
 import ch.rethab.cbctt.domain.Course;
 import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
 import ch.rethab.cbctt.ea.phenotype.MeetingWithRoom;
+import ch.rethab.cbctt.ea.phenotype.Move;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * From 'Benchmarking Curriculum-Based Course Timetabling:
@@ -32,13 +36,17 @@ public class MinWorkingDaysConstraint implements Constraint {
 
     @Override
     public int violations(TimetableWithRooms t) {
-        return spec.getCourses().stream()
-                .map(c -> Math.max(0, c.getMinWorkingDays() - countWorkingDays(c, t)))
-                .collect(Collectors.summingInt(Integer::valueOf));
+        CompiledSpecification compiled = spec.getCompiled();
+        boolean[] days = new boolean[compiled.getNumberOfDays()];
+        int count = 0;
+        for (int c = 0; c < compiled.getNumberOfCourses(); c++) {
+            count += Math.max(0, compiled.getMinWorkingDays(c) - countWorkingDays(compiled.getCourse(c), t, days));
+        }
+        return count;
     }
 
-    private int countWorkingDays(Course c, TimetableWithRooms t) {
-        boolean[] days = new boolean[spec.getNumberOfDaysPerWeek()];
+    private int countWorkingDays(Course c, TimetableWithRooms t, boolean[] days) {
+        Arrays.fill(days, false);
 
         int ndays = 0;
         for (MeetingWithRoom meeting : t.getMeetingsByCourse(c)) {
@@ -50,4 +58,40 @@ public class MinWorkingDaysConstraint implements Constraint {
 
         return ndays;
     }
+
+    @Override
+    public int delta(CompactTimetable parent, CompactTimetable child, List<Move> moves) {
+        CompiledSpecification compiled = spec.getCompiled();
+        boolean[] days = new boolean[compiled.getNumberOfDays()];
+        Scope courses = new Scope();
+        for (Move m : moves) {
+            courses.add(compiled.getCourseOfLecture(m.lecture));
+        }
+        int delta = 0;
+        for (int i = 0; i < courses.size(); i++) {
+            int course = courses.get(i);
+            int before = Math.max(0, compiled.getMinWorkingDays(course) - countWorkingDays(compiled, course, parent, days));
+            int after = Math.max(0, compiled.getMinWorkingDays(course) - countWorkingDays(compiled, course, child, days));
+            delta += after - before;
+        }
+        return delta;
+    }
+
+    private int countWorkingDays(CompiledSpecification compiled, int course, CompactTimetable t, boolean[] days) {
+        Arrays.fill(days, false);
+
+        int ndays = 0;
+        int first = compiled.getFirstLecture(course);
+        for (int l = first; l < first + compiled.getNumberOfLectures(course); l++) {
+            if (t.isScheduled(l)) {
+                int day = compiled.toDay(t.getSlot(l));
+                if (!days[day]) {
+                    ndays++;
+                }
+                days[day] = true;
+            }
+        }
+
+        return ndays;
+    }
 }
@@ -1,8 +1,12 @@
 package ch.rethab.cbctt.formulation.constraint;
 
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
 import ch.rethab.cbctt.ea.phenotype.CurriculumTimetableWithRooms;
+import ch.rethab.cbctt.ea.phenotype.Move;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 
+import java.util.List;
 import java.util.stream.Collectors;
 
 /**
@@ -36,4 +40,30 @@ public class RoomCapacityConstraint implements Constraint {
                 .map(m -> Math.max(0, m.getCourse().getNumberOfStudents() - m.getRoom().getCapacity()))
                 .collect(Collectors.summingInt(Integer::valueOf));
     }
+
+    @Override
+    public int delta(CompactTimetable parent, CompactTimetable child, List<Move> moves) {
+        CompiledSpecification compiled = parent.getSpecification().getCompiled();
+        Scope courses = new Scope();
+        for (Move m : moves) {
+            courses.add(compiled.getCourseOfLecture(m.lecture));
+        }
+        int delta = 0;
+        for (int i = 0; i < courses.size(); i++) {
+            delta += courseViolations(compiled, child, courses.get(i)) - courseViolations(compiled, parent, courses.get(i));
+        }
+        return delta;
+    }
+
+    /* like above, a course is counted once for each of its curricula */
+    private int courseViolations(CompiledSpecification compiled, CompactTimetable t, int course) {
+        int first = compiled.getFirstLecture(course);
+        int deficit = 0;
+        for (int l = first; l < first + compiled.getNumberOfLectures(course); l++) {
+            if (t.isScheduled(l)) {
+                deficit += compiled.getCapacityDeficit(course, t.getRoom(l));
+            }
+        }
+        return deficit * compiled.getCurriculaOf(course).length;
+    }
 }
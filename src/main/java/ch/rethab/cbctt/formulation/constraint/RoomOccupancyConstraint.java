@@ -2,10 +2,13 @@ package ch.rethab.cbctt.formulation.constraint;
 
 import ch.rethab.cbctt.domain.Room;
 import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
 import ch.rethab.cbctt.ea.phenotype.MeetingWithRoom;
+import ch.rethab.cbctt.ea.phenotype.Move;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -51,4 +54,36 @@ public class RoomOccupancyConstraint implements Constraint {
         }
         return count;
     }
+
+    @Override
+    public int delta(CompactTimetable parent, CompactTimetable child, List<Move> moves) {
+        int nSlots = spec.getCompiled().getNumberOfSlots();
+        Scope roomSlots = new Scope();
+        for (Move m : moves) {
+            if (m.fromSlot != CompactTimetable.UNSCHEDULED) {
+                roomSlots.add(m.fromRoom * nSlots + m.fromSlot);
+            }
+            if (m.toSlot != CompactTimetable.UNSCHEDULED) {
+                roomSlots.add(m.toRoom * nSlots + m.toSlot);
+            }
+        }
+        int delta = 0;
+        for (int i = 0; i < roomSlots.size(); i++) {
+            int room = roomSlots.get(i) / nSlots;
+            int slot = roomSlots.get(i) % nSlots;
+            delta += roomExcess(child, room, slot) - roomExcess(parent, room, slot);
+        }
+        return delta;
+    }
+
+    /* number of lectures in the room and slot, except for the first one */
+    private int roomExcess(CompactTimetable t, int room, int slot) {
+        int count = 0;
+        for (int i = 0; i < t.getNumberOfLecturesInSlot(slot); i++) {
+            if (t.getRoom(t.getLectureInSlot(slot, i)) == room) {
+                count++;
+            }
+        }
+        return Math.max(0, count - 1);
+    }
 }
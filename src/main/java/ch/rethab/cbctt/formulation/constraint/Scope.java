@@ -0,0 +1,37 @@
+package ch.rethab.cbctt.formulation.constraint;
+
+import java.util.Arrays;
+
+/**
+ * Distinct set of units (e.g. a course or a teacher in a slot) that are
+ * touched by a list of moves. Move lists are short, so a linear scan is
+ * cheaper than hashing.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+final class Scope {
+
+    private int[] keys = new int[8];
+
+    private int size = 0;
+
+    void add(int key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return;
+            }
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        keys[size++] = key;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int i) {
+        return keys[i];
+    }
+}
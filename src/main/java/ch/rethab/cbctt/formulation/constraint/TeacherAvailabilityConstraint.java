@@ -1,10 +1,14 @@
 package ch.rethab.cbctt.formulation.constraint;
 
+import ch.rethab.cbctt.domain.CompiledSpecification;
 import ch.rethab.cbctt.domain.Specification;
-import ch.rethab.cbctt.domain.UnavailabilityConstraints;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
 import ch.rethab.cbctt.ea.phenotype.MeetingWithRoom;
+import ch.rethab.cbctt.ea.phenotype.Move;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 
+import java.util.List;
+
 /**
  * From 'Benchmarking Curriculum-Based Course Timetabling:
  *       Formulations, Data Formats, Instances, Validation, and
@@ -32,9 +36,34 @@ public class TeacherAvailabilityConstraint implements Constraint {
     @Override
     public int violations(TimetableWithRooms t) {
         int count = 0;
-        UnavailabilityConstraints unav = spec.getUnavailabilityConstraints();
+        CompiledSpecification compiled = spec.getCompiled();
         for (MeetingWithRoom m : t.getMeetings()) {
-            if (!unav.checkAvailability(m.getCourse(), m.getDay(), m.getPeriod())) {
+            if (!compiled.isAvailable(compiled.indexOf(m.getCourse()), m.getDay(), m.getPeriod())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int delta(CompactTimetable parent, CompactTimetable child, List<Move> moves) {
+        CompiledSpecification compiled = spec.getCompiled();
+        Scope courses = new Scope();
+        for (Move m : moves) {
+            courses.add(compiled.getCourseOfLecture(m.lecture));
+        }
+        int delta = 0;
+        for (int i = 0; i < courses.size(); i++) {
+            delta += courseViolations(compiled, child, courses.get(i)) - courseViolations(compiled, parent, courses.get(i));
+        }
+        return delta;
+    }
+
+    private int courseViolations(CompiledSpecification compiled, CompactTimetable t, int course) {
+        int first = compiled.getFirstLecture(course);
+        int count = 0;
+        for (int l = first; l < first + compiled.getNumberOfLectures(course); l++) {
+            if (t.isScheduled(l) && !compiled.isAvailable(course, t.getSlot(l))) {
                 count++;
             }
         }
@@ -36,6 +36,9 @@ public final class ParametrizationPhenotype {
     /* rather arbitrary, but laumanns  et al suggest 1 one for performance reasons in the
      * pisa implementation of spea2 and it shouldn't get too big */
     public static final int K_MEANS_UPPER_BOUND = 5;
+    /* budget of the local search per offspring, if it is selected */
+    public static final int LOCAL_SEARCH_MOVES = 20000;
+    public static final long LOCAL_SEARCH_MILLIS = 50;
 
     public static final int POPULATION_SIZE_IDX = 0;
     public static final int SECTOR_SIZE_IDX = 1;
@@ -77,7 +80,7 @@ public final class ParametrizationPhenotype {
         // mutation probabilities
         variables.add(EncodingUtils.newReal(PROBABILITY_LOWER_BOUND, PROBABILITY_UPPER_BOUND));
 
-        // variation operators (cx and mut)
+        // variation operators (cx, mut and local search)
         if (variables.size() != VARIATOR_IDX) { throw new IllegalStateException("Update variator idx"); }
         variables.add(EncodingUtils.newBinary(variationFactory.getNumberOfOperators()));
 
@@ -111,6 +114,9 @@ public final class ParametrizationPhenotype {
                 .filter(variationOpsVar::get)
                 .forEach(i -> variationOps.add(variationFactory.getCrossoverOperator(i, sectorSize)));
         if (variationOpsVar.get(3)) { variationOps.add(variationFactory.getMutationOperator(0, mutationProb)); }
+        if (variationOpsVar.get(5)) { variationOps.add(variationFactory.getMutationOperator(1, mutationProb)); }
+        // after the others, so it improves their offspring
+        if (variationOpsVar.get(4)) { variationOps.add(variationFactory.getLocalSearchOperator(LOCAL_SEARCH_MOVES, LOCAL_SEARCH_MILLIS)); }
 
         int archiveSize = (int) ((RealVariable) variables.get(ARCHIVE_SIZE_IDX)).getValue();
 
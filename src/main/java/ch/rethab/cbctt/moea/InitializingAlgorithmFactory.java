@@ -1,15 +1,25 @@
 package ch.rethab.cbctt.moea;
 
 import ch.rethab.cbctt.Logger;
+import ch.rethab.cbctt.RandomStreams;
 import ch.rethab.cbctt.StaticParameters;
 import ch.rethab.cbctt.ea.CbcttStaticParameters;
 import ch.rethab.cbctt.meta.ParametrizationPhenotype;
 import org.moeaframework.algorithm.SPEA2;
 import org.moeaframework.core.*;
+import org.moeaframework.core.comparator.ChainedComparator;
+import org.moeaframework.core.comparator.CrowdingComparator;
+import org.moeaframework.core.comparator.ParetoDominanceComparator;
+import org.moeaframework.core.operator.TournamentSelection;
 import org.moeaframework.core.spi.AlgorithmFactory;
 import org.moeaframework.util.TypedProperties;
+import org.moeaframework.util.distributed.AsyncNSGAII;
+import org.moeaframework.util.distributed.ParallelSPEA2;
 
 import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -21,9 +31,21 @@ public class InitializingAlgorithmFactory extends AlgorithmFactory {
 
     private final Variation variation;
 
+    /* random numbers of the operators. null if runs needn't be reproducible */
+    private final RandomStreams random;
+
     public InitializingAlgorithmFactory(StaticParameters staticParameters, Variation variation) {
+        this(staticParameters, variation, null);
+    }
+
+    /**
+     * The parallel algorithms derive their seed from the one of the random
+     * streams, so a run only depends on that seed.
+     */
+    public InitializingAlgorithmFactory(StaticParameters staticParameters, Variation variation, RandomStreams random) {
         this.staticParameters = staticParameters;
         this.variation = variation;
+        this.random = random;
     }
 
     @Override
@@ -31,6 +53,10 @@ public class InitializingAlgorithmFactory extends AlgorithmFactory {
         TypedProperties typedProps = new TypedProperties(properties);
         if (name.equals("SPEA2")) {
             return newSPEA2(typedProps, problem);
+        } else if (name.equals("ParallelSPEA2")) {
+            return newParallelSPEA2(typedProps, problem);
+        } else if (name.equals("AsyncNSGAII")) {
+            return newAsyncNSGAII(typedProps, problem);
         } else {
             throw new IllegalArgumentException("Unhandled Algorithm: " + name);
         }
@@ -43,6 +69,39 @@ public class InitializingAlgorithmFactory extends AlgorithmFactory {
         Initialization initialization = staticParameters.getInitializationFactory(problem).create(populationSize);
         return new SPEA2WithLogging(problem, initialization, variation, numberOfOffspring, k);
     }
+
+    private Algorithm newParallelSPEA2(TypedProperties properties, Problem problem) {
+        int populationSize = properties.getInt("populationSize", -1);
+        int numberOfOffspring =  properties.getInt("numberOfOffspring", -1);
+        int k = properties.getInt("k", -1);
+        int threads = properties.getInt("threads", Runtime.getRuntime().availableProcessors());
+        Initialization initialization = staticParameters.getInitializationFactory(problem).create(populationSize);
+        ParallelSPEA2 spea2;
+        if (random == null) {
+            spea2 = new ParallelSPEA2(problem, initialization, variation, numberOfOffspring, k, threads);
+        } else {
+            // mating selection and the seeds of the tasks are drawn from the same seed as the operators
+            spea2 = new ParallelSPEA2(problem, initialization, variation, numberOfOffspring, k, threads,
+                    new Random(random.getSeed()));
+            spea2.setTaskScope(RandomStreams::withSeed);
+        }
+        if (properties.getBoolean("removeDuplicates", false)) {
+            spea2.setDuplicateFilter(s -> ((VariableAdapter) s.getVariable(0)).getZobristHash());
+        }
+        return spea2;
+    }
+
+    private Algorithm newAsyncNSGAII(TypedProperties properties, Problem problem) {
+        int populationSize = properties.getInt("populationSize", -1);
+        int threads = properties.getInt("threads", Runtime.getRuntime().availableProcessors());
+        // variations that take longer are counted, but not dropped
+        int timeoutSeconds = properties.getInt("timeout", 10);
+        Initialization initialization = staticParameters.getInitializationFactory(problem).create(populationSize);
+        Selection selection = new TournamentSelection(2,
+                new ChainedComparator(new ParetoDominanceComparator(), new CrowdingComparator()));
+        return new AsyncNSGAII(problem, new NondominatedSortingPopulation(), null, selection, variation, initialization,
+                Executors.newFixedThreadPool(threads), threads, timeoutSeconds, TimeUnit.SECONDS);
+    }
 }
 
 class SPEA2WithLogging extends SPEA2 {
@@ -1,5 +1,6 @@
 package ch.rethab.cbctt.moea;
 
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 import ch.rethab.cbctt.formulation.Formulation;
 import org.moeaframework.core.Solution;
@@ -24,14 +25,50 @@ public class SolutionConverter implements Serializable {
         this.formulation = formulation;
     }
 
+    public Formulation getFormulation() {
+        return formulation;
+    }
+
     public Solution toSolution(TimetableWithRooms t) {
+        return toSolution(new VariableAdapter(t));
+    }
+
+    /**
+     * Converts a timetable that was derived from the parent solution. If the
+     * parent has been evaluated and compacted, the evaluator can compute the
+     * cost of the new solution incrementally.
+     */
+    public Solution toSolution(TimetableWithRooms t, Solution parent) {
+        VariableAdapter variable = new VariableAdapter(t);
+        VariableAdapter parentVariable = (VariableAdapter) parent.getVariable(0);
+        if (parentVariable.getCompact() != null && parentVariable.getCost() != null) {
+            variable.setParent(parentVariable.getCompact(), parentVariable.getCost());
+        }
+        return toSolution(variable);
+    }
+
+    public Solution toSolution(CompactTimetable t) {
+        return toSolution(new VariableAdapter(t));
+    }
+
+    /** Same as above for the flat encoding */
+    public Solution toSolution(CompactTimetable t, Solution parent) {
+        VariableAdapter variable = new VariableAdapter(t);
+        VariableAdapter parentVariable = (VariableAdapter) parent.getVariable(0);
+        if (parentVariable.getCompact() != null && parentVariable.getCost() != null) {
+            variable.setParent(parentVariable.getCompact(), parentVariable.getCost());
+        }
+        return toSolution(variable);
+    }
+
+    private Solution toSolution(VariableAdapter variable) {
         Solution s = new Solution(
             this.formulation.getNumberOfVariables(),
             this.formulation.getNumberOfObjectives(),
             this.formulation.getNumberOfConstraints()
         );
 
-        s.setVariable(0, new VariableAdapter(t));
+        s.setVariable(0, variable);
 
         return new PublicFutureSolution(s);
     }
@@ -40,4 +77,23 @@ public class SolutionConverter implements Serializable {
         Variable v = solution.getVariable(0);
         return ((VariableAdapter)v).getTimetable();
     }
+
+    /** the flat encoding of the solution or null if it hasn't been compacted */
+    public CompactTimetable compactFromSolution(Solution solution) {
+        Variable v = solution.getVariable(0);
+        return ((VariableAdapter)v).getCompact();
+    }
+
+    public VariableAdapter variableFromSolution(Solution solution) {
+        return (VariableAdapter) solution.getVariable(0);
+    }
+
+    /**
+     * Switches the solution to the flat encoding, so only the genome is kept
+     * while it sits in a population. See VariableAdapter#compact
+     */
+    public boolean compact(Solution solution) {
+        Variable v = solution.getVariable(0);
+        return ((VariableAdapter)v).compact();
+    }
 }
@@ -1,45 +1,135 @@
 package ch.rethab.cbctt.moea;
 
+import ch.rethab.cbctt.RandomStreams;
 import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.InitialPopulationCache;
+import ch.rethab.cbctt.ea.initializer.ParallelInitializer;
+import ch.rethab.cbctt.ea.initializer.SaturationInitializer;
 import ch.rethab.cbctt.ea.initializer.TeacherGreedyInitializer;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
 import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
-import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
 import ch.rethab.cbctt.formulation.Formulation;
 import org.moeaframework.core.Initialization;
 import org.moeaframework.core.Solution;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Adapter to the MOEA Framework Initializer. Essentially doing
  * the conversion from the cb-ctt initializer to the the one from
  * the MOEA framework.
  *
+ * With a cache, the timetables are taken from there first and only the
+ * remainder is created, which is then added to the cache.
+ *
  * @author Reto Habluetzel, 2015
  */
 public final class TimetableInitializationFactory implements InitializationFactory{
 
+    /** Which initializer creates the timetables */
+    public enum Strategy {
+        TEACHER_GREEDY,
+        SATURATION
+    }
+
     private final Specification spec;
 
     private final RoomAssigner roomAssigner;
 
     private final SolutionConverter solutionConverter;
 
+    private final RandomStreams random;
+
+    /* see TeacherGreedyInitializer */
+    private final int parallelism;
+    private final long timeBudgetMillis;
+
+    /* null to always create all timetables */
+    private final InitialPopulationCache cache;
+
+    private final Strategy strategy;
+
     public TimetableInitializationFactory(Specification spec, Formulation formulation, RoomAssigner roomAssigner) {
+        this(spec, formulation, roomAssigner, new RandomStreams());
+    }
+
+    public TimetableInitializationFactory(Specification spec, Formulation formulation, RoomAssigner roomAssigner,
+                                          RandomStreams random) {
+        this(spec, formulation, roomAssigner, random, Runtime.getRuntime().availableProcessors(), 0);
+    }
+
+    public TimetableInitializationFactory(Specification spec, Formulation formulation, RoomAssigner roomAssigner,
+                                          RandomStreams random, int parallelism, long timeBudgetMillis) {
+        this(spec, formulation, roomAssigner, random, parallelism, timeBudgetMillis, null);
+    }
+
+    public TimetableInitializationFactory(Specification spec, Formulation formulation, RoomAssigner roomAssigner,
+                                          RandomStreams random, int parallelism, long timeBudgetMillis,
+                                          InitialPopulationCache cache) {
+        this(spec, formulation, roomAssigner, random, parallelism, timeBudgetMillis, cache, Strategy.TEACHER_GREEDY);
+    }
+
+    public TimetableInitializationFactory(Specification spec, Formulation formulation, RoomAssigner roomAssigner,
+                                          RandomStreams random, int parallelism, long timeBudgetMillis,
+                                          InitialPopulationCache cache, Strategy strategy) {
+        this.strategy = strategy;
+        this.cache = cache;
+        this.random = random;
         this.spec = spec;
         this.roomAssigner = roomAssigner;
         this.solutionConverter = new SolutionConverter(formulation);
+        this.parallelism = parallelism;
+        this.timeBudgetMillis = timeBudgetMillis;
     }
 
     @Override
     public Initialization create(int populationSize) {
         return () -> {
-            TeacherGreedyInitializer teacherGreedyInitializer = new TeacherGreedyInitializer(spec, roomAssigner);
-            List<TimetableWithRooms> timetables = teacherGreedyInitializer.initialize(populationSize);
-            List<Solution> solutions = timetables.stream().map(solutionConverter::toSolution).collect(Collectors.toList());
-            return solutions.toArray(new Solution[populationSize]);
+            Solution[] solutions = new Solution[populationSize];
+            List<CompactTimetable> cached = cache == null ? Collections.emptyList() : cache.load(spec);
+            if (cached.size() > populationSize) {
+                cached = pick(cached, populationSize);
+            }
+            for (int i = 0; i < cached.size(); i++) {
+                solutions[i] = solutionConverter.toSolution(cached.get(i));
+            }
+
+            int missing = populationSize - cached.size();
+            if (missing > 0) {
+                int offset = cached.size();
+                ParallelInitializer initializer = newInitializer();
+                // converted while the remaining timetables are still being created
+                List<CompactTimetable> created = new ArrayList<>(missing);
+                initializer.initialize(missing, (t, i) -> {
+                    solutions[offset + i] = solutionConverter.toSolution(t);
+                    if (cache != null && CompactTimetable.isRepresentable(spec, t)) {
+                        created.add(CompactTimetable.fromWithRooms(spec, t));
+                    }
+                });
+                if (cache != null) {
+                    cache.store(spec, created);
+                }
+            }
+            return solutions;
         };
     }
 
+    private ParallelInitializer newInitializer() {
+        if (strategy == Strategy.SATURATION) {
+            return new SaturationInitializer(spec, roomAssigner, random, parallelism, timeBudgetMillis);
+        } else {
+            return new TeacherGreedyInitializer(spec, roomAssigner, random, parallelism, timeBudgetMillis);
+        }
+    }
+
+    /* n distinct timetables at random */
+    private List<CompactTimetable> pick(List<CompactTimetable> timetables, int n) {
+        List<CompactTimetable> shuffled = new ArrayList<>(timetables);
+        for (int i = 0; i < n; i++) {
+            Collections.swap(shuffled, i, i + random.current().nextInt(shuffled.size() - i));
+        }
+        return shuffled.subList(0, n);
+    }
 }
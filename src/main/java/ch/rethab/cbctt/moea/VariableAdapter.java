@@ -1,26 +1,117 @@
 package ch.rethab.cbctt.moea;
 
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
 import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.formulation.CostBreakdown;
 import org.moeaframework.core.Variable;
 
+import java.lang.ref.SoftReference;
+
 /**
+ * Carries a timetable either as object view (TimetableWithRooms) or in
+ * its flat encoding (CompactTimetable). Once compacted, the object view
+ * is only softly referenced and rebuilt from the genome on demand, which
+ * keeps the memory footprint of populations and archives small.
+ *
  * @author Reto Habluetzel, 2015
  */
 public class VariableAdapter implements Variable {
 
     private TimetableWithRooms timetable;
 
+    private CompactTimetable compact;
+
+    private transient SoftReference<TimetableWithRooms> cached;
+
+    /* cost of this timetable once evaluated */
+    private CostBreakdown cost;
+
+    /* genome and cost of the parent this one was derived from, until evaluated */
+    private CompactTimetable parent;
+    private CostBreakdown parentCost;
+
     public VariableAdapter(TimetableWithRooms timetable) {
         this.timetable = timetable;
     }
 
+    public VariableAdapter(CompactTimetable compact) {
+        this.compact = compact;
+    }
+
     @Override
     public Variable copy() {
         // copying the timetable is not required since it is unmodifiable
-        return new VariableAdapter(timetable);
+        VariableAdapter copy = new VariableAdapter(timetable);
+        copy.compact = compact;
+        copy.cached = cached;
+        copy.cost = cost;
+        copy.parent = parent;
+        copy.parentCost = parentCost;
+        return copy;
     }
 
     public TimetableWithRooms getTimetable() {
-        return this.timetable;
+        if (timetable != null) {
+            return timetable;
+        }
+        TimetableWithRooms t = cached == null ? null : cached.get();
+        if (t == null) {
+            t = compact.toTimetableWithRooms();
+            cached = new SoftReference<>(t);
+        }
+        return t;
+    }
+
+    public CostBreakdown getCost() {
+        return cost;
+    }
+
+    /** Sets the cost once evaluated. The parent isn't needed anymore then */
+    public void setCost(CostBreakdown cost) {
+        this.cost = cost;
+        this.parent = null;
+        this.parentCost = null;
+    }
+
+    /** Remembers an evaluated parent so the cost can be computed incrementally */
+    public void setParent(CompactTimetable parent, CostBreakdown parentCost) {
+        this.parent = parent;
+        this.parentCost = parentCost;
+    }
+
+    public CompactTimetable getParent() {
+        return parent;
+    }
+
+    public CostBreakdown getParentCost() {
+        return parentCost;
+    }
+
+    /** Zobrist hash of the timetable, the same for both encodings */
+    public long getZobristHash() {
+        return compact != null ? compact.getZobristHash() : timetable.getZobristHash();
+    }
+
+    /** flat encoding or null if this variable hasn't been compacted */
+    public CompactTimetable getCompact() {
+        return compact;
+    }
+
+    /**
+     * Replaces the object view by the flat encoding if the timetable can
+     * be represented by it. Returns whether the variable is compact now.
+     */
+    public boolean compact() {
+        if (compact == null) {
+            if (!CompactTimetable.isRepresentable(timetable.getSpecification(), timetable)) {
+                return false;
+            }
+            compact = CompactTimetable.fromWithRooms(timetable.getSpecification(), timetable);
+        }
+        if (timetable != null) {
+            cached = new SoftReference<>(timetable);
+            timetable = null;
+        }
+        return true;
     }
 }
@@ -1,5 +1,6 @@
 package ch.rethab.cbctt.moea;
 
+import ch.rethab.cbctt.RandomStreams;
 import ch.rethab.cbctt.domain.Specification;
 import ch.rethab.cbctt.ea.op.*;
 import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
@@ -17,31 +18,52 @@ public class VariationFactory implements Serializable {
 
     private final RoomAssigner roomAssigner;
 
+    /* shared by all operators created here */
+    private final RandomStreams random;
+
     public VariationFactory(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner) {
+        this(spec, solutionConverter, roomAssigner, new RandomStreams());
+    }
+
+    public VariationFactory(Specification spec, SolutionConverter solutionConverter, RoomAssigner roomAssigner,
+                            RandomStreams random) {
+        this.random = random;
         this.spec = spec;
         this.solutionConverter = solutionConverter;
         this.roomAssigner = roomAssigner;
     }
 
+    public RandomStreams getRandomStreams() {
+        return random;
+    }
+
     public int getNumberOfOperators() {
-        return 4;
+        return 6;
     }
 
     public CbcttVariation getMutationOperator(int idx, double mutationProbability) {
         if (idx == 0) {
-            return new CourseBasedMutation(spec, solutionConverter, roomAssigner, mutationProbability);
+            return new CourseBasedMutation(spec, solutionConverter, roomAssigner, mutationProbability, random);
+        } else if (idx == 1) {
+            return new KempeChainMutation(spec, solutionConverter, mutationProbability, random);
         } else {
-            throw new IllegalArgumentException("There is only one mutation operator");
+            throw new IllegalArgumentException("There aren't that many mutation operators");
         }
     }
 
+    /** Local search for the offspring, must be the last operator (see HillClimbing) */
+    public CbcttVariation getLocalSearchOperator(int moveBudget, long timeBudgetMillis) {
+        return new HillClimbing(spec, solutionConverter, moveBudget, timeBudgetMillis, random);
+    }
+
+    /** The crossovers repair their children instead of restarting (see AbstractLessonBasedCrossover) */
     public CbcttVariation getCrossoverOperator(int i, int sectorSize) {
         if (i == 0){
-            return new CourseBasedCrossover(spec, solutionConverter, roomAssigner);
+            return new CourseBasedCrossover(spec, solutionConverter, roomAssigner, random, true);
         } else if (i == 1) {
-            return new CurriculumBasedCrossover(spec, solutionConverter, roomAssigner);
+            return new CurriculumBasedCrossover(spec, solutionConverter, roomAssigner, random, true);
         } else if (i == 2) {
-            return new SectorBasedCrossover(spec, solutionConverter, roomAssigner, sectorSize);
+            return new SectorBasedCrossover(spec, solutionConverter, roomAssigner, sectorSize, random, true);
         } else {
             throw new IllegalArgumentException("There aren't that many crossover operators");
         }
@@ -0,0 +1,201 @@
+package ch.rethab.cbctt.sa;
+
+import ch.rethab.cbctt.Logger;
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.Initializer;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.formulation.Formulation;
+import ch.rethab.cbctt.formulation.IncrementalUD1Evaluation;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single solution solver for when one timetable that is good by the
+ * weighted sum of the UD1 objectives (see Objective#penalty) is enough,
+ * e.g. to get a schedule quickly.
+ *
+ * Starts from a feasible timetable of the initializer and only makes moves
+ * that keep it feasible: a lecture is moved to a free room, swapped with
+ * another lecture or its kempe chain is swapped with another slot. Moves
+ * are evaluated incrementally (see IncrementalUD1Evaluation), so apart
+ * from the start nothing is allocated.
+ *
+ * A worse timetable is accepted with probability exp(-delta/temperature).
+ * The start temperature is chosen so that about half of the worsening
+ * moves are accepted. It is lowered geometrically and once it gets too low
+ * to accept anything, it is raised again (reheating) to leave the local
+ * optimum. The best timetable seen until the wall-clock budget (or the
+ * number of moves) is used up is returned.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class SimulatedAnnealing {
+
+    private static final double KEMPE_PROBABILITY = 0.1;
+
+    private static final double COOLING = 0.99;
+
+    /* below, even a cost increase of one is practically never accepted */
+    private static final double MIN_TEMPERATURE = 0.05;
+
+    /* fraction of the start temperature used for reheating */
+    private static final double REHEAT = 0.5;
+
+    /* moves per temperature, relative to the number of lectures */
+    private static final int MOVES_PER_LECTURE = 5;
+
+    private static final int TEMPERATURE_SAMPLES = 1000;
+
+    /* the clock is only looked at every so many moves */
+    private static final int MOVES_PER_TIME_CHECK = 1024;
+
+    private final Specification spec;
+
+    private final Initializer initializer;
+
+    private final RandomStreams random;
+
+    private final int[] weights;
+
+    /* moves of the last run */
+    private long moves;
+    private int reheats;
+
+    public SimulatedAnnealing(Specification spec, UD1Formulation formulation, Initializer initializer, RandomStreams random) {
+        if (!IncrementalUD1Evaluation.supports(spec.getCompiled())) {
+            throw new IllegalArgumentException("Instance has too many periods per day");
+        }
+        this.spec = spec;
+        this.initializer = initializer;
+        this.random = random;
+        Formulation.Objective[] objectives = formulation.getObjectives();
+        this.weights = new int[objectives.length];
+        for (int i = 0; i < objectives.length; i++) {
+            weights[i] = objectives[i].penalty;
+        }
+    }
+
+    /** Best timetable found within the budget */
+    public TimetableWithRooms solve(long budgetMillis) {
+        return solve(budgetMillis, Long.MAX_VALUE);
+    }
+
+    /**
+     * Best timetable found within the budget or the number of moves,
+     * whichever is used up first. With a budget that doesn't run out, the
+     * result only depends on the seeds, not on the speed of the machine.
+     */
+    public TimetableWithRooms solve(long budgetMillis, long maxMoves) {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        CompiledSpecification compiled = spec.getCompiled();
+        SplittableRandom rand = random.current();
+
+        CompactTimetable start = CompactTimetable.fromWithRooms(spec, initializer.initialize(1).get(0));
+        IncrementalUD1Evaluation state = new IncrementalUD1Evaluation(compiled, start.getGenes());
+        int[] delta = new int[IncrementalUD1Evaluation.NUMBER_OF_OBJECTIVES];
+
+        long cost = weighted(state.objectiveViolations());
+        long bestCost = cost;
+        int[] best = start.getGenes();
+        double startTemperature = startTemperature(state, rand, delta);
+        double temperature = startTemperature;
+        int movesPerTemperature = MOVES_PER_LECTURE * Math.max(1, state.getNumberOfLectures());
+
+        moves = 0;
+        reheats = 0;
+        int atTemperature = 0;
+        while (bestCost > 0 && moves < maxMoves && (moves % MOVES_PER_TIME_CHECK != 0 || System.nanoTime() - end < 0)) {
+            moves++;
+            if (++atTemperature == movesPerTemperature) {
+                atTemperature = 0;
+                temperature *= COOLING;
+                if (temperature < MIN_TEMPERATURE) {
+                    temperature = startTemperature * REHEAT;
+                    reheats++;
+                }
+            }
+
+            if (!randomMove(state, rand, delta)) {
+                continue;
+            }
+            int d = weighted(delta);
+            if (d <= 0 || rand.nextDouble() < Math.exp(-d / temperature)) {
+                cost += d;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    state.copyGenes(best);
+                }
+            } else {
+                state.undo(delta);
+            }
+        }
+
+        Logger.gibber(String.format("Annealing: cost %d after %d moves and %d reheats", bestCost, moves, reheats));
+        return CompactTimetable.fromGenes(spec, best).toTimetableWithRooms();
+    }
+
+    /** Moves tried in the last run */
+    public long getMoves() {
+        return moves;
+    }
+
+    public int getReheats() {
+        return reheats;
+    }
+
+    /* makes a random move that keeps the timetable feasible. returns false if it didn't fit */
+    private boolean randomMove(IncrementalUD1Evaluation state, SplittableRandom rand, int[] delta) {
+        int lecture = rand.nextInt(state.getNumberOfLectures());
+        if (state.getGene(lecture) == CompactTimetable.UNSCHEDULED) {
+            return false;
+        }
+        if (rand.nextDouble() < KEMPE_PROBABILITY) {
+            return state.kempeSwap(lecture, rand.nextInt(spec.getCompiled().getNumberOfSlots()), delta);
+        }
+
+        int gene = rand.nextInt(state.getNumberOfGenes());
+        int other = state.getLectureAt(gene);
+        if (other == IncrementalUD1Evaluation.FREE) {
+            if (!state.fits(lecture, gene, other)) {
+                return false;
+            }
+            state.move(lecture, gene, delta);
+            return true;
+        } else if (other >= 0 && other != lecture && !state.sameCourse(lecture, other)
+                && state.fits(lecture, gene, other) && state.fits(other, state.getGene(lecture), lecture)) {
+            state.swap(lecture, other, delta);
+            return true;
+        }
+        return false;
+    }
+
+    /* so that about half of the worsening moves are accepted at first */
+    private double startTemperature(IncrementalUD1Evaluation state, SplittableRandom rand, int[] delta) {
+        long sum = 0;
+        int worse = 0;
+        for (int i = 0; i < TEMPERATURE_SAMPLES; i++) {
+            if (randomMove(state, rand, delta)) {
+                int d = weighted(delta);
+                if (d > 0) {
+                    sum += d;
+                    worse++;
+                }
+                state.undo(delta);
+            }
+        }
+        return worse == 0 ? 1 : Math.max(1, (double) sum / worse / Math.log(2));
+    }
+
+    private int weighted(int[] violations) {
+        int cost = 0;
+        for (int i = 0; i < weights.length; i++) {
+            cost += weights[i] * violations[i];
+        }
+        return cost;
+    }
+}
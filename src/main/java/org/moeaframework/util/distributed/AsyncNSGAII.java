@@ -0,0 +1,270 @@
+package org.moeaframework.util.distributed;
+
+import org.moeaframework.algorithm.AbstractEvolutionaryAlgorithm;
+import org.moeaframework.core.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Asynchronous steady-state NSGA-II. Each worker repeatedly selects
+ * parents, creates and evaluates their offspring and inserts them into
+ * the shared non-dominated sorting population, which is then truncated
+ * to its size again. There is no generation barrier, so a slow crossover
+ * only holds up its own worker.
+ *
+ * A step waits until as many variations as make up a generation have
+ * completed and then publishes a snapshot of the shared population as
+ * the population of the algorithm. The workers keep running in between
+ * until the algorithm is terminated. Because the order of the insertions
+ * depends on the scheduling, runs are not reproducible.
+ *
+ * Variations that throw are counted as failures, variations that take
+ * longer than the timeout as timeouts. A timeout is counted as soon as a
+ * waiting step notices it, even if the variation never returns. The
+ * offspring of slow variations are still inserted. On termination, the
+ * workers get at most the timeout to finish and are interrupted after.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class AsyncNSGAII extends AbstractEvolutionaryAlgorithm {
+
+    private final Selection selection;
+
+    private final Variation variation;
+
+    private final ExecutorService executorService;
+
+    private final int numberOfWorkers;
+
+    private final long timeoutNanos;
+
+    /* the population the workers insert into. all access synchronized on it */
+    private final NondominatedSortingPopulation shared = new NondominatedSortingPopulation();
+
+    /* guarded by shared */
+    private int completedVariations;
+    private int workerEvaluations;
+
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger timeouts = new AtomicInteger();
+    private volatile Throwable lastFailure;
+
+    /* start of the variation per worker, IDLE between variations and COUNTED once its timeout is counted */
+    private static final long IDLE = Long.MIN_VALUE;
+    private static final long COUNTED = Long.MAX_VALUE;
+    private final AtomicLongArray variationStarts;
+
+    private final List<Future<?>> workers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    /* guarded by shared. set once terminate stopped waiting for the workers */
+    private boolean terminated;
+
+    private int populationSize;
+
+    /* evaluations of initialization plus completed variations at the end of the last step */
+    private int initialEvaluations;
+    private int variationsAtLastStep;
+
+    public AsyncNSGAII(Problem problem, NondominatedSortingPopulation population, EpsilonBoxDominanceArchive archive,
+                       Selection selection, Variation variation, Initialization initialization,
+                       ExecutorService executorService, int numberOfWorkers, long timeout, TimeUnit unit) {
+        super(problem, population, archive, initialization);
+        if (numberOfWorkers < 1) {
+            throw new IllegalArgumentException("At least one worker is required: " + numberOfWorkers);
+        }
+        this.selection = selection;
+        this.variation = variation;
+        this.executorService = executorService;
+        this.numberOfWorkers = numberOfWorkers;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.variationStarts = new AtomicLongArray(numberOfWorkers);
+        for (int i = 0; i < numberOfWorkers; i++) {
+            variationStarts.set(i, IDLE);
+        }
+    }
+
+    @Override
+    public NondominatedSortingPopulation getPopulation() {
+        return (NondominatedSortingPopulation) super.getPopulation();
+    }
+
+    @Override
+    public EpsilonBoxDominanceArchive getArchive() {
+        return (EpsilonBoxDominanceArchive) super.getArchive();
+    }
+
+    /** Number of variations (including evaluation of the offspring) that threw */
+    public int getNumberOfFailures() {
+        return failures.get();
+    }
+
+    /** Number of variations (including evaluation of the offspring) that took longer than the timeout */
+    public int getNumberOfTimeouts() {
+        return timeouts.get();
+    }
+
+    /** Exception of the last failed variation or null */
+    public Throwable getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    protected void initialize() {
+        super.initialize();
+        NondominatedSortingPopulation population = getPopulation();
+        populationSize = population.size();
+        initialEvaluations = numberOfEvaluations;
+        synchronized (shared) {
+            shared.addAll(population);
+            shared.truncate(populationSize);
+        }
+    }
+
+    @Override
+    protected void iterate() {
+        if (!running) {
+            running = true;
+            for (int i = 0; i < numberOfWorkers; i++) {
+                int worker = i;
+                workers.add(executorService.submit(() -> work(worker)));
+            }
+        }
+
+        // assuming the arity is also the number of kids
+        int variationsPerStep = (populationSize + variation.getArity() - 1) / variation.getArity();
+        synchronized (shared) {
+            while (completedVariations < variationsAtLastStep + variationsPerStep) {
+                checkWorkers();
+                countTimeouts();
+                try {
+                    shared.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new FrameworkException("Interrupted while waiting for offspring", e);
+                }
+            }
+            variationsAtLastStep = completedVariations;
+            publish();
+        }
+    }
+
+    private void work(int worker) {
+        while (running) {
+            Solution[] parents;
+            synchronized (shared) {
+                parents = selection.select(variation.getArity(), shared);
+            }
+
+            long start = System.nanoTime();
+            variationStarts.set(worker, start);
+            Solution[] children;
+            try {
+                children = variation.evolve(parents);
+                for (Solution child : children) {
+                    problem.evaluate(child);
+                }
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                lastFailure = e;
+                children = new Solution[0];
+            }
+            // unless a step already counted it while the variation was running
+            if (variationStarts.getAndSet(worker, IDLE) == start && System.nanoTime() - start > timeoutNanos) {
+                timeouts.incrementAndGet();
+            }
+
+            synchronized (shared) {
+                if (terminated) {
+                    return;
+                }
+                shared.addAll(children);
+                shared.truncate(populationSize);
+                if (getArchive() != null) {
+                    getArchive().addAll(children);
+                }
+                workerEvaluations += children.length;
+                completedVariations++;
+                shared.notifyAll();
+            }
+        }
+    }
+
+    /* fails instead of waiting forever if no worker is left */
+    private void checkWorkers() {
+        for (Future<?> worker : workers) {
+            if (!worker.isDone()) {
+                return;
+            }
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw new FrameworkException("All workers died", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new FrameworkException("All workers stopped");
+    }
+
+    /* counts the variations that are still running but already took longer than the timeout */
+    private void countTimeouts() {
+        long now = System.nanoTime();
+        for (int i = 0; i < numberOfWorkers; i++) {
+            long start = variationStarts.get(i);
+            if (start != IDLE && start != COUNTED && now - start > timeoutNanos
+                    && variationStarts.compareAndSet(i, start, COUNTED)) {
+                timeouts.incrementAndGet();
+            }
+        }
+    }
+
+    /* guarded by shared */
+    private void publish() {
+        NondominatedSortingPopulation population = getPopulation();
+        population.clear();
+        population.addAll(shared);
+        numberOfEvaluations = initialEvaluations + workerEvaluations;
+    }
+
+    @Override
+    public void terminate() {
+        running = false;
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (Future<?> worker : workers) {
+            try {
+                worker.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // already reported by the step that noticed it
+            } catch (TimeoutException e) {
+                // deadline is over, the remaining ones are cancelled below
+            }
+        }
+        countTimeouts();
+        for (Future<?> worker : workers) {
+            worker.cancel(true);
+        }
+        synchronized (shared) {
+            terminated = true;
+            if (isInitialized()) {
+                publish();
+            }
+        }
+        executorService.shutdown();
+        super.terminate();
+    }
+}
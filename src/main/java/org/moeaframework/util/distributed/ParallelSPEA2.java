@@ -0,0 +1,244 @@
+package org.moeaframework.util.distributed;
+
+import org.moeaframework.algorithm.AbstractEvolutionaryAlgorithm;
+import org.moeaframework.core.*;
+import org.moeaframework.core.comparator.ParetoDominanceComparator;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * SPEA2 which creates and evaluates the offspring of a generation in
+ * parallel. The parents are selected up front, then each call to
+ * {@link Variation#evolve} together with the evaluation of its children
+ * is a task on the pool. Mating and environmental selection happen on the
+ * calling thread and the children are collected in the order the parents
+ * were selected. Hence, for a fixed seed, a run only depends on the
+ * operators, not on how the tasks were scheduled. If the operators draw
+ * their random numbers from a source of their own, a {@link TaskScope}
+ * (see {@link #setTaskScope}) can hand each task a seed drawn on the
+ * calling thread.
+ *
+ * Environmental selection is done by {@link SPEA2Selection}, which keeps
+ * the distances between the survivors across generations.
+ *
+ * Other populations may hand over evaluated solutions at any time (see
+ * {@link #immigrate}), they compete with the offspring of the next
+ * generation.
+ *
+ * Optionally, duplicates are removed before environmental selection (see
+ * {@link #setDuplicateFilter}), so they neither take up several places in
+ * the population nor distort the density estimate.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class ParallelSPEA2 extends AbstractEvolutionaryAlgorithm {
+
+    /** Runs a task, e.g. with random numbers derived from the seed */
+    public interface TaskScope {
+        <T> T run(long seed, Supplier<T> task);
+    }
+
+    private final Variation variation;
+
+    private final int numberOfOffspring;
+
+    private final ForkJoinPool pool;
+
+    /* whether the pool was created here and is shut down on terminate */
+    private final boolean ownsPool;
+
+    private final SPEA2Selection selection;
+
+    /* mating selection uses PRNG if there is no random of its own */
+    private final Random random;
+
+    private final Queue<Solution> immigrants = new ConcurrentLinkedQueue<>();
+
+    /* fingerprint of a solution for removing duplicates, null to keep them */
+    private ToLongFunction<Solution> fingerprint;
+
+    private int numberOfDuplicates;
+
+    /* null to run the tasks as they are */
+    private TaskScope taskScope;
+
+    /* fitness of the solutions in the population, same order */
+    private double[] fitness;
+
+    private int populationSize;
+
+    /** Runs the tasks on a pool of its own, which is shut down on terminate */
+    public ParallelSPEA2(Problem problem, Initialization initialization, Variation variation,
+                         int numberOfOffspring, int k, int threads) {
+        this(problem, initialization, variation, numberOfOffspring, k, threads, null);
+    }
+
+    /** Runs the tasks on a pool of its own, which is shut down on terminate */
+    public ParallelSPEA2(Problem problem, Initialization initialization, Variation variation,
+                         int numberOfOffspring, int k, int threads, Random random) {
+        this(problem, initialization, variation, numberOfOffspring, k, new ForkJoinPool(threads), true, random);
+    }
+
+    /** Runs the tasks on the pool of the caller, which is not shut down on terminate (e.g. shared by islands) */
+    public ParallelSPEA2(Problem problem, Initialization initialization, Variation variation,
+                         int numberOfOffspring, int k, ForkJoinPool pool, Random random) {
+        this(problem, initialization, variation, numberOfOffspring, k, pool, false, random);
+    }
+
+    private ParallelSPEA2(Problem problem, Initialization initialization, Variation variation,
+                          int numberOfOffspring, int k, ForkJoinPool pool, boolean ownsPool, Random random) {
+        super(problem, new Population(), null, initialization);
+        this.variation = variation;
+        this.numberOfOffspring = numberOfOffspring;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.random = random;
+        this.selection = new SPEA2Selection(k, new ParetoDominanceComparator());
+    }
+
+    /** Adds an evaluated solution to the candidates of the next environmental selection. Thread-safe */
+    public void immigrate(Solution solution) {
+        immigrants.add(solution);
+    }
+
+    /**
+     * Solutions with the same fingerprint (e.g. a hash of the decision
+     * variables) are considered duplicates. Of those, only the first is
+     * kept for environmental selection, which prefers the population over
+     * offspring and immigrants.
+     */
+    public void setDuplicateFilter(ToLongFunction<Solution> fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Initialization and every variation task are run within the scope.
+     * The seeds are drawn in order from the random of the algorithm.
+     */
+    public void setTaskScope(TaskScope taskScope) {
+        this.taskScope = taskScope;
+    }
+
+    /** Number of duplicates removed so far */
+    public int getNumberOfDuplicates() {
+        return numberOfDuplicates;
+    }
+
+    @Override
+    protected void initialize() {
+        if (taskScope == null) {
+            super.initialize();
+        } else {
+            taskScope.run(nextLong(), () -> {
+                super.initialize();
+                return null;
+            });
+        }
+        Population population = getPopulation();
+        populationSize = population.size();
+        select(population, populationSize);
+    }
+
+    @Override
+    protected void iterate() {
+        Population population = getPopulation();
+        Population offspring = new Population();
+
+        while (offspring.size() < numberOfOffspring) {
+            // assuming the arity is also the number of kids
+            int tuples = (numberOfOffspring - offspring.size() + variation.getArity() - 1) / variation.getArity();
+            List<ForkJoinTask<Solution[]>> tasks = new ArrayList<>(tuples);
+            for (int i = 0; i < tuples; i++) {
+                Solution[] parents = selectParents(variation.getArity());
+                if (taskScope == null) {
+                    tasks.add(pool.submit(() -> evolveAndEvaluate(parents)));
+                } else {
+                    long seed = nextLong();
+                    tasks.add(pool.submit(() -> taskScope.run(seed, () -> evolveAndEvaluate(parents))));
+                }
+            }
+            for (ForkJoinTask<Solution[]> task : tasks) {
+                Solution[] children = task.join();
+                numberOfEvaluations += children.length;
+                offspring.addAll(children);
+            }
+        }
+
+        Population combined = new Population(population);
+        combined.addAll(offspring);
+        Solution immigrant;
+        while ((immigrant = immigrants.poll()) != null) {
+            combined.add(immigrant);
+        }
+        if (fingerprint != null) {
+            combined = removeDuplicates(combined);
+        }
+        select(combined, populationSize);
+    }
+
+    private Population removeDuplicates(Population candidates) {
+        Set<Long> seen = new HashSet<>(candidates.size() * 2);
+        Population unique = new Population();
+        for (Solution candidate : candidates) {
+            if (seen.add(fingerprint.applyAsLong(candidate))) {
+                unique.add(candidate);
+            } else {
+                numberOfDuplicates++;
+            }
+        }
+        return unique;
+    }
+
+    private Solution[] evolveAndEvaluate(Solution[] parents) {
+        Solution[] children = variation.evolve(parents);
+        for (Solution child : children) {
+            problem.evaluate(child);
+        }
+        return children;
+    }
+
+    /* binary tournaments on the fitness */
+    private Solution[] selectParents(int arity) {
+        Population population = getPopulation();
+        Solution[] parents = new Solution[arity];
+        for (int i = 0; i < arity; i++) {
+            int a = nextInt(population.size());
+            int b = nextInt(population.size());
+            parents[i] = population.get(fitness[b] < fitness[a] ? b : a);
+        }
+        return parents;
+    }
+
+    private int nextInt(int n) {
+        return random == null ? PRNG.nextInt(n) : random.nextInt(n);
+    }
+
+    private long nextLong() {
+        return random == null ? PRNG.getRandom().nextLong() : random.nextLong();
+    }
+
+    /** Replaces the population with the size best of the candidates */
+    private void select(Population candidates, int size) {
+        Solution[] solutions = new Solution[candidates.size()];
+        for (int i = 0; i < solutions.length; i++) {
+            solutions[i] = candidates.get(i);
+        }
+        Population population = getPopulation();
+        population.clear();
+        population.addAll(selection.select(solutions, size));
+        fitness = selection.getFitness();
+    }
+
+    @Override
+    public void terminate() {
+        super.terminate();
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package org.moeaframework.util.distributed;
+
+import org.moeaframework.core.Solution;
+import org.moeaframework.core.comparator.DominanceComparator;
+
+/**
+ * Fitness assignment and environmental selection of SPEA2 (Zitzler et al).
+ * The fitness is the raw fitness (strength of the dominators) plus the
+ * density (1 / (distance to the k-th nearest neighbour + 2)). Selection
+ * keeps the non-dominated solutions, fills up with the fittest dominated
+ * ones or truncates by iteratively removing the solution with the
+ * lexicographically smallest distances to the others.
+ *
+ * The distances, the dominance relation and the neighbours sorted by
+ * distance of the survivors are kept for the next call. If the candidates
+ * start with the survivors of the last call (population before offspring),
+ * only the pairs with an offspring are computed and the new neighbours are
+ * merged into the sorted lists. Truncation walks the sorted lists, so a
+ * step is linear unless many solutions are equally close to their
+ * neighbours (duplicates).
+ *
+ * @author Reto Habluetzel, 2015
+ */
+final class SPEA2Selection {
+
+    private final int k;
+
+    private final DominanceComparator comparator;
+
+    /* state of the survivors of the last selection */
+    private Solution[] solutions = new Solution[0];
+    private double[] distances = new double[0];
+    private boolean[] dominates = new boolean[0];
+    private int[][] neighbours = new int[0][];
+
+    /* fitness of the survivors, same order */
+    private double[] fitness = new double[0];
+
+    SPEA2Selection(int k, DominanceComparator comparator) {
+        this.k = Math.max(1, k);
+        this.comparator = comparator;
+    }
+
+    /** Returns the size best of the candidates. See getFitness for their fitness */
+    Solution[] select(Solution[] candidates, int size) {
+        int n = candidates.length;
+        int reused = reusablePrefix(candidates);
+
+        double[] dist = new double[n * n];
+        boolean[] dom = new boolean[n * n];
+        int[][] sorted = new int[n][];
+        int old = solutions.length;
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (j < reused) {
+                    dist[i * n + j] = distances[i * old + j];
+                    dom[i * n + j] = dominates[i * old + j];
+                    dom[j * n + i] = dominates[j * old + i];
+                } else {
+                    double d = distance(candidates[i], candidates[j]);
+                    dist[i * n + j] = d;
+                    int cmp = comparator.compare(candidates[i], candidates[j]);
+                    dom[i * n + j] = cmp < 0;
+                    dom[j * n + i] = cmp > 0;
+                }
+                dist[j * n + i] = dist[i * n + j];
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (i < reused) {
+                sorted[i] = merge(neighbours[i], reused, n, dist, i);
+            } else {
+                int[] others = new int[n - 1];
+                for (int j = 0, idx = 0; j < n; j++) {
+                    if (j != i) {
+                        others[idx++] = j;
+                    }
+                }
+                sortByKey(others, 0, others.length, dist, i * n, new int[others.length]);
+                sorted[i] = others;
+            }
+        }
+
+        double[] candidateFitness = computeFitness(n, dist, dom, sorted);
+
+        boolean[] selected = new boolean[n];
+        int nSelected = 0;
+        for (int i = 0; i < n; i++) {
+            if (candidateFitness[i] < 1) {
+                selected[i] = true;
+                nSelected++;
+            }
+        }
+
+        if (nSelected < size) {
+            int[] dominated = new int[n - nSelected];
+            for (int i = 0, idx = 0; i < n; i++) {
+                if (!selected[i]) {
+                    dominated[idx++] = i;
+                }
+            }
+            sortByKey(dominated, 0, dominated.length, candidateFitness, 0, new int[dominated.length]);
+            for (int i = 0; i < dominated.length && nSelected < size; i++) {
+                selected[dominated[i]] = true;
+                nSelected++;
+            }
+        } else {
+            truncate(selected, nSelected, size, n, dist, sorted);
+        }
+
+        keep(candidates, selected, dist, dom, sorted, candidateFitness);
+        return solutions.clone();
+    }
+
+    /** Fitness of the solutions returned by the last call to select, same order */
+    double[] getFitness() {
+        return fitness.clone();
+    }
+
+    /* how many of the candidates are the survivors of the last call, in the same order */
+    private int reusablePrefix(Solution[] candidates) {
+        int reused = 0;
+        while (reused < solutions.length && reused < candidates.length && candidates[reused] == solutions[reused]) {
+            reused++;
+        }
+        // the cached neighbours only contain survivors, so all of them need to be there
+        return reused == solutions.length ? reused : 0;
+    }
+
+    private double[] computeFitness(int n, double[] dist, boolean[] dom, int[][] sorted) {
+        int[] strength = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (dom[i * n + j]) {
+                    strength[i]++;
+                }
+            }
+        }
+
+        double[] fitness = new double[n];
+        for (int i = 0; i < n; i++) {
+            int raw = 0;
+            for (int j = 0; j < n; j++) {
+                if (dom[j * n + i]) {
+                    raw += strength[j];
+                }
+            }
+            double kth = n > 1 ? dist[i * n + sorted[i][Math.min(k, n - 1) - 1]] : 0;
+            fitness[i] = raw + 1.0 / (kth + 2.0);
+        }
+        return fitness;
+    }
+
+    /* removes the solution closest to the others until size are left */
+    private static void truncate(boolean[] selected, int nSelected, int size, int n, double[] dist, int[][] sorted) {
+        // per solution: position of the nearest selected neighbour in its sorted list
+        int[] nearest = new int[n];
+        int[] ties = new int[n];
+
+        while (nSelected > size) {
+            double min = Double.POSITIVE_INFINITY;
+            int nTies = 0;
+            for (int i = 0; i < n; i++) {
+                if (!selected[i]) {
+                    continue;
+                }
+                int[] list = sorted[i];
+                while (!selected[list[nearest[i]]]) {
+                    nearest[i]++;
+                }
+                double d = dist[i * n + list[nearest[i]]];
+                if (d < min) {
+                    min = d;
+                    nTies = 0;
+                }
+                if (d == min) {
+                    ties[nTies++] = i;
+                }
+            }
+
+            int worst = ties[0];
+            for (int t = 1; t < nTies; t++) {
+                if (compareNeighbours(ties[t], worst, nearest, selected, n, dist, sorted) < 0) {
+                    worst = ties[t];
+                }
+            }
+            selected[worst] = false;
+            nSelected--;
+        }
+    }
+
+    /* compares the distances to the selected neighbours lexicographically */
+    private static int compareNeighbours(int a, int b, int[] nearest, boolean[] selected, int n, double[] dist, int[][] sorted) {
+        int[] la = sorted[a];
+        int[] lb = sorted[b];
+        int ia = nearest[a];
+        int ib = nearest[b];
+        while (true) {
+            while (ia < la.length && !selected[la[ia]]) {
+                ia++;
+            }
+            while (ib < lb.length && !selected[lb[ib]]) {
+                ib++;
+            }
+            if (ia == la.length || ib == lb.length) {
+                return 0;
+            }
+            int cmp = Double.compare(dist[a * n + la[ia]], dist[b * n + lb[ib]]);
+            if (cmp != 0) {
+                return cmp;
+            }
+            ia++;
+            ib++;
+        }
+    }
+
+    /* remembers the selected solutions, with the neighbour lists reduced to them */
+    private void keep(Solution[] candidates, boolean[] selected, double[] dist, boolean[] dom, int[][] sorted, double[] candidateFitness) {
+        int n = candidates.length;
+        int[] newIdx = new int[n];
+        int s = 0;
+        for (int i = 0; i < n; i++) {
+            newIdx[i] = selected[i] ? s++ : -1;
+        }
+
+        solutions = new Solution[s];
+        fitness = new double[s];
+        distances = new double[s * s];
+        dominates = new boolean[s * s];
+        neighbours = new int[s][];
+        for (int i = 0; i < n; i++) {
+            int ni = newIdx[i];
+            if (ni == -1) {
+                continue;
+            }
+            solutions[ni] = candidates[i];
+            fitness[ni] = candidateFitness[i];
+            int[] list = new int[s - 1];
+            int idx = 0;
+            for (int j : sorted[i]) {
+                if (newIdx[j] != -1) {
+                    list[idx++] = newIdx[j];
+                }
+            }
+            neighbours[ni] = list;
+            for (int j = 0; j < n; j++) {
+                if (newIdx[j] != -1) {
+                    distances[ni * s + newIdx[j]] = dist[i * n + j];
+                    dominates[ni * s + newIdx[j]] = dom[i * n + j];
+                }
+            }
+        }
+    }
+
+    /* the cached neighbours of a survivor merged with the new candidates from first to n */
+    private static int[] merge(int[] cached, int first, int n, double[] dist, int i) {
+        int[] added = new int[n - first];
+        for (int j = first; j < n; j++) {
+            added[j - first] = j;
+        }
+        sortByKey(added, 0, added.length, dist, i * n, new int[added.length]);
+
+        int[] merged = new int[cached.length + added.length];
+        int a = 0, b = 0, m = 0;
+        while (a < cached.length && b < added.length) {
+            merged[m++] = lessOrEqual(cached[a], added[b], dist, i * n) ? cached[a++] : added[b++];
+        }
+        while (a < cached.length) {
+            merged[m++] = cached[a++];
+        }
+        while (b < added.length) {
+            merged[m++] = added[b++];
+        }
+        return merged;
+    }
+
+    /* merge sort of the indices by keys[offset + index], ties by index so the order is deterministic */
+    private static void sortByKey(int[] idx, int from, int to, double[] keys, int offset, int[] tmp) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sortByKey(idx, from, mid, keys, offset, tmp);
+        sortByKey(idx, mid, to, keys, offset, tmp);
+        int a = from, b = mid, m = from;
+        while (a < mid && b < to) {
+            tmp[m++] = lessOrEqual(idx[a], idx[b], keys, offset) ? idx[a++] : idx[b++];
+        }
+        while (a < mid) {
+            tmp[m++] = idx[a++];
+        }
+        while (b < to) {
+            tmp[m++] = idx[b++];
+        }
+        System.arraycopy(tmp, from, idx, from, to - from);
+    }
+
+    private static boolean lessOrEqual(int a, int b, double[] keys, int offset) {
+        int cmp = Double.compare(keys[offset + a], keys[offset + b]);
+        return cmp < 0 || (cmp == 0 && a <= b);
+    }
+
+    private static double distance(Solution a, Solution b) {
+        double sum = 0;
+        for (int o = 0; o < a.getNumberOfObjectives(); o++) {
+            double diff = a.getObjective(o) - b.getObjective(o);
+            sum += diff * diff;
+        }
+        return Math.sqrt(sum);
+    }
+}
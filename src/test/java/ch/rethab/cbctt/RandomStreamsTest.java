@@ -0,0 +1,76 @@
+package ch.rethab.cbctt;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class RandomStreamsTest {
+
+    @Test
+    public void shouldDrawSameNumbersForSameSeed() {
+        SplittableRandom a = new RandomStreams(42).current();
+        SplittableRandom b = new RandomStreams(42).current();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(a.nextLong(), b.nextLong());
+        }
+    }
+
+    @Test
+    public void shouldKeepStreamPerThread() {
+        RandomStreams random = new RandomStreams(42);
+        assertSame(random.current(), random.current());
+    }
+
+    @Test
+    public void shouldGiveEveryThreadItsOwnStream() throws Exception {
+        RandomStreams random = new RandomStreams(42);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<SplittableRandom> other = executor.submit(random::current);
+            assertNotSame(random.current(), other.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldUseTaskStreamOfAnyInstance() {
+        RandomStreams a = new RandomStreams(1);
+        RandomStreams b = new RandomStreams(2);
+        long fromA = RandomStreams.withSeed(5, () -> a.current().nextLong());
+        long fromB = RandomStreams.withSeed(5, () -> b.current().nextLong());
+        assertEquals(fromA, fromB);
+    }
+
+    @Test
+    public void shouldDeriveDifferentStreamsFromNearbySeeds() {
+        long first = RandomStreams.withSeed(5, () -> new RandomStreams().current().nextLong());
+        long second = RandomStreams.withSeed(6, () -> new RandomStreams().current().nextLong());
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void shouldRestoreOuterStreamAfterTask() {
+        RandomStreams random = new RandomStreams(42);
+        SplittableRandom thread = random.current();
+        RandomStreams.withSeed(1, () -> {
+            SplittableRandom outer = random.current();
+            assertNotSame(thread, outer);
+            RandomStreams.withSeed(2, () -> {
+                assertNotSame(outer, random.current());
+                return null;
+            });
+            assertSame(outer, random.current());
+            return null;
+        });
+        assertSame(thread, random.current());
+    }
+}
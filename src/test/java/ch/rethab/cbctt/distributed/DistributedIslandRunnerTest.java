@@ -0,0 +1,76 @@
+package ch.rethab.cbctt.distributed;
+
+import ch.rethab.cbctt.ea.CbcttFixture;
+import ch.rethab.cbctt.ea.op.CbcttVariation;
+import ch.rethab.cbctt.meta.ParametrizationPhenotype;
+import ch.rethab.cbctt.moea.VariationFactory;
+import org.junit.Test;
+import org.moeaframework.core.NondominatedPopulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class DistributedIslandRunnerTest {
+
+    /* every node in its own thread, as if they were separate processes */
+    private NondominatedPopulation run(List<Transport> transports) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(transports.size());
+        try {
+            List<Future<NondominatedPopulation>> results = new ArrayList<>();
+            for (Transport transport : transports) {
+                DistributedIslandRunner runner = createRunner(transport);
+                results.add(executor.submit(runner::run));
+            }
+            for (int i = 1; i < results.size(); i++) {
+                assertFalse(results.get(i).get().isEmpty());
+            }
+            return results.get(0).get();
+        } finally {
+            executor.shutdown();
+            for (Transport transport : transports) {
+                transport.close();
+            }
+        }
+    }
+
+    private DistributedIslandRunner createRunner(Transport transport) throws Exception {
+        CbcttFixture fixture = CbcttFixture.Builder.instance("comp01.ectt").generations(2).build();
+        VariationFactory variationFactory = fixture.getVariationFactory();
+
+        List<CbcttVariation> variators = Arrays.asList(
+                variationFactory.getCrossoverOperator(transport.getNodeId() % 3, 2),
+                variationFactory.getMutationOperator(0, 0.5));
+        ParametrizationPhenotype params = new ParametrizationPhenotype(variators, 5, 5, 1);
+        return new DistributedIslandRunner(fixture.getSpec(), fixture.getStaticParameters(), params,
+                fixture.getSolutionConverter(), transport, 1, 2, 42, 60000);
+    }
+
+    @Test
+    public void shouldMergeResultsOfAllNodesWithLocalTransport() throws Exception {
+        NondominatedPopulation result = run(LocalTransport.create(3));
+        assertFalse(result.isEmpty());
+        result.forEach(s -> assertFalse(s.violatesConstraints()));
+    }
+
+    @Test
+    public void shouldMergeResultsOfAllNodesOverSockets() throws Exception {
+        NondominatedPopulation result = run(SocketTransport.loopback(3));
+        assertFalse(result.isEmpty());
+        result.forEach(s -> assertFalse(s.violatesConstraints()));
+    }
+
+    @Test
+    public void shouldRunAlone() throws Exception {
+        NondominatedPopulation result = run(LocalTransport.create(1));
+        assertFalse(result.isEmpty());
+    }
+}
@@ -0,0 +1,53 @@
+package ch.rethab.cbctt.distributed;
+
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.TeacherGreedyInitializer;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class MessageCodecTest {
+
+    @Test
+    public void shouldDecodeEncodedTimetables() throws Exception {
+        Specification spec = parse("comp01.ectt");
+        List<TimetableWithRooms> timetables = new TeacherGreedyInitializer(spec, new GreedyRoomAssigner(spec)).initialize(2);
+        List<CompactTimetable> compact = Arrays.asList(
+                CompactTimetable.fromWithRooms(spec, timetables.get(0)),
+                CompactTimetable.fromWithRooms(spec, timetables.get(1)));
+
+        MessageCodec codec = new MessageCodec(spec);
+        MessageCodec.Message message = codec.decode(codec.encode(MessageCodec.Type.MIGRANTS, 3, compact));
+
+        assertEquals(MessageCodec.Type.MIGRANTS, message.type);
+        assertEquals(3, message.sender);
+        assertEquals(compact, message.timetables);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMessageForOtherInstance() throws Exception {
+        Specification spec = parse("comp01.ectt");
+        byte[] message = new MessageCodec(spec).encode(MessageCodec.Type.RESULT, 1, Arrays.asList());
+        new MessageCodec(parse("comp02.ectt")).decode(message);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTruncatedMessage() throws Exception {
+        Specification spec = parse("comp01.ectt");
+        List<TimetableWithRooms> timetables = new TeacherGreedyInitializer(spec, new GreedyRoomAssigner(spec)).initialize(1);
+        MessageCodec codec = new MessageCodec(spec);
+        byte[] message = codec.encode(MessageCodec.Type.MIGRANTS, 1,
+                Arrays.asList(CompactTimetable.fromWithRooms(spec, timetables.get(0))));
+        codec.decode(Arrays.copyOf(message, message.length - 4));
+    }
+}
@@ -0,0 +1,126 @@
+package ch.rethab.cbctt.domain;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class CompiledSpecificationTest {
+
+    int days = 5;
+    int periodsPerDay = 4;
+
+    Curriculum curr1 = new Curriculum("curr1");
+    Curriculum curr2 = new Curriculum("curr2");
+
+    Course c1 = Course.Builder.id("c1").curriculum(curr1).nlectures(3).nStudents(30).teacher("t1").doubleLectures(false).nWorkingDays(2).build();
+    Course c2 = Course.Builder.id("c2").curriculum(curr1).curriculum(curr2).nlectures(2).nStudents(10).teacher("t2").doubleLectures(false).nWorkingDays(1).build();
+    Course c3 = Course.Builder.id("c3").curriculum(curr2).nlectures(1).nStudents(5).teacher("t1").doubleLectures(false).nWorkingDays(1).build();
+
+    Room r1 = new Room("r1", 20, 0);
+    Room r2 = new Room("r2", 40, 0);
+
+    UnavailabilityConstraints unavailabilityConstraints;
+    RoomConstraints roomConstraints;
+    Specification spec;
+
+    @Before
+    public void init() {
+        unavailabilityConstraints = new UnavailabilityConstraints(days, periodsPerDay);
+        roomConstraints = new RoomConstraints();
+        spec = Specification.Builder.name("compiled").days(days).periodsPerDay(periodsPerDay).minLectures(1).maxLectures(3)
+                .course(c1).course(c2).course(c3).room(r1).room(r2).curriculum(curr1).curriculum(curr2)
+                .unavailabilityConstraints(unavailabilityConstraints).roomConstraints(roomConstraints).build();
+    }
+
+    @Test
+    public void shouldIndexCoursesInSpecificationOrder() {
+        CompiledSpecification compiled = spec.getCompiled();
+        assertEquals(3, compiled.getNumberOfCourses());
+        assertEquals(0, compiled.indexOf(c1));
+        assertEquals(2, compiled.indexOf(c3));
+        assertEquals(1, compiled.indexOf(r2));
+        assertEquals(-1, compiled.indexOf(Course.Builder.id("c4").curriculum(curr1).nlectures(1).nStudents(1).teacher("t1").doubleLectures(false).nWorkingDays(1).build()));
+    }
+
+    @Test
+    public void shouldRelateCoursesTeachersAndCurricula() {
+        CompiledSpecification compiled = spec.getCompiled();
+        int t1 = compiled.teacherIndexOf("t1");
+        assertEquals(t1, compiled.getTeacherOf(compiled.indexOf(c3)));
+        assertEquals(4, compiled.getNumberOfLecturesOfTeacher(t1));
+        assertEquals(2, compiled.getCoursesOfCurriculum(compiled.curriculumIndexOf("curr2")).length);
+        assertTrue(compiled.shareCurriculum(compiled.indexOf(c1), compiled.indexOf(c2)));
+        assertFalse(compiled.shareCurriculum(compiled.indexOf(c1), compiled.indexOf(c3)));
+        assertEquals(6, compiled.getNumberOfLectures());
+        assertEquals(compiled.indexOf(c2), compiled.getCourseOfLecture(compiled.getFirstLecture(compiled.indexOf(c2)) + 1));
+    }
+
+    @Test
+    public void shouldFlattenSlots() {
+        CompiledSpecification compiled = spec.getCompiled();
+        assertEquals(days * periodsPerDay, compiled.getNumberOfSlots());
+        int slot = compiled.toSlot(3, 2);
+        assertEquals(3, compiled.toDay(slot));
+        assertEquals(2, compiled.toPeriod(slot));
+    }
+
+    @Test
+    public void shouldRecompileWhenConstraintsChange() {
+        CompiledSpecification before = spec.getCompiled();
+        assertTrue(before.isAvailable(before.indexOf(c1), 1, 2));
+
+        unavailabilityConstraints.addUnavailability(c1, 1, 2);
+        roomConstraints.addRoomConstraint(c2, r2);
+
+        CompiledSpecification after = spec.getCompiled();
+        assertNotSame(before, after);
+        assertFalse(after.isAvailable(after.indexOf(c1), 1, 2));
+        assertTrue(after.isUnsuitable(after.indexOf(c2), after.indexOf(r2)));
+        assertEquals(1, after.getNumberOfUnavailabilities(after.teacherIndexOf("t1")));
+        assertSame(after, spec.getCompiled());
+    }
+
+    @Test
+    public void shouldComputeCapacityDeficit() {
+        CompiledSpecification compiled = spec.getCompiled();
+        assertEquals(10, compiled.getCapacityDeficit(compiled.indexOf(c1), compiled.indexOf(r1)));
+        assertEquals(0, compiled.getCapacityDeficit(compiled.indexOf(c1), compiled.indexOf(r2)));
+    }
+
+    @Test
+    public void shouldBuildConflictGraphFromCurriculaAndTeachers() {
+        unavailabilityConstraints.addUnavailability(c3, 1, 2);
+        CompiledSpecification compiled = spec.getCompiled();
+        ConflictGraph conflicts = compiled.getConflictGraph();
+        int i1 = compiled.indexOf(c1), i2 = compiled.indexOf(c2), i3 = compiled.indexOf(c3);
+
+        // c1 and c2 share curr1, c2 and c3 share curr2, c1 and c3 have the same teacher
+        assertTrue(conflicts.conflict(i1, i1));
+        assertTrue(conflicts.conflict(i1, i2));
+        assertTrue(conflicts.conflict(i2, i3));
+        assertTrue(conflicts.conflict(i3, i1));
+
+        assertFalse(conflicts.isAvailable(i3, compiled.toSlot(1, 2)));
+        assertTrue(conflicts.isAvailable(i3, compiled.toSlot(1, 3)));
+        assertEquals(days * periodsPerDay - 1, ConflictGraph.cardinality(conflicts.getAvailableSlots(i3)));
+        assertEquals(days * periodsPerDay, ConflictGraph.cardinality(conflicts.getAvailableSlots(i2)));
+    }
+
+    @Test
+    public void shouldFindNthSetBit() {
+        long[] bits = new long[2];
+        ConflictGraph.set(bits, 3);
+        ConflictGraph.set(bits, 64);
+        ConflictGraph.set(bits, 70);
+        assertEquals(3, ConflictGraph.nthSetBit(bits, 0));
+        assertEquals(64, ConflictGraph.nthSetBit(bits, 1));
+        assertEquals(70, ConflictGraph.nthSetBit(bits, 2));
+        assertEquals(-1, ConflictGraph.nthSetBit(bits, 3));
+        ConflictGraph.clear(bits, 64);
+        assertEquals(70, ConflictGraph.nthSetBit(bits, 1));
+    }
+}
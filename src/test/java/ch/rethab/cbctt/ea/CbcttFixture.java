@@ -0,0 +1,96 @@
+package ch.rethab.cbctt.ea;
+
+import ch.rethab.cbctt.Logger;
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.op.Evaluator;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
+import ch.rethab.cbctt.formulation.Formulation;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+import ch.rethab.cbctt.moea.SolutionConverter;
+import ch.rethab.cbctt.moea.TimetableInitializationFactory;
+import ch.rethab.cbctt.moea.VariationFactory;
+
+import java.io.IOException;
+
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
+
+/**
+ * The parts that are wired together for running the evolutionary
+ * algorithm on an instance from the test resources.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class CbcttFixture {
+
+    private final Specification spec;
+    private final Formulation formulation;
+    private final SolutionConverter solutionConverter;
+    private final Evaluator evaluator;
+    private final VariationFactory variationFactory;
+    private final CbcttStaticParameters staticParameters;
+
+    private CbcttFixture(Specification spec, int generations, RandomStreams random) {
+        this.spec = spec;
+        RoomAssigner roomAssigner = new GreedyRoomAssigner(spec);
+        this.formulation = new UD1Formulation(spec);
+        this.solutionConverter = new SolutionConverter(formulation);
+        this.evaluator = new Evaluator(formulation, solutionConverter);
+        this.variationFactory = new VariationFactory(spec, solutionConverter, roomAssigner, random);
+        this.staticParameters = new CbcttStaticParameters(generations, Logger.Level.INFO, formulation, evaluator,
+                new TimetableInitializationFactory(spec, formulation, roomAssigner, random), variationFactory);
+    }
+
+    public Specification getSpec() {
+        return spec;
+    }
+
+    public Formulation getFormulation() {
+        return formulation;
+    }
+
+    public SolutionConverter getSolutionConverter() {
+        return solutionConverter;
+    }
+
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    public VariationFactory getVariationFactory() {
+        return variationFactory;
+    }
+
+    public CbcttStaticParameters getStaticParameters() {
+        return staticParameters;
+    }
+
+    public static class Builder {
+
+        private String filename;
+        private int generations = 2;
+        private RandomStreams random;
+
+        public static Builder instance(String filename) {
+            Builder b = new Builder();
+            b.filename = filename;
+            return b;
+        }
+
+        public Builder generations(int generations) {
+            this.generations = generations;
+            return this;
+        }
+
+        /** shared by the initialization and the variation. unseeded if not set */
+        public Builder random(RandomStreams random) {
+            this.random = random;
+            return this;
+        }
+
+        public CbcttFixture build() throws IOException {
+            return new CbcttFixture(parse(filename), generations, random == null ? new RandomStreams() : random);
+        }
+    }
+}
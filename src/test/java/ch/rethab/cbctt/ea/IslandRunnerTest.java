@@ -0,0 +1,46 @@
+package ch.rethab.cbctt.ea;
+
+import ch.rethab.cbctt.ea.op.CbcttVariation;
+import ch.rethab.cbctt.meta.ParametrizationPhenotype;
+import ch.rethab.cbctt.moea.VariationFactory;
+import org.junit.Test;
+import org.moeaframework.core.NondominatedPopulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class IslandRunnerTest {
+
+    private NondominatedPopulation run(IslandRunner.Topology topology) throws Exception {
+        CbcttFixture fixture = CbcttFixture.Builder.instance("comp01.ectt").generations(2).build();
+        VariationFactory variationFactory = fixture.getVariationFactory();
+
+        List<ParametrizationPhenotype> islands = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            List<CbcttVariation> variators = Arrays.asList(
+                    variationFactory.getCrossoverOperator(i, 2),
+                    variationFactory.getMutationOperator(0, 0.5));
+            islands.add(new ParametrizationPhenotype(variators, 5, 5, 1));
+        }
+
+        return new IslandRunner(fixture.getStaticParameters(), islands, topology, 1, 2, 42).run();
+    }
+
+    @Test
+    public void shouldMergeIslandsWithRingTopology() throws Exception {
+        NondominatedPopulation result = run(IslandRunner.Topology.RING);
+        assertFalse(result.isEmpty());
+        result.forEach(s -> assertFalse(s.violatesConstraints()));
+    }
+
+    @Test
+    public void shouldMergeIslandsWithRandomTopology() throws Exception {
+        assertFalse(run(IslandRunner.Topology.RANDOM).isEmpty());
+    }
+}
@@ -0,0 +1,173 @@
+package ch.rethab.cbctt.ea.initializer;
+
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.CompiledSpecification;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+import ch.rethab.cbctt.moea.TimetableInitializationFactory;
+import org.junit.Test;
+import org.moeaframework.core.Solution;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class InitialPopulationCacheTest {
+
+    private List<CompactTimetable> create(Specification spec, int n) {
+        List<TimetableWithRooms> timetables = new TeacherGreedyInitializer(spec, new GreedyRoomAssigner(spec)).initialize(n);
+        return timetables.stream().map(t -> CompactTimetable.fromWithRooms(spec, t)).collect(Collectors.toList());
+    }
+
+    private File tempDir() throws IOException {
+        File dir = Files.createTempDirectory("init-cache").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    private void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            Arrays.stream(files).forEach(File::delete);
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void shouldHaveSameFingerprintForSameInstance() throws IOException {
+        assertEquals(InitialPopulationCache.fingerprint(parse("comp01.ectt")),
+                InitialPopulationCache.fingerprint(parse("comp01.ectt")));
+        assertNotEquals(InitialPopulationCache.fingerprint(parse("comp01.ectt")),
+                InitialPopulationCache.fingerprint(parse("comp02.ectt")));
+    }
+
+    @Test
+    public void shouldLoadStoredTimetables() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        File dir = tempDir();
+        try {
+            InitialPopulationCache cache = new InitialPopulationCache(dir);
+            assertTrue(cache.load(spec).isEmpty());
+
+            List<CompactTimetable> timetables = create(spec, 3);
+            cache.store(spec, timetables);
+
+            assertEquals(timetables, new InitialPopulationCache(dir).load(spec));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void shouldKeepNewestWhenFull() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        File dir = tempDir();
+        try {
+            InitialPopulationCache cache = new InitialPopulationCache(dir, 2);
+            List<CompactTimetable> timetables = create(spec, 3);
+            cache.store(spec, timetables.subList(0, 1));
+            cache.store(spec, timetables.subList(1, 3));
+
+            assertEquals(timetables.subList(1, 3), cache.load(spec));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void shouldSkipInfeasibleTimetables() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        File dir = tempDir();
+        try {
+            InitialPopulationCache cache = new InitialPopulationCache(dir);
+            CompactTimetable feasible = create(spec, 1).get(0);
+            // every lecture in the same room at the same time
+            CompactTimetable infeasible = CompactTimetable.fromGenes(spec, new int[feasible.getNumberOfLectures()]);
+            cache.store(spec, Arrays.asList(feasible, infeasible));
+
+            assertEquals(Arrays.asList(feasible), cache.load(spec));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void shouldRejectUnsuitableRooms() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        CompiledSpecification compiled = spec.getCompiled();
+        int nRooms = compiled.getNumberOfRooms();
+        int[] genes = create(spec, 1).get(0).getGenes();
+        assertTrue(InitialPopulationCache.isFeasible(compiled, genes));
+
+        // move a lecture into a free room of its slot that is unsuitable for it
+        Set<Integer> used = new HashSet<>();
+        Arrays.stream(genes).forEach(used::add);
+        for (int l = 0; l < genes.length; l++) {
+            int slot = genes[l] / nRooms;
+            for (int r = 0; r < nRooms; r++) {
+                if (compiled.isUnsuitable(compiled.getCourseOfLecture(l), r) && !used.contains(slot * nRooms + r)) {
+                    genes[l] = slot * nRooms + r;
+                    assertFalse(InitialPopulationCache.isFeasible(compiled, genes));
+                    return;
+                }
+            }
+        }
+        fail("No lecture can be moved to an unsuitable room");
+    }
+
+    @Test
+    public void shouldIgnoreCorruptFile() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        File dir = tempDir();
+        try {
+            InitialPopulationCache cache = new InitialPopulationCache(dir);
+            cache.store(spec, create(spec, 2));
+            File file = cache.fileOf(spec);
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+
+            assertTrue(cache.load(spec).isEmpty());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void shouldOnlyCreateMissingTimetables() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        File dir = tempDir();
+        try {
+            InitialPopulationCache cache = new InitialPopulationCache(dir);
+            List<CompactTimetable> cached = create(spec, 2);
+            cache.store(spec, cached);
+
+            TimetableInitializationFactory factory = new TimetableInitializationFactory(spec, new UD1Formulation(spec),
+                    new GreedyRoomAssigner(spec), new RandomStreams(1), 2, 0, cache);
+            Solution[] solutions = factory.create(5).initialize();
+
+            assertEquals(5, solutions.length);
+            List<CompactTimetable> all = cache.load(spec);
+            assertEquals(5, all.size());
+            assertEquals(cached, all.subList(0, 2));
+
+            // now, everything comes from the cache
+            factory.create(5).initialize();
+            assertEquals(5, cache.load(spec).size());
+        } finally {
+            delete(dir);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ch.rethab.cbctt.ea.initializer;
+
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.formulation.Formulation;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+import ch.rethab.cbctt.formulation.constraint.Constraint;
+import ch.rethab.cbctt.moea.TimetableInitializationFactory;
+import org.junit.Test;
+import org.moeaframework.core.Solution;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class SaturationInitializerTest {
+
+    private void assertFeasible(Specification spec, TimetableWithRooms t) {
+        Formulation formulation = new UD1Formulation(spec);
+        for (Constraint c : formulation.getConstraints()) {
+            assertEquals(spec.getName() + ": " + c.name() + " has violations", 0, c.violations(t));
+        }
+        assertEquals(spec.getCompiled().getNumberOfLectures(), t.getMeetings().size());
+    }
+
+    @Test
+    public void shouldProduceFeasibleTimetablesForCompTests() throws IOException {
+        for (int i = 1; i <= 21; i++) {
+            Specification spec = parse(String.format("comp%02d.ectt", i));
+            Initializer initializer = new SaturationInitializer(spec, new GreedyRoomAssigner(spec));
+            for (TimetableWithRooms t : initializer.initialize(2)) {
+                assertFeasible(spec, t);
+            }
+        }
+    }
+
+    @Test
+    public void shouldBeConsistentlyCorrect() throws IOException {
+        Specification spec = parse("comp19.ectt");
+        Initializer initializer = new SaturationInitializer(spec, new GreedyRoomAssigner(spec));
+        for (TimetableWithRooms t : initializer.initialize(50)) {
+            assertFeasible(spec, t);
+        }
+    }
+
+    @Test
+    public void shouldProduceDistinctTimetables() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        Initializer initializer = new SaturationInitializer(spec, new GreedyRoomAssigner(spec));
+        List<TimetableWithRooms> timetables = initializer.initialize(10);
+        Set<Long> hashes = new HashSet<>();
+        timetables.forEach(t -> hashes.add(t.getZobristHash()));
+        assertEquals(10, hashes.size());
+    }
+
+    @Test
+    public void shouldCreateSameTimetablesForSameSeed() throws IOException {
+        Specification spec = parse("comp07.ectt");
+        List<TimetableWithRooms> first = new SaturationInitializer(spec, new GreedyRoomAssigner(spec),
+                new RandomStreams(5), 1, 0).initialize(3);
+        List<TimetableWithRooms> second = new SaturationInitializer(spec, new GreedyRoomAssigner(spec),
+                new RandomStreams(5), 3, 0).initialize(3);
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getZobristHash(), second.get(i).getZobristHash());
+        }
+    }
+
+    @Test
+    public void shouldBeSelectableInFactory() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        TimetableInitializationFactory factory = new TimetableInitializationFactory(spec, new UD1Formulation(spec),
+                new GreedyRoomAssigner(spec), new RandomStreams(1), 2, 0, null,
+                TimetableInitializationFactory.Strategy.SATURATION);
+        Solution[] solutions = factory.create(4).initialize();
+        assertEquals(4, solutions.length);
+        for (Solution solution : solutions) {
+            assertNotNull(solution);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ch.rethab.cbctt.ea.initializer;
 
+import ch.rethab.cbctt.RandomStreams;
 import ch.rethab.cbctt.domain.*;
 import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
 import ch.rethab.cbctt.ea.phenotype.Meeting;
@@ -16,10 +17,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
 import static org.junit.Assert.*;
 
 /**
@@ -41,6 +49,72 @@ public class TeacherGreedyInitializerTest {
         }
     }
 
+    @Test
+    public void shouldCreateSameTimetablesForSameSeed() throws IOException {
+        Specification spec = parse("comp01.ectt");
+
+        List<TimetableWithRooms> first = RandomStreams.withSeed(7, () ->
+                new TeacherGreedyInitializer(spec, new GreedyRoomAssigner(spec), new RandomStreams(1)).initialize(3));
+        List<TimetableWithRooms> second = RandomStreams.withSeed(7, () ->
+                new TeacherGreedyInitializer(spec, new GreedyRoomAssigner(spec), new RandomStreams(2)).initialize(3));
+
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getZobristHash(), second.get(i).getZobristHash());
+        }
+        assertNotEquals(first.get(0).getZobristHash(), first.get(1).getZobristHash());
+    }
+
+    @Test
+    public void shouldCreateSameTimetablesRegardlessOfParallelism() throws IOException {
+        Specification spec = parse("comp01.ectt");
+
+        List<TimetableWithRooms> sequential = new TeacherGreedyInitializer(spec, new GreedyRoomAssigner(spec),
+                new RandomStreams(3), 1, 0).initialize(8);
+        List<TimetableWithRooms> parallel = new TeacherGreedyInitializer(spec, new GreedyRoomAssigner(spec),
+                new RandomStreams(3), 4, 0).initialize(8);
+
+        assertEquals(8, parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getZobristHash(), parallel.get(i).getZobristHash());
+        }
+    }
+
+    @Test
+    public void shouldHandOverEveryTimetableOnceWhenTimeBudgetIsExceeded() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        TeacherGreedyInitializer initializer = new TeacherGreedyInitializer(spec, new GreedyRoomAssigner(spec),
+                new RandomStreams(3), 2, TimeUnit.HOURS.toMillis(1));
+
+        // the time only passes once ten timetables are finished, however fast the machine is
+        AtomicLong now = new AtomicLong();
+        initializer.setClock(now::get);
+        TimetableWithRooms[] handedOver = new TimetableWithRooms[100];
+        AtomicInteger finished = new AtomicInteger();
+        List<TimetableWithRooms> timetables = initializer.initialize(handedOver.length, (t, i) -> {
+            assertNull(handedOver[i]);
+            handedOver[i] = t;
+            if (finished.incrementAndGet() == 10) {
+                now.set(TimeUnit.HOURS.toNanos(2));
+            }
+        });
+
+        assertEquals(handedOver.length, timetables.size());
+        Set<TimetableWithRooms> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < handedOver.length; i++) {
+            assertSame(timetables.get(i), handedOver[i]);
+            distinct.add(handedOver[i]);
+        }
+        // the missing ones are filled up with copies
+        assertTrue(distinct.size() >= 10);
+        assertTrue(distinct.size() < handedOver.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveParallelism() {
+        Specification spec = testData();
+        new TeacherGreedyInitializer(spec, new GreedyRoomAssigner(spec), new RandomStreams(), 0, 0);
+    }
+
     @Test
     public void shouldNotBlowUpDuringInitializationInMultiThreadedEnvironment() throws Exception {
         String filename = "comp01.ectt";
@@ -258,7 +332,7 @@ public class TeacherGreedyInitializerTest {
         boolean reachedPeriods[];
         for (int days = 2; days <= spec.getNumberOfDaysPerWeek()-1; days++) {
             for (int periods = 2; periods <= spec.getPeriodsPerDay()-1; periods++) {
-                t = new TeacherGreedyInitializer.FlatTimetable(spec);
+                t = new TeacherGreedyInitializer.FlatTimetable(spec, new SplittableRandom());
                 reachedPeriods = new boolean[spec.getNumberOfDaysPerWeek()*spec.getPeriodsPerDay()];
 
                 for (int i = 0; i < spec.getNumberOfDaysPerWeek() * spec.getPeriodsPerDay(); i++) {
@@ -1,5 +1,6 @@
 package ch.rethab.cbctt.ea.op;
 
+import ch.rethab.cbctt.RandomStreams;
 import ch.rethab.cbctt.domain.*;
 import ch.rethab.cbctt.ea.initializer.TeacherGreedyInitializer;
 import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
@@ -18,6 +19,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.List;
 
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
 import static org.junit.Assert.*;
 
 /**
@@ -149,4 +151,32 @@ public class CurriculumBasedCrossoverTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldRepairInsteadOfRestartingOnRealSample() throws Exception {
+        Specification spec = parse("comp19.ectt");
+        Formulation v = new UD1Formulation(spec);
+        RoomAssigner roomAssigner = new GreedyRoomAssigner(spec);
+        List<TimetableWithRooms> ts = new TeacherGreedyInitializer(spec, roomAssigner, new RandomStreams(1)).initialize(2);
+
+        SolutionConverter solutionConverter = new SolutionConverter(v);
+        Solution parents[] = new Solution[]{solutionConverter.toSolution(ts.get(0)), solutionConverter.toSolution(ts.get(1))};
+        AbstractLessonBasedCrossover crossover = new CurriculumBasedCrossover(spec, solutionConverter, roomAssigner,
+                new RandomStreams(2), true);
+
+        for (int run = 0; run < 100; run++) {
+            Solution kids[] = crossover.evolve(parents);
+            for (Solution kid : kids) {
+                TimetableWithRooms offspring = solutionConverter.fromSolution(kid);
+                assertEquals(spec.getCompiled().getNumberOfLectures(), offspring.getMeetings().size());
+                for (Constraint c : v.getConstraints()) {
+                    assertEquals(0, c.violations(offspring));
+                }
+            }
+            parents = kids;
+        }
+
+        // leftovers are inserted by ejection, not by starting over
+        assertTrue(crossover.getRepairedLectures() > 0);
+        assertEquals(0, crossover.getRestarts());
+    }
+}
@@ -0,0 +1,119 @@
+package ch.rethab.cbctt.ea.op;
+
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.TeacherGreedyInitializer;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.formulation.CostBreakdown;
+import ch.rethab.cbctt.formulation.Formulation;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+import ch.rethab.cbctt.moea.SolutionConverter;
+import org.junit.Test;
+import org.moeaframework.core.Solution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class EvaluationCacheTest {
+
+    @Test
+    public void shouldNotEvaluateDuplicatesAgain() throws Exception {
+        Specification spec = parse(1);
+        RoomAssigner roomAssigner = new GreedyRoomAssigner(spec);
+        TimetableWithRooms t = new TeacherGreedyInitializer(spec, roomAssigner).initialize(1).get(0);
+        Formulation formulation = new UD1Formulation(spec);
+        SolutionConverter solutionConverter = new SolutionConverter(formulation);
+        Evaluator evaluator = new Evaluator(formulation, solutionConverter, new EvaluationCache(10));
+
+        Solution first = solutionConverter.toSolution(t);
+        evaluator.evaluate(first);
+        assertEquals(0, evaluator.getCache().getHits());
+
+        // same timetable, but another object
+        Solution duplicate = solutionConverter.toSolution(CompactTimetable.fromWithRooms(spec, t).toTimetableWithRooms());
+        evaluator.evaluate(duplicate);
+        assertEquals(1, evaluator.getCache().getHits());
+        assertEquals(0.5, evaluator.getCache().getHitRate(), 0.0);
+        assertArrayEquals(first.getObjectives(), duplicate.getObjectives(), 0.0);
+        assertEquals(formulation.evaluate(t), solutionConverter.variableFromSolution(duplicate).getCost());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        Specification spec = parse(1);
+        RoomAssigner roomAssigner = new GreedyRoomAssigner(spec);
+        List<TimetableWithRooms> timetables = new TeacherGreedyInitializer(spec, roomAssigner).initialize(3);
+        CostBreakdown cost = new CostBreakdown(new int[0], new int[0]);
+
+        EvaluationCache cache = new EvaluationCache(2);
+        CompactTimetable t0 = CompactTimetable.fromWithRooms(spec, timetables.get(0));
+        CompactTimetable t1 = CompactTimetable.fromWithRooms(spec, timetables.get(1));
+        CompactTimetable t2 = CompactTimetable.fromWithRooms(spec, timetables.get(2));
+        cache.put(t0, cost);
+        cache.put(t1, cost);
+        assertSame(cost, cache.get(t0));
+        cache.put(t2, cost);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(t1));
+        assertSame(cost, cache.get(t0));
+        assertSame(cost, cache.get(t2));
+    }
+
+    @Test
+    public void shouldStayBoundedWithConcurrentAccessToStripes() throws Exception {
+        Specification spec = parse(1);
+        int[] genes = CompactTimetable.fromWithRooms(spec,
+                new TeacherGreedyInitializer(spec, new GreedyRoomAssigner(spec)).initialize(1).get(0)).getGenes();
+        int maxGene = spec.getCompiled().getNumberOfSlots() * spec.getCompiled().getNumberOfRooms();
+        CostBreakdown cost = new CostBreakdown(new int[0], new int[0]);
+
+        EvaluationCache cache = new EvaluationCache(1000);
+        assertTrue(cache.getNumberOfStripes() > 1);
+
+        // every thread moves the first two lectures around, so the timetables differ
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            int offset = thread;
+            tasks.add(executor.submit(() -> {
+                for (int i = offset; i < 4000; i += 4) {
+                    int[] moved = genes.clone();
+                    moved[0] = i % maxGene;
+                    moved[1] = (i / maxGene) % maxGene;
+                    CompactTimetable t = CompactTimetable.fromGenes(spec, moved);
+                    cache.put(t, cost);
+                    cache.get(t);
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+
+        assertTrue(cache.size() <= 1000);
+        assertTrue(cache.size() > 500);
+        // unless another thread evicted it in between, the entry was just put
+        assertEquals(4000, cache.getHits() + cache.getMisses());
+        assertTrue(cache.getHits() > 3000);
+    }
+
+    @Test
+    public void shouldUseSingleStripeForSmallCaches() {
+        assertEquals(1, new EvaluationCache(2).getNumberOfStripes());
+        assertEquals(1, new EvaluationCache(127).getNumberOfStripes());
+        assertEquals(16, new EvaluationCache(4096).getNumberOfStripes());
+    }
+}
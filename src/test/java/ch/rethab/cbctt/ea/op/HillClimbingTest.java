@@ -0,0 +1,114 @@
+package ch.rethab.cbctt.ea.op;
+
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.SaturationInitializer;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.MeetingWithRoom;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.formulation.CostBreakdown;
+import ch.rethab.cbctt.formulation.Formulation;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+import ch.rethab.cbctt.moea.SolutionConverter;
+import org.junit.Test;
+import org.moeaframework.core.Solution;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class HillClimbingTest {
+
+    private List<TimetableWithRooms> create(Specification spec, int n) {
+        return new SaturationInitializer(spec, new GreedyRoomAssigner(spec), new RandomStreams(1)).initialize(n);
+    }
+
+    @Test
+    public void shouldImproveWithoutLosingFeasibility() throws IOException {
+        for (String filename : new String[]{"comp01.ectt", "comp07.ectt"}) {
+            Specification spec = parse(filename);
+            Formulation formulation = new UD1Formulation(spec);
+            SolutionConverter solutionConverter = new SolutionConverter(formulation);
+            Evaluator evaluator = new Evaluator(formulation, solutionConverter);
+            HillClimbing hillClimbing = new HillClimbing(spec, solutionConverter, Integer.MAX_VALUE, 0, new RandomStreams(2));
+
+            for (TimetableWithRooms t : create(spec, 5)) {
+                CostBreakdown before = formulation.evaluate(t);
+                Solution[] result = hillClimbing.evolve(new Solution[]{solutionConverter.toSolution(t)});
+                assertEquals(1, result.length);
+
+                evaluator.evaluate(result[0]);
+                CostBreakdown after = solutionConverter.variableFromSolution(result[0]).getCost();
+                // computed incrementally from the start, so compare with evaluating from scratch
+                assertEquals(formulation.evaluate(solutionConverter.fromSolution(result[0])), after);
+
+                for (int i = 0; i < formulation.getNumberOfConstraints(); i++) {
+                    assertEquals(0, after.getConstraintViolations(i));
+                }
+                // room constraints are hard as well, but not part of UD1
+                for (MeetingWithRoom m : solutionConverter.fromSolution(result[0]).getMeetings()) {
+                    assertFalse(spec.getRoomConstraints().isUnsuitable(m.getCourse(), m.getRoom()));
+                }
+                int improved = 0;
+                for (int i = 0; i < formulation.getNumberOfObjectives(); i++) {
+                    assertTrue(after.getObjectiveViolations(i) <= before.getObjectiveViolations(i));
+                    improved += before.getObjectiveViolations(i) - after.getObjectiveViolations(i);
+                }
+                assertTrue(improved > 0);
+            }
+        }
+    }
+
+    @Test
+    public void shouldStopAfterMoveBudget() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        SolutionConverter solutionConverter = new SolutionConverter(new UD1Formulation(spec));
+        HillClimbing hillClimbing = new HillClimbing(spec, solutionConverter, 1, 0, new RandomStreams(4));
+
+        for (TimetableWithRooms t : create(spec, 10)) {
+            Solution result = hillClimbing.evolve(new Solution[]{solutionConverter.toSolution(t)})[0];
+            CompactTimetable before = CompactTimetable.fromWithRooms(spec, t);
+            CompactTimetable after = CompactTimetable.fromWithRooms(spec, solutionConverter.fromSolution(result));
+            // one move or swap. the lectures of a course are sorted by gene, so compare (course, gene)
+            assertTrue(changed(spec, before, after) <= 2);
+        }
+    }
+
+    private int changed(Specification spec, CompactTimetable before, CompactTimetable after) {
+        Set<Long> placements = new HashSet<>();
+        for (int l = 0; l < before.getNumberOfLectures(); l++) {
+            placements.add(placement(spec, before, l));
+        }
+        int changed = 0;
+        for (int l = 0; l < after.getNumberOfLectures(); l++) {
+            if (!placements.contains(placement(spec, after, l))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private long placement(Specification spec, CompactTimetable t, int lecture) {
+        return (long) spec.getCompiled().getCourseOfLecture(lecture) << 32 | t.getGenes()[lecture];
+    }
+
+    @Test
+    public void shouldReturnSameSolutionIfNothingImproves() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        SolutionConverter solutionConverter = new SolutionConverter(new UD1Formulation(spec));
+        HillClimbing hillClimbing = new HillClimbing(spec, solutionConverter, Integer.MAX_VALUE, 0, new RandomStreams(5));
+
+        Solution climbed = hillClimbing.evolve(new Solution[]{solutionConverter.toSolution(create(spec, 1).get(0))})[0];
+        // already in a local optimum
+        Solution[] again = new Solution[]{climbed};
+        assertSame(climbed, hillClimbing.evolve(again)[0]);
+    }
+}
@@ -0,0 +1,116 @@
+package ch.rethab.cbctt.ea.op;
+
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.SaturationInitializer;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.MeetingWithRoom;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.formulation.CostBreakdown;
+import ch.rethab.cbctt.formulation.Formulation;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+import ch.rethab.cbctt.moea.SolutionConverter;
+import ch.rethab.cbctt.moea.VariableAdapter;
+import org.junit.Test;
+import org.moeaframework.core.Solution;
+
+import java.io.IOException;
+
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class KempeChainMutationTest {
+
+    private long hash(Solution solution) {
+        return ((VariableAdapter) solution.getVariable(0)).getZobristHash();
+    }
+
+    @Test
+    public void shouldStayFeasibleOverManyMutations() throws IOException {
+        for (String filename : new String[]{"comp01.ectt", "comp05.ectt"}) {
+            Specification spec = parse(filename);
+            Formulation formulation = new UD1Formulation(spec);
+            SolutionConverter solutionConverter = new SolutionConverter(formulation);
+            Evaluator evaluator = new Evaluator(formulation, solutionConverter);
+            KempeChainMutation mutation = new KempeChainMutation(spec, solutionConverter, 1, new RandomStreams(1));
+
+            TimetableWithRooms t = new SaturationInitializer(spec, new GreedyRoomAssigner(spec), new RandomStreams(2))
+                    .initialize(1).get(0);
+            Solution solution = solutionConverter.toSolution(t);
+            evaluator.evaluate(solution);
+            solutionConverter.compact(solution);
+
+            int changed = 0;
+            for (int i = 0; i < 200; i++) {
+                Solution mutated = mutation.evolve(new Solution[]{solution})[0];
+                evaluator.evaluate(mutated);
+                CostBreakdown cost = solutionConverter.variableFromSolution(mutated).getCost();
+                // computed incrementally from the parent, so compare with evaluating from scratch
+                assertEquals(formulation.evaluate(solutionConverter.fromSolution(mutated)), cost);
+                for (int c = 0; c < formulation.getNumberOfConstraints(); c++) {
+                    assertEquals(0, cost.getConstraintViolations(c));
+                }
+                assertNotSame(solution, mutated);
+                if (hash(mutated) != hash(solution)) {
+                    changed++;
+                }
+                solutionConverter.compact(mutated);
+                solution = mutated;
+            }
+            // a swap may lead to the same timetable, e.g. if lectures of the same course change places
+            assertTrue(changed > 100);
+        }
+    }
+
+    @Test
+    public void shouldNotUseUnsuitableRooms() throws IOException {
+        Specification spec = parse("comp07.ectt");
+        SolutionConverter solutionConverter = new SolutionConverter(new UD1Formulation(spec));
+        KempeChainMutation mutation = new KempeChainMutation(spec, solutionConverter, 1, new RandomStreams(6));
+        Solution solution = solutionConverter.toSolution(new SaturationInitializer(spec, new GreedyRoomAssigner(spec),
+                new RandomStreams(7)).initialize(1).get(0));
+
+        for (int i = 0; i < 200; i++) {
+            solution = mutation.evolve(new Solution[]{solution})[0];
+            for (MeetingWithRoom m : solutionConverter.fromSolution(solution).getMeetings()) {
+                assertFalse(spec.getRoomConstraints().isUnsuitable(m.getCourse(), m.getRoom()));
+            }
+        }
+    }
+
+    @Test
+    public void shouldKeepEveryLecture() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        SolutionConverter solutionConverter = new SolutionConverter(new UD1Formulation(spec));
+        KempeChainMutation mutation = new KempeChainMutation(spec, solutionConverter, 1, new RandomStreams(3));
+        TimetableWithRooms t = new SaturationInitializer(spec, new GreedyRoomAssigner(spec), new RandomStreams(4))
+                .initialize(1).get(0);
+
+        Solution mutated = mutation.evolve(new Solution[]{solutionConverter.toSolution(t)})[0];
+        CompactTimetable compact = solutionConverter.compactFromSolution(mutated);
+        assertNotNull(compact);
+        for (int l = 0; l < compact.getNumberOfLectures(); l++) {
+            assertTrue(compact.isScheduled(l));
+        }
+        assertNotEquals(CompactTimetable.fromWithRooms(spec, t), compact);
+    }
+
+    @Test
+    public void shouldReturnCopyOfParentWithoutProbability() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        SolutionConverter solutionConverter = new SolutionConverter(new UD1Formulation(spec));
+        KempeChainMutation mutation = new KempeChainMutation(spec, solutionConverter, 0, new RandomStreams(1));
+        TimetableWithRooms t = new SaturationInitializer(spec, new GreedyRoomAssigner(spec), new RandomStreams(2))
+                .initialize(1).get(0);
+        Solution parent = solutionConverter.toSolution(t);
+
+        Solution[] offspring = mutation.evolve(new Solution[]{parent});
+        assertEquals(1, offspring.length);
+        assertNotSame(parent, offspring[0]);
+        assertEquals(hash(parent), hash(offspring[0]));
+    }
+}
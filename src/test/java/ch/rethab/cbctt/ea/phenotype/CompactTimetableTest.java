@@ -0,0 +1,126 @@
+package ch.rethab.cbctt.ea.phenotype;
+
+import ch.rethab.cbctt.domain.*;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+import ch.rethab.cbctt.moea.SolutionConverter;
+import org.junit.Test;
+import org.moeaframework.core.Solution;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class CompactTimetableTest {
+
+    int days = 3;
+    int periodsPerDay = 3;
+
+    Curriculum curr1 = new Curriculum("curr1");
+    Curriculum curr2 = new Curriculum("curr2");
+
+    Course c1 = Course.Builder.id("c1").teacher("t1").curriculum(curr1).nlectures(2)
+            .nWorkingDays(2).nStudents(3).doubleLectures(false).build();
+    Course c2 = Course.Builder.id("c2").teacher("t2").curriculum(curr1).curriculum(curr2).nlectures(2)
+            .nWorkingDays(1).nStudents(3).doubleLectures(false).build();
+
+    Room r1 = new Room("r1", 3, 0);
+    Room r2 = new Room("r2", 4, 1);
+
+    Specification spec = Specification.Builder.name("specification")
+            .days(days).periodsPerDay(periodsPerDay).minLectures(1).maxLectures(3)
+            .room(r1).room(r2)
+            .course(c1).course(c2)
+            .curriculum(curr1).curriculum(curr2)
+            .unavailabilityConstraints(new UnavailabilityConstraints(days, periodsPerDay))
+            .roomConstraints(new RoomConstraints())
+            .build();
+
+    TimetableWithRooms t = TimetableWithRooms.Builder.newBuilder(spec)
+            .addMeeting(c1, r1, 0, 0)
+            .addMeeting(c1, r2, 2, 1)
+            .addMeeting(c2, r2, 0, 1)
+            .build();
+
+    @Test
+    public void shouldEncodeEachLectureOnce() {
+        CompactTimetable compact = CompactTimetable.fromWithRooms(spec, t);
+        CompiledSpecification compiled = spec.getCompiled();
+        assertEquals(4, compact.getNumberOfLectures());
+
+        // one lecture of c2 is not scheduled and sorts first
+        int firstOfC2 = compiled.getFirstLecture(compiled.indexOf(c2));
+        assertFalse(compact.isScheduled(firstOfC2));
+        assertEquals(compiled.toSlot(0, 1), compact.getSlot(firstOfC2 + 1));
+        assertEquals(compiled.indexOf(r2), compact.getRoom(firstOfC2 + 1));
+    }
+
+    @Test
+    public void shouldIndexLecturesBySlot() {
+        CompactTimetable compact = CompactTimetable.fromWithRooms(spec, t);
+        CompiledSpecification compiled = spec.getCompiled();
+        int slot = compiled.toSlot(2, 1);
+        assertEquals(1, compact.getNumberOfLecturesInSlot(slot));
+        assertEquals(compiled.indexOf(c1), compiled.getCourseOfLecture(compact.getLectureInSlot(slot, 0)));
+        assertEquals(0, compact.getNumberOfLecturesInSlot(compiled.toSlot(1, 1)));
+    }
+
+    @Test
+    public void shouldConvertBackToSameMeetings() {
+        CompactTimetable compact = CompactTimetable.fromWithRooms(spec, t);
+        TimetableWithRooms back = compact.toTimetableWithRooms();
+        assertEquals(t.getMeetings(), back.getMeetings());
+        assertEquals(compact, CompactTimetable.fromWithRooms(spec, back));
+    }
+
+    @Test
+    public void shouldNotRepresentTooManyMeetings() {
+        TimetableWithRooms tooMany = TimetableWithRooms.Builder.newBuilder(spec)
+                .addMeeting(c1, r1, 0, 0)
+                .addMeeting(c1, r1, 1, 0)
+                .addMeeting(c1, r1, 2, 0)
+                .build();
+        assertFalse(CompactTimetable.isRepresentable(spec, tooMany));
+    }
+
+    @Test
+    public void shouldKeepTimetableInCompactedSolution() {
+        SolutionConverter solutionConverter = new SolutionConverter(new UD1Formulation(spec));
+        Solution s = solutionConverter.toSolution(t);
+        assertTrue(solutionConverter.compact(s));
+        assertNotNull(solutionConverter.compactFromSolution(s));
+        assertEquals(t.getMeetings(), solutionConverter.fromSolution(s).getMeetings());
+        assertEquals(t.getMeetings(), solutionConverter.fromSolution(s.copy()).getMeetings());
+    }
+
+    @Test
+    public void shouldHaveSameZobristHashAsObjectView() {
+        CompactTimetable compact = CompactTimetable.fromWithRooms(spec, t);
+        assertEquals(t.getZobristHash(), compact.getZobristHash());
+        assertEquals(t.getZobristHash(), compact.toTimetableWithRooms().getZobristHash());
+
+        TimetableWithRooms otherRoom = TimetableWithRooms.Builder.newBuilder(spec)
+                .addMeeting(c1, r1, 0, 0)
+                .addMeeting(c1, r1, 2, 1)
+                .addMeeting(c2, r2, 0, 1)
+                .build();
+        assertNotEquals(t.getZobristHash(), otherRoom.getZobristHash());
+    }
+
+    @Test
+    public void shouldUpdateZobristHashWhenApplyingMoves() {
+        CompactTimetable compact = CompactTimetable.fromWithRooms(spec, t);
+        CompiledSpecification compiled = spec.getCompiled();
+        int firstOfC2 = compiled.getFirstLecture(compiled.indexOf(c2));
+        CompactTimetable moved = compact.apply(Arrays.asList(
+                new Move(firstOfC2, CompactTimetable.UNSCHEDULED, CompactTimetable.UNSCHEDULED, compiled.toSlot(1, 2), compiled.indexOf(r1)),
+                new Move(firstOfC2 + 1, compiled.toSlot(0, 1), compiled.indexOf(r2), compiled.toSlot(2, 2), compiled.indexOf(r2))));
+
+        CompactTimetable expected = CompactTimetable.fromWithRooms(spec, moved.toTimetableWithRooms());
+        assertEquals(expected.getZobristHash(), moved.getZobristHash());
+        assertEquals(expected, moved);
+        assertEquals(compact.getZobristHash(), moved.apply(moved.diff(compact)).getZobristHash());
+    }
+}
@@ -0,0 +1,51 @@
+package ch.rethab.cbctt.ea.phenotype;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class HungarianSolverTest {
+
+    private int[] solve(int[][] costs) {
+        HungarianSolver solver = HungarianSolver.forThread(costs[0].length);
+        for (int row = 0; row < costs.length; row++) {
+            for (int col = 0; col < costs[row].length; col++) {
+                solver.setCost(row, col, costs[row][col]);
+            }
+        }
+        int[] result = new int[costs.length];
+        solver.solve(costs.length, costs[0].length, result);
+        return result;
+    }
+
+    @Test
+    public void shouldFindMinimumOfSquareMatrix() {
+        int[] result = solve(new int[][]{
+                {4, 1, 3},
+                {2, 0, 5},
+                {3, 2, 2}
+        });
+        // 1 + 2 + 2 = 5 is the only assignment with minimal cost
+        assertArrayEquals(new int[]{1, 0, 2}, result);
+    }
+
+    @Test
+    public void shouldLeaveColumnsUnassignedWithFewerRows() {
+        int[] result = solve(new int[][]{
+                {9, 9, 1, 9},
+                {9, 9, 2, 3}
+        });
+        assertArrayEquals(new int[]{2, 3}, result);
+    }
+
+    @Test
+    public void shouldReuseWorkspaceAcrossSolves() {
+        assertArrayEquals(new int[]{1, 0}, solve(new int[][]{{5, 0}, {0, 5}}));
+        // smaller problem on the same (larger) workspace
+        assertArrayEquals(new int[]{0}, solve(new int[][]{{0, 5}}));
+        assertSame(HungarianSolver.forThread(1), HungarianSolver.forThread(2));
+    }
+}
@@ -257,6 +257,33 @@ public class PeriodRoomAssignmentsTest {
         assertTrue(courses.contains(c3));
     }
 
+    @Test
+    public void shouldMoveEarlierCourseToOtherRoomIfRequired() {
+        PeriodRoomAssignments pra = new PeriodRoomAssignments(spec);
+
+        // c1 may use r1 and r2, c2 only r1 and c3 only r2
+        roomConstraints.addRoomConstraint(c1, r3);
+        roomConstraints.addRoomConstraint(c1, r4);
+        roomConstraints.addRoomConstraint(c2, r2);
+        roomConstraints.addRoomConstraint(c2, r3);
+        roomConstraints.addRoomConstraint(c2, r4);
+        roomConstraints.addRoomConstraint(c3, r1);
+        roomConstraints.addRoomConstraint(c3, r3);
+        roomConstraints.addRoomConstraint(c3, r4);
+
+        assertTrue(pra.add(c1)); // first suitable room is r1
+        assertTrue(pra.add(c2)); // c1 needs to give up r1
+        assertFalse(pra.add(c3)); // r1 and r2 are both taken
+
+        // freeing r1 allows c1 to go back, making room for c3
+        pra.remove(c2);
+        assertTrue(pra.add(c3));
+
+        List<PeriodRoomAssignments.CourseWithRoom> cwr = pra.assignRooms();
+        assertEquals(r1, cwr.stream().filter(_cwr -> _cwr.course.equals(c1)).findFirst().get().room);
+        assertEquals(r2, cwr.stream().filter(_cwr -> _cwr.course.equals(c3)).findFirst().get().room);
+    }
+
     @Test
     public void shouldBeAbleToConstructTimetableRegressionTest() throws IOException {
         /*         rB    rC    rE     rF   rG    rS     violations
@@ -0,0 +1,149 @@
+package ch.rethab.cbctt.ea.phenotype;
+
+import ch.rethab.cbctt.domain.*;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class RoomAssignmentCacheTest {
+
+    RoomConstraints roomConstraints = new RoomConstraints();
+
+    Room r1 = new Room("r1", 1, 1);
+    Room r2 = new Room("r2", 5, 1);
+    Room r3 = new Room("r3", 10, 1);
+
+    Curriculum cur1 = new Curriculum("curr1");
+
+    Course c1 = Course.Builder.id("c1").curriculum(cur1).teacher("t1")
+            .doubleLectures(false).nWorkingDays(1).nStudents(1).build();
+    Course c2 = Course.Builder.id("c2").curriculum(cur1).teacher("t2")
+            .doubleLectures(false).nWorkingDays(1).nStudents(5).build();
+    Course c3 = Course.Builder.id("c3").curriculum(cur1).teacher("t3")
+            .doubleLectures(false).nWorkingDays(1).nStudents(10).build();
+
+    Specification spec = Specification.Builder.name("spec")
+            .days(1).periodsPerDay(1)
+            .room(r1).room(r2).room(r3)
+            .course(c1).course(c2).course(c3)
+            .curriculum(cur1)
+            .minLectures(1).maxLectures(3)
+            .roomConstraints(roomConstraints)
+            .unavailabilityConstraints(new UnavailabilityConstraints(1, 1))
+            .build();
+
+    private Room roomOf(List<PeriodRoomAssignments.CourseWithRoom> cwrs, Course c) {
+        return cwrs.stream().filter(cwr -> cwr.course.equals(c)).findFirst().get().room;
+    }
+
+    @Test
+    public void shouldHitForSameCoursesInDifferentOrder() {
+        RoomAssignmentCache cache = new RoomAssignmentCache(10);
+
+        PeriodRoomAssignments pra = new PeriodRoomAssignments(spec);
+        assertTrue(pra.add(c1));
+        assertTrue(pra.add(c3));
+        pra.assignRooms(cache);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        pra = new PeriodRoomAssignments(spec);
+        assertTrue(pra.add(c3));
+        assertTrue(pra.add(c1));
+        List<PeriodRoomAssignments.CourseWithRoom> cwrs = pra.assignRooms(cache);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // rooms must be mapped back to the right courses
+        assertEquals(r1, roomOf(cwrs, c1));
+        assertEquals(r3, roomOf(cwrs, c3));
+    }
+
+    @Test
+    public void shouldMissForDifferentCourses() {
+        RoomAssignmentCache cache = new RoomAssignmentCache(10);
+
+        PeriodRoomAssignments pra = new PeriodRoomAssignments(spec);
+        assertTrue(pra.add(c1));
+        pra.assignRooms(cache);
+
+        pra = new PeriodRoomAssignments(spec);
+        assertTrue(pra.add(c2));
+        assertEquals(r2, roomOf(pra.assignRooms(cache), c2));
+
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        RoomAssignmentCache cache = new RoomAssignmentCache(2);
+        for (Course c : new Course[]{c1, c2, c3}) {
+            PeriodRoomAssignments pra = new PeriodRoomAssignments(spec);
+            assertTrue(pra.add(c));
+            pra.assignRooms(cache);
+        }
+        assertEquals(2, cache.size());
+
+        // c1 was evicted
+        PeriodRoomAssignments pra = new PeriodRoomAssignments(spec);
+        assertTrue(pra.add(c1));
+        pra.assignRooms(cache);
+        assertEquals(0, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void shouldForgetAssignmentsAfterRoomConstraintsChanged() {
+        RoomAssignmentCache cache = new RoomAssignmentCache(10);
+
+        PeriodRoomAssignments pra = new PeriodRoomAssignments(spec);
+        assertTrue(pra.add(c1));
+        assertEquals(r1, roomOf(pra.assignRooms(cache), c1));
+
+        roomConstraints.addRoomConstraint(c1, r1);
+
+        pra = new PeriodRoomAssignments(spec);
+        assertTrue(pra.add(c1));
+        assertEquals(r2, roomOf(pra.assignRooms(cache), c1));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void shouldStoreSameAssignmentWhateverTheOrderOfAdding() {
+        // two optimal assignments, since both rooms and courses are alike
+        Room big1 = new Room("big1", 5, 1);
+        Room big2 = new Room("big2", 5, 1);
+        Course same1 = Course.Builder.id("same1").curriculum(cur1).teacher("t1")
+                .doubleLectures(false).nWorkingDays(1).nStudents(5).build();
+        Course same2 = Course.Builder.id("same2").curriculum(cur1).teacher("t2")
+                .doubleLectures(false).nWorkingDays(1).nStudents(5).build();
+        Specification alike = Specification.Builder.name("alike")
+                .days(1).periodsPerDay(1)
+                .room(big1).room(big2)
+                .course(same1).course(same2)
+                .curriculum(cur1)
+                .minLectures(1).maxLectures(2)
+                .roomConstraints(new RoomConstraints())
+                .unavailabilityConstraints(new UnavailabilityConstraints(1, 1))
+                .build();
+
+        for (RoomAssignmentCache cache : new RoomAssignmentCache[]{null, new RoomAssignmentCache(10)}) {
+            PeriodRoomAssignments pra = new PeriodRoomAssignments(alike);
+            assertTrue(pra.add(same1));
+            assertTrue(pra.add(same2));
+            Room first = roomOf(pra.assignRooms(cache), same1);
+
+            // a fresh cache, as if another thread had solved it first
+            pra = new PeriodRoomAssignments(alike);
+            assertTrue(pra.add(same2));
+            assertTrue(pra.add(same1));
+            assertEquals(first, roomOf(pra.assignRooms(cache == null ? null : new RoomAssignmentCache(10)), same1));
+        }
+    }
+}
@@ -71,6 +71,29 @@ public class TimetableTest {
         tt.addMeeting(new Meeting(c2, 0, 0));
     }
 
+    @Test
+    public void shouldOnlyRollBackOwnMeetingWhenAddFails() {
+        // c4 belongs to cur1 + cur2, so the conflict is either found in the first or in the second curriculum
+        for (Course blocking : new Course[]{c1, c3}) {
+            Timetable t = new Timetable(spec);
+            Meeting existing = new Meeting(blocking, 0, 0);
+            t.addMeeting(existing);
+            try {
+                t.addMeeting(new Meeting(c4, 0, 0));
+                fail("c4 should conflict with " + blocking.getId());
+            } catch (Timetable.InfeasibilityException expected) {
+            }
+
+            // the blocking meeting is kept, c4 is nowhere and its room is free again
+            assertEquals(existing, t.getMeeting(blocking, 0, 0));
+            assertNull(t.getMeeting(c4, 0, 0));
+            assertEquals(1, t.getMeetings().size());
+            Course other = blocking == c1 ? c3 : c1;
+            assertFalse(t.hasLectureOfSameCurriculum(other, 0, 0));
+            assertTrue(t.addMeeting(new Meeting(other, 0, 0)));
+        }
+    }
+
     @Test
     public void shouldAllowTwoCursesOfDifferentCurriculaAtSameTime() {
         Timetable tt = new Timetable(spec);
@@ -147,4 +170,117 @@ public class TimetableTest {
         assertEquals(0, t.getMeetings().size());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldTrackTeacherAndCurriculumOccupancy() {
+        Timetable t = new Timetable(spec);
+        Meeting m = new Meeting(c4, 0, 1);
+        t.addMeeting(m);
+        assertTrue(t.hasLectureWithSameTeacher("t4", 0, 1));
+        assertTrue(t.hasLectureWithSameTeacher(c4, 0, 1));
+        assertFalse(t.hasLectureWithSameTeacher(c4, 0, 2));
+        assertTrue(t.hasLectureOfSameCurriculum(c1, 0, 1));
+        assertTrue(t.hasLectureOfSameCurriculum(c3, 0, 1));
+
+        t.removeMeeting(m);
+        assertFalse(t.hasLectureWithSameTeacher(c4, 0, 1));
+        assertFalse(t.hasLectureOfSameCurriculum(c1, 0, 1));
+
+        t.addMeeting(new Meeting(c1, 0, 1));
+        assertTrue(t.hasLectureOfSameCurriculum(c4, 0, 1));
+        assertFalse(t.hasLectureOfSameCurriculum(c3, 0, 1));
+    }
+
+    @Test
+    public void shouldKeepZobristHashInSyncWithMeetings() {
+        Timetable t = new Timetable(spec);
+        assertEquals(0, t.getZobristHash());
+        t.addMeeting(new Meeting(c4, 0, 1));
+        t.addMeeting(new Meeting(c3, 1, 1));
+        long hash = t.getZobristHash();
+
+        // the same meetings in another order
+        Timetable other = new Timetable(spec);
+        other.addMeeting(new Meeting(c3, 1, 1));
+        other.addMeeting(new Meeting(c4, 0, 1));
+        assertEquals(hash, other.getZobristHash());
+
+        // children start with the hash of the parent
+        Timetable child = new GreedyRoomAssigner(spec).assignRooms(t).newChild();
+        assertEquals(hash, child.getZobristHash());
+        child.removeMeeting(new Meeting(c3, 1, 1));
+        assertNotEquals(hash, child.getZobristHash());
+        child.addMeeting(new Meeting(c3, 1, 1));
+        assertEquals(hash, child.getZobristHash());
+    }
+
+    @Test
+    public void shouldIgnoreRemovalOfAbsentMeeting() {
+        Timetable t = new Timetable(spec);
+        t.addMeeting(new Meeting(c1, 0, 1));
+        long hash = t.getZobristHash();
+
+        // another course of the same curriculum, the same course elsewhere and a course nowhere
+        t.removeMeeting(new Meeting(c2, 0, 1));
+        t.removeMeeting(new Meeting(c1, 0, 2));
+        t.removeMeeting(new Meeting(c3, 0, 1));
+
+        assertEquals(hash, t.getZobristHash());
+        assertEquals(new Meeting(c1, 0, 1), t.getMeeting(c1, 0, 1));
+        assertTrue(t.hasLectureWithSameTeacher(c1, 0, 1));
+        assertTrue(t.hasLectureOfSameCurriculum(c2, 0, 1));
+        assertFalse(t.isConflictFree(c1, 0, 1));
+        assertTrue(t.isConflictFree(c3, 0, 1));
+        assertEquals(1, t.getMeetings().size());
+    }
+
+    @Test
+    public void shouldFindConflictFreeSlots() {
+        Timetable t = new Timetable(spec);
+        t.addMeeting(new Meeting(c4, 0, 1));
+        assertFalse(t.isConflictFree(c1, 0, 1));
+        assertFalse(t.isConflictFree(c4, 0, 1));
+        assertTrue(t.isConflictFree(c1, 0, 2));
+
+        long[] slots = t.getConflictFreeSlots(c3);
+        assertEquals(days * periodsPerDay - 1, ConflictGraph.cardinality(slots));
+        assertFalse(ConflictGraph.isSet(slots, 1));
+
+        // children start with the occupancy of the parent
+        TimetableWithRooms parent = new GreedyRoomAssigner(spec).assignRooms(t);
+        Timetable child = parent.newChild();
+        assertFalse(child.isConflictFree(c2, 0, 1));
+        child.removeMeeting(new Meeting(c4, 0, 1));
+        assertTrue(child.isConflictFree(c2, 0, 1));
+    }
+
+    @Test
+    public void shouldNotModifyParentOrSiblingsWhenModifyingChild() {
+        TimetableWithRooms parent = TimetableWithRooms.Builder.newBuilder(spec)
+                .addMeeting(c4, r1, 0, 1)
+                .addMeeting(c1, r1, 0, 2)
+                .addMeeting(c3, r2, 0, 2)
+                .build();
+
+        Timetable child = parent.newChild();
+        Timetable sibling = parent.newChild();
+        child.removeMeeting(new Meeting(c4, 0, 1));
+        child.addMeeting(new Meeting(c2, 0, 1));
+
+        assertNull(child.getMeeting(c4, 0, 1));
+        assertFalse(child.hasLectureWithSameTeacher(c4, 0, 1));
+        assertEquals(new Meeting(c4, 0, 1), sibling.getMeeting(c4, 0, 1));
+        assertTrue(sibling.hasLectureWithSameTeacher(c4, 0, 1));
+        assertNull(sibling.getMeeting(c2, 0, 1));
+        assertEquals(3, parent.getMeetings().size());
+        assertNotNull(parent.getMeeting(c4, 0, 1));
+
+        // the untouched slot keeps its meetings and rooms
+        RoomAssigner roomAssigner = new GreedyRoomAssigner(spec);
+        TimetableWithRooms withRooms = roomAssigner.assignRooms(child);
+        assertEquals(r1, withRooms.getMeeting(c1, 0, 2).getRoom());
+        assertEquals(r2, withRooms.getMeeting(c3, 0, 2).getRoom());
+        assertNotNull(withRooms.getMeeting(c2, 0, 1));
+        assertEquals(3, withRooms.getMeetings().size());
+    }
+
+}
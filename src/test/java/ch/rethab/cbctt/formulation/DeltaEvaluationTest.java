@@ -0,0 +1,86 @@
+package ch.rethab.cbctt.formulation;
+
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.TeacherGreedyInitializer;
+import ch.rethab.cbctt.ea.op.*;
+import ch.rethab.cbctt.ea.phenotype.*;
+import ch.rethab.cbctt.moea.SolutionConverter;
+import org.junit.Test;
+import org.moeaframework.core.Solution;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
+import static org.junit.Assert.*;
+
+/**
+ * Makes sure incremental evaluation yields the same as evaluating from scratch.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class DeltaEvaluationTest {
+
+    @Test
+    public void shouldEvaluateSingleMovesLikeFromScratch() throws Exception {
+        Specification spec = parse(1);
+        Formulation formulation = new UD1Formulation(spec);
+        RoomAssigner roomAssigner = new GreedyRoomAssigner(spec);
+        TimetableWithRooms t = new TeacherGreedyInitializer(spec, roomAssigner).initialize(1).get(0);
+
+        CompactTimetable parent = CompactTimetable.fromWithRooms(spec, t);
+        CostBreakdown parentCost = formulation.evaluate(t);
+        int nSlots = spec.getCompiled().getNumberOfSlots();
+        int nRooms = spec.getCompiled().getNumberOfRooms();
+
+        // move each lecture into another room and slot. this creates conflicts, which must be counted as well
+        int withConflicts = 0;
+        for (int l = 0; l < parent.getNumberOfLectures(); l += 7) {
+            int toSlot = (parent.getSlot(l) + 1 + l % 5) % nSlots;
+            int toRoom = (parent.getRoom(l) + 1) % nRooms;
+            List<Move> moves = Arrays.asList(new Move(l, parent.getSlot(l), parent.getRoom(l), toSlot, toRoom));
+            CompactTimetable child = parent.apply(moves);
+
+            // compared with the compact child, as the object view can't hold these conflicts
+            CostBreakdown expected = formulation.evaluate(child);
+            assertEquals(expected, formulation.evaluateDelta(parentCost, parent, child, moves));
+            for (int i = 0; i < formulation.getNumberOfConstraints(); i++) {
+                if (expected.getConstraintViolations(i) > 0) {
+                    withConflicts++;
+                    break;
+                }
+            }
+        }
+        assertTrue(withConflicts > 0);
+    }
+
+    @Test
+    public void shouldEvaluateOffspringLikeFromScratch() throws Exception {
+        for (int comp : new int[]{1, 19}) {
+            Specification spec = parse(comp);
+            Formulation formulation = new UD1Formulation(spec);
+            SolutionConverter solutionConverter = new SolutionConverter(formulation);
+            Evaluator evaluator = new Evaluator(formulation, solutionConverter);
+            RoomAssigner roomAssigner = new GreedyRoomAssigner(spec);
+
+            List<TimetableWithRooms> ts = new TeacherGreedyInitializer(spec, roomAssigner).initialize(2);
+            Solution[] parents = new Solution[]{solutionConverter.toSolution(ts.get(0)), solutionConverter.toSolution(ts.get(1))};
+            evaluator.evaluate(parents[0]);
+            evaluator.evaluate(parents[1]);
+
+            CbcttVariation mutation = new CourseBasedMutation(spec, solutionConverter, roomAssigner, 1);
+            CbcttVariation crossover = new CourseBasedCrossover(spec, solutionConverter, roomAssigner);
+
+            for (int round = 0; round < 30; round++) {
+                Solution[] kids = round % 3 == 0 ? crossover.evolve(parents) : mutation.evolve(new Solution[]{parents[round % 2]});
+                for (Solution kid : kids) {
+                    evaluator.evaluate(kid);
+                    assertEquals(formulation.evaluate(solutionConverter.fromSolution(kid)), solutionConverter.variableFromSolution(kid).getCost());
+                }
+                if (kids.length > 0) {
+                    parents[round % 2] = kids[0];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ch.rethab.cbctt.formulation;
+
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.TeacherGreedyInitializer;
+import ch.rethab.cbctt.ea.op.CbcttVariation;
+import ch.rethab.cbctt.ea.op.CourseBasedMutation;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.RoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.moea.SolutionConverter;
+import org.junit.Test;
+import org.moeaframework.core.Solution;
+
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
+import static org.junit.Assert.*;
+
+/**
+ * Makes sure the fused evaluation counts the same as the constraints on their own.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class FusedUD1EvaluationTest {
+
+    private static final int ATTEMPTS = 10;
+
+    /* the greedy initializer gives up now and then, so every instance gets a few tries */
+    private TimetableWithRooms initialize(Specification spec, RoomAssigner roomAssigner) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return new TeacherGreedyInitializer(spec, roomAssigner).initialize(1).get(0);
+            } catch (RuntimeException e) {
+                if (attempt == ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldEvaluateLikeEachConstraintOnAllInstances() throws Exception {
+        for (int comp = 0; comp <= 21; comp++) {
+            Specification spec = parse(comp);
+            Formulation formulation = new UD1Formulation(spec);
+            SolutionConverter solutionConverter = new SolutionConverter(formulation);
+            RoomAssigner roomAssigner = new GreedyRoomAssigner(spec);
+
+            TimetableWithRooms t = initialize(spec, roomAssigner);
+            assertEquals("comp" + comp, formulation.evaluateEach(t), formulation.evaluate(t));
+
+            // mutated offspring have violations in other places
+            CbcttVariation mutation = new CourseBasedMutation(spec, solutionConverter, roomAssigner, 1);
+            Solution[] kids = new Solution[]{solutionConverter.toSolution(t)};
+            for (int round = 0; round < 5 && kids.length > 0; round++) {
+                kids = mutation.evolve(kids);
+                if (kids.length > 0) {
+                    TimetableWithRooms kid = solutionConverter.fromSolution(kids[0]);
+                    CostBreakdown expected = formulation.evaluateEach(kid);
+                    assertEquals("comp" + comp, expected, formulation.evaluate(kid));
+                    assertEquals("comp" + comp, expected, formulation.evaluate(CompactTimetable.fromWithRooms(spec, kid)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ch.rethab.cbctt.formulation;
+
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.SaturationInitializer;
+import ch.rethab.cbctt.ea.phenotype.CompactTimetable;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
+import static org.junit.Assert.*;
+
+/**
+ * Makes sure the incremental evaluation yields the same as evaluating from scratch.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class IncrementalUD1EvaluationTest {
+
+    private CompactTimetable create(Specification spec) {
+        return CompactTimetable.fromWithRooms(spec,
+                new SaturationInitializer(spec, new GreedyRoomAssigner(spec), new RandomStreams(1)).initialize(1).get(0));
+    }
+
+    private CompactTimetable toCompact(Specification spec, IncrementalUD1Evaluation state) {
+        int[] genes = new int[state.getNumberOfLectures()];
+        state.copyGenes(genes);
+        return CompactTimetable.fromGenes(spec, genes);
+    }
+
+    /* applies a random move, swap or kempe swap that fits. returns false if none was made */
+    private boolean randomMove(Specification spec, IncrementalUD1Evaluation state, SplittableRandom rand, int[] delta) {
+        int lecture = rand.nextInt(state.getNumberOfLectures());
+        int gene = rand.nextInt(state.getNumberOfGenes());
+        int other = state.getLectureAt(gene);
+        if (rand.nextInt(3) == 0) {
+            return state.kempeSwap(lecture, rand.nextInt(spec.getCompiled().getNumberOfSlots()), delta);
+        } else if (other == IncrementalUD1Evaluation.FREE && state.fits(lecture, gene, other)) {
+            state.move(lecture, gene, delta);
+            return true;
+        } else if (other >= 0 && !state.sameCourse(lecture, other)
+                && state.fits(lecture, gene, other) && state.fits(other, state.getGene(lecture), lecture)) {
+            state.swap(lecture, other, delta);
+            return true;
+        }
+        return false;
+    }
+
+    @Test
+    public void shouldComputeSameDeltaAsFromScratch() throws IOException {
+        for (String filename : new String[]{"comp01.ectt", "comp05.ectt"}) {
+            Specification spec = parse(filename);
+            Formulation formulation = new UD1Formulation(spec);
+            CompactTimetable t = create(spec);
+            IncrementalUD1Evaluation state = new IncrementalUD1Evaluation(spec.getCompiled(), t.getGenes());
+            CostBreakdown cost = formulation.evaluate(t);
+
+            SplittableRandom rand = new SplittableRandom(3);
+            int[] delta = new int[IncrementalUD1Evaluation.NUMBER_OF_OBJECTIVES];
+            int checked = 0;
+            while (checked < 500) {
+                if (!randomMove(spec, state, rand, delta)) {
+                    continue;
+                }
+                CostBreakdown next = formulation.evaluate(toCompact(spec, state));
+                for (int i = 0; i < delta.length; i++) {
+                    assertEquals(next.getObjectiveViolations(i) - cost.getObjectiveViolations(i), delta[i]);
+                }
+                // only feasible moves are made
+                for (int i = 0; i < formulation.getNumberOfConstraints(); i++) {
+                    assertEquals(0, next.getConstraintViolations(i));
+                }
+                cost = next;
+                checked++;
+            }
+        }
+    }
+
+    @Test
+    public void shouldRestoreTimetableOnUndo() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        CompactTimetable t = create(spec);
+        IncrementalUD1Evaluation state = new IncrementalUD1Evaluation(spec.getCompiled(), t.getGenes());
+        int[] objectives = state.objectiveViolations();
+
+        SplittableRandom rand = new SplittableRandom(4);
+        int[] delta = new int[IncrementalUD1Evaluation.NUMBER_OF_OBJECTIVES];
+        int[] undoDelta = new int[IncrementalUD1Evaluation.NUMBER_OF_OBJECTIVES];
+        for (int i = 0; i < 300; i++) {
+            if (randomMove(spec, state, rand, delta)) {
+                state.undo(undoDelta);
+                for (int o = 0; o < delta.length; o++) {
+                    assertEquals(-delta[o], undoDelta[o]);
+                }
+            }
+        }
+        assertEquals(t, toCompact(spec, state));
+        assertArrayEquals(objectives, state.objectiveViolations());
+    }
+
+    @Test
+    public void shouldSwapWholeKempeChain() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        int nRooms = spec.getCompiled().getNumberOfRooms();
+        CompactTimetable t = create(spec);
+        IncrementalUD1Evaluation state = new IncrementalUD1Evaluation(spec.getCompiled(), t.getGenes());
+        int[] delta = new int[IncrementalUD1Evaluation.NUMBER_OF_OBJECTIVES];
+
+        int swapped = 0;
+        int[] before = new int[t.getNumberOfLectures()];
+        int[] after = new int[t.getNumberOfLectures()];
+        for (int lecture = 0; lecture < t.getNumberOfLectures(); lecture++) {
+            int fromSlot = state.getGene(lecture) / nRooms;
+            int toSlot = (fromSlot + 1) % spec.getCompiled().getNumberOfSlots();
+            state.copyGenes(before);
+            if (!state.kempeSwap(lecture, toSlot, delta)) {
+                continue;
+            }
+            swapped++;
+            state.copyGenes(after);
+            assertEquals(toSlot, after[lecture] / nRooms);
+            // lectures of other slots stay, the ones of the two slots stay or change slot
+            for (int l = 0; l < t.getNumberOfLectures(); l++) {
+                int slot = before[l] / nRooms;
+                if (slot == fromSlot || slot == toSlot) {
+                    assertTrue(after[l] / nRooms == fromSlot || after[l] / nRooms == toSlot);
+                } else {
+                    assertEquals(before[l], after[l]);
+                }
+            }
+        }
+        assertTrue(swapped > 0);
+    }
+}
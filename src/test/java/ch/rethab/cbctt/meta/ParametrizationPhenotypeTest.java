@@ -1,12 +1,18 @@
 package ch.rethab.cbctt.meta;
 
 import ch.rethab.cbctt.ea.CbcttStaticParameters;
+import ch.rethab.cbctt.ea.op.CbcttVariation;
+import ch.rethab.cbctt.ea.op.HillClimbing;
+import ch.rethab.cbctt.ea.op.KempeChainMutation;
 import ch.rethab.cbctt.moea.VariationFactory;
 import org.junit.Test;
 import org.moeaframework.core.Variable;
+import org.moeaframework.core.variable.BinaryVariable;
 
 import java.util.List;
 
+import static org.junit.Assert.*;
+
 /**
  * @author Reto Habluetzel, 2015
  */
@@ -19,4 +25,30 @@ public class ParametrizationPhenotypeTest {
         ParametrizationPhenotype.decode(cbcttStaticParameters, variables);
     }
 
+    @Test
+    public void shouldAddLocalSearchAfterOtherOperators() {
+        CbcttStaticParameters cbcttStaticParameters = new CbcttStaticParameters(0, null, null, null, null, new VariationFactory(null, null, null));
+        List<Variable> variables = ParametrizationPhenotype.newVariables(cbcttStaticParameters);
+        BinaryVariable operators = (BinaryVariable) variables.get(ParametrizationPhenotype.VARIATOR_IDX);
+        operators.set(0, true);
+        operators.set(4, true);
+
+        List<CbcttVariation> selected = ParametrizationPhenotype.decode(cbcttStaticParameters, variables).getOperators();
+        assertEquals(2, selected.size());
+        assertTrue(selected.get(1) instanceof HillClimbing);
+    }
+
+    @Test
+    public void shouldDecodeKempeChainMutation() {
+        CbcttStaticParameters cbcttStaticParameters = new CbcttStaticParameters(0, null, null, null, null, new VariationFactory(null, null, null));
+        List<Variable> variables = ParametrizationPhenotype.newVariables(cbcttStaticParameters);
+        BinaryVariable operators = (BinaryVariable) variables.get(ParametrizationPhenotype.VARIATOR_IDX);
+        operators.set(4, true);
+        operators.set(5, true);
+
+        List<CbcttVariation> selected = ParametrizationPhenotype.decode(cbcttStaticParameters, variables).getOperators();
+        assertEquals(2, selected.size());
+        assertTrue(selected.get(0) instanceof KempeChainMutation);
+        assertTrue(selected.get(1) instanceof HillClimbing);
+    }
 }
@@ -0,0 +1,58 @@
+package ch.rethab.cbctt.moea;
+
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.ea.CbcttFixture;
+import ch.rethab.cbctt.ea.CurriculumBasedTimetabling;
+import ch.rethab.cbctt.meta.ParametrizationPhenotype;
+import org.junit.Test;
+import org.moeaframework.core.Algorithm;
+import org.moeaframework.core.Solution;
+import org.moeaframework.util.distributed.ParallelSPEA2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class InitializingAlgorithmFactoryTest {
+
+    /* objectives and timetable of every solution of the population after a few generations */
+    private List<String> run(long seed) throws Exception {
+        RandomStreams random = new RandomStreams(seed);
+        CbcttFixture fixture = CbcttFixture.Builder.instance("comp01.ectt").generations(3).random(random).build();
+        VariationFactory variationFactory = fixture.getVariationFactory();
+        ParametrizationPhenotype params = new ParametrizationPhenotype(Arrays.asList(
+                variationFactory.getCrossoverOperator(0, 2), variationFactory.getMutationOperator(0, 0.5)), 6, 6, 1);
+
+        Properties properties = new Properties();
+        properties.setProperty("populationSize", "6");
+        properties.setProperty("numberOfOffspring", "6");
+        properties.setProperty("k", "1");
+        properties.setProperty("threads", "4");
+        InitializingAlgorithmFactory factory = new InitializingAlgorithmFactory(fixture.getStaticParameters(),
+                params.getVariation(), random);
+        Algorithm algorithm = factory.getAlgorithm("ParallelSPEA2", properties,
+                new CurriculumBasedTimetabling(fixture.getFormulation(), fixture.getEvaluator()));
+        for (int i = 0; i < 3; i++) {
+            algorithm.step();
+        }
+        algorithm.terminate();
+
+        List<String> population = new ArrayList<>();
+        for (Solution s : ((ParallelSPEA2) algorithm).getPopulation()) {
+            VariableAdapter variable = (VariableAdapter) s.getVariable(0);
+            population.add(Arrays.toString(s.getObjectives()) + variable.getZobristHash());
+        }
+        return population;
+    }
+
+    @Test
+    public void shouldRunParallelSPEA2ReproduciblyForSameSeed() throws Exception {
+        assertEquals(run(42), run(42));
+    }
+}
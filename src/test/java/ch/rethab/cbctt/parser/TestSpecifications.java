@@ -0,0 +1,29 @@
+package ch.rethab.cbctt.parser;
+
+import ch.rethab.cbctt.domain.Specification;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Parses the specifications from the test resources.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public final class TestSpecifications {
+
+    private TestSpecifications() {
+    }
+
+    public static Specification parse(String filename) throws IOException {
+        InputStream is = TestSpecifications.class.getClassLoader().getResourceAsStream(filename);
+        return new ECTTParser(new BufferedReader(new InputStreamReader(is))).parse();
+    }
+
+    /** @param comp number of the ITC-2007 competition instance, i.e. compXX.ectt */
+    public static Specification parse(int comp) throws IOException {
+        return parse(String.format("comp%02d.ectt", comp));
+    }
+}
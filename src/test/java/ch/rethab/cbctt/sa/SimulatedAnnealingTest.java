@@ -0,0 +1,82 @@
+package ch.rethab.cbctt.sa;
+
+import ch.rethab.cbctt.RandomStreams;
+import ch.rethab.cbctt.domain.Specification;
+import ch.rethab.cbctt.ea.initializer.Initializer;
+import ch.rethab.cbctt.ea.initializer.SaturationInitializer;
+import ch.rethab.cbctt.ea.phenotype.GreedyRoomAssigner;
+import ch.rethab.cbctt.ea.phenotype.MeetingWithRoom;
+import ch.rethab.cbctt.ea.phenotype.TimetableWithRooms;
+import ch.rethab.cbctt.ea.printer.UdinePrinter;
+import ch.rethab.cbctt.formulation.CostBreakdown;
+import ch.rethab.cbctt.formulation.UD1Formulation;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static ch.rethab.cbctt.parser.TestSpecifications.parse;
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class SimulatedAnnealingTest {
+
+    /* never runs out, the runs are bounded by the number of moves */
+    private static final long BUDGET = TimeUnit.HOURS.toMillis(1);
+
+    private int weighted(UD1Formulation formulation, CostBreakdown cost) {
+        int total = 0;
+        for (int i = 0; i < formulation.getNumberOfObjectives(); i++) {
+            total += cost.getObjectiveViolations(i) * formulation.getObjectives()[i].penalty;
+        }
+        return total;
+    }
+
+    @Test
+    public void shouldImproveInitialTimetableAndStayFeasible() throws IOException {
+        for (String filename : new String[]{"comp01.ectt", "comp05.ectt", "comp12.ectt"}) {
+            Specification spec = parse(filename);
+            UD1Formulation formulation = new UD1Formulation(spec);
+            TimetableWithRooms initial = new SaturationInitializer(spec, new GreedyRoomAssigner(spec), new RandomStreams(1))
+                    .initialize(1).get(0);
+            // always hand over the same start, so it can be compared
+            Initializer initializer = size -> Collections.nCopies(size, initial);
+
+            SimulatedAnnealing annealing = new SimulatedAnnealing(spec, formulation, initializer, new RandomStreams(2));
+            TimetableWithRooms t = annealing.solve(BUDGET, 500000);
+            CostBreakdown cost = formulation.evaluate(t);
+
+            for (int i = 0; i < formulation.getNumberOfConstraints(); i++) {
+                assertEquals(0, cost.getConstraintViolations(i));
+            }
+            assertTrue(weighted(formulation, cost) < weighted(formulation, formulation.evaluate(initial)));
+            assertEquals(500000, annealing.getMoves());
+        }
+    }
+
+    @Test
+    public void shouldNotUseUnsuitableRooms() throws IOException {
+        Specification spec = parse("comp07.ectt");
+        UD1Formulation formulation = new UD1Formulation(spec);
+        SimulatedAnnealing annealing = new SimulatedAnnealing(spec, formulation,
+                new SaturationInitializer(spec, new GreedyRoomAssigner(spec), new RandomStreams(4)), new RandomStreams(4));
+
+        for (MeetingWithRoom m : annealing.solve(BUDGET, 200000).getMeetings()) {
+            assertFalse(spec.getRoomConstraints().isUnsuitable(m.getCourse(), m.getRoom()));
+        }
+    }
+
+    @Test
+    public void shouldPrintEveryLecture() throws IOException {
+        Specification spec = parse("comp01.ectt");
+        UD1Formulation formulation = new UD1Formulation(spec);
+        SimulatedAnnealing annealing = new SimulatedAnnealing(spec, formulation,
+                new SaturationInitializer(spec, new GreedyRoomAssigner(spec), new RandomStreams(3)), new RandomStreams(3));
+
+        String printed = new UdinePrinter().print(annealing.solve(BUDGET, 10000));
+        assertEquals(spec.getCompiled().getNumberOfLectures(), printed.split("\n").length);
+    }
+}
@@ -0,0 +1,194 @@
+package org.moeaframework.util.distributed;
+
+import org.junit.Test;
+import org.moeaframework.core.*;
+import org.moeaframework.core.comparator.ChainedComparator;
+import org.moeaframework.core.comparator.CrowdingComparator;
+import org.moeaframework.core.comparator.ParetoDominanceComparator;
+import org.moeaframework.core.operator.TournamentSelection;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class AsyncNSGAIITest {
+
+    /* two objectives of one decision variable, which is kept as attribute */
+    private final Problem problem = new Problem() {
+        @Override public String getName() { return "Schaffer"; }
+        @Override public int getNumberOfVariables() { return 0; }
+        @Override public int getNumberOfObjectives() { return 2; }
+        @Override public int getNumberOfConstraints() { return 0; }
+        @Override public Solution newSolution() { return new Solution(0, 2, 0); }
+        @Override public void close() { }
+        @Override public void evaluate(Solution solution) {
+            double x = (double) solution.getAttribute("x");
+            solution.setObjective(0, x * x);
+            solution.setObjective(1, (x - 2) * (x - 2));
+        }
+    };
+
+    private final Initialization initialization = () -> {
+        Solution[] solutions = new Solution[10];
+        for (int i = 0; i < solutions.length; i++) {
+            solutions[i] = newSolution(i - 5);
+        }
+        return solutions;
+    };
+
+    private final Variation variation = new Variation() {
+        @Override public int getArity() { return 2; }
+        @Override public Solution[] evolve(Solution[] parents) {
+            double a = (double) parents[0].getAttribute("x");
+            double b = (double) parents[1].getAttribute("x");
+            return new Solution[]{newSolution(0.7 * a + 0.3 * b), newSolution(0.3 * a + 0.7 * b)};
+        }
+    };
+
+    private Solution newSolution(double x) {
+        Solution s = new Solution(0, 2, 0);
+        s.setAttribute("x", x);
+        return s;
+    }
+
+    private AsyncNSGAII create(Variation variation, long timeoutMillis) {
+        Selection selection = new TournamentSelection(2,
+                new ChainedComparator(new ParetoDominanceComparator(), new CrowdingComparator()));
+        return new AsyncNSGAII(problem, new NondominatedSortingPopulation(), null, selection, variation,
+                initialization, Executors.newFixedThreadPool(4), 4, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void shouldKeepPopulationSizeAndCountEvaluations() {
+        AsyncNSGAII nsga = create(variation, 10000);
+        nsga.step();
+        assertEquals(10, nsga.getPopulation().size());
+        assertEquals(10, nsga.getNumberOfEvaluations());
+
+        // a step waits for at least 5 variations with two kids each
+        nsga.step();
+        assertEquals(10, nsga.getPopulation().size());
+        assertTrue(nsga.getNumberOfEvaluations() >= 20);
+        nsga.terminate();
+
+        assertEquals(0, nsga.getNumberOfFailures());
+        assertEquals(0, nsga.getNumberOfTimeouts());
+    }
+
+    @Test
+    public void shouldConvergeToParetoFront() {
+        AsyncNSGAII nsga = create(variation, 10000);
+        for (int i = 0; i < 30; i++) {
+            nsga.step();
+        }
+        nsga.terminate();
+
+        // the pareto optimal solutions are between 0 and 2
+        for (Solution s : nsga.getPopulation()) {
+            double x = (double) s.getAttribute("x");
+            assertTrue("x=" + x, x >= 0 && x <= 2);
+        }
+    }
+
+    @Test
+    public void shouldCountFailuresAndKeepGoing() {
+        AtomicInteger calls = new AtomicInteger();
+        Variation failing = new Variation() {
+            @Override public int getArity() { return 2; }
+            @Override public Solution[] evolve(Solution[] parents) {
+                if (calls.incrementAndGet() % 2 == 0) {
+                    throw new IllegalStateException("crossover failed");
+                }
+                return variation.evolve(parents);
+            }
+        };
+        AsyncNSGAII nsga = create(failing, 10000);
+        for (int i = 0; i < 5; i++) {
+            nsga.step();
+        }
+        nsga.terminate();
+
+        assertTrue(nsga.getNumberOfFailures() > 0);
+        assertTrue(nsga.getLastFailure() instanceof IllegalStateException);
+        assertEquals(10, nsga.getPopulation().size());
+        assertTrue(nsga.getNumberOfEvaluations() > 10);
+    }
+
+    @Test
+    public void shouldCountTimeoutsWithoutDroppingOffspring() {
+        Variation slow = new Variation() {
+            @Override public int getArity() { return 2; }
+            @Override public Solution[] evolve(Solution[] parents) {
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return variation.evolve(parents);
+            }
+        };
+        AsyncNSGAII nsga = create(slow, 1);
+        nsga.step();
+        nsga.step();
+        nsga.terminate();
+
+        assertTrue(nsga.getNumberOfTimeouts() >= 5);
+        assertTrue(nsga.getNumberOfEvaluations() >= 20);
+    }
+
+    @Test
+    public void shouldCountHangingVariationAndNotWaitForItOnTerminate() {
+        CountDownLatch never = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Variation hanging = new Variation() {
+            @Override public int getArity() { return 2; }
+            @Override public Solution[] evolve(Solution[] parents) {
+                if (calls.incrementAndGet() == 1) {
+                    try {
+                        never.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException("interrupted", e);
+                    }
+                }
+                return variation.evolve(parents);
+            }
+        };
+        AsyncNSGAII nsga = create(hanging, 50);
+
+        // the other workers keep the steps going while the first variation hangs
+        long deadline = System.currentTimeMillis() + 10000;
+        while (nsga.getNumberOfTimeouts() == 0 && System.currentTimeMillis() < deadline) {
+            nsga.step();
+        }
+        assertEquals(1, nsga.getNumberOfTimeouts());
+
+        long start = System.currentTimeMillis();
+        nsga.terminate();
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(1, nsga.getNumberOfTimeouts());
+        assertEquals(10, nsga.getPopulation().size());
+    }
+
+    @Test(expected = FrameworkException.class)
+    public void shouldFailIfAllWorkersDied() {
+        Variation broken = new Variation() {
+            @Override public int getArity() { return 2; }
+            @Override public Solution[] evolve(Solution[] parents) {
+                throw new AssertionError("broken");
+            }
+        };
+        AsyncNSGAII nsga = create(broken, 10000);
+        nsga.step();
+        try {
+            nsga.step();
+        } finally {
+            nsga.terminate();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.moeaframework.util.distributed;
+
+import org.junit.Test;
+import org.moeaframework.core.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Reto Habluetzel, 2015
+ */
+public class ParallelSPEA2Test {
+
+    /* two objectives of one decision variable, which is kept as attribute */
+    private final Problem problem = new Problem() {
+        @Override public String getName() { return "Schaffer"; }
+        @Override public int getNumberOfVariables() { return 0; }
+        @Override public int getNumberOfObjectives() { return 2; }
+        @Override public int getNumberOfConstraints() { return 0; }
+        @Override public Solution newSolution() { return new Solution(0, 2, 0); }
+        @Override public void close() { }
+        @Override public void evaluate(Solution solution) {
+            double x = (double) solution.getAttribute("x");
+            solution.setObjective(0, x * x);
+            solution.setObjective(1, (x - 2) * (x - 2));
+        }
+    };
+
+    private final Initialization initialization = () -> {
+        Solution[] solutions = new Solution[10];
+        for (int i = 0; i < solutions.length; i++) {
+            solutions[i] = newSolution(i - 5);
+        }
+        return solutions;
+    };
+
+    private final Variation variation = new Variation() {
+        @Override public int getArity() { return 2; }
+        @Override public Solution[] evolve(Solution[] parents) {
+            double a = (double) parents[0].getAttribute("x");
+            double b = (double) parents[1].getAttribute("x");
+            return new Solution[]{newSolution(0.7 * a + 0.3 * b), newSolution(0.3 * a + 0.7 * b)};
+        }
+    };
+
+    /* random of the task that runs on this thread */
+    private static final ThreadLocal<Random> TASK_RANDOM = new ThreadLocal<>();
+
+    private static <T> T withRandom(long seed, Supplier<T> task) {
+        TASK_RANDOM.set(new Random(seed));
+        try {
+            return task.get();
+        } finally {
+            TASK_RANDOM.remove();
+        }
+    }
+
+    private Solution newSolution(double x) {
+        Solution s = new Solution(0, 2, 0);
+        s.setAttribute("x", x);
+        return s;
+    }
+
+    private List<Double> run(long seed, int threads) {
+        PRNG.setSeed(seed);
+        ParallelSPEA2 spea2 = new ParallelSPEA2(problem, initialization, variation, 8, 1, threads);
+        for (int i = 0; i < 20; i++) {
+            spea2.step();
+        }
+        spea2.terminate();
+
+        List<Double> xs = new ArrayList<>();
+        spea2.getPopulation().forEach(s -> xs.add((double) s.getAttribute("x")));
+        return xs;
+    }
+
+    @Test
+    public void shouldKeepPopulationSizeAndCountEvaluations() {
+        PRNG.setSeed(1);
+        ParallelSPEA2 spea2 = new ParallelSPEA2(problem, initialization, variation, 7, 1, 4);
+        spea2.step();
+        assertEquals(10, spea2.getPopulation().size());
+        assertEquals(10, spea2.getNumberOfEvaluations());
+
+        // 7 offspring require 4 calls with two kids each
+        spea2.step();
+        assertEquals(10, spea2.getPopulation().size());
+        assertEquals(18, spea2.getNumberOfEvaluations());
+        spea2.terminate();
+    }
+
+    @Test
+    public void shouldBeDeterministicForSameSeed() {
+        assertEquals(run(42, 4), run(42, 4));
+    }
+
+    @Test
+    public void shouldBeDeterministicWithRandomOperatorsInTaskScope() {
+        Variation randomBlend = new Variation() {
+            @Override public int getArity() { return 2; }
+            @Override public Solution[] evolve(Solution[] parents) {
+                double w = TASK_RANDOM.get().nextDouble();
+                double a = (double) parents[0].getAttribute("x");
+                double b = (double) parents[1].getAttribute("x");
+                return new Solution[]{newSolution(w * a + (1 - w) * b), newSolution((1 - w) * a + w * b)};
+            }
+        };
+
+        List<List<Double>> runs = new ArrayList<>();
+        for (int threads : new int[]{1, 4}) {
+            ParallelSPEA2 spea2 = new ParallelSPEA2(problem, initialization, randomBlend, 8, 1,
+                    threads, new Random(11));
+            spea2.setTaskScope(ParallelSPEA2Test::withRandom);
+            for (int i = 0; i < 20; i++) {
+                spea2.step();
+            }
+            spea2.terminate();
+            List<Double> xs = new ArrayList<>();
+            spea2.getPopulation().forEach(s -> xs.add((double) s.getAttribute("x")));
+            runs.add(xs);
+        }
+        assertEquals(runs.get(0), runs.get(1));
+    }
+
+    @Test
+    public void shouldConvergeToParetoFront() {
+        // the pareto optimal solutions are between 0 and 2
+        for (double x : run(7, 4)) {
+            assertTrue("x=" + x, x >= 0 && x <= 2);
+        }
+    }
+
+    @Test
+    public void shouldRemoveDuplicates() {
+        // offspring are copies of the parents
+        Variation cloning = new Variation() {
+            @Override public int getArity() { return 2; }
+            @Override public Solution[] evolve(Solution[] parents) {
+                return new Solution[]{parents[0].copy(), parents[1].copy()};
+            }
+        };
+        PRNG.setSeed(3);
+        ParallelSPEA2 spea2 = new ParallelSPEA2(problem, initialization, cloning, 8, 1, 4);
+        spea2.setDuplicateFilter(s -> Double.doubleToLongBits((double) s.getAttribute("x")));
+        for (int i = 0; i < 3; i++) {
+            spea2.step();
+        }
+        spea2.terminate();
+
+        Set<Double> xs = new HashSet<>();
+        spea2.getPopulation().forEach(s -> assertTrue(xs.add((double) s.getAttribute("x"))));
+        assertEquals(10, xs.size());
+        // the first step initializes, the other two create 8 copies each
+        assertEquals(16, spea2.getNumberOfDuplicates());
+    }
+
+    @Test
+    public void shouldLeavePoolOfCallerRunning() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        PRNG.setSeed(5);
+        ParallelSPEA2 spea2 = new ParallelSPEA2(problem, initialization, variation, 8, 1, pool, null);
+        spea2.step();
+        spea2.terminate();
+        assertFalse(pool.isShutdown());
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,163 @@
+package org.moeaframework.util.distributed;
+
+import org.junit.Test;
+import org.moeaframework.core.Solution;
+import org.moeaframework.core.comparator.ParetoDominanceComparator;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the incremental selection with a straight forward one.
+ *
+ * @author Reto Habluetzel, 2015
+ */
+public class SPEA2SelectionTest {
+
+    private final ParetoDominanceComparator comparator = new ParetoDominanceComparator();
+
+    private final Random random = new Random(3);
+
+    /* small integer objectives, so there are duplicates and ties like with the timetables */
+    private Solution randomSolution() {
+        Solution s = new Solution(0, 3, 1);
+        for (int o = 0; o < 3; o++) {
+            s.setObjective(o, random.nextInt(12));
+        }
+        s.setConstraint(0, random.nextInt(4) == 0 ? -random.nextInt(3) : 0);
+        return s;
+    }
+
+    @Test
+    public void shouldSelectLikeReferenceAcrossGenerations() {
+        for (int size : new int[]{1, 5, 20, 60}) {
+            SPEA2Selection selection = new SPEA2Selection(1, comparator);
+            Solution[] population = new Solution[size];
+            for (int i = 0; i < size; i++) {
+                population[i] = randomSolution();
+            }
+            population = selection.select(population, size);
+
+            for (int generation = 0; generation < 30; generation++) {
+                int nOffspring = 1 + random.nextInt(2 * size);
+                Solution[] candidates = Arrays.copyOf(population, size + nOffspring);
+                for (int i = size; i < candidates.length; i++) {
+                    candidates[i] = randomSolution();
+                }
+
+                Set<Solution> expected = referenceSelect(candidates, size, 1);
+                population = selection.select(candidates, size);
+                assertEquals(size, population.length);
+                assertEquals("size=" + size + ", generation=" + generation,
+                        expected, identitySet(population));
+            }
+        }
+    }
+
+    @Test
+    public void shouldComputeFitness() {
+        Solution a = solution(0, 0);
+        Solution b = solution(1, 1);
+        Solution c = solution(2, 2);
+        SPEA2Selection selection = new SPEA2Selection(1, comparator);
+        Solution[] selected = selection.select(new Solution[]{a, b, c}, 3);
+        assertArrayEquals(new Solution[]{a, b, c}, selected);
+
+        // a dominates two, b one. density from the nearest neighbour
+        double d = Math.sqrt(2);
+        double[] expected = {1 / (d + 2), 2 + 1 / (d + 2), 3 + 1 / (d + 2)};
+        assertArrayEquals(expected, selection.getFitness(), 1e-9);
+    }
+
+    @Test
+    public void shouldRemoveMostCrowdedWhenTruncating() {
+        Solution a = solution(0, 10);
+        Solution b = solution(5, 5);
+        Solution c = solution(6, 4);
+        Solution d = solution(10, 0);
+        Solution[] selected = new SPEA2Selection(1, comparator).select(new Solution[]{a, b, c, d}, 3);
+        // b and c are closest, c is closer to d than b to a
+        assertEquals(identitySet(new Solution[]{a, b, d}), identitySet(selected));
+    }
+
+    private Solution solution(double... objectives) {
+        Solution s = new Solution(0, objectives.length, 0);
+        for (int o = 0; o < objectives.length; o++) {
+            s.setObjective(o, objectives[o]);
+        }
+        return s;
+    }
+
+    private Set<Solution> identitySet(Solution[] solutions) {
+        Set<Solution> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(Arrays.asList(solutions));
+        return set;
+    }
+
+    private Set<Solution> referenceSelect(Solution[] s, int size, int k) {
+        int n = s.length;
+        double[][] dist = new double[n][n];
+        int[] strength = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double sum = 0;
+                for (int o = 0; o < s[i].getNumberOfObjectives(); o++) {
+                    double diff = s[i].getObjective(o) - s[j].getObjective(o);
+                    sum += diff * diff;
+                }
+                dist[i][j] = Math.sqrt(sum);
+                if (comparator.compare(s[i], s[j]) < 0) {
+                    strength[i]++;
+                }
+            }
+        }
+        double[] fitness = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (comparator.compare(s[j], s[i]) < 0) {
+                    fitness[i] += strength[j];
+                }
+            }
+            double[] sorted = dist[i].clone();
+            Arrays.sort(sorted);
+            fitness[i] += 1 / (sorted[Math.min(k, n - 1)] + 2);
+        }
+
+        List<Integer> selected = new ArrayList<>();
+        List<Integer> dominated = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            (fitness[i] < 1 ? selected : dominated).add(i);
+        }
+        if (selected.size() < size) {
+            dominated.sort(Comparator.comparingDouble(i -> fitness[i]));
+            selected.addAll(dominated.subList(0, size - selected.size()));
+        }
+        while (selected.size() > size) {
+            int worst = -1;
+            double[] worstDistances = null;
+            for (int i : selected) {
+                double[] d = selected.stream().filter(j -> j != i).mapToDouble(j -> dist[i][j]).sorted().toArray();
+                if (worstDistances == null || compare(d, worstDistances) < 0) {
+                    worst = i;
+                    worstDistances = d;
+                }
+            }
+            selected.remove(Integer.valueOf(worst));
+        }
+
+        Set<Solution> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        selected.forEach(i -> result.add(s[i]));
+        return result;
+    }
+
+    private int compare(double[] a, double[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int cmp = Double.compare(a[i], b[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+}